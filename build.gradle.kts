@@ -134,9 +134,43 @@ dependencies {
 
     implementation("commons-configuration:commons-configuration:1.10")
     implementation("org.apache.commons:commons-compress:1.26.0")
+    implementation("org.tukaani:xz:1.9")
 
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// Benchmarks JMH (src/jmh/java), executados com: gradle jmh [-Pjmh.include=<regex>] [-Pjmh.args="<opções do JMH>"]
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Executa os benchmarks JMH, com taxa de alocação (-prof gc), e grava o resultado em build/reports/jmh"
+    group = JavaBasePlugin.VERIFICATION_GROUP
+    dependsOn(jmh.classesTaskName)
+
+    val resultFile = layout.buildDirectory.file("reports/jmh/$projectName-$version.json")
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    doFirst {
+        resultFile.get().asFile.parentFile.mkdirs()
+    }
+
+    args(listOf("-prof", "gc", "-rf", "json", "-rff", resultFile.get().asFile.absolutePath))
+    (findProperty("jmh.args") as String?)?.let { extra -> args(extra.split(" ").filter { it.isNotBlank() }) }
+    (findProperty("jmh.include") as String?)?.let { args(it) }
 }
 
 tasks.test {
@@ -0,0 +1,78 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão dos appenders de console e de arquivo com o {@code log.pattern} padrão, em uma única thread.
+ * A saída do console é descartada, então o cenário mede formatação e codificação, não o terminal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppenderThroughputBenchmark {
+
+    @Param({"console", "file"})
+    public String appender;
+
+    @Param({"pattern", "garbagefree"})
+    public String encoder;
+
+    private Path logDirectory;
+    private Logger logger;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Properties properties = BenchmarkSupport.baseProperties();
+        properties.setProperty("log.encoder", encoder);
+        if ("console".equals(appender)) {
+            BenchmarkSupport.discardSystemOut();
+            properties.setProperty("log.console", "true");
+        } else {
+            logDirectory = BenchmarkSupport.createTempDirectory("appender");
+            properties.setProperty("log.file.path", logDirectory.toString());
+            properties.setProperty("log.file.maxSize", "100MB");
+        }
+
+        BenchmarkSupport.initialize(properties);
+        logger = LogManager.getLogger(AppenderThroughputBenchmark.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkSupport.shutdown();
+        BenchmarkSupport.deleteRecursively(logDirectory);
+    }
+
+    @Benchmark
+    public void infoConstant() {
+        logger.info("Pedido processado com sucesso");
+    }
+
+    @Benchmark
+    public void infoTwoArguments() {
+        logger.info("Pedido {} processado em {} ms", ++counter, 42);
+    }
+}
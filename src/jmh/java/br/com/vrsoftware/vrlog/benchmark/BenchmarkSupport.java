@@ -0,0 +1,99 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import ch.qos.logback.classic.LoggerContext;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+/**
+ * Utilitários compartilhados pelos benchmarks.
+ * <p>
+ * Cada benchmark roda em um fork próprio do JMH, então o {@link LogManager} (singleton) é
+ * inicializado uma vez por fork com as propriedades do cenário.
+ */
+final class BenchmarkSupport {
+
+    static final String DEFAULT_PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    private static PrintStream originalOut;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Propriedades base: sem console, sem arquivo e sem compactação automática.
+     */
+    static Properties baseProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("log.level", "INFO");
+        properties.setProperty("log.pattern", DEFAULT_PATTERN);
+        properties.setProperty("log.console", "false");
+        properties.setProperty("log.archive", "false");
+        return properties;
+    }
+
+    static void initialize(Properties properties) {
+        LogManager.initialize(properties);
+    }
+
+    /**
+     * Encerra o LogManager e o contexto do Logback, descarregando os appenders.
+     */
+    static void shutdown() {
+        LogManager manager = LogManager.getInstance();
+        if (manager != null) manager.shutdown();
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        restoreSystemOut();
+    }
+
+    /**
+     * Descarta a saída padrão, para medir o appender de console sem inundar a saída do JMH.
+     */
+    static void discardSystemOut() {
+        if (originalOut == null) originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    static void restoreSystemOut() {
+        if (originalOut != null) System.setOut(originalOut);
+        originalOut = null;
+    }
+
+    static Path createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory("vrlog-jmh-" + prefix);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) return;
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.util.LogCompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo de {@link LogCompressor#compressLogsByPattern(Path, String, int)} sobre diretórios
+ * sintéticos com diferentes quantidades de arquivos. Os arquivos são recriados antes de cada
+ * execução, fora da medição, a partir de um conteúdo gerado uma única vez.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final String DATE = "2025-06-19";
+
+    @Param({"4", "32"})
+    public int files;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"1048576"})
+    public int fileSize;
+
+    private byte[] content;
+    private Path logDirectory;
+
+    @Setup(Level.Trial)
+    public void generateContent() {
+        // Sem appenders: os logs do próprio LogCompressor não entram na medição
+        BenchmarkSupport.initialize(BenchmarkSupport.baseProperties());
+
+        StringBuilder sb = new StringBuilder(fileSize + 256);
+        long line = 0;
+        while (sb.length() < fileSize) {
+            sb.append(DATE).append(" 10:").append(String.format("%02d:%02d.%03d", (line / 1000) % 60, line % 60, line % 1000))
+                    .append(" [http-nio-8080-exec-").append(line % 10).append("] INFO  br.com.vrsoftware.pedido.PedidoService")
+                    .append(" - Pedido ").append(line).append(" processado em ").append(line % 500).append(" ms\n");
+            line++;
+        }
+        content = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void createFiles() throws IOException {
+        logDirectory = BenchmarkSupport.createTempDirectory("compression");
+        for (int i = 0; i < files; i++) {
+            Files.write(logDirectory.resolve("application.log." + DATE + "." + i), content);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFiles() throws IOException {
+        BenchmarkSupport.deleteRecursively(logDirectory);
+    }
+
+    @Benchmark
+    public void compressLogsByPattern() throws IOException {
+        LogCompressor.compressLogsByPattern(logDirectory, DATE, threads);
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de chamadas em níveis desabilitados (DEBUG/TRACE com log.level=INFO) através de
+ * {@link LogManager#getLogger(Class)}. Sem o gravador de eventos recentes o esperado é poucos
+ * nanossegundos e nenhuma alocação; com ele as chamadas DEBUG são copiadas para o buffer do
+ * gravador, também sem alocação (fora o array de varargs do chamador).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisabledLevelBenchmark {
+
+    @Param({"false", "true"})
+    public boolean recorder;
+
+    private Logger logger;
+    private Object argument;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Properties properties = BenchmarkSupport.baseProperties();
+        if (recorder) {
+            directory = BenchmarkSupport.createTempDirectory("recorder");
+            properties.setProperty("log.file.path", directory.toString());
+        } else {
+            properties.setProperty("log.recorder.enabled", "false");
+        }
+        BenchmarkSupport.initialize(properties);
+        logger = LogManager.getLogger(DisabledLevelBenchmark.class);
+        argument = "valor";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkSupport.shutdown();
+        if (directory != null) BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void debugConstant() {
+        logger.debug("Mensagem de depuração");
+    }
+
+    @Benchmark
+    public void debugOneArgument() {
+        logger.debug("Mensagem de depuração {}", argument);
+    }
+
+    @Benchmark
+    public void debugVarargs() {
+        logger.debug("Mensagem de depuração {} {} {}", argument, argument, argument);
+    }
+
+    @Benchmark
+    public void debugGuarded() {
+        if (logger.isDebugEnabled()) logger.debug("Mensagem de depuração {}", argument);
+    }
+
+    @Benchmark
+    public void traceOneArgument() {
+        logger.trace("Mensagem de rastreamento {}", argument);
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disputa de várias threads pelo appender de arquivo. O número de threads pode ser alterado
+ * com a opção {@code -t} do JMH (por exemplo, {@code -Pjmh.args="-t 16"}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class FileContentionBenchmark {
+
+    @Param({"stream", "mmap"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public String async;
+
+    private Path logDirectory;
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        logDirectory = BenchmarkSupport.createTempDirectory("contention");
+
+        Properties properties = BenchmarkSupport.baseProperties();
+        properties.setProperty("log.file.path", logDirectory.toString());
+        properties.setProperty("log.file.maxSize", "100MB");
+        properties.setProperty("log.file.mode", mode);
+        properties.setProperty("log.async.enabled", async);
+
+        BenchmarkSupport.initialize(properties);
+        logger = LogManager.getLogger(FileContentionBenchmark.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkSupport.shutdown();
+        BenchmarkSupport.deleteRecursively(logDirectory);
+    }
+
+    @Benchmark
+    public void infoTwoArguments() {
+        logger.info("Pedido {} processado em {} ms", Thread.currentThread().getId(), 42);
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.vrsoftware.vrlog.benchmark;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Vazão do appender de arquivo por formato ({@code log.format}). Ao final, imprime os bytes
+ * gravados por evento, para comparar o volume de E/S entre os formatos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileFormatBenchmark {
+
+    @Param({"text", "binary", "json"})
+    public String format;
+
+    private Path logDirectory;
+    private Logger logger;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Properties properties = BenchmarkSupport.baseProperties();
+        logDirectory = BenchmarkSupport.createTempDirectory("format");
+        properties.setProperty("log.file.path", logDirectory.toString());
+        properties.setProperty("log.file.maxSize", "1GB");
+        properties.setProperty("log.format", format);
+
+        BenchmarkSupport.initialize(properties);
+        logger = LogManager.getLogger(FileFormatBenchmark.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkSupport.shutdown();
+        long bytes;
+        try (Stream<Path> files = Files.list(logDirectory)) {
+            bytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        if (counter > 0) System.err.printf("%n[%s] %.1f bytes por evento%n", format, (double) bytes / counter);
+        BenchmarkSupport.deleteRecursively(logDirectory);
+    }
+
+    @Benchmark
+    public void infoTwoArguments() {
+        logger.info("Pedido {} processado em {} ms", ++counter, 42);
+    }
+}
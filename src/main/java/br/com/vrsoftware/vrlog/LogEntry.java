@@ -0,0 +1,70 @@
+package br.com.vrsoftware.vrlog;
+
+/**
+ * Evento de log lido de um arquivo ativo ou compactado por {@link LogQuery}.
+ */
+public class LogEntry {
+
+    private final long timestamp;
+    private final String level;
+    private final String thread;
+    private final String logger;
+    private final String message;
+    private final String text;
+    private final String source;
+
+    public LogEntry(long timestamp, String level, String thread, String logger, String message, String text, String source) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.thread = thread;
+        this.logger = logger;
+        this.message = message;
+        this.text = text;
+        this.source = source;
+    }
+
+    /**
+     * @return Data do evento em milissegundos
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getLogger() {
+        return logger;
+    }
+
+    /**
+     * @return Mensagem do evento, incluindo linhas de continuação (pilha de exceção)
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return Texto original do evento, como gravado no arquivo
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return Arquivo de onde o evento foi lido (e a entrada, no caso de arquivos ZIP)
+     */
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
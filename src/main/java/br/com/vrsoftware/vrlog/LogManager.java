@@ -1,7 +1,18 @@
 package br.com.vrsoftware.vrlog;
 
+import br.com.vrsoftware.vrlog.appender.CollectorAppender;
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import br.com.vrsoftware.vrlog.filter.FlightRecorder;
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import br.com.vrsoftware.vrlog.metrics.LogMetricsSnapshot;
+import br.com.vrsoftware.vrlog.util.IncrementalMaintenance;
+import br.com.vrsoftware.vrlog.util.IoRateLimiter;
+import br.com.vrsoftware.vrlog.util.LogCollector;
 import br.com.vrsoftware.vrlog.util.LogCompressor;
 import br.com.vrsoftware.vrlog.util.LogEmailSender;
+import br.com.vrsoftware.vrlog.util.LogLineParser;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.util.FileSize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,21 +24,57 @@ import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.temporal.ChronoField;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Classe principal da biblioteca de logging que gerencia a configuração e manutenção dos logs.
+ * <p>
+ * A instância padrão ({@link #initialize(Properties)}) configura o contexto padrão do SLF4J. Instâncias
+ * nomeadas ({@link #initialize(String, Properties)}) têm um contexto do Logback próprio, com caminho,
+ * níveis e retenção independentes, de modo que módulos hospedados na mesma JVM não reconfiguram uns
+ * aos outros. Todas as instâncias compartilham as mesmas threads de tarefas agendadas e, nas
+ * nomeadas, de tarefas agendadas do Logback e de escrita assíncrona. A manutenção dos arquivos, que
+ * pode levar muito tempo, roda em uma única thread dedicada, também compartilhada pelas instâncias,
+ * para não ocupar as threads agendadas.
  */
 public class LogManager {
 
+    /**
+     * Chave do contexto do Logback onde a thread de manutenção compartilhada é registrada, para que a
+     * compressão antecipada do monitor de espaço em disco rode nela (ver {@link LogbackConfigurator}).
+     */
+    public static final String MAINTENANCE_EXECUTOR_KEY = "VRLOG_MAINTENANCE_EXECUTOR";
+
+    // Threads compartilhadas pelas tarefas agendadas de todas as instâncias
+    private static final int SHARED_SCHEDULER_THREADS = 2;
+
     private static LogManager instance;
-    private final Properties properties;
-    private final String logPath;
+    private static final Map<String, LogManager> namedInstances = new HashMap<>();
+    private static ScheduledExecutorService sharedScheduler;
+    private static ScheduledExecutorService sharedMaintenanceExecutor;
+    private static int activeManagers;
+
+    private final String name;
+    private final LoggerContext context;
+    // Substituídas a cada recarga da configuração (ver reloaded)
+    private volatile Properties properties;
+    private volatile String logPath;
     private final ScheduledExecutorService scheduler;
+    private final ScheduledExecutorService maintenanceExecutor;
+    private volatile ScheduledFuture<?> maintenanceTask;
+    private volatile IncrementalMaintenance incrementalMaintenance;
+    private volatile LogCollector collector;
 
     /**
      * Inicializa o gerenciador de logs com o arquivo de propriedades especificado.
@@ -36,7 +83,7 @@ public class LogManager {
      * @return A instância do LogManager
      */
     public static synchronized LogManager initialize(String propertiesFile) {
-        if (instance == null) instance = new LogManager(propertiesFile);
+        if (instance == null) instance = new LogManager(null, defaultContext(), propertiesFile);
         return instance;
     }
 
@@ -47,10 +94,42 @@ public class LogManager {
      * @return A instância do LogManager
      */
     public static synchronized LogManager initialize(Properties properties) {
-        if (instance == null) instance = new LogManager(properties);
+        if (instance == null) instance = new LogManager(null, defaultContext(), System.nanoTime(), properties);
         return instance;
     }
 
+    /**
+     * Inicializa um gerenciador de logs nomeado, com um contexto do Logback próprio.
+     *
+     * @param name           Nome do módulo, usado também no contexto e nas métricas do JMX
+     * @param propertiesFile Caminho para o arquivo de propriedades do módulo
+     * @return A instância do módulo
+     */
+    public static synchronized LogManager initialize(String name, String propertiesFile) {
+        LogManager manager = namedInstances.get(name);
+        if (manager == null) {
+            manager = new LogManager(name, new ModuleLoggerContext(name), propertiesFile);
+            namedInstances.put(name, manager);
+        }
+        return manager;
+    }
+
+    /**
+     * Inicializa um gerenciador de logs nomeado, com um contexto do Logback próprio.
+     *
+     * @param name       Nome do módulo, usado também no contexto e nas métricas do JMX
+     * @param properties Propriedades de configuração do log do módulo
+     * @return A instância do módulo
+     */
+    public static synchronized LogManager initialize(String name, Properties properties) {
+        LogManager manager = namedInstances.get(name);
+        if (manager == null) {
+            manager = new LogManager(name, new ModuleLoggerContext(name), System.nanoTime(), properties);
+            namedInstances.put(name, manager);
+        }
+        return manager;
+    }
+
     /**
      * Obtém uma instância do logger para a classe especificada.
      *
@@ -82,6 +161,74 @@ public class LogManager {
         return instance;
     }
 
+    /**
+     * Obtém um gerenciador nomeado.
+     *
+     * @param name Nome do módulo
+     * @return A instância ou null se não inicializada
+     */
+    public static synchronized LogManager getInstance(String name) {
+        return namedInstances.get(name);
+    }
+
+    /**
+     * Obtém o gerenciador que configurou o contexto informado.
+     *
+     * @param context Contexto do Logback
+     * @return A instância ou null se o contexto não pertence a nenhum gerenciador
+     */
+    public static synchronized LogManager getInstance(LoggerContext context) {
+        if (instance != null && instance.context == context) return instance;
+        for (LogManager manager : namedInstances.values()) {
+            if (manager.context == context) return manager;
+        }
+        return null;
+    }
+
+    /**
+     * Obtém um logger do contexto desta instância.
+     *
+     * @param clazz Classe para a qual obter o logger
+     * @return Logger configurado para a classe
+     */
+    public Logger logger(Class<?> clazz) {
+        return context.getLogger(clazz);
+    }
+
+    /**
+     * Obtém um logger do contexto desta instância.
+     *
+     * @param name Nome para o qual obter o logger
+     * @return Logger configurado para o nome
+     */
+    public Logger logger(String name) {
+        return context.getLogger(name);
+    }
+
+    /**
+     * @return O contexto do Logback desta instância
+     */
+    public LoggerContext getLoggerContext() {
+        return context;
+    }
+
+    /**
+     * @return O nome do módulo, ou null na instância padrão
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtém uma cópia das métricas atuais do log (também publicadas no JMX).
+     *
+     * @return As métricas ou null se log.metrics.enabled=false
+     */
+    public LogMetricsSnapshot getMetrics() {
+        LogMetrics metrics = LogMetrics.get(context);
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
     /**
      * Obtém as propriedades de configuração atuais.
      *
@@ -91,50 +238,216 @@ public class LogManager {
         return new Properties(properties);
     }
 
-    private LogManager(String propertiesFile) {
-        this.properties = new Properties();
-        try (InputStream inputStream = new File(propertiesFile).exists() ? Files.newInputStream(Paths.get(propertiesFile)) : getClass().getClassLoader().getResourceAsStream(propertiesFile)) {
+    /**
+     * Registra as propriedades aplicadas por uma recarga da configuração do Logback
+     * ({@link br.com.vrsoftware.vrlog.util.LogConfigReloader}), para que {@link #getProperties()}
+     * e a manutenção usem os valores atuais. Se a manutenção dos arquivos mudou, ela é reiniciada.
+     *
+     * @param reloaded Propriedades recarregadas
+     */
+    public synchronized void reloaded(Properties reloaded) {
+        Properties previous = properties;
+        properties = reloaded;
+        logPath = reloaded.getProperty("log.file.path", "./logs");
+        if (!maintenanceChanged(previous, reloaded)) return;
+
+        ScheduledFuture<?> task = maintenanceTask;
+        if (task != null) task.cancel(false);
+        maintenanceTask = null;
+        IncrementalMaintenance maintenance = incrementalMaintenance;
+        if (maintenance != null) maintenance.stop();
+        incrementalMaintenance = null;
+        startDailyMaintenanceTask();
+    }
+
+    private static boolean maintenanceChanged(Properties previous, Properties current) {
+        Set<String> names = new HashSet<>(previous.stringPropertyNames());
+        names.addAll(current.stringPropertyNames());
+        for (String name : names) {
+            boolean maintenance = name.startsWith("log.maintenance.") || name.startsWith("log.archive")
+                    || name.startsWith("log.file.") || name.equals("log.format") || name.equals("log.pattern")
+                    || name.equals("log.collector.mode");
+            if (maintenance && !Objects.equals(previous.getProperty(name), current.getProperty(name))) return true;
+        }
+        return false;
+    }
+
+    private LogManager(String name, LoggerContext context, String propertiesFile) {
+        this(name, context, System.nanoTime(), loadProperties(propertiesFile));
+    }
+
+    private LogManager(String name, LoggerContext context, long start, Properties properties) {
+        this.name = name;
+        this.context = context;
+        this.properties = properties;
+        this.logPath = properties.getProperty("log.file.path", "./logs");
+        this.scheduler = acquireSharedThreads();
+        this.maintenanceExecutor = sharedMaintenanceExecutor();
+        startLogging(start);
+    }
+
+    private static Properties loadProperties(String propertiesFile) {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new File(propertiesFile).exists() ? Files.newInputStream(Paths.get(propertiesFile)) : LogManager.class.getClassLoader().getResourceAsStream(propertiesFile)) {
             if (inputStream == null) throw new IOException("Arquivo de propeties não encontrado: " + propertiesFile);
             properties.load(inputStream);
         } catch (Exception e) {
             System.err.println("Erro ao carregar arquivo de proprieades: " + e.getMessage());
         }
+        return properties;
+    }
 
-        //Configurar o Logback
-        new LogbackConfigurator(properties).configure();
+    private static LoggerContext defaultContext() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
 
-        //Configurar envio de email se habiliado
-        LogEmailSender.configureFromProperties(properties);
+    /**
+     * Obtém as threads agendadas compartilhadas, criando-as para a primeira instância ativa. A thread
+     * de manutenção segue a mesma contagem de instâncias ({@link #sharedMaintenanceExecutor()}).
+     */
+    private static synchronized ScheduledExecutorService acquireSharedThreads() {
+        activeManagers++;
+        return sharedScheduler();
+    }
 
-        this.logPath = properties.getProperty("log.file.path", "./logs");
+    private static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null || sharedScheduler.isShutdown()) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            sharedScheduler = Executors.newScheduledThreadPool(SHARED_SCHEDULER_THREADS,
+                    r -> new Thread(r, "vrlog-scheduler-" + threadNumber.incrementAndGet()));
+        }
+        return sharedScheduler;
+    }
 
-        this.scheduler = Executors.newScheduledThreadPool(1);
-        startDailyMaintenanceTask();
+    /**
+     * Obtém a thread de manutenção compartilhada, criando-a no primeiro uso. As tarefas de manutenção
+     * de todas as instâncias rodam nela, uma de cada vez.
+     */
+    private static synchronized ScheduledExecutorService sharedMaintenanceExecutor() {
+        if (sharedMaintenanceExecutor == null || sharedMaintenanceExecutor.isShutdown()) {
+            sharedMaintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "vrlog-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedMaintenanceExecutor;
+    }
 
+    /**
+     * Libera as threads compartilhadas, encerrando-as quando não há mais instâncias ativas. A
+     * manutenção em andamento é interrompida; o arquivo é retomado na próxima inicialização.
+     *
+     * @return As threads agendadas a encerrar, ou null se ainda estão em uso
+     */
+    private static synchronized ScheduledExecutorService releaseSharedThreads() {
+        if (activeManagers > 0) activeManagers--;
+        if (activeManagers > 0) return null;
+        if (sharedMaintenanceExecutor != null) sharedMaintenanceExecutor.shutdownNow();
+        sharedMaintenanceExecutor = null;
+        ScheduledExecutorService executor = sharedScheduler;
+        sharedScheduler = null;
+        return executor;
     }
 
-    private LogManager(Properties properties) {
-        this.properties = properties;
+    /**
+     * Configura o Logback, o envio de email, a manutenção diária e, com log.collector.mode=server, o
+     * coletor local. Com log.startup=lazy, o email e a manutenção são configurados em segundo plano,
+     * e os arquivos de log são abertos depois (ver {@link LogbackConfigurator}).
+     *
+     * @param start Início da inicialização, em {@link System#nanoTime()}
+     */
+    private void startLogging(long start) {
+        // A compressão antecipada por falta de espaço usa a mesma thread da manutenção
+        context.putObject(MAINTENANCE_EXECUTOR_KEY, maintenanceExecutor);
 
         //Configurar o Logback
-        new LogbackConfigurator(properties).configure();
-
-        //Configurar envio de email se habiliado
-        LogEmailSender.configureFromProperties(properties);
-
-        this.logPath = properties.getProperty("log.file.path", "./logs");
+        new LogbackConfigurator(properties, context).configure();
+
+        // Coletor local: recebe os eventos dos processos no modo cliente
+        if ("server".equalsIgnoreCase(properties.getProperty("log.collector.mode", "off"))) startCollector();
+
+        if ("lazy".equalsIgnoreCase(properties.getProperty("log.startup", "eager"))) {
+            scheduler.execute(() -> {
+                LogEmailSender.configureFromProperties(properties, context);
+                startDailyMaintenanceTask();
+            });
+        } else {
+            //Configurar envio de email se habiliado
+            LogEmailSender.configureFromProperties(properties, context);
+            startDailyMaintenanceTask();
+        }
 
-        this.scheduler = Executors.newScheduledThreadPool(1);
-        startDailyMaintenanceTask();
+        LogMetrics metrics = LogMetrics.get(context);
+        if (metrics != null) metrics.recordStartup(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     /**
-     * Inicia a tarefa de manutenção diária dos logs.
+     * Inicia a tarefa de manutenção diária dos logs, ou a manutenção incremental com
+     * log.maintenance.mode=incremental.
      */
     private void startDailyMaintenanceTask() {
+        // No modo cliente os arquivos pertencem ao coletor, que faz a manutenção
+        if ("client".equalsIgnoreCase(properties.getProperty("log.collector.mode", "off"))) return;
+
+        if ("incremental".equalsIgnoreCase(properties.getProperty("log.maintenance.mode", "daily"))) {
+            startIncrementalMaintenance();
+            return;
+        }
+
         //Executar à meia-noite todos os dias
         long initialDelay = calculateInitiDelay();
-        this.scheduler.scheduleAtFixedRate(this::performMaintenance, initialDelay, 24 * 60 * 60, TimeUnit.SECONDS);
+        this.maintenanceTask = maintenanceExecutor.scheduleAtFixedRate(this::performMaintenance, initialDelay, 24 * 60 * 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Inicia o coletor local na porta log.collector.port, repassando os eventos recebidos aos
+     * appenders deste contexto.
+     */
+    private void startCollector() {
+        LogCollector server = new LogCollector();
+        server.setContext(context);
+        server.setPort(Integer.parseInt(properties.getProperty("log.collector.port",
+                String.valueOf(CollectorAppender.DEFAULT_PORT))));
+        server.start();
+        this.collector = server;
+    }
+
+    /**
+     * Inicia a manutenção incremental: um arquivo por vez ao longo do dia, com E/S limitada.
+     */
+    private void startIncrementalMaintenance() {
+        IncrementalMaintenance maintenance = new IncrementalMaintenance(Paths.get(logPath), maintenanceExecutor);
+        maintenance.setContext(context);
+        maintenance.setRate(FileSize.valueOf(properties.getProperty("log.maintenance.rate", "2MB")).getSize());
+        maintenance.setYieldAbove(FileSize.valueOf(properties.getProperty("log.maintenance.yieldAbove", "1MB")).getSize());
+        maintenance.setMaxPause(Long.parseLong(properties.getProperty("log.maintenance.maxPause",
+                String.valueOf(IoRateLimiter.DEFAULT_MAX_PAUSE))));
+        maintenance.setInterval(Long.parseLong(properties.getProperty("log.maintenance.interval",
+                String.valueOf(IncrementalMaintenance.DEFAULT_INTERVAL))));
+        maintenance.setQuietPeriod(Long.parseLong(properties.getProperty("log.maintenance.quietPeriod",
+                String.valueOf(IncrementalMaintenance.DEFAULT_QUIET_PERIOD))));
+
+        // No modo eager os segmentos já são comprimidos na rolagem; resta a retenção
+        boolean archive = Boolean.parseBoolean(properties.getProperty("log.archive", "true"));
+        boolean eager = "eager".equalsIgnoreCase(properties.getProperty("log.archive.mode", "daily"));
+        maintenance.setCompress(archive && !eager);
+        boolean blocks = "blocks".equalsIgnoreCase(properties.getProperty("log.archive.format", "zip"))
+                && "text".equalsIgnoreCase(properties.getProperty("log.format", "text"));
+        maintenance.setCodec(blocks ? TipoCompressao.BLOCOS
+                : TipoCompressao.fromNome(properties.getProperty("log.archive.codec", "zip")));
+        maintenance.setLevel(Integer.parseInt(properties.getProperty("log.archive.level", "6")));
+        maintenance.setBlockSize((int) FileSize.valueOf(properties.getProperty("log.archive.blockSize", "1MB")).getSize());
+        maintenance.setLogPattern(properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN));
+
+        String totalSizeCap = properties.getProperty("log.file.totalSizeCap");
+        maintenance.setMaxHistory(Integer.parseInt(properties.getProperty("log.file.maxHistory", "15")));
+        maintenance.setTotalSizeCap(totalSizeCap != null && !totalSizeCap.isEmpty() ? FileSize.valueOf(totalSizeCap).getSize() : 0);
+        maintenance.setMetrics(LogMetrics.get(context));
+        // Sem métricas, a taxa de escrita é medida pelo crescimento do arquivo ativo
+        maintenance.setActiveFile(Paths.get(logPath, properties.getProperty("log.file.name", "application.log")));
+        maintenance.start();
+        this.incrementalMaintenance = maintenance;
     }
 
     /**
@@ -164,12 +477,32 @@ public class LogManager {
             // Comprimir logs do dia anterior
             LocalDate ontem = LocalDate.now().minusDays(1);
 
-            // Verificar se a compactação está habilitada
-            if (Boolean.parseBoolean(properties.getProperty("log.archive", "true"))) LogCompressor.compressLogsByDate(Paths.get(logPath), ontem);
-            LogCompressor.cleanupOldLogs(Paths.get(logPath), Integer.parseInt(properties.getProperty("log.file.maxHistory", "15")));
+            // Verificar se a compactação está habilitada (no modo eager a compressão é feita na rolagem)
+            boolean eager = "eager".equalsIgnoreCase(properties.getProperty("log.archive.mode", "daily"));
+            LogMetrics metrics = LogMetrics.get(context);
+            if (Boolean.parseBoolean(properties.getProperty("log.archive", "true")) && !eager) {
+                long start = System.currentTimeMillis();
+                int threads = Integer.parseInt(properties.getProperty("log.archive.threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors())));
+                if ("blocks".equalsIgnoreCase(properties.getProperty("log.archive.format", "zip"))
+                        && "text".equalsIgnoreCase(properties.getProperty("log.format", "text"))) {
+                    LogCompressor.compressLogsToBlocks(Paths.get(logPath), ontem,
+                            (int) FileSize.valueOf(properties.getProperty("log.archive.blockSize", "1MB")).getSize(),
+                            Integer.parseInt(properties.getProperty("log.archive.level", "6")),
+                            properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN));
+                } else {
+                    LogCompressor.compressLogsByDate(Paths.get(logPath), ontem, threads);
+                }
+                if (metrics != null) metrics.recordCompression(System.currentTimeMillis() - start);
+            }
+            long retentionStart = System.currentTimeMillis();
+            String totalSizeCap = properties.getProperty("log.file.totalSizeCap");
+            LogCompressor.cleanupOldLogs(Paths.get(logPath), Integer.parseInt(properties.getProperty("log.file.maxHistory", "15")),
+                    totalSizeCap != null && !totalSizeCap.isEmpty() ? FileSize.valueOf(totalSizeCap).getSize() : 0);
+            if (metrics != null) metrics.recordRetention(System.currentTimeMillis() - retentionStart);
 
             // Log da operação de manutençãoF
-            Logger logger = LoggerFactory.getLogger(LogManager.class);
+            Logger logger = context.getLogger(LogManager.class);
             logger.info("Manutenção diária de logs concluída");
 
         } catch (Exception e) {
@@ -178,14 +511,61 @@ public class LogManager {
         }
     }
 
+    /**
+     * Encerra a manutenção e o coletor local desta instância. Nas instâncias nomeadas, também encerra o contexto do
+     * Logback, gravando o que estiver pendente. As threads compartilhadas são encerradas junto com a
+     * última instância ativa.
+     */
     public void shutdown() {
-        scheduler.shutdown();
+        // Grava os eventos recentes antes de encerrar (log.recorder.enabled=true)
+        FlightRecorder recorder = FlightRecorder.get(context);
+        if (recorder != null) recorder.dump("shutdown");
+
+        LogCollector server = collector;
+        if (server != null) server.stop();
+
+        // Uma compressão em andamento é interrompida; o arquivo é retomado na próxima inicialização.
+        // A thread de manutenção é compartilhada e só é encerrada com a última instância
+        ScheduledFuture<?> task = maintenanceTask;
+        if (task != null) task.cancel(true);
+        IncrementalMaintenance maintenance = incrementalMaintenance;
+        if (maintenance != null) maintenance.stop();
+        context.removeObject(MAINTENANCE_EXECUTOR_KEY);
+
+        if (name != null) {
+            synchronized (LogManager.class) {
+                namedInstances.remove(name, this);
+            }
+            context.stop();
+        }
+
+        ScheduledExecutorService executor = releaseSharedThreads();
+        if (executor == null) return;
+        executor.shutdown();
         try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) scheduler.shutdownNow();
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) executor.shutdownNow();
         } catch (InterruptedException e) {
-            scheduler.shutdownNow();
+            executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Contexto de uma instância nomeada. As tarefas agendadas do Logback (como a troca de appenders
+     * na recarga e os filtros com janela de tempo) usam as threads compartilhadas, em vez de um
+     * conjunto de threads por contexto.
+     */
+    private static final class ModuleLoggerContext extends LoggerContext {
+
+        ModuleLoggerContext(String name) {
+            setName(name);
+            start();
+        }
+
+        @Override
+        public ScheduledExecutorService getScheduledExecutorService() {
+            return sharedScheduler();
+        }
+    }
+
 }
\ No newline at end of file
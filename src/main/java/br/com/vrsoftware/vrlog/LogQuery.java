@@ -0,0 +1,724 @@
+package br.com.vrsoftware.vrlog;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import br.com.vrsoftware.vrlog.util.BinaryLogReader;
+import br.com.vrsoftware.vrlog.util.BlockArchiveReader;
+import br.com.vrsoftware.vrlog.util.BlockArchiveWriter;
+import br.com.vrsoftware.vrlog.util.LogLineParser;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.PatternLayout;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Consulta eventos de log por período, nível, logger e texto, lendo diretamente o arquivo
+ * ativo, os segmentos rolados e os arquivos compactados, sem extraí-los para o disco. Nos arquivos
+ * em blocos ({@code .vrlb}) somente os blocos que cruzam o período são descomprimidos.
+ * <p>
+ * Os arquivos são lidos em paralelo e arquivos cujo nome indica uma data fora do período são
+ * ignorados. Arquivos no formato binário ({@code log.format=binary}) são reconhecidos pelo
+ * cabeçalho e reconstruídos com o padrão do log; arquivos JSON ({@code log.format=json}) são
+ * reconhecidos pelo primeiro caractere, um objeto por linha. A leitura é interrompida assim que o limite de
+ * resultados é atingido; por isso, com limite, os eventos retornados não são necessariamente os
+ * primeiros do período.
+ * <p>
+ * Uso pela linha de comando:
+ * <pre>
+ * java -cp VRLog.jar br.com.vrsoftware.vrlog.LogQuery --config logging.properties
+ *      --from "2025-06-19 10:00:00" --to "2025-06-19 11:00:00" --level WARN
+ *      --logger br.com.vrsoftware --text timeout --limit 100
+ * </pre>
+ */
+public class LogQuery {
+
+    private static final Pattern DATE_IN_NAME = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+
+    private final Path logDirectory;
+    private final String fileName;
+    private final String pattern;
+
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+    private Level minLevel = Level.TRACE;
+    private String loggerPrefix;
+    private String text;
+    private int limit = Integer.MAX_VALUE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private final List<String> failures = new CopyOnWriteArrayList<>();
+
+    /**
+     * Cria uma consulta sobre os logs definidos nas propriedades (log.file.path, log.file.name e log.pattern).
+     *
+     * @param properties Propriedades de configuração do log
+     */
+    public LogQuery(Properties properties) {
+        this.logDirectory = Paths.get(properties.getProperty("log.file.path", "./logs"));
+        this.fileName = properties.getProperty("log.file.name", "application.log");
+        this.pattern = properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN);
+    }
+
+    /**
+     * @param from Início do período em milissegundos (inclusivo)
+     */
+    public LogQuery from(long from) {
+        this.from = from;
+        return this;
+    }
+
+    /**
+     * @param to Fim do período em milissegundos (inclusivo)
+     */
+    public LogQuery to(long to) {
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * @param minLevel Nível mínimo dos eventos (TRACE, DEBUG, INFO, WARN, ERROR)
+     */
+    public LogQuery minLevel(String minLevel) {
+        this.minLevel = Level.toLevel(minLevel, Level.TRACE);
+        return this;
+    }
+
+    /**
+     * @param loggerPrefix Prefixo do nome do logger, como gravado no arquivo
+     */
+    public LogQuery loggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+        return this;
+    }
+
+    /**
+     * @param text Texto que deve aparecer no evento
+     */
+    public LogQuery text(String text) {
+        this.text = text;
+        return this;
+    }
+
+    /**
+     * @param limit Número máximo de eventos retornados
+     */
+    public LogQuery limit(int limit) {
+        this.limit = Math.max(1, limit);
+        return this;
+    }
+
+    /**
+     * @param threads Número de arquivos lidos em paralelo
+     */
+    public LogQuery threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Executa a consulta, entregando cada evento encontrado ao consumidor. O consumidor é chamado
+     * por uma thread de cada vez, mas não necessariamente em ordem cronológica.
+     *
+     * @param consumer Consumidor dos eventos
+     * @return Quantidade de eventos entregues
+     * @throws IOException Se o diretório de logs não puder ser lido
+     */
+    public int execute(Consumer<LogEntry> consumer) throws IOException {
+        failures.clear();
+        List<Path> sources = findSources();
+        if (sources.isEmpty()) return 0;
+
+        AtomicInteger count = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        Consumer<LogEntry> sink = entry -> {
+            synchronized (count) {
+                if (count.get() >= limit) return;
+                consumer.accept(entry);
+                if (count.incrementAndGet() >= limit) stop.set(true);
+            }
+        };
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, sources.size()), r -> {
+            Thread t = new Thread(r, "log-query-thread-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path source : sources) {
+                futures.add(executor.submit(() -> {
+                    if (stop.get()) return;
+                    try {
+                        scanSource(source, sink, stop);
+                    } catch (IOException | RuntimeException e) {
+                        failures.add(source + ": " + e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            failures.add(String.valueOf(e.getCause()));
+        } finally {
+            executor.shutdownNow();
+        }
+        return count.get();
+    }
+
+    /**
+     * Executa a consulta e retorna os eventos em ordem cronológica.
+     *
+     * @return Eventos encontrados
+     * @throws IOException Se o diretório de logs não puder ser lido
+     */
+    public List<LogEntry> list() throws IOException {
+        List<LogEntry> result = new ArrayList<>();
+        execute(result::add);
+        result.sort(Comparator.comparingLong(LogEntry::getTimestamp));
+        return result;
+    }
+
+    /**
+     * @return Arquivos que não puderam ser lidos na última execução, com o motivo
+     */
+    public List<String> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    // ------------------------------------------------------------------
+    // Seleção de arquivos
+    // ------------------------------------------------------------------
+
+    /**
+     * Seleciona os arquivos de log do diretório, descartando os que estão fora do período.
+     */
+    List<Path> findSources() throws IOException {
+        List<Path> sources = new ArrayList<>();
+        if (!Files.isDirectory(logDirectory)) return sources;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                boolean logFile = name.startsWith(fileName) || (name.startsWith("logs-") && TipoCompressao.fromArquivo(name) != null);
+                if (!logFile || name.endsWith(".tmp") || name.endsWith(BlockArchiveWriter.INDEX_SUFFIX)
+                        || !Files.isRegularFile(file)) continue;
+
+                if (name.equals(fileName)) {
+                    // O arquivo ativo não tem eventos posteriores à sua última modificação
+                    if (Files.getLastModifiedTime(file).toMillis() < from) continue;
+                } else if (!isInRange(name)) {
+                    continue;
+                }
+                sources.add(file);
+            }
+        }
+        Collections.sort(sources);
+        return sources;
+    }
+
+    /**
+     * Verifica se a data contida no nome do arquivo (ou entrada) pode conter eventos do período.
+     */
+    private boolean isInRange(String name) {
+        Matcher matcher = DATE_IN_NAME.matcher(name);
+        if (!matcher.find()) return true;
+        try {
+            LocalDate date = LocalDate.parse(matcher.group(1));
+            long dayStart = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long dayEnd = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return dayEnd > from && dayStart <= to;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Leitura
+    // ------------------------------------------------------------------
+
+    private void scanSource(Path source, Consumer<LogEntry> sink, AtomicBoolean stop) throws IOException {
+        String name = source.getFileName().toString();
+        TipoCompressao tipo = TipoCompressao.fromArquivo(name);
+
+        if (tipo == null) {
+            try (InputStream in = Files.newInputStream(source)) {
+                scanStream(in, name, sink, stop);
+            }
+        } else if (tipo == TipoCompressao.BLOCOS) {
+            // Somente os blocos que cruzam o período são descomprimidos
+            try (BlockArchiveReader reader = new BlockArchiveReader(source)) {
+                for (String entry : reader.getEntryNames()) {
+                    if (stop.get()) return;
+                    try (InputStream in = reader.open(entry, from, to)) {
+                        scanStream(in, name + "!" + entry, sink, stop);
+                    }
+                }
+            }
+        } else if (tipo == TipoCompressao.ZIP) {
+            try (ZipFile zip = new ZipFile(source.toFile())) {
+                List<ZipEntry> entries = new ArrayList<>();
+                for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                    ZipEntry entry = e.nextElement();
+                    if (!entry.isDirectory() && isInRange(entry.getName())) entries.add(entry);
+                }
+                entries.sort(Comparator.comparing(ZipEntry::getName));
+                for (ZipEntry entry : entries) {
+                    if (stop.get()) return;
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        scanStream(in, name + "!" + entry.getName(), sink, stop);
+                    }
+                }
+            }
+        } else {
+            try (InputStream in = openCompressed(source, tipo)) {
+                scanStream(in, name, sink, stop);
+            }
+        }
+    }
+
+    private static InputStream openCompressed(Path source, TipoCompressao tipo) throws IOException {
+        String compressor;
+        switch (tipo) {
+            case GZIP:
+                compressor = CompressorStreamFactory.GZIP;
+                break;
+            case BZIP2:
+                compressor = CompressorStreamFactory.BZIP2;
+                break;
+            case XZ:
+                compressor = CompressorStreamFactory.XZ;
+                break;
+            default:
+                throw new IOException("Formato não suportado: " + tipo);
+        }
+
+        InputStream in = new BufferedInputStream(Files.newInputStream(source));
+        try {
+            return new CompressorStreamFactory().createCompressorInputStream(compressor, in);
+        } catch (CompressorException e) {
+            in.close();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lê os eventos de um fluxo de texto. Os eventos de um mesmo arquivo estão em ordem
+     * cronológica, então a leitura termina no primeiro evento posterior ao período.
+     */
+    private void scanStream(InputStream in, String sourceName, Consumer<LogEntry> sink, AtomicBoolean stop) throws IOException {
+        if (!in.markSupported()) in = new BufferedInputStream(in, 64 * 1024);
+        if (BinaryLogReader.isBinary(in)) {
+            scanBinary(in, sourceName, sink, stop);
+            return;
+        }
+        if (isJson(in)) {
+            scanJson(in, sourceName, sink, stop);
+            return;
+        }
+
+        LogLineParser parser = new LogLineParser(pattern);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        PendingEntry pending = new PendingEntry();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (stop.get()) return;
+
+            if (parser.parse(line)) {
+                pending.emit(sourceName, sink);
+                long timestamp = parser.getTimestamp();
+                if (timestamp > to) return;
+                pending.start(timestamp, parser, line);
+            } else {
+                pending.append(line);
+            }
+        }
+        pending.emit(sourceName, sink);
+    }
+
+    /**
+     * Lê os eventos de um arquivo no formato binário (log.format=binary), reconstruindo o texto com o padrão do log.
+     */
+    private void scanBinary(InputStream in, String sourceName, Consumer<LogEntry> sink, AtomicBoolean stop) throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(in);
+        PatternLayout layout = reader.createLayout(pattern);
+
+        while (true) {
+            try {
+                if (!reader.next()) return;
+            } catch (EOFException e) {
+                // Arquivo ativo com o último evento ainda sendo gravado
+                return;
+            }
+            if (stop.get()) return;
+
+            long timestamp = reader.getTimestamp();
+            if (timestamp > to) return;
+            if (timestamp < from || !reader.getLevel().isGreaterOrEqual(minLevel)) continue;
+            String logger = reader.getLoggerName();
+            if (loggerPrefix != null && !logger.startsWith(loggerPrefix)) continue;
+
+            String text = reader.render(layout);
+            int end = text.length();
+            while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) end--;
+            text = text.substring(0, end);
+            if (this.text != null && !text.contains(this.text)) continue;
+
+            String message = reader.getThrowable() != null ? reader.getMessage() + '\n' + reader.getThrowable().trim() : reader.getMessage();
+            sink.accept(new LogEntry(timestamp, reader.getLevel().toString(), reader.getThreadName(), logger, message, text, sourceName));
+        }
+    }
+
+    /**
+     * Verifica, sem consumir o fluxo, se o primeiro caractere não branco abre um objeto JSON.
+     */
+    private static boolean isJson(InputStream in) throws IOException {
+        in.mark(256);
+        try {
+            for (int i = 0; i < 256; i++) {
+                int b = in.read();
+                if (b < 0) return false;
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n') continue;
+                return b == '{';
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Lê os eventos de um arquivo JSON (log.format=json), um objeto por linha. Uma linha incompleta
+     * no fim do arquivo ativo é ignorada.
+     */
+    private void scanJson(InputStream in, String sourceName, Consumer<LogEntry> sink, AtomicBoolean stop) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        Map<String, String> fields = new HashMap<>();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (stop.get()) return;
+            if (!JsonLine.parse(line, fields)) continue;
+
+            String time = fields.get("timestamp");
+            if (time == null) continue;
+            long timestamp;
+            try {
+                timestamp = OffsetDateTime.parse(time).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (timestamp > to) return;
+            if (timestamp < from) continue;
+
+            String level = fields.get("level");
+            if (level != null && !Level.toLevel(level, Level.TRACE).isGreaterOrEqual(minLevel)) continue;
+            String logger = fields.get("logger");
+            if (loggerPrefix != null && (logger == null || !logger.startsWith(loggerPrefix))) continue;
+
+            String message = fields.get("message");
+            String exception = fields.get("exception");
+            if (exception != null) message = (message != null ? message + '\n' : "") + exception.trim();
+            if (text != null && !line.contains(text) && (message == null || !message.contains(text))) continue;
+
+            sink.accept(new LogEntry(timestamp, level, fields.get("thread"), logger, message, line, sourceName));
+        }
+    }
+
+    /**
+     * Leitura dos campos de texto de primeiro nível de um objeto JSON em uma linha, como gravado pelo
+     * {@link br.com.vrsoftware.vrlog.encoder.JsonEncoder}. Valores que não são texto (números,
+     * {@code arguments}, {@code mdc}) são ignorados.
+     */
+    static final class JsonLine {
+        private final String line;
+        private int pos;
+
+        private JsonLine(String line) {
+            this.line = line;
+        }
+
+        /**
+         * @param fields Recebe os campos de texto; é limpo antes da leitura
+         * @return false se a linha não é um objeto JSON completo
+         */
+        static boolean parse(String line, Map<String, String> fields) {
+            fields.clear();
+            JsonLine parser = new JsonLine(line);
+            try {
+                parser.skipSpaces();
+                if (!parser.consume('{')) return false;
+                parser.skipSpaces();
+                if (parser.consume('}')) return true;
+                do {
+                    parser.skipSpaces();
+                    String name = parser.readString();
+                    parser.skipSpaces();
+                    if (!parser.consume(':')) return false;
+                    parser.skipSpaces();
+                    if (parser.peek() == '"') {
+                        fields.put(name, parser.readString());
+                    } else {
+                        parser.skipValue();
+                    }
+                    parser.skipSpaces();
+                } while (parser.consume(','));
+                return parser.consume('}');
+            } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                return false;
+            }
+        }
+
+        private char peek() {
+            return line.charAt(pos);
+        }
+
+        private boolean consume(char c) {
+            if (pos < line.length() && line.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) pos++;
+        }
+
+        private String readString() {
+            if (!consume('"')) throw new IllegalArgumentException("Texto esperado na posição " + pos);
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = line.charAt(pos++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = line.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        out.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                }
+            }
+        }
+
+        /**
+         * Avança sobre um número, literal, lista ou objeto, respeitando os textos internos.
+         */
+        private void skipValue() {
+            int depth = 0;
+            while (true) {
+                char c = peek();
+                if (c == '"') {
+                    readString();
+                } else if (c == '[' || c == '{') {
+                    depth++;
+                    pos++;
+                } else if (c == ']' || c == '}') {
+                    if (depth == 0) return;
+                    depth--;
+                    pos++;
+                } else if (c == ',' && depth == 0) {
+                    return;
+                } else {
+                    pos++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evento em montagem, aguardando possíveis linhas de continuação.
+     */
+    private final class PendingEntry {
+        private boolean active;
+        private long timestamp;
+        private String level;
+        private String thread;
+        private String logger;
+        private final StringBuilder message = new StringBuilder();
+        private final StringBuilder text = new StringBuilder();
+
+        void start(long timestamp, LogLineParser parser, String line) {
+            this.active = timestamp >= from;
+            if (!active) return;
+            this.timestamp = timestamp;
+            this.level = parser.getLevel();
+            this.thread = parser.getThread();
+            this.logger = parser.getLogger();
+            this.message.setLength(0);
+            this.text.setLength(0);
+            String msg = parser.getMessage();
+            if (msg != null) message.append(msg);
+            text.append(line);
+        }
+
+        void append(String line) {
+            if (!active) return;
+            message.append('\n').append(line);
+            text.append('\n').append(line);
+        }
+
+        void emit(String sourceName, Consumer<LogEntry> sink) {
+            if (!active) return;
+            active = false;
+
+            if (level != null && !Level.toLevel(level, Level.TRACE).isGreaterOrEqual(minLevel)) return;
+            if (loggerPrefix != null && (logger == null || !logger.startsWith(loggerPrefix))) return;
+            if (text != null && LogQuery.this.text != null && this.text.indexOf(LogQuery.this.text) < 0) return;
+
+            sink.accept(new LogEntry(timestamp, level, thread, logger, message.toString(), this.text.toString(), sourceName));
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Linha de comando
+    // ------------------------------------------------------------------
+
+    /**
+     * Ponto de entrada da linha de comando. Opções: --config, --from, --to, --level, --logger,
+     * --text, --limit e --threads. Datas no formato {@code yyyy-MM-dd} ou {@code yyyy-MM-dd HH:mm:ss}.
+     */
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        List<String[]> options = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (!option.startsWith("--") || i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            options.add(new String[]{option, args[++i]});
+        }
+
+        for (String[] option : options) {
+            if ("--config".equals(option[0])) {
+                File file = new File(option[1]);
+                try (InputStream in = file.exists() ? Files.newInputStream(file.toPath())
+                        : LogQuery.class.getClassLoader().getResourceAsStream(option[1])) {
+                    if (in == null) throw new IOException("Arquivo de properties não encontrado: " + option[1]);
+                    properties.load(in);
+                }
+            }
+        }
+        LogQuery query = new LogQuery(properties);
+
+        for (String[] option : options) {
+            switch (option[0]) {
+                case "--config":
+                    break;
+                case "--from":
+                    query.from(parseDate(option[1], false));
+                    break;
+                case "--to":
+                    query.to(parseDate(option[1], true));
+                    break;
+                case "--level":
+                    query.minLevel(option[1]);
+                    break;
+                case "--logger":
+                    query.loggerPrefix(option[1]);
+                    break;
+                case "--text":
+                    query.text(option[1]);
+                    break;
+                case "--limit":
+                    query.limit(Integer.parseInt(option[1]));
+                    break;
+                case "--threads":
+                    query.threads(Integer.parseInt(option[1]));
+                    break;
+                default:
+                    printUsage();
+                    return;
+            }
+        }
+
+        for (LogEntry entry : query.list()) {
+            System.out.println(entry.getText());
+        }
+        for (String failure : query.getFailures()) {
+            System.err.println("Falha ao ler " + failure);
+        }
+    }
+
+    private static long parseDate(String value, boolean endOfDay) throws ParseException {
+        if (value.length() == 10) {
+            LocalDate date = LocalDate.parse(value);
+            if (endOfDay) date = date.plusDays(1);
+            Instant instant = date.atStartOfDay(ZoneId.systemDefault()).toInstant();
+            return endOfDay ? instant.toEpochMilli() - 1 : instant.toEpochMilli();
+        }
+        return new SimpleDateFormat(value.length() > 19 ? "yyyy-MM-dd HH:mm:ss.SSS" : "yyyy-MM-dd HH:mm:ss").parse(value).getTime();
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: LogQuery --config <arquivo> [--from <data>] [--to <data>] [--level <nível>]"
+                + " [--logger <prefixo>] [--text <texto>] [--limit <n>] [--threads <n>]");
+    }
+}
@@ -1,21 +1,70 @@
 package br.com.vrsoftware.vrlog;
 
+import br.com.vrsoftware.vrlog.appender.AsyncRingBufferAppender;
+import br.com.vrsoftware.vrlog.appender.CollectorAppender;
+import br.com.vrsoftware.vrlog.appender.DeferredAppender;
+import br.com.vrsoftware.vrlog.appender.DirectConsoleAppender;
+import br.com.vrsoftware.vrlog.appender.MappedRollingFileAppender;
+import br.com.vrsoftware.vrlog.appender.MeteredAppender;
+import br.com.vrsoftware.vrlog.appender.MetricsAppender;
+import br.com.vrsoftware.vrlog.appender.NotifyingRollingPolicy;
+import br.com.vrsoftware.vrlog.appender.OrderedRollingFileAppender;
+import br.com.vrsoftware.vrlog.appender.SharedWriterPool;
+import br.com.vrsoftware.vrlog.appender.ShippingAppender;
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import br.com.vrsoftware.vrlog.encoder.BinaryLogEncoder;
+import br.com.vrsoftware.vrlog.encoder.GarbageFreePatternEncoder;
+import br.com.vrsoftware.vrlog.encoder.JsonEncoder;
+import br.com.vrsoftware.vrlog.encoder.MeteredEncoder;
+import br.com.vrsoftware.vrlog.filter.DiskPressureFilter;
+import br.com.vrsoftware.vrlog.filter.DuplicateMessageFilter;
+import br.com.vrsoftware.vrlog.filter.FlightRecorder;
+import br.com.vrsoftware.vrlog.filter.SamplingFilter;
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import br.com.vrsoftware.vrlog.util.ArchiveManifest;
+import br.com.vrsoftware.vrlog.util.ArchivePipeline;
+import br.com.vrsoftware.vrlog.util.HttpLogTransport;
+import br.com.vrsoftware.vrlog.util.LogLineParser;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.filter.Filter;
 import ch.qos.logback.core.rolling.RollingFileAppender;
-import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.status.ErrorStatus;
+import ch.qos.logback.core.status.InfoStatus;
+import ch.qos.logback.core.status.WarnStatus;
 import ch.qos.logback.core.util.FileSize;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Classe responsável por configurar o Logback programaticamente
@@ -25,6 +74,12 @@ public class LogbackConfigurator {
     private final Properties properties;
     private final LoggerContext context;
 
+    // Tempo até o appender substituído ser parado, para que escritas em andamento terminem
+    private static final long APPENDER_STOP_DELAY_MS = 1000;
+
+    /** Prefixo do nome dos appenders de arquivo das rotas por pacote (log.route.*), seguido do nome do arquivo. */
+    public static final String ROUTE_APPENDER_PREFIX = "ROUTE-";
+
     // Mapeamento de strings de nível para enum Level do Logback
     private static final Map<String, Level> LEVEL_MAP = new HashMap<>();
 
@@ -38,15 +93,27 @@ public class LogbackConfigurator {
     }
 
     public LogbackConfigurator(Properties properties) {
+        this(properties, (LoggerContext) LoggerFactory.getILoggerFactory());
+    }
+
+    /**
+     * @param properties Propriedades de configuração do log
+     * @param context    Contexto do Logback a configurar (ver {@link LogManager#initialize(String, Properties)})
+     */
+    public LogbackConfigurator(Properties properties, LoggerContext context) {
         this.properties = properties;
-        this.context = (LoggerContext) LoggerFactory.getILoggerFactory();
-        context.reset();
+        this.context = context;
     }
 
     /**
-     * Configura o Logback de acordo com as propriedades.
+     * Configura o Logback de acordo com as propriedades, descartando toda a configuração anterior.
      */
     public void configure() {
+        // A thread de manutenção pertence ao LogManager e continua valendo após o reset do contexto
+        Object maintenanceExecutor = context.getObject(LogManager.MAINTENANCE_EXECUTOR_KEY);
+        context.reset();
+        if (maintenanceExecutor != null) context.putObject(LogManager.MAINTENANCE_EXECUTOR_KEY, maintenanceExecutor);
+
         // Configura o logger raiz
         Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
 
@@ -58,19 +125,84 @@ public class LogbackConfigurator {
         String pattern = properties.getProperty("log.pattern",
                 "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
 
+        List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+
         // Adiciona appender de console se habilitado
         if (Boolean.parseBoolean(properties.getProperty("log.console", "true"))) {
-            rootLogger.addAppender(createConsoleAppender(pattern));
+            appenders.add(createConsoleAppender(pattern));
         }
 
         // Adiciona appender de arquivo se o caminho estiver definido
         String filePath = properties.getProperty("log.file.path");
         String fileName = properties.getProperty("log.file.name", "application.log");
 
-        if (filePath != null && !filePath.isEmpty()) {
-            rootLogger.addAppender(createFileAppender(pattern, filePath, fileName));
+        // Métricas: contagem por nível e latência de cada appender
+        LogMetrics metrics = getMetrics();
+
+        if (isCollectorClient()) {
+            // O arquivo é gravado pelo coletor local; este processo apenas envia os eventos
+            appenders.add(createCollectorAppender(pattern, metrics));
+        } else if (filePath != null && !filePath.isEmpty()) {
+            appenders.add(createStartupFileAppender("FILE", pattern, filePath, fileName));
+        }
+
+        // Envio remoto: no modo cliente do coletor, quem envia é o coletor, que recebe todos os eventos
+        if (Boolean.parseBoolean(properties.getProperty("log.ship.enabled", "false")) && !isCollectorClient()) {
+            ShippingAppender shippingAppender = createShippingAppender(metrics);
+            if (shippingAppender != null) appenders.add(shippingAppender);
+        }
+
+        if (metrics != null) {
+            MetricsAppender metricsAppender = new MetricsAppender(metrics);
+            metricsAppender.setContext(context);
+            metricsAppender.setName(MetricsAppender.NAME);
+            metricsAppender.start();
+            rootLogger.addAppender(metricsAppender);
+            appenders.replaceAll(appender -> meter(appender, metrics));
+        }
+
+        // No modo assíncrono os appenders reais ficam atrás do buffer circular
+        if (Boolean.parseBoolean(properties.getProperty("log.async.enabled", "false")) && !appenders.isEmpty()) {
+            AsyncRingBufferAppender asyncAppender = createAsyncAppender(AsyncRingBufferAppender.NAME, appenders);
+            if (metrics != null) metrics.registerDropCounter(AsyncRingBufferAppender.NAME, asyncAppender::getDiscardedCount);
+            rootLogger.addAppender(meter(asyncAppender, metrics));
+        } else {
+            appenders.forEach(rootLogger::addAppender);
+        }
+
+        // Rotas por pacote (log.route.<pacote>=<arquivo>): cada arquivo tem o próprio appender,
+        // compartilhado pelas rotas que apontam para ele
+        Map<String, List<Appender<ILoggingEvent>>> pool = new HashMap<>();
+        routes().forEach((packageName, routeFile) -> {
+            List<Appender<ILoggingEvent>> routeAppenders = pool.computeIfAbsent(routeFile,
+                    file -> createRouteAppenders(pattern, filePath, file, appenders, metrics));
+            Logger logger = context.getLogger(packageName);
+            logger.setAdditive(false);
+            routeAppenders.forEach(logger::addAppender);
+        });
+
+        // Gravador de eventos recentes: primeiro filtro, para ver inclusive o que os demais descartam
+        if (Boolean.parseBoolean(properties.getProperty("log.recorder.enabled", "true"))) {
+            FlightRecorder recorder = createFlightRecorder(pattern);
+            if (recorder != null) context.addTurboFilter(recorder);
+        }
+
+        // Pressão de disco: depois do gravador, para que ele continue vendo todos os eventos. No modo
+        // cliente do coletor o disco é monitorado pelo coletor, que mantém os arquivos
+        if (Boolean.parseBoolean(properties.getProperty("log.disk.enabled", "false")) && !isCollectorClient()) {
+            context.addTurboFilter(createDiskPressureFilter(metrics));
         }
 
+        // Supressão de mensagens repetidas, antes da criação dos eventos
+        if (Boolean.parseBoolean(properties.getProperty("log.dedup.enabled", "false"))) {
+            context.addTurboFilter(createDedupFilter(metrics));
+        }
+
+        // Amostragem de DEBUG/TRACE por pacote (log.sample.<pacote>=<eventos por segundo>). Por último,
+        // porque os eventos anotados são entregues aos appenders pelo próprio filtro
+        SamplingFilter samplingFilter = createSamplingFilter(metrics);
+        if (samplingFilter != null) context.addTurboFilter(samplingFilter);
+
         // Configura loggers específicos por pacote
         properties.forEach((key, value) -> {
             String keyStr = (String) key;
@@ -78,6 +210,8 @@ public class LogbackConfigurator {
                 String packageName = keyStr.substring("log.level.".length());
                 Logger logger = context.getLogger(packageName);
                 logger.setLevel(getLevel((String) value));
+                // Dentro de uma rota o logger herda os appenders da rota
+                if (isRouted(packageName)) return;
                 // Não propagar para o logger raiz para evitar duplicação de logs
                 logger.setAdditive(false);
 
@@ -85,6 +219,384 @@ public class LogbackConfigurator {
                 rootLogger.iteratorForAppenders().forEachRemaining(logger::addAppender);
             }
         });
+
+        // Níveis e filtros definidos: atualiza o nível guardado nos VRLogger
+        VRLogger.refresh(context);
+    }
+
+    /**
+     * Aplica somente o que mudou entre as propriedades anteriores e as atuais, sem reiniciar o contexto:
+     * níveis são alterados no próprio logger e mudanças no padrão, no arquivo ou no console trocam
+     * apenas os appenders afetados. O appender novo é anexado antes de o antigo ser removido, e o
+     * antigo só é parado depois de um intervalo, de modo que as threads de log não bloqueiam nem
+     * perdem eventos; um appender em uso nunca é alterado.
+     * <p>
+     * Mudanças que não podem ser aplicadas em partes (escrita assíncrona, métricas, rotas por pacote, ou
+     * saídas e padrão quando há rotas) levam a uma reconfiguração completa.
+     *
+     * @param previous Propriedades aplicadas anteriormente
+     */
+    public void reconfigure(Properties previous) {
+        // Com rotas, console, arquivo e padrão também são usados pelos appenders de cada rota
+        boolean routed = hasRoutes(previous) || hasRoutes(properties);
+        if (changed(previous, "log.async.") || changed(previous, "log.metrics.") || changed(previous, "log.route.")
+                || changed(previous, "log.collector.") || changed(previous, "log.ship.")
+                || routed && (changed(previous, "log.console") || changed(previous, "log.file.") || changed(previous, "log.archive")
+                || changed(previous, "log.format") || changed(previous, "log.pattern") || changed(previous, "log.encoder"))) {
+            context.getLogger(Logger.ROOT_LOGGER_NAME).info("Configuração assíncrona, de métricas, de rotas ou do coletor alterada; reconfigurando o log por completo");
+            configure();
+            return;
+        }
+
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+
+        // Supressão de repetições e amostragem: o filtro novo entra no lugar do anterior
+        if (changed(previous, "log.dedup.")) {
+            replaceTurboFilter(DuplicateMessageFilter.NAME,
+                    Boolean.parseBoolean(properties.getProperty("log.dedup.enabled", "false")) ? createDedupFilter(getMetrics()) : null);
+        }
+        if (changed(previous, "log.sample.")) {
+            replaceTurboFilter(SamplingFilter.NAME, createSamplingFilter(getMetrics()));
+        }
+        if (changed(previous, "log.recorder.") || changed(previous, "log.file.path")) {
+            replaceTurboFilter(FlightRecorder.NAME, Boolean.parseBoolean(properties.getProperty("log.recorder.enabled", "true"))
+                    ? createFlightRecorder(properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN)) : null);
+        }
+        if (changed(previous, "log.disk.") || changed(previous, "log.file.path")) {
+            replaceTurboFilter(DiskPressureFilter.NAME, Boolean.parseBoolean(properties.getProperty("log.disk.enabled", "false"))
+                    && !isCollectorClient() ? createDiskPressureFilter(getMetrics()) : null);
+        }
+
+        // Níveis
+        String defaultLevel = properties.getProperty("log.level", "INFO");
+        if (!defaultLevel.equals(previous.getProperty("log.level", "INFO"))) rootLogger.setLevel(getLevel(defaultLevel));
+
+        for (String name : levelKeys(previous, properties)) {
+            String oldValue = previous.getProperty(name);
+            String newValue = properties.getProperty(name);
+            if (newValue != null && newValue.equals(oldValue)) continue;
+
+            String packageName = name.substring("log.level.".length());
+            Logger logger = context.getLogger(packageName);
+            if (isRouted(packageName)) {
+                // Dentro de uma rota só o nível muda; os appenders vêm da rota
+                logger.setLevel(newValue != null ? getLevel(newValue) : null);
+                continue;
+            }
+            if (newValue == null) {
+                // Pacote removido da configuração: volta a herdar o nível e os appenders do raiz
+                rootLogger.iteratorForAppenders().forEachRemaining(logger::detachAppender);
+                logger.setLevel(null);
+                logger.setAdditive(true);
+            } else {
+                logger.setLevel(getLevel(newValue));
+                if (oldValue == null) {
+                    logger.setAdditive(false);
+                    rootLogger.iteratorForAppenders().forEachRemaining(logger::addAppender);
+                }
+            }
+        }
+
+        // Padrão: o console e o arquivo são recriados com o novo encoder, em vez de trocar o encoder
+        // de um appender em uso. Os formatos binário e JSON não dependem do padrão (no binário ele é
+        // aplicado só na leitura)
+        String pattern = properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN);
+        boolean patternChanged = !pattern.equals(previous.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN))
+                || changed(previous, "log.encoder");
+        boolean console = Boolean.parseBoolean(properties.getProperty("log.console", "true"));
+
+        // Console
+        if (changed(previous, "log.console") || patternChanged && console) {
+            replaceAppender("CONSOLE", null, console ? () -> createConsoleAppender(pattern) : null);
+        }
+
+        // Arquivo: caminho, rolagem ou compactação alterados trocam apenas o appender de arquivo
+        if (!isCollectorClient() && (changed(previous, "log.file.") || changed(previous, "log.archive") || changed(previous, "log.format")
+                || patternChanged && isTextFormat())) {
+            if (changed(previous, "log.archive")) {
+                // O pipeline é recriado com as novas opções; segmentos pendentes são retomados pelo novo
+                ArchivePipeline pipeline = ArchivePipeline.get(context);
+                if (pipeline != null) {
+                    context.removeObject(ArchivePipeline.CONTEXT_KEY);
+                    pipeline.stop();
+                }
+            }
+            String filePath = properties.getProperty("log.file.path");
+            String fileName = properties.getProperty("log.file.name", "application.log");
+            if (filePath != null && !filePath.isEmpty()) {
+                replaceAppender("FILE", new File(filePath, fileName).getAbsolutePath(),
+                        () -> createFileAppender("FILE", pattern, filePath, fileName));
+            } else {
+                replaceAppender("FILE", null, null);
+            }
+        }
+
+        // O gravador pode ter sido trocado sem mudança de nível
+        VRLogger.refresh(context);
+    }
+
+    /**
+     * Substitui o filtro com o nome informado. O novo é adicionado antes de o anterior ser removido, e
+     * o anterior só é parado depois de um intervalo, para que as chamadas em andamento terminem.
+     *
+     * @param replacement Novo filtro, ou null para apenas remover o atual
+     */
+    private void replaceTurboFilter(String name, TurboFilter replacement) {
+        TurboFilter old = null;
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (name.equals(filter.getName())) old = filter;
+        }
+        if (replacement instanceof FlightRecorder) {
+            // O gravador continua sendo o primeiro filtro
+            context.getTurboFilterList().add(0, replacement);
+        } else if (replacement != null) {
+            // A amostragem continua sendo a última, pois entrega os eventos anotados aos appenders
+            int index = context.getTurboFilterList().size();
+            if (!(replacement instanceof SamplingFilter)) {
+                for (int i = 0; i < context.getTurboFilterList().size(); i++) {
+                    if (context.getTurboFilterList().get(i) instanceof SamplingFilter) {
+                        index = i;
+                        break;
+                    }
+                }
+            }
+            context.getTurboFilterList().add(index, replacement);
+        }
+        if (old != null) {
+            context.getTurboFilterList().remove(old);
+            context.getScheduledExecutorService().schedule(old::stop, APPENDER_STOP_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return true se alguma propriedade com o prefixo informado mudou
+     */
+    private boolean changed(Properties previous, String prefix) {
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(prefix) && !properties.getProperty(name).equals(previous.getProperty(name))) return true;
+        }
+        for (String name : previous.stringPropertyNames()) {
+            if (name.startsWith(prefix) && properties.getProperty(name) == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Pacotes roteados e o arquivo de cada um. Rotas para o próprio arquivo principal, sem
+     * log.file.path definido ou no modo cliente do coletor (as rotas são aplicadas pelo coletor) são ignoradas.
+     */
+    private Map<String, String> routes() {
+        Map<String, String> routes = new TreeMap<>();
+        String filePath = properties.getProperty("log.file.path");
+        if (filePath == null || filePath.isEmpty() || isCollectorClient()) return routes;
+        String fileName = properties.getProperty("log.file.name", "application.log");
+
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith("log.route.")) continue;
+            String routeFile = properties.getProperty(name).trim();
+            if (!routeFile.isEmpty() && !routeFile.equals(fileName)) routes.put(name.substring("log.route.".length()), routeFile);
+        }
+        return routes;
+    }
+
+    private static boolean hasRoutes(Properties properties) {
+        for (String name : properties.stringPropertyNames()) if (name.startsWith("log.route.")) return true;
+        return false;
+    }
+
+    /**
+     * @return true se o logger é uma rota ou está dentro do pacote de uma rota
+     */
+    private boolean isRouted(String loggerName) {
+        for (String packageName : routes().keySet()) {
+            if (loggerName.equals(packageName) || loggerName.startsWith(packageName + ".")) return true;
+        }
+        return false;
+    }
+
+    private static Set<String> levelKeys(Properties previous, Properties current) {
+        Set<String> names = new TreeSet<>();
+        for (String name : previous.stringPropertyNames()) if (name.startsWith("log.level.")) names.add(name);
+        for (String name : current.stringPropertyNames()) if (name.startsWith("log.level.")) names.add(name);
+        return names;
+    }
+
+    /**
+     * Substitui o appender com o nome informado onde quer que esteja anexado (logger raiz, loggers
+     * de pacote ou appender assíncrono).
+     * <p>
+     * Se o novo appender escreve em outro destino, ele é anexado antes de o antigo ser removido, e o
+     * antigo é parado depois de um intervalo, para que escritas em andamento terminem. Se o arquivo
+     * for o mesmo, o antigo precisa ser fechado antes de o novo abrir o arquivo: os novos eventos vão
+     * para um buffer, o antigo continua ativo pelo mesmo intervalo para as escritas que já o haviam
+     * obtido e só então é parado. O buffer continua sendo o único destino até ser esvaziado no novo
+     * appender; a partir daí repassa cada evento direto a ele, e só então o novo appender é anexado e
+     * o buffer removido. Nas duas trocas um evento que vê os dois appenders é escrito uma única vez
+     * (ver {@link ReloadBufferAppender}). Nesse caso a chamada aguarda o intervalo.
+     *
+     * @param name        Nome do appender
+     * @param file        Arquivo do novo appender, ou null se não for um appender de arquivo
+     * @param factory     Cria e inicia o novo appender, ou null para apenas remover o atual
+     */
+    @SuppressWarnings("unchecked")
+    private void replaceAppender(String name, String file, Supplier<Appender<ILoggingEvent>> factory) {
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        List<AppenderAttachable<ILoggingEvent>> targets = new ArrayList<>();
+        boolean async = false;
+
+        Appender<ILoggingEvent> asyncAppender = rootLogger.getAppender(AsyncRingBufferAppender.NAME);
+        if (asyncAppender != null && MeteredAppender.unwrap(asyncAppender) instanceof AppenderAttachable) {
+            targets.add((AppenderAttachable<ILoggingEvent>) MeteredAppender.unwrap(asyncAppender));
+            async = true;
+        } else {
+            targets.add(rootLogger);
+            for (String key : levelKeys(properties, properties)) {
+                String packageName = key.substring("log.level.".length());
+                if (!isRouted(packageName)) targets.add(context.getLogger(packageName));
+            }
+        }
+
+        Appender<ILoggingEvent> old = targets.get(0).getAppender(name);
+        Appender<ILoggingEvent> oldOutput = old != null ? MeteredAppender.unwrap(old) : null;
+        boolean sameFile = file != null && oldOutput instanceof FileAppender
+                && file.equals(((FileAppender<ILoggingEvent>) oldOutput).getFile());
+
+        ReloadBufferAppender buffer = null;
+        if (sameFile) {
+            buffer = new ReloadBufferAppender();
+            buffer.setContext(context);
+            buffer.setName(name + "-RELOAD");
+            buffer.start();
+            old.addFilter(buffer.markWritten());
+            for (AppenderAttachable<ILoggingEvent> target : targets) {
+                target.addAppender(buffer);
+                target.detachAppender(old);
+            }
+            try {
+                Thread.sleep(APPENDER_STOP_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            old.stop();
+        }
+
+        if (factory != null) {
+            Appender<ILoggingEvent> replacement = meter(factory.get(), getMetrics());
+            Appender<ILoggingEvent> output = MeteredAppender.unwrap(replacement);
+            if (async && output instanceof OutputStreamAppender) ((OutputStreamAppender<ILoggingEvent>) output).setImmediateFlush(false);
+            if (buffer != null) {
+                // O buffer é esvaziado e passa a repassar os eventos antes de o novo appender ser anexado
+                Filter<ILoggingEvent> skipForwarded = buffer.skipForwarded();
+                replacement.addFilter(skipForwarded);
+                buffer.drainTo(replacement);
+                for (AppenderAttachable<ILoggingEvent> target : targets) {
+                    target.addAppender(replacement);
+                    target.detachAppender(buffer);
+                }
+                ReloadBufferAppender handoff = buffer;
+                context.getScheduledExecutorService().schedule(() -> {
+                    removeFilter(replacement, skipForwarded);
+                    handoff.stop();
+                }, APPENDER_STOP_DELAY_MS, TimeUnit.MILLISECONDS);
+            } else {
+                for (AppenderAttachable<ILoggingEvent> target : targets) target.addAppender(replacement);
+            }
+        } else if (buffer != null) {
+            for (AppenderAttachable<ILoggingEvent> target : targets) target.detachAppender(buffer);
+            buffer.stop();
+        }
+
+        if (old != null && !sameFile) {
+            for (AppenderAttachable<ILoggingEvent> target : targets) target.detachAppender(old);
+            context.getScheduledExecutorService().schedule(old::stop, APPENDER_STOP_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Remove um filtro do appender, mantendo os demais na mesma ordem.
+     */
+    private static void removeFilter(Appender<ILoggingEvent> appender, Filter<ILoggingEvent> filter) {
+        List<Filter<ILoggingEvent>> filters = appender.getCopyOfAttachedFiltersList();
+        appender.clearAllFilters();
+        for (Filter<ILoggingEvent> other : filters) {
+            if (other != filter) appender.addFilter(other);
+        }
+    }
+
+    /**
+     * Guarda os eventos recebidos enquanto um appender de arquivo é reaberto durante a recarga.
+     * <p>
+     * Depois de {@link #drainTo} repassa cada evento direto ao novo appender. Os loggers não trocam
+     * um appender por outro de forma atômica: durante a troca, uma escrita pode ver o appender
+     * anterior e o seguinte. Para que o evento seja escrito uma única vez, cada thread guarda o último
+     * evento já entregue ao arquivo: {@link #markWritten()} o registra no appender antigo, que o
+     * buffer então ignora, e {@link #skipForwarded()} faz o novo appender recusar o evento que o
+     * buffer acabou de repassar.
+     */
+    private static final class ReloadBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+        private final Queue<ILoggingEvent> events = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<ILoggingEvent> written = new ThreadLocal<>();
+        private volatile Appender<ILoggingEvent> forward;
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            if (written.get() == event) return;
+
+            Appender<ILoggingEvent> target = forward;
+            if (target == null) {
+                synchronized (events) {
+                    target = forward;
+                    if (target == null) {
+                        event.prepareForDeferredProcessing();
+                        events.add(event);
+                        return;
+                    }
+                }
+            }
+            target.doAppend(event);
+            written.set(event);
+        }
+
+        /**
+         * Escreve os eventos guardados no novo appender e passa a repassar os seguintes direto a ele.
+         * Eventos que chegam durante a escrita entram na fila e também são escritos antes da troca.
+         */
+        void drainTo(Appender<ILoggingEvent> appender) {
+            synchronized (events) {
+                ILoggingEvent event;
+                while ((event = events.poll()) != null) appender.doAppend(event);
+                forward = appender;
+            }
+        }
+
+        /**
+         * Filtro para o appender antigo: registra os eventos que ele escreve.
+         */
+        Filter<ILoggingEvent> markWritten() {
+            Filter<ILoggingEvent> filter = new Filter<ILoggingEvent>() {
+                @Override
+                public FilterReply decide(ILoggingEvent event) {
+                    written.set(event);
+                    return FilterReply.NEUTRAL;
+                }
+            };
+            filter.start();
+            return filter;
+        }
+
+        /**
+         * Filtro para o novo appender: recusa o evento que o buffer acabou de repassar.
+         */
+        Filter<ILoggingEvent> skipForwarded() {
+            Filter<ILoggingEvent> filter = new Filter<ILoggingEvent>() {
+                @Override
+                public FilterReply decide(ILoggingEvent event) {
+                    return written.get() == event ? FilterReply.DENY : FilterReply.NEUTRAL;
+                }
+            };
+            filter.start();
+            return filter;
+        }
     }
 
     /**
@@ -92,7 +604,8 @@ public class LogbackConfigurator {
      */
     private ConsoleAppender<ILoggingEvent> createConsoleAppender(String pattern) {
 
-        ConsoleAppender<ILoggingEvent> appender = new ConsoleAppender<>();
+        // O encoder sem alocação escreve direto no stream do console
+        ConsoleAppender<ILoggingEvent> appender = isGarbageFreeEncoder() ? new DirectConsoleAppender() : new ConsoleAppender<>();
         appender.setContext(context);
         appender.setName("CONSOLE");
         appender.setEncoder(getEncoder(pattern));
@@ -104,12 +617,30 @@ public class LogbackConfigurator {
     /**
      * Cria um appender de arquivo com rolagem.
      */
-    private RollingFileAppender<ILoggingEvent> createFileAppender(String pattern, String filePath, String fileName) {
+    private RollingFileAppender<ILoggingEvent> createFileAppender(String name, String pattern, String filePath, String fileName) {
 
-        RollingFileAppender<ILoggingEvent> appender = new RollingFileAppender<>();
+        RollingFileAppender<ILoggingEvent> appender;
+        boolean mmap = "mmap".equalsIgnoreCase(properties.getProperty("log.file.mode", "stream"));
+        if (mmap && "binary".equalsIgnoreCase(properties.getProperty("log.format", "text"))) {
+            // Registros binários podem terminar em bytes zero, indistinguíveis da sobra da janela mapeada
+            context.getStatusManager().add(new WarnStatus("O formato binário não é suportado no modo mmap; usando o modo stream", this));
+            mmap = false;
+        }
+        if (mmap) {
+            // Escrita através de uma janela mapeada em memória
+            MappedRollingFileAppender mappedAppender = new MappedRollingFileAppender();
+            mappedAppender.setWindowSize(FileSize.valueOf(properties.getProperty("log.file.mmap.window", "8MB")));
+            appender = mappedAppender;
+        } else if (!isTextFormat() || isGarbageFreeEncoder()) {
+            // O encoder binário tem estado e precisa codificar na ordem de escrita; o JSON e o texto
+            // sem alocação escrevem direto do buffer da thread no arquivo, sem copiar cada evento para um novo array
+            appender = new OrderedRollingFileAppender();
+        } else {
+            appender = new RollingFileAppender<>();
+        }
         appender.setContext(context);
-        appender.setName("FILE");
-        appender.setEncoder(getEncoder(pattern));
+        appender.setName(name);
+        appender.setEncoder(getFileEncoder(pattern));
 
         // Cria diretório se não existir
         File logDir = new File(filePath);
@@ -119,34 +650,523 @@ public class LogbackConfigurator {
         appender.setFile(new File(logDir, fileName).getAbsolutePath());
 
         // Configuração de rolagem por tamanho e tempo
-        SizeAndTimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new SizeAndTimeBasedRollingPolicy<>();
+        NotifyingRollingPolicy<ILoggingEvent> rollingPolicy = new NotifyingRollingPolicy<>();
         rollingPolicy.setContext(context);
         rollingPolicy.setParent(appender);
+
+        // No modo eager cada segmento é comprimido pelo pipeline logo após a rolagem
+        ArchivePipeline archivePipeline = isEagerArchive() ? getArchivePipeline() : null;
+        // No formato em blocos e na manutenção incremental os segmentos ficam sem compressão até a manutenção
+        boolean deferred = isBlockFormat() || isIncrementalMaintenance();
+        String compressionSuffix = archivePipeline != null || deferred ? "" : ".zip";
         rollingPolicy.setFileNamePattern(
-                new File(logDir, fileName + ".%d{yyyy-MM-dd}.%i.zip").getAbsolutePath());
+                new File(logDir, fileName + ".%d{yyyy-MM-dd}.%i" + compressionSuffix).getAbsolutePath());
+        LogMetrics metrics = getMetrics();
+        if (metrics != null) rollingPolicy.addRolloverListener(rolledFileName -> metrics.recordRollover());
+        if (archivePipeline != null) {
+            rollingPolicy.addRolloverListener(archivePipeline);
+        } else if (!deferred) {
+            // O Logback comprime o segmento em segundo plano; o ZIP é registrado para a retenção
+            ArchiveManifest manifest = ArchiveManifest.forDirectory(logDir.toPath());
+            rollingPolicy.addRolloverListener(rolledFileName -> manifest.register(Paths.get(rolledFileName + ".zip")));
+        }
 
         // Configura tamanho máximo do arquivo
         String maxSize = properties.getProperty("log.file.maxSize", "10MB");
         rollingPolicy.setMaxFileSize(FileSize.valueOf(maxSize));
 
-        // Configuração de histórico
-        int maxHistory = Integer.parseInt(properties.getProperty("log.file.maxHistory", "30"));
-        rollingPolicy.setMaxHistory(maxHistory);
+        // log.file.maxHistory e log.file.totalSizeCap são aplicados pela manutenção a partir do
+        // ArchiveManifest; a limpeza própria do Logback fica desativada (maxHistory 0, sem totalSizeCap)
+        // para não remover arquivos por fora do manifesto nem contar os segmentos duas vezes
+        rollingPolicy.setMaxHistory(0);
 
         rollingPolicy.start();
         appender.setRollingPolicy(rollingPolicy);
         appender.start();
 
+        // Retoma segmentos que ficaram sem compressão em execuções anteriores
+        if (archivePipeline != null) archivePipeline.scanPending(new File(appender.getFile()));
+
         return appender;
     }
 
-    private PatternLayoutEncoder getEncoder(String pattern) {
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    /**
+     * Cria o appender de arquivo da configuração inicial. Com log.startup=lazy, a criação do
+     * diretório e a abertura do arquivo são adiadas para uma tarefa em segundo plano, e os primeiros
+     * eventos ficam em um buffer até o arquivo estar pronto.
+     */
+    private Appender<ILoggingEvent> createStartupFileAppender(String name, String pattern, String filePath, String fileName) {
+        if (!"lazy".equalsIgnoreCase(properties.getProperty("log.startup", "eager"))) {
+            return createFileAppender(name, pattern, filePath, fileName);
+        }
+
+        // No modo assíncrono a thread escritora descarrega o arquivo ao final de cada lote
+        boolean async = Boolean.parseBoolean(properties.getProperty("log.async.enabled", "false"));
+        DeferredAppender appender = new DeferredAppender(name, () -> {
+            RollingFileAppender<ILoggingEvent> fileAppender = createFileAppender(name, pattern, filePath, fileName);
+            if (async) fileAppender.setImmediateFlush(false);
+            return fileAppender;
+        });
+        appender.setContext(context);
+        appender.setBufferSize(Integer.parseInt(properties.getProperty("log.startup.bufferSize",
+                String.valueOf(DeferredAppender.DEFAULT_BUFFER_SIZE))));
+        appender.setDelay(Long.parseLong(properties.getProperty("log.startup.delay", "0")));
+        appender.setMetrics(getMetrics());
+        appender.start();
+        return appender;
+    }
+
+    /**
+     * Indica se a compressão é feita na rolagem (log.archive.mode=eager) em vez da manutenção diária.
+     */
+    private boolean isEagerArchive() {
+        return Boolean.parseBoolean(properties.getProperty("log.archive", "true"))
+                && "eager".equalsIgnoreCase(properties.getProperty("log.archive.mode", "daily"));
+    }
+
+    /**
+     * Indica se a compressão e a retenção são feitas aos poucos ao longo do dia (log.maintenance.mode=incremental).
+     */
+    private boolean isIncrementalMaintenance() {
+        return "incremental".equalsIgnoreCase(properties.getProperty("log.maintenance.mode", "daily"));
+    }
+
+    /**
+     * Indica se os eventos são enviados a um coletor local em vez de gravados no arquivo (log.collector.mode=client).
+     */
+    private boolean isCollectorClient() {
+        return "client".equalsIgnoreCase(properties.getProperty("log.collector.mode", "off"));
+    }
+
+    /**
+     * Indica se os arquivos são compactados no formato em blocos com índice de tempo (log.archive.format=blocks).
+     */
+    private boolean isBlockFormat() {
+        // O índice de tempo dos blocos é montado a partir das linhas de texto
+        return "blocks".equalsIgnoreCase(properties.getProperty("log.archive.format", "zip")) && isTextFormat();
+    }
+
+    /**
+     * Indica se os appenders assíncronos usam a thread escritora compartilhada entre contextos
+     * (log.async.writer=shared) em vez de uma thread própria (dedicated). Por padrão, apenas os
+     * contextos de módulos compartilham a thread; o contexto padrão do SLF4J mantém a sua.
+     */
+    private boolean isSharedWriter() {
+        String writer = properties.getProperty("log.async.writer");
+        if (writer == null || writer.isEmpty()) return context != LoggerFactory.getILoggerFactory();
+        return "shared".equalsIgnoreCase(writer.trim());
+    }
+
+    /**
+     * Indica se o arquivo de log é gravado em texto com o padrão do log (log.format diferente de binary e json).
+     */
+    private boolean isTextFormat() {
+        String format = properties.getProperty("log.format", "text");
+        return !"binary".equalsIgnoreCase(format) && !"json".equalsIgnoreCase(format);
+    }
+
+    /**
+     * Indica se o texto é codificado pelo encoder sem alocação (log.encoder=garbagefree).
+     */
+    private boolean isGarbageFreeEncoder() {
+        return "garbagefree".equalsIgnoreCase(properties.getProperty("log.encoder", "pattern"));
+    }
+
+    /**
+     * Obtém o pipeline de compressão do contexto, criando-o na primeira chamada.
+     */
+    private ArchivePipeline getArchivePipeline() {
+        ArchivePipeline pipeline = ArchivePipeline.get(context);
+        if (pipeline != null) return pipeline;
+
+        pipeline = new ArchivePipeline();
+        pipeline.setContext(context);
+        pipeline.setCodec(isBlockFormat() ? TipoCompressao.BLOCOS
+                : TipoCompressao.fromNome(properties.getProperty("log.archive.codec", "gzip")));
+        pipeline.setBlockSize((int) FileSize.valueOf(properties.getProperty("log.archive.blockSize", "1MB")).getSize());
+        pipeline.setLogPattern(properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN));
+        pipeline.setLevel(Integer.parseInt(properties.getProperty("log.archive.level", "6")));
+        pipeline.setThreads(Integer.parseInt(properties.getProperty("log.archive.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        pipeline.start();
+
+        context.register(pipeline);
+        context.putObject(ArchivePipeline.CONTEXT_KEY, pipeline);
+        return pipeline;
+    }
+
+    /**
+     * Cria o appender que envia os eventos ao coletor local (log.collector.*). O arquivo de espera,
+     * usado enquanto o coletor está indisponível, fica no diretório de logs.
+     */
+    private CollectorAppender createCollectorAppender(String pattern, LogMetrics metrics) {
+
+        CollectorAppender appender = new CollectorAppender();
+        appender.setContext(context);
+        appender.setName(CollectorAppender.NAME);
+        appender.setPort(Integer.parseInt(properties.getProperty("log.collector.port",
+                String.valueOf(CollectorAppender.DEFAULT_PORT))));
+        appender.setQueueSize(Integer.parseInt(properties.getProperty("log.collector.queueSize",
+                String.valueOf(CollectorAppender.DEFAULT_QUEUE_SIZE))));
+        appender.setBatchSize(Integer.parseInt(properties.getProperty("log.collector.batchSize",
+                String.valueOf(CollectorAppender.DEFAULT_BATCH_SIZE))));
+        appender.setReconnectDelay(Long.parseLong(properties.getProperty("log.collector.reconnectDelay",
+                String.valueOf(CollectorAppender.DEFAULT_RECONNECT_DELAY))));
+        appender.setMaxSpoolSize(FileSize.valueOf(properties.getProperty("log.collector.spool.maxSize", "100MB")).getSize());
+        appender.setWriteTimeout(Long.parseLong(properties.getProperty("log.collector.writeTimeout",
+                String.valueOf(CollectorAppender.DEFAULT_WRITE_TIMEOUT))));
+        appender.setDirectory(properties.getProperty("log.file.path", "./logs"));
+        appender.setPattern(pattern);
+        appender.start();
+
+        if (metrics != null) metrics.registerDropCounter(CollectorAppender.NAME, appender::getDiscardedCount);
+        return appender;
+    }
+
+    /**
+     * Cria o appender de envio remoto (log.ship.*). As filas em disco ficam no subdiretório "ship" do
+     * diretório de logs, uma por processo e contexto, e seus segmentos seguem a retenção dos arquivos
+     * (log.file.maxHistory).
+     */
+    private ShippingAppender createShippingAppender(LogMetrics metrics) {
+        String url = properties.getProperty("log.ship.url", "");
+        HttpLogTransport transport;
+        try {
+            transport = new HttpLogTransport(new URL(url));
+        } catch (MalformedURLException e) {
+            context.getStatusManager().add(new ErrorStatus("Endereço de envio de logs inválido: [" + url + "]", this, e));
+            return null;
+        }
+        transport.setTimeout(Integer.parseInt(properties.getProperty("log.ship.timeout",
+                String.valueOf(HttpLogTransport.DEFAULT_TIMEOUT))));
+        String headerPrefix = "log.ship.header.";
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(headerPrefix)) transport.addHeader(key.substring(headerPrefix.length()), properties.getProperty(key));
+        }
+
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.setContext(context);
+        encoder.start();
+
+        String directory = properties.getProperty("log.file.path", "./logs");
+
+        ShippingAppender appender = new ShippingAppender();
+        appender.setContext(context);
+        appender.setName(ShippingAppender.NAME);
+        appender.setTransport(transport);
+        appender.setEncoder(encoder);
+        appender.setDirectory(Paths.get(directory, "ship"));
+        appender.setSegmentSize(FileSize.valueOf(properties.getProperty("log.ship.segmentSize", "8MB")).getSize());
+        appender.setMaxSpoolSize(FileSize.valueOf(properties.getProperty("log.ship.spool.maxSize", "256MB")).getSize());
+        appender.setMinLevel(getLevel(properties.getProperty("log.ship.level", "INFO")));
+        appender.setQueueSize(Integer.parseInt(properties.getProperty("log.ship.queueSize",
+                String.valueOf(ShippingAppender.DEFAULT_QUEUE_SIZE))));
+        appender.setBatchSize(Integer.parseInt(properties.getProperty("log.ship.batchSize",
+                String.valueOf(ShippingAppender.DEFAULT_BATCH_SIZE))));
+        appender.setLinger(Long.parseLong(properties.getProperty("log.ship.linger",
+                String.valueOf(ShippingAppender.DEFAULT_LINGER))));
+        appender.setRetryInitial(Long.parseLong(properties.getProperty("log.ship.retry.initial",
+                String.valueOf(ShippingAppender.DEFAULT_RETRY_INITIAL))));
+        appender.setRetryMax(Long.parseLong(properties.getProperty("log.ship.retry.max",
+                String.valueOf(ShippingAppender.DEFAULT_RETRY_MAX))));
+        appender.setMaxAge(TimeUnit.DAYS.toMillis(Integer.parseInt(properties.getProperty("log.file.maxHistory", "15"))));
+        appender.start();
+
+        if (metrics != null) metrics.registerDropCounter(ShippingAppender.NAME, appender::getDiscardedCount);
+        return appender;
+    }
+
+    /**
+     * Cria o filtro de supressão de mensagens repetidas (log.dedup.*).
+     */
+    private DuplicateMessageFilter createDedupFilter(LogMetrics metrics) {
+
+        DuplicateMessageFilter filter = new DuplicateMessageFilter();
+        filter.setContext(context);
+        filter.setName(DuplicateMessageFilter.NAME);
+        filter.setAllowedRepetitions(Integer.parseInt(properties.getProperty("log.dedup.allowed",
+                String.valueOf(DuplicateMessageFilter.DEFAULT_ALLOWED_REPETITIONS))));
+        filter.setWindow(Long.parseLong(properties.getProperty("log.dedup.window",
+                String.valueOf(DuplicateMessageFilter.DEFAULT_WINDOW))));
+        filter.setTableSize(Integer.parseInt(properties.getProperty("log.dedup.tableSize",
+                String.valueOf(DuplicateMessageFilter.DEFAULT_TABLE_SIZE))));
+        filter.start();
+
+        if (metrics != null) metrics.registerDropCounter(DuplicateMessageFilter.NAME, filter::getSuppressedCount);
+        return filter;
+    }
+
+    /**
+     * Cria o gravador de eventos recentes (log.recorder.*), que grava seus arquivos no subdiretório
+     * "flight" do diretório de log.
+     */
+    private FlightRecorder createFlightRecorder(String pattern) {
+        // Sem log.file.path não há onde gravar os eventos: o gravador não é criado, em vez de
+        // criar ./logs/flight no diretório de trabalho
+        String directory = properties.getProperty("log.file.path");
+        if (directory == null || directory.trim().isEmpty()) {
+            context.getStatusManager().add(new InfoStatus("Gravador de eventos recentes desativado: log.file.path não definido", this));
+            return null;
+        }
+
+        FlightRecorder recorder = new FlightRecorder();
+        recorder.setContext(context);
+        recorder.setName(FlightRecorder.NAME);
+        recorder.setCapacity((int) FileSize.valueOf(properties.getProperty("log.recorder.size", "8MB")).getSize());
+        recorder.setLevel(getLevel(properties.getProperty("log.recorder.level", "DEBUG")));
+        recorder.setWindow(Long.parseLong(properties.getProperty("log.recorder.window",
+                String.valueOf(FlightRecorder.DEFAULT_WINDOW))));
+        recorder.setMinInterval(Long.parseLong(properties.getProperty("log.recorder.minInterval",
+                String.valueOf(FlightRecorder.DEFAULT_MIN_INTERVAL))));
+        recorder.setTriggerMarker(properties.getProperty("log.recorder.marker"));
+        recorder.setMaxFiles(Integer.parseInt(properties.getProperty("log.recorder.maxFiles",
+                String.valueOf(FlightRecorder.DEFAULT_MAX_FILES))));
+        recorder.setDirectory(directory);
+        recorder.setRecordVRLogger(Boolean.parseBoolean(properties.getProperty("log.recorder.vrlogger", "false")));
+        recorder.setPattern(pattern);
+        recorder.start();
+        return recorder;
+    }
+
+    /**
+     * Cria o monitor de espaço em disco (log.disk.*). A compressão antecipada usa o mesmo formato
+     * da compressão configurada em log.archive.*.
+     */
+    private DiskPressureFilter createDiskPressureFilter(LogMetrics metrics) {
+
+        DiskPressureFilter filter = new DiskPressureFilter();
+        filter.setContext(context);
+        filter.setName(DiskPressureFilter.NAME);
+        filter.setDirectory(properties.getProperty("log.file.path", "./logs"));
+        filter.setInterval(Long.parseLong(properties.getProperty("log.disk.interval",
+                String.valueOf(DiskPressureFilter.DEFAULT_INTERVAL))));
+        filter.setCompressBelow(FileSize.valueOf(properties.getProperty("log.disk.compressBelow", "1GB")).getSize());
+        filter.setRaiseLevelBelow(FileSize.valueOf(properties.getProperty("log.disk.raiseLevelBelow", "500MB")).getSize());
+        filter.setMemoryOnlyBelow(FileSize.valueOf(properties.getProperty("log.disk.memoryOnlyBelow", "100MB")).getSize());
+        filter.setRaisedLevel(getLevel(properties.getProperty("log.disk.level", "WARN")));
+        for (String name : properties.getProperty("log.disk.critical", "").split(",")) {
+            if (!name.trim().isEmpty()) filter.addCriticalLogger(name.trim());
+        }
+        filter.setMemoryEvents(Integer.parseInt(properties.getProperty("log.disk.memoryEvents",
+                String.valueOf(DiskPressureFilter.DEFAULT_MEMORY_EVENTS))));
+
+        filter.setCompress(Boolean.parseBoolean(properties.getProperty("log.archive", "true")));
+        filter.setCodec(isBlockFormat() ? TipoCompressao.BLOCOS
+                : TipoCompressao.fromNome(properties.getProperty("log.archive.codec", isEagerArchive() ? "gzip" : "zip")));
+        filter.setCompressionLevel(Integer.parseInt(properties.getProperty("log.archive.level", "6")));
+        filter.setBlockSize((int) FileSize.valueOf(properties.getProperty("log.archive.blockSize", "1MB")).getSize());
+        filter.setLogPattern(properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN));
+        filter.setMaxHistory(Integer.parseInt(properties.getProperty("log.file.maxHistory", "15")));
+        String totalSizeCap = properties.getProperty("log.file.totalSizeCap");
+        if (totalSizeCap != null && !totalSizeCap.isEmpty()) filter.setTotalSizeCap(FileSize.valueOf(totalSizeCap).getSize());
+
+        filter.setMetrics(metrics);
+        filter.setExecutor((Executor) context.getObject(LogManager.MAINTENANCE_EXECUTOR_KEY));
+        filter.start();
+
+        if (metrics != null) metrics.registerDropCounter(DiskPressureFilter.NAME, filter::getDiscardedCount);
+        return filter;
+    }
+
+    /**
+     * Cria o filtro de amostragem com as cotas definidas em log.sample.[pacote].
+     *
+     * @return O filtro ou null se nenhum pacote for amostrado
+     */
+    private SamplingFilter createSamplingFilter(LogMetrics metrics) {
+
+        SamplingFilter filter = new SamplingFilter();
+        filter.setContext(context);
+        filter.setName(SamplingFilter.NAME);
+        boolean empty = true;
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("log.sample.")) {
+                filter.addRule(name.substring("log.sample.".length()), Integer.parseInt(properties.getProperty(name).trim()));
+                empty = false;
+            }
+        }
+        if (empty) return null;
+        filter.start();
+
+        if (metrics != null) metrics.registerDropCounter(SamplingFilter.NAME, filter::getDiscardedCount);
+        return filter;
+    }
+
+    /**
+     * Cria os appenders de uma rota: os mesmos do logger raiz, com o arquivo da rota no lugar do
+     * arquivo principal. No modo assíncrono a rota tem o próprio buffer circular e a própria thread
+     * escritora, sem disputar a fila do arquivo principal.
+     *
+     * @param appenders Appenders de saída do logger raiz (antes do appender assíncrono)
+     */
+    private List<Appender<ILoggingEvent>> createRouteAppenders(String pattern, String filePath, String routeFile,
+                                                               List<Appender<ILoggingEvent>> appenders, LogMetrics metrics) {
+        String name = ROUTE_APPENDER_PREFIX + routeFile;
+        Appender<ILoggingEvent> fileAppender = meter(createStartupFileAppender(name, pattern, filePath, routeFile), metrics);
+
+        List<Appender<ILoggingEvent>> outputs = new ArrayList<>();
+        for (Appender<ILoggingEvent> appender : appenders) {
+            outputs.add("FILE".equals(MeteredAppender.unwrap(appender).getName()) ? fileAppender : appender);
+        }
+
+        List<Appender<ILoggingEvent>> result = new ArrayList<>();
+        Appender<ILoggingEvent> metricsAppender = context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender(MetricsAppender.NAME);
+        if (metricsAppender != null) result.add(metricsAppender);
+
+        if (Boolean.parseBoolean(properties.getProperty("log.async.enabled", "false"))) {
+            String asyncName = AsyncRingBufferAppender.NAME + "-" + name;
+            AsyncRingBufferAppender asyncAppender = createAsyncAppender(asyncName, outputs);
+            if (metrics != null) metrics.registerDropCounter(asyncName, asyncAppender::getDiscardedCount);
+            result.add(meter(asyncAppender, metrics));
+        } else {
+            result.addAll(outputs);
+        }
+        return result;
+    }
+
+    /**
+     * Cria o appender assíncrono que encaminha os eventos para os appenders informados.
+     */
+    private AsyncRingBufferAppender createAsyncAppender(String name, List<Appender<ILoggingEvent>> appenders) {
+
+        AsyncRingBufferAppender appender = new AsyncRingBufferAppender();
+        appender.setContext(context);
+        appender.setName(name);
+        appender.setCapacity(Integer.parseInt(properties.getProperty("log.async.capacity",
+                String.valueOf(AsyncRingBufferAppender.DEFAULT_CAPACITY))));
+        appender.setBatchSize(Integer.parseInt(properties.getProperty("log.async.batchSize",
+                String.valueOf(AsyncRingBufferAppender.DEFAULT_BATCH_SIZE))));
+        appender.setShutdownTimeout(Long.parseLong(properties.getProperty("log.async.shutdownTimeout",
+                String.valueOf(AsyncRingBufferAppender.DEFAULT_SHUTDOWN_TIMEOUT))));
+        appender.setIncludeCallerData(Boolean.parseBoolean(properties.getProperty("log.async.includeCallerData", "false")));
+        appender.setWaitStrategy(AsyncRingBufferAppender.WaitStrategy.valueOf(
+                properties.getProperty("log.async.waitStrategy", "BLOCKING").toUpperCase()));
+        if (isSharedWriter()) appender.setWriterPool(SharedWriterPool.shared());
+
+        // Política de descarte por nível: log.async.discard.<NIVEL>=<percentual de ocupação>|never
+        properties.forEach((key, value) -> {
+            String keyStr = (String) key;
+            if (keyStr.startsWith("log.async.discard.")) {
+                Level level = getLevel(keyStr.substring("log.async.discard.".length()));
+                String threshold = ((String) value).trim();
+                appender.setDiscardThreshold(level, "never".equalsIgnoreCase(threshold)
+                        ? AsyncRingBufferAppender.NEVER_DISCARD : Integer.parseInt(threshold));
+            }
+        });
+
+        for (Appender<ILoggingEvent> target : appenders) {
+            // A thread escritora descarrega os appenders ao final de cada lote
+            Appender<ILoggingEvent> output = MeteredAppender.unwrap(target);
+            if (output instanceof OutputStreamAppender) ((OutputStreamAppender<ILoggingEvent>) output).setImmediateFlush(false);
+            appender.addAppender(target);
+        }
+
+        appender.start();
+
+        return appender;
+    }
+
+    /**
+     * Cria o encoder de texto definido em log.encoder (pattern ou garbagefree).
+     */
+    private Encoder<ILoggingEvent> getEncoder(String pattern) {
+        Encoder<ILoggingEvent> encoder;
+        if (isGarbageFreeEncoder()) {
+            GarbageFreePatternEncoder garbageFreeEncoder = new GarbageFreePatternEncoder();
+            garbageFreeEncoder.setContext(context);
+            garbageFreeEncoder.setPattern(pattern);
+            garbageFreeEncoder.start();
+            encoder = garbageFreeEncoder;
+        } else {
+            PatternLayoutEncoder patternEncoder = new PatternLayoutEncoder();
+            patternEncoder.setContext(context);
+            patternEncoder.setPattern(pattern);
+            patternEncoder.setCharset(StandardCharsets.UTF_8);
+            patternEncoder.start();
+            encoder = patternEncoder;
+        }
+
+        // Mede o tempo de codificação e os bytes escritos
+        LogMetrics metrics = getMetrics();
+        if (metrics == null) return encoder;
+        MeteredEncoder<ILoggingEvent> meteredEncoder = new MeteredEncoder<>(encoder, metrics);
+        meteredEncoder.setContext(context);
+        meteredEncoder.start();
+        return meteredEncoder;
+    }
+
+    /**
+     * Cria o encoder do arquivo de log conforme log.format (text, binary ou json).
+     */
+    private Encoder<ILoggingEvent> getFileEncoder(String pattern) {
+        String format = properties.getProperty("log.format", "text");
+        if ("binary".equalsIgnoreCase(format)) return getBinaryEncoder(pattern);
+        if ("json".equalsIgnoreCase(format)) return getJsonEncoder();
+        return getEncoder(pattern);
+    }
+
+    /**
+     * Cria o encoder do formato JSON, com um objeto por linha.
+     */
+    private Encoder<ILoggingEvent> getJsonEncoder() {
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.setContext(context);
+        encoder.start();
+
+        LogMetrics metrics = getMetrics();
+        if (metrics == null) return encoder;
+        MeteredEncoder<ILoggingEvent> meteredEncoder = new MeteredEncoder<>(encoder, metrics);
+        meteredEncoder.setContext(context);
+        meteredEncoder.start();
+        return meteredEncoder;
+    }
+
+    /**
+     * Cria o encoder do formato binário. O padrão é gravado no cabeçalho para a reconstrução do texto.
+     */
+    private Encoder<ILoggingEvent> getBinaryEncoder(String pattern) {
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
         encoder.setContext(context);
         encoder.setPattern(pattern);
-        encoder.setCharset(StandardCharsets.UTF_8);
         encoder.start();
-        return encoder;
+
+        LogMetrics metrics = getMetrics();
+        if (metrics == null) return encoder;
+        MeteredEncoder<ILoggingEvent> meteredEncoder = new MeteredEncoder<>(encoder, metrics);
+        meteredEncoder.setContext(context);
+        meteredEncoder.start();
+        return meteredEncoder;
+    }
+
+    /**
+     * Obtém as métricas do contexto, criando-as na primeira chamada.
+     *
+     * @return As métricas ou null se log.metrics.enabled=false
+     */
+    private LogMetrics getMetrics() {
+        if (!Boolean.parseBoolean(properties.getProperty("log.metrics.enabled", "false"))) return null;
+
+        LogMetrics metrics = LogMetrics.get(context);
+        if (metrics != null) return metrics;
+
+        metrics = new LogMetrics();
+        metrics.setContext(context);
+        metrics.setJmxEnabled(Boolean.parseBoolean(properties.getProperty("log.metrics.jmx", "true")));
+        metrics.start();
+
+        context.register(metrics);
+        context.putObject(LogMetrics.CONTEXT_KEY, metrics);
+        return metrics;
+    }
+
+    /**
+     * Envolve o appender para medir sua latência, se as métricas estiverem habilitadas.
+     */
+    private Appender<ILoggingEvent> meter(Appender<ILoggingEvent> appender, LogMetrics metrics) {
+        if (metrics == null) return appender;
+        MeteredAppender<ILoggingEvent> meteredAppender = new MeteredAppender<>(appender, metrics);
+        meteredAppender.start();
+        return meteredAppender;
     }
 
     /**
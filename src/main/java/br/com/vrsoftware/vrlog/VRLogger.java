@@ -0,0 +1,397 @@
+package br.com.vrsoftware.vrlog;
+
+import br.com.vrsoftware.vrlog.filter.FlightRecorder;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LocationAwareLogger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Logger com verificação de nível sem custo quando o nível está desabilitado.
+ * <p>
+ * Pode ser guardado em um campo {@code static final}, inclusive antes de o {@link LogManager} ser
+ * inicializado. O nível efetivo fica em um campo da própria instância, atualizado a cada
+ * reconfiguração ({@link LogbackConfigurator#configure()}, {@link LogbackConfigurator#reconfigure}
+ * e recargas do {@link br.com.vrsoftware.vrlog.util.LogConfigReloader}) e a cada mudança de nível de
+ * um logger do contexto. Uma chamada com o nível desabilitado se resume à leitura desse campo: não
+ * passa pelos filtros do contexto nem aloca arrays de argumentos.
+ * <p>
+ * Há sobrecargas com até três argumentos, com um argumento primitivo (sem conversão para objeto)
+ * e com {@link Supplier}, cuja mensagem ou argumento só é calculado se o nível estiver habilitado:
+ * <pre>
+ * private static final VRLogger LOG = VRLogger.get(EmissorNfce.class);
+ *
+ * LOG.debug("Nota {} enviada em {} ms", numero, tempo);
+ * LOG.trace(() -&gt; "XML: " + nota.toXml());
+ * </pre>
+ * Com o nível habilitado, o evento segue o caminho normal do Logback (filtros, níveis e appenders),
+ * e os dados do chamador ({@code %line}, {@code %caller}) apontam para quem chamou este logger.
+ * O limite é apenas o nível efetivo do logger: o gravador de eventos recentes não vê as chamadas
+ * desabilitadas deste logger, a menos que {@code log.recorder.vrlogger=true}; nesse caso o limite
+ * passa a ser o menor entre o nível do logger e o do gravador, e as chamadas abaixo do nível do
+ * logger voltam a montar os argumentos e passar pelos filtros.
+ */
+public final class VRLogger {
+
+    private static final String FQCN = VRLogger.class.getName();
+
+    private final Logger logger;
+    // Menor nível (levelInt do Logback) que chega ao Logback; abaixo dele a chamada retorna direto
+    private volatile int threshold;
+
+    private VRLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Obtém o logger da classe no contexto padrão do SLF4J.
+     */
+    public static VRLogger get(Class<?> clazz) {
+        return get(clazz.getName());
+    }
+
+    /**
+     * Obtém o logger com o nome informado no contexto padrão do SLF4J.
+     */
+    public static VRLogger get(String name) {
+        return get((LoggerContext) LoggerFactory.getILoggerFactory(), name);
+    }
+
+    /**
+     * Obtém o logger com o nome informado no contexto de um módulo
+     * (ver {@link LogManager#getLoggerContext()}). Chamadas com o mesmo nome retornam a mesma instância.
+     */
+    public static VRLogger get(LoggerContext context, String name) {
+        return Registry.of(context).loggers.computeIfAbsent(name, key -> {
+            VRLogger created = new VRLogger(context.getLogger(key));
+            created.refresh(FlightRecorder.get(context));
+            return created;
+        });
+    }
+
+    /**
+     * Atualiza o nível guardado em todos os loggers do contexto. Chamado ao fim de cada
+     * (re)configuração; mudanças de nível feitas diretamente nos loggers são percebidas sozinhas.
+     */
+    public static void refresh(LoggerContext context) {
+        Registry registry = Registry.find(context);
+        if (registry != null) registry.refreshAll();
+    }
+
+    private void refresh(FlightRecorder recorder) {
+        int level = logger.getEffectiveLevel().levelInt;
+        if (recorder != null && recorder.isStarted() && recorder.isRecordVRLogger()) {
+            level = Math.min(level, recorder.getLevel().levelInt);
+        }
+        threshold = level;
+    }
+
+    private void log(int level, String message, Object[] args, Throwable t) {
+        logger.log(null, FQCN, level, message, args, t);
+    }
+
+    public String getName() {
+        return logger.getName();
+    }
+
+    /**
+     * @return O logger do SLF4J por trás desta instância
+     */
+    public org.slf4j.Logger getLogger() {
+        return logger;
+    }
+
+    // TRACE
+
+    public boolean isTraceEnabled() {
+        return threshold <= Level.TRACE_INT && logger.isTraceEnabled();
+    }
+
+    public void trace(String message) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, message, null, null);
+    }
+
+    public void trace(String format, Object arg) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg}, null);
+    }
+
+    public void trace(String format, Object arg1, Object arg2) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg1, arg2}, null);
+    }
+
+    public void trace(String format, Object arg1, Object arg2, Object arg3) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void trace(String format, long arg) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg}, null);
+    }
+
+    public void trace(String format, double arg) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg}, null);
+    }
+
+    public void trace(String message, Throwable t) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, message, null, t);
+    }
+
+    public void trace(Supplier<String> message) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, message.get(), null, null);
+    }
+
+    public void trace(Supplier<String> message, Throwable t) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, message.get(), null, t);
+    }
+
+    public void trace(String format, Supplier<?> arg) {
+        if (threshold <= Level.TRACE_INT) log(LocationAwareLogger.TRACE_INT, format, new Object[]{arg.get()}, null);
+    }
+
+    // DEBUG
+
+    public boolean isDebugEnabled() {
+        return threshold <= Level.DEBUG_INT && logger.isDebugEnabled();
+    }
+
+    public void debug(String message) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, message, null, null);
+    }
+
+    public void debug(String format, Object arg) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg}, null);
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg1, arg2}, null);
+    }
+
+    public void debug(String format, Object arg1, Object arg2, Object arg3) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void debug(String format, long arg) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg}, null);
+    }
+
+    public void debug(String format, double arg) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg}, null);
+    }
+
+    public void debug(String message, Throwable t) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, message, null, t);
+    }
+
+    public void debug(Supplier<String> message) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, message.get(), null, null);
+    }
+
+    public void debug(Supplier<String> message, Throwable t) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, message.get(), null, t);
+    }
+
+    public void debug(String format, Supplier<?> arg) {
+        if (threshold <= Level.DEBUG_INT) log(LocationAwareLogger.DEBUG_INT, format, new Object[]{arg.get()}, null);
+    }
+
+    // INFO
+
+    public boolean isInfoEnabled() {
+        return threshold <= Level.INFO_INT && logger.isInfoEnabled();
+    }
+
+    public void info(String message) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, message, null, null);
+    }
+
+    public void info(String format, Object arg) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg}, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg1, arg2}, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void info(String format, long arg) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg}, null);
+    }
+
+    public void info(String format, double arg) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg}, null);
+    }
+
+    public void info(String message, Throwable t) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, message, null, t);
+    }
+
+    public void info(Supplier<String> message) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, message.get(), null, null);
+    }
+
+    public void info(Supplier<String> message, Throwable t) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, message.get(), null, t);
+    }
+
+    public void info(String format, Supplier<?> arg) {
+        if (threshold <= Level.INFO_INT) log(LocationAwareLogger.INFO_INT, format, new Object[]{arg.get()}, null);
+    }
+
+    // WARN
+
+    public boolean isWarnEnabled() {
+        return threshold <= Level.WARN_INT && logger.isWarnEnabled();
+    }
+
+    public void warn(String message) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, message, null, null);
+    }
+
+    public void warn(String format, Object arg) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg}, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg1, arg2}, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2, Object arg3) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void warn(String format, long arg) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg}, null);
+    }
+
+    public void warn(String format, double arg) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg}, null);
+    }
+
+    public void warn(String message, Throwable t) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, message, null, t);
+    }
+
+    public void warn(Supplier<String> message) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, message.get(), null, null);
+    }
+
+    public void warn(Supplier<String> message, Throwable t) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, message.get(), null, t);
+    }
+
+    public void warn(String format, Supplier<?> arg) {
+        if (threshold <= Level.WARN_INT) log(LocationAwareLogger.WARN_INT, format, new Object[]{arg.get()}, null);
+    }
+
+    // ERROR
+
+    public boolean isErrorEnabled() {
+        return threshold <= Level.ERROR_INT && logger.isErrorEnabled();
+    }
+
+    public void error(String message) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, message, null, null);
+    }
+
+    public void error(String format, Object arg) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg}, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg1, arg2}, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2, Object arg3) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void error(String format, long arg) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg}, null);
+    }
+
+    public void error(String format, double arg) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg}, null);
+    }
+
+    public void error(String message, Throwable t) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, message, null, t);
+    }
+
+    public void error(Supplier<String> message) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, message.get(), null, null);
+    }
+
+    public void error(Supplier<String> message, Throwable t) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, message.get(), null, t);
+    }
+
+    public void error(String format, Supplier<?> arg) {
+        if (threshold <= Level.ERROR_INT) log(LocationAwareLogger.ERROR_INT, format, new Object[]{arg.get()}, null);
+    }
+
+    /**
+     * Loggers de um contexto. Fica na lista de ouvintes do contexto (resistente ao reset da
+     * reconfiguração) e atualiza os níveis guardados a cada mudança de nível.
+     */
+    private static final class Registry implements LoggerContextListener {
+        private final Map<String, VRLogger> loggers = new ConcurrentHashMap<>();
+        private final LoggerContext context;
+
+        private Registry(LoggerContext context) {
+            this.context = context;
+        }
+
+        static synchronized Registry of(LoggerContext context) {
+            Registry registry = find(context);
+            if (registry == null) {
+                registry = new Registry(context);
+                context.addListener(registry);
+            }
+            return registry;
+        }
+
+        static Registry find(LoggerContext context) {
+            for (LoggerContextListener listener : context.getCopyOfListenerList()) {
+                if (listener instanceof Registry) return (Registry) listener;
+            }
+            return null;
+        }
+
+        void refreshAll() {
+            FlightRecorder recorder = FlightRecorder.get(context);
+            for (VRLogger logger : loggers.values()) logger.refresh(recorder);
+        }
+
+        @Override
+        public boolean isResetResistant() {
+            return true;
+        }
+
+        @Override
+        public void onStart(LoggerContext context) {
+            refreshAll();
+        }
+
+        @Override
+        public void onReset(LoggerContext context) {
+            refreshAll();
+        }
+
+        @Override
+        public void onStop(LoggerContext context) {
+        }
+
+        @Override
+        public void onLevelChange(Logger logger, Level level) {
+            refreshAll();
+        }
+    }
+}
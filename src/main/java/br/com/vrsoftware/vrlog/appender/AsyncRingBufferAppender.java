@@ -0,0 +1,419 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender assíncrono que desacopla as threads de negócio da escrita em disco/console.
+ * <p>
+ * Os eventos são publicados em um buffer circular limitado, sem locks, com múltiplos
+ * produtores e um único consumidor. Uma thread escritora drena o buffer em lotes e
+ * repassa os eventos aos appenders anexados (CONSOLE, FILE, ...).
+ * <p>
+ * Quando o buffer enche, cada nível segue sua política de descarte: níveis com limite
+ * configurado são descartados a partir daquele percentual de ocupação; os demais
+ * aguardam espaço usando a estratégia de espera configurada.
+ * <p>
+ * Com um {@link SharedWriterPool}, o buffer é drenado pela thread escritora compartilhada em vez
+ * de uma thread própria; a estratégia de espera vale então apenas para os produtores.
+ */
+public class AsyncRingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    public static final String NAME = "ASYNC";
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 5000;
+
+    /** Valor de limite que indica que o nível nunca é descartado (aguarda espaço). */
+    public static final int NEVER_DISCARD = -1;
+
+    /**
+     * Estratégias de espera usadas pelo consumidor quando o buffer está vazio
+     * e pelos produtores quando o buffer está cheio.
+     */
+    public enum WaitStrategy {
+        /** Espera ativa. Menor latência, consome um núcleo inteiro. */
+        SPIN,
+        /** Cede a CPU a cada tentativa. */
+        YIELD,
+        /** Dorme por curtos intervalos. */
+        PARK,
+        /** Dorme até ser acordado por um produtor. Menor consumo de CPU. */
+        BLOCKING
+    }
+
+    private final AppenderAttachableImpl<ILoggingEvent> aai = new AppenderAttachableImpl<>();
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final LongAdder discardedCount = new LongAdder();
+
+    private int capacity = DEFAULT_CAPACITY;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+    private boolean includeCallerData = false;
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    // Limite de ocupação (em %) a partir do qual cada nível é descartado, indexado por levelInt / 10000
+    private final int[] discardThresholds = {75, 75, NEVER_DISCARD, NEVER_DISCARD, NEVER_DISCARD};
+    private final int[] discardLimits = new int[discardThresholds.length];
+
+    private ILoggingEvent[] buffer;
+    private AtomicLongArray sequences;
+    private int mask;
+    private volatile long consumerIndex;
+    private volatile boolean consumerSleeping;
+    private volatile boolean draining;
+    private Thread worker;
+    private SharedWriterPool writerPool;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (!aai.iteratorForAppenders().hasNext()) {
+            addError("Nenhum appender anexado ao appender assíncrono [" + name + "]");
+            return;
+        }
+
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buffer = new ILoggingEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.mask = size - 1;
+        this.capacity = size;
+
+        for (int i = 0; i < discardThresholds.length; i++) {
+            int threshold = discardThresholds[i];
+            discardLimits[i] = threshold == NEVER_DISCARD ? Integer.MAX_VALUE : (int) ((long) size * threshold / 100);
+        }
+
+        draining = true;
+        if (writerPool != null) {
+            writerPool.register(this);
+        } else {
+            worker = new Thread(this::drainLoop, "vrlog-async-writer-" + getName());
+            worker.setDaemon(true);
+            worker.start();
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+
+        // Sinaliza a thread escritora para drenar o que restou e encerrar
+        draining = false;
+        if (writerPool != null) {
+            awaitSharedDrain();
+        } else {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(shutdownTimeout);
+                if (worker.isAlive()) {
+                    addWarn("Tempo esgotado ao aguardar a drenagem do buffer. " + size() + " eventos podem ter sido perdidos.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        aai.detachAndStopAllAppenders();
+    }
+
+    /**
+     * Aguarda a thread escritora compartilhada drenar o buffer e remove o appender dela.
+     */
+    private void awaitSharedDrain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+        while (size() > 0 && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            writerPool.wake();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        writerPool.unregister(this);
+        if (size() > 0) {
+            addWarn("Tempo esgotado ao aguardar a drenagem do buffer. " + size() + " eventos podem ter sido perdidos.");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int levelIndex = event.getLevel().levelInt / Level.DEBUG_INT;
+        if (levelIndex >= discardLimits.length) levelIndex = discardLimits.length - 1;
+        if (size() >= discardLimits[levelIndex]) {
+            discardedCount.increment();
+            return;
+        }
+
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) event.getCallerData();
+
+        int spins = 0;
+        while (!offer(event)) {
+            // Buffer cheio: níveis que não podem ser descartados aguardam espaço
+            if (!isStarted()) {
+                discardedCount.increment();
+                return;
+            }
+            if (discardLimits[levelIndex] <= capacity) {
+                discardedCount.increment();
+                return;
+            }
+            wakeConsumer();
+            spins = idle(spins);
+        }
+
+        if (consumerSleeping || writerPool != null) wakeConsumer();
+    }
+
+    /**
+     * Publica um evento no buffer. Pode ser chamado concorrentemente por várias threads.
+     *
+     * @return false se o buffer estiver cheio
+     */
+    private boolean offer(ILoggingEvent event) {
+        long position = producerIndex.get();
+        for (; ; ) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(position, position + 1)) {
+                    buffer[index] = event;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerIndex.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = producerIndex.get();
+            }
+        }
+    }
+
+    /**
+     * Retira o próximo evento do buffer. Deve ser chamado apenas pela thread escritora.
+     *
+     * @return O evento ou null se o buffer estiver vazio
+     */
+    private ILoggingEvent poll() {
+        long position = consumerIndex;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) return null;
+
+        ILoggingEvent event = buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, position + buffer.length);
+        consumerIndex = position + 1;
+        return event;
+    }
+
+    /**
+     * Loop da thread escritora: drena o buffer em lotes e descarrega os appenders ao final de cada lote.
+     */
+    private void drainLoop() {
+        int spins = 0;
+        while (true) {
+            int drained = drainBatch();
+            if (drained > 0) {
+                spins = 0;
+                continue;
+            }
+            if (!draining && size() == 0) break;
+
+            if (waitStrategy == WaitStrategy.BLOCKING) {
+                consumerSleeping = true;
+                if (size() == 0 && draining) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                consumerSleeping = false;
+            } else {
+                spins = idle(spins);
+            }
+        }
+    }
+
+    /**
+     * Repassa aos appenders anexados até um lote de eventos. Chamado apenas pela thread escritora.
+     *
+     * @return Quantidade de eventos repassados
+     */
+    int drainBatch() {
+        int count = 0;
+        ILoggingEvent event;
+        while (count < batchSize && (event = poll()) != null) {
+            aai.appendLoopOnAppenders(event);
+            count++;
+        }
+        if (count > 0) flushAppenders();
+        return count;
+    }
+
+    /**
+     * Descarrega os appenders de saída que não fazem flush a cada evento.
+     */
+    private void flushAppenders() {
+        Iterator<Appender<ILoggingEvent>> it = aai.iteratorForAppenders();
+        while (it.hasNext()) {
+            Appender<ILoggingEvent> appender = MeteredAppender.unwrap(it.next());
+            if (appender instanceof OutputStreamAppender && !((OutputStreamAppender<ILoggingEvent>) appender).isImmediateFlush()) {
+                OutputStream out = ((OutputStreamAppender<ILoggingEvent>) appender).getOutputStream();
+                if (out == null) continue;
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    addError("Falha ao descarregar o appender [" + appender.getName() + "]", e);
+                }
+            }
+        }
+    }
+
+    private int idle(int spins) {
+        switch (waitStrategy) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                if (spins < 100) Thread.yield();
+                else LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return spins + 1;
+    }
+
+    private void wakeConsumer() {
+        if (writerPool != null) {
+            writerPool.wake();
+            return;
+        }
+        Thread t = worker;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    /**
+     * @return Quantidade aproximada de eventos aguardando escrita
+     */
+    public int size() {
+        return (int) (producerIndex.get() - consumerIndex);
+    }
+
+    /**
+     * @return Total de eventos descartados desde o início do appender
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public SharedWriterPool getWriterPool() {
+        return writerPool;
+    }
+
+    /**
+     * @param writerPool Thread escritora compartilhada que drena o buffer, ou null para usar uma thread própria
+     */
+    public void setWriterPool(SharedWriterPool writerPool) {
+        this.writerPool = writerPool;
+    }
+
+    public boolean isIncludeCallerData() {
+        return includeCallerData;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    /**
+     * Define a política de descarte de um nível.
+     *
+     * @param level     Nível de log
+     * @param threshold Percentual de ocupação do buffer (0-100) a partir do qual o nível é descartado,
+     *                  ou {@link #NEVER_DISCARD} para aguardar espaço
+     */
+    public void setDiscardThreshold(Level level, int threshold) {
+        int index = Math.min(level.levelInt / Level.DEBUG_INT, discardThresholds.length - 1);
+        discardThresholds[index] = threshold < 0 ? NEVER_DISCARD : Math.min(threshold, 100);
+    }
+
+    // AppenderAttachable
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        aai.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return aai.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return aai.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return aai.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        aai.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return aai.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return aai.detachAppender(name);
+    }
+}
@@ -0,0 +1,566 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.encoder.BinaryLogEncoder;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appender que envia os eventos a um coletor local ({@code log.collector.mode=client}), em vez de
+ * gravar o arquivo de log no próprio processo.
+ * <p>
+ * Os eventos entram em uma fila limitada e uma thread própria os envia em lotes, pela interface de
+ * loopback, no formato binário compacto de {@link BinaryLogEncoder}: cada conexão começa com um
+ * cabeçalho e o dicionário de nomes e modelos de mensagem vale até ela ser encerrada. O coletor
+ * ({@link br.com.vrsoftware.vrlog.util.LogCollector}) grava, rola e mantém os arquivos.
+ * <p>
+ * Enquanto o coletor está indisponível, os lotes vão para um arquivo de espera no diretório de logs
+ * ({@code collector-<pid>-<contexto>.spool}, no mesmo formato binário), limitado a
+ * {@link #setMaxSpoolSize(long)}. Ao reconectar, uma thread separada renomeia o arquivo de espera e o
+ * reenvia em uma conexão própria, removendo-o depois que o coletor confirma o processamento; o envio
+ * dos novos eventos não espera o reenvio. Arquivos de espera de processos que terminaram antes de
+ * reenviá-los (sem a trava do dono) são reenviados da mesma forma. Os eventos reenviados chegam ao
+ * coletor depois dos eventos mais novos, e o arquivo de log fica fora da ordem cronológica nesse
+ * trecho. Os lotes em trânsito quando o coletor cai podem ser perdidos ou repetidos.
+ * <p>
+ * A aplicação nunca espera o coletor: uma escrita na conexão que não termina em
+ * {@link #setWriteTimeout(long)} fecha a conexão (coletor travado) e, com a fila cheia, DEBUG e TRACE
+ * são descartados e os demais níveis vão direto para o arquivo de espera.
+ */
+public class CollectorAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    public static final String NAME = "COLLECTOR";
+
+    public static final int DEFAULT_PORT = 24990;
+    public static final int DEFAULT_QUEUE_SIZE = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_RECONNECT_DELAY = 5000;
+    public static final long DEFAULT_MAX_SPOOL_SIZE = 100 * 1024 * 1024;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 5000;
+    public static final long DEFAULT_WRITE_TIMEOUT = 5000;
+
+    public static final String SPOOL_PREFIX = "collector-";
+    public static final String SPOOL_SUFFIX = ".spool";
+
+    /** Byte enviado pelo coletor ao fim de um reenvio, confirmando que todos os eventos foram processados. */
+    public static final int REPLAY_ACK = 6;
+
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    // Tempo máximo para o coletor confirmar o reenvio de um arquivo de espera
+    private static final int REPLAY_ACK_TIMEOUT_MS = 30000;
+    // Intervalo em que a thread de envio verifica, sem eventos, se pode reenviar o arquivo de espera
+    private static final long IDLE_POLL_MS = 1000;
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+    // Acorda a thread de envio no stop(); a interrupção fecharia o canal do arquivo de espera
+    private static final ILoggingEvent WAKE_UP = new LoggingEvent();
+
+    private final LongAdder discardedCount = new LongAdder();
+    // Protege o arquivo de espera, gravado pela thread de envio e, com a fila cheia, pela aplicação
+    private final Object spoolMonitor = new Object();
+    // Acorda a thread de reenvio
+    private final Object replaySignal = new Object();
+
+    private int port = DEFAULT_PORT;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long reconnectDelay = DEFAULT_RECONNECT_DELAY;
+    private long maxSpoolSize = DEFAULT_MAX_SPOOL_SIZE;
+    private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+    private long writeTimeout = DEFAULT_WRITE_TIMEOUT;
+    private String directory = "./logs";
+    private String pattern;
+
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread sender;
+    private Thread replayer;
+    private ScheduledFuture<?> watchdog;
+    private volatile boolean sending;
+    private volatile boolean connected;
+    private volatile boolean replayRequested;
+    // Início da escrita em andamento na conexão, em System.nanoTime(), ou 0
+    private volatile long writeStartedAt;
+    private volatile Socket socket;
+    private Path spoolFile;
+
+    // Estado usado apenas pela thread de envio
+    private OutputStream socketOut;
+    private BinaryLogEncoder socketEncoder;
+    private long nextConnectAttempt;
+
+    // Estado protegido por spoolMonitor
+    private FileChannel spoolChannel;
+    private FileLock spoolLock;
+    private OutputStream spoolOut;
+    private BinaryLogEncoder spoolEncoder;
+    private boolean spoolWarned;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        spoolFile = Paths.get(directory).toAbsolutePath().resolve(SPOOL_PREFIX + processId() + "-"
+                + (context != null ? context.getName() : "default") + SPOOL_SUFFIX);
+        socketEncoder = createEncoder();
+        spoolEncoder = createEncoder();
+
+        sending = true;
+        sender = new Thread(this::sendLoop, "vrlog-collector-client-" + getName());
+        sender.setDaemon(true);
+        sender.start();
+        replayer = new Thread(this::replayLoop, "vrlog-collector-replay-" + getName());
+        replayer.setDaemon(true);
+        replayer.start();
+        if (context != null) {
+            watchdog = context.getScheduledExecutorService().scheduleWithFixedDelay(this::checkStalledWrite,
+                    1, 1, TimeUnit.SECONDS);
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+
+        // A thread de envio esvazia a fila (no coletor ou no arquivo de espera) e encerra; um reenvio
+        // em andamento continua até o fim, e o arquivo não confirmado é reenviado na próxima execução
+        sending = false;
+        queue.offer(WAKE_UP);
+        synchronized (replaySignal) {
+            replaySignal.notifyAll();
+        }
+        try {
+            sender.join(shutdownTimeout);
+            if (sender.isAlive()) {
+                addWarn("Tempo esgotado ao enviar os eventos ao coletor. " + queue.size() + " eventos podem ter sido perdidos.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (watchdog != null) watchdog.cancel(false);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (queue.offer(event)) return;
+
+        // Fila cheia: DEBUG e TRACE são descartados, os demais vão direto para o arquivo de espera
+        if (!event.getLevel().isGreaterOrEqual(Level.INFO)) {
+            discardedCount.increment();
+            return;
+        }
+        spool(Collections.singletonList(event));
+    }
+
+    /**
+     * Loop da thread de envio: retira os eventos em lotes e os envia ao coletor ou ao arquivo de espera.
+     */
+    private void sendLoop() {
+        List<ILoggingEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (sending || !queue.isEmpty()) {
+                ILoggingEvent first = sending ? queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == WAKE_UP) continue;
+                if (first == null) {
+                    // Sem eventos: tenta reconectar para reenviar o que ficou no arquivo de espera
+                    connect();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batch.removeIf(event -> event == WAKE_UP);
+                send(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            addWarn("Thread de envio ao coletor interrompida. " + queue.size() + " eventos podem ter sido perdidos.");
+        } finally {
+            closeSocket();
+            synchronized (spoolMonitor) {
+                closeSpool();
+            }
+        }
+    }
+
+    /**
+     * Envia o lote ao coletor ou, se ele estiver indisponível, ao arquivo de espera.
+     */
+    private void send(List<ILoggingEvent> batch) {
+        if (connect()) {
+            writeStartedAt = System.nanoTime();
+            try {
+                for (ILoggingEvent event : batch) socketEncoder.encodeTo(event, socketOut);
+                socketOut.flush();
+                return;
+            } catch (IOException e) {
+                addWarn("Conexão com o coletor de logs perdida; os eventos seguem para o arquivo de espera [" + spoolFile + "]", e);
+                closeSocket();
+                nextConnectAttempt = System.currentTimeMillis() + reconnectDelay;
+            } finally {
+                writeStartedAt = 0;
+            }
+        }
+        spool(batch);
+    }
+
+    /**
+     * Fecha a conexão se uma escrita está parada há mais que o limite (coletor aceitou a conexão mas
+     * não lê), liberando a thread de envio, que passa a gravar no arquivo de espera.
+     */
+    private void checkStalledWrite() {
+        long started = writeStartedAt;
+        if (started == 0 || System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(writeTimeout)) return;
+        addWarn("Coletor de logs não recebe os eventos há mais de " + writeTimeout + " ms; encerrando a conexão");
+        closeQuietly(socket);
+    }
+
+    /**
+     * Conecta ao coletor, se ainda não estiver conectado e o intervalo entre tentativas tiver passado.
+     * Antes de a conexão ser usada, os arquivos de espera são reenviados.
+     *
+     * @return true se há uma conexão pronta para uso
+     */
+    private boolean connect() {
+        if (socketOut != null) return true;
+        long now = System.currentTimeMillis();
+        if (now < nextConnectAttempt) return false;
+        nextConnectAttempt = now + reconnectDelay;
+
+        Socket candidate = new Socket();
+        try {
+            candidate.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+            candidate.setTcpNoDelay(true);
+            socket = candidate;
+
+            OutputStream out = new BufferedOutputStream(candidate.getOutputStream(), SOCKET_BUFFER_SIZE);
+            // Cada conexão começa com um cabeçalho, que reinicia o dicionário dos dois lados
+            writeStartedAt = System.nanoTime();
+            try {
+                out.write(socketEncoder.headerBytes());
+                out.flush();
+            } finally {
+                writeStartedAt = 0;
+            }
+            socketOut = out;
+            connected = true;
+            synchronized (spoolMonitor) {
+                if (spoolWarned) addInfo("Conexão com o coletor de logs restabelecida na porta " + port);
+                spoolWarned = false;
+            }
+            requestReplay();
+            return true;
+        } catch (IOException e) {
+            closeSocket();
+            return false;
+        }
+    }
+
+    private void requestReplay() {
+        replayRequested = true;
+        synchronized (replaySignal) {
+            replaySignal.notifyAll();
+        }
+    }
+
+    /**
+     * Loop da thread de reenvio: a cada conexão com o coletor, e sempre que eventos vão para o
+     * arquivo de espera com a conexão ativa, reenvia os arquivos de espera.
+     */
+    private void replayLoop() {
+        while (sending) {
+            synchronized (replaySignal) {
+                try {
+                    if (sending && !replayRequested) replaySignal.wait(reconnectDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (!sending || !replayRequested || !connected) continue;
+            replayRequested = false;
+            try {
+                replaySpools();
+            } catch (IOException e) {
+                // O arquivo permanece e é reenviado na próxima tentativa
+                addWarn("Não foi possível reenviar os arquivos de espera ao coletor", e);
+                replayRequested = true;
+            }
+        }
+    }
+
+    /**
+     * Reenvia o arquivo de espera deste appender e os deixados por processos encerrados. O arquivo de
+     * espera atual é renomeado antes, de modo que a aplicação pode continuar gravando um novo enquanto
+     * o anterior é reenviado.
+     */
+    private void replaySpools() throws IOException {
+        synchronized (spoolMonitor) {
+            closeSpool();
+            if (Files.exists(spoolFile)) {
+                String name = spoolFile.getFileName().toString();
+                String base = name.substring(0, name.length() - SPOOL_SUFFIX.length());
+                Files.move(spoolFile, spoolFile.resolveSibling(base + "." + System.currentTimeMillis() + SPOOL_SUFFIX));
+            }
+        }
+
+        Path dir = spoolFile.getParent();
+        if (dir == null || !Files.isDirectory(dir)) return;
+        List<Path> orphans = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SPOOL_PREFIX + "*" + SPOOL_SUFFIX)) {
+            for (Path file : stream) if (!file.equals(spoolFile)) orphans.add(file);
+        }
+        for (Path orphan : orphans) {
+            try (FileChannel channel = FileChannel.open(orphan, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock;
+                try {
+                    lock = channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    // Arquivo de espera de outro contexto desta JVM
+                    continue;
+                }
+                // Travado pelo dono, que ainda está em execução
+                if (lock == null) continue;
+                // Já reenviado por outro processo entre a listagem e a trava
+                if (!Files.exists(orphan)) continue;
+                replay(orphan, channel);
+            } catch (IOException e) {
+                addWarn("Não foi possível reenviar o arquivo de espera [" + orphan + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Envia o arquivo de espera em uma conexão própria e o remove depois que o coletor confirma
+     * que processou tudo. Um registro incompleto no fim do arquivo (processo
+     * interrompido durante a escrita) é descartado pelo coletor sem afetar a conexão principal.
+     *
+     * @param channel Canal travado do arquivo
+     */
+    private void replay(Path file, FileChannel channel) throws IOException {
+        if (Files.size(file) > 0) {
+            try (Socket replaySocket = new Socket()) {
+                replaySocket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+                replaySocket.setSoTimeout(REPLAY_ACK_TIMEOUT_MS);
+                OutputStream out = new BufferedOutputStream(replaySocket.getOutputStream(), SOCKET_BUFFER_SIZE);
+                channel.position(0);
+                copy(Channels.newInputStream(channel), out);
+                out.flush();
+                replaySocket.shutdownOutput();
+                // O coletor confirma depois de processar o último evento
+                if (replaySocket.getInputStream().read() != REPLAY_ACK) {
+                    throw new IOException("O coletor não confirmou o reenvio de [" + file + "]");
+                }
+            }
+        }
+        // Removido ainda com a trava, para que nenhum processo o reenvie outra vez
+        Files.deleteIfExists(file);
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[SOCKET_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+    }
+
+    /**
+     * Grava o lote no arquivo de espera, abrindo-o com um novo cabeçalho se necessário.
+     */
+    private void spool(List<ILoggingEvent> batch) {
+        synchronized (spoolMonitor) {
+            try {
+                if (spoolOut == null && !openSpool()) {
+                    discardedCount.add(batch.size());
+                    return;
+                }
+                if (spoolChannel.size() >= maxSpoolSize) {
+                    discardedCount.add(batch.size());
+                    return;
+                }
+                for (ILoggingEvent event : batch) spoolEncoder.encodeTo(event, spoolOut);
+                spoolOut.flush();
+            } catch (IOException e) {
+                addError("Falha ao gravar o arquivo de espera do coletor [" + spoolFile + "]", e);
+                discardedCount.add(batch.size());
+                closeSpool();
+                return;
+            }
+        }
+        // Com a conexão ativa (fila cheia), o arquivo é reenviado assim que possível
+        if (connected) requestReplay();
+    }
+
+    private boolean openSpool() throws IOException {
+        Files.createDirectories(spoolFile.getParent());
+        FileChannel channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        // Sem a trava (outro processo reenviando o arquivo) ou arquivo já renomeado: tenta no próximo lote
+        if (lock == null || !Files.exists(spoolFile)) {
+            channel.close();
+            return false;
+        }
+
+        spoolChannel = channel;
+        spoolLock = lock;
+        spoolOut = new BufferedOutputStream(Channels.newOutputStream(channel), SOCKET_BUFFER_SIZE);
+        spoolOut.write(spoolEncoder.headerBytes());
+        if (!spoolWarned && !connected) {
+            addWarn("Coletor de logs indisponível na porta " + port + "; gravando os eventos em [" + spoolFile + "]");
+            spoolWarned = true;
+        }
+        return true;
+    }
+
+    private void closeSpool() {
+        OutputStream out = spoolOut;
+        spoolOut = null;
+        try {
+            if (out != null) out.flush();
+        } catch (IOException e) {
+            addError("Falha ao gravar o arquivo de espera do coletor [" + spoolFile + "]", e);
+        }
+        try {
+            if (spoolLock != null) spoolLock.release();
+            if (spoolChannel != null) spoolChannel.close();
+        } catch (IOException e) {
+            // Arquivo já gravado
+        }
+        spoolLock = null;
+        spoolChannel = null;
+    }
+
+    private void closeSocket() {
+        connected = false;
+        closeQuietly(socket);
+        socket = null;
+        socketOut = null;
+    }
+
+    private static void closeQuietly(Socket target) {
+        if (target == null) return;
+        try {
+            target.close();
+        } catch (IOException e) {
+            // Conexão já encerrada
+        }
+    }
+
+    private BinaryLogEncoder createEncoder() {
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(pattern);
+        encoder.start();
+        return encoder;
+    }
+
+    private static String processId() {
+        // Formato "pid@host" no Java 8
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        return at > 0 ? name.substring(0, at) : name;
+    }
+
+    /**
+     * @return Total de eventos descartados (fila cheia ou arquivo de espera no limite)
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * @return Quantidade de eventos aguardando envio
+     */
+    public int size() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public Path getSpoolFile() {
+        return spoolFile;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param reconnectDelay Intervalo entre as tentativas de conexão com o coletor, em milissegundos
+     */
+    public void setReconnectDelay(long reconnectDelay) {
+        this.reconnectDelay = Math.max(100, reconnectDelay);
+    }
+
+    /**
+     * @param maxSpoolSize Tamanho máximo do arquivo de espera em bytes; acima dele os eventos são descartados
+     */
+    public void setMaxSpoolSize(long maxSpoolSize) {
+        this.maxSpoolSize = maxSpoolSize;
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * @param writeTimeout Tempo máximo, em milissegundos, de uma escrita na conexão com o coletor
+     */
+    public void setWriteTimeout(long writeTimeout) {
+        this.writeTimeout = Math.max(100, writeTimeout);
+    }
+
+    /**
+     * @param directory Diretório do arquivo de espera (o diretório de logs)
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param pattern Padrão gravado no cabeçalho do arquivo de espera, para leitura com o BinaryLogReader
+     */
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+}
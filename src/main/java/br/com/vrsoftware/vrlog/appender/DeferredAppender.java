@@ -0,0 +1,131 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Appender que adia a criação do appender real ({@code log.startup=lazy}).
+ * <p>
+ * Ao iniciar, apenas agenda a criação do appender real (criação de diretórios, abertura do arquivo,
+ * política de rolagem) em segundo plano. Até lá os eventos ficam em um buffer pequeno e são
+ * repassados em ordem assim que o appender real fica pronto. Se o buffer encher antes, a thread
+ * que tenta registrar o próximo evento cria o appender real, sem descartar eventos.
+ * <p>
+ * Depois de pronto, cada evento é repassado diretamente, com uma única leitura volátil.
+ */
+public class DeferredAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final Supplier<Appender<ILoggingEvent>> factory;
+    private final Object lock = new Object();
+    private final Queue<ILoggingEvent> buffer = new ArrayDeque<>();
+    private volatile Appender<ILoggingEvent> delegate;
+    private ScheduledFuture<?> warmUp;
+    private long startNanos;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private long delay;
+    private LogMetrics metrics;
+
+    /**
+     * @param name    Nome do appender real
+     * @param factory Cria e inicia o appender real
+     */
+    public DeferredAppender(String name, Supplier<Appender<ILoggingEvent>> factory) {
+        this.factory = factory;
+        setName(name);
+    }
+
+    @Override
+    public void start() {
+        startNanos = System.nanoTime();
+        super.start();
+        warmUp = getContext().getScheduledExecutorService().schedule(this::warmUp, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        Appender<ILoggingEvent> target = delegate;
+        if (target == null) {
+            synchronized (lock) {
+                target = delegate;
+                if (target == null) {
+                    if (buffer.size() < bufferSize) {
+                        event.prepareForDeferredProcessing();
+                        buffer.add(event);
+                        return;
+                    }
+                    // Buffer cheio: o appender real é criado nesta thread
+                    target = initialize();
+                }
+            }
+        }
+        target.doAppend(event);
+    }
+
+    private void warmUp() {
+        synchronized (lock) {
+            if (delegate == null && isStarted()) initialize();
+        }
+    }
+
+    /**
+     * Cria o appender real e repassa os eventos do buffer. Chamado com o lock.
+     */
+    private Appender<ILoggingEvent> initialize() {
+        Appender<ILoggingEvent> created = factory.get();
+        ILoggingEvent event;
+        while ((event = buffer.poll()) != null) created.doAppend(event);
+        delegate = created;
+
+        if (warmUp != null) warmUp.cancel(false);
+        if (metrics != null) metrics.recordWarmUp(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return created;
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            // Eventos ainda no buffer são gravados antes de parar
+            if (delegate == null && !buffer.isEmpty()) initialize();
+        }
+        if (warmUp != null) warmUp.cancel(false);
+        super.stop();
+        Appender<ILoggingEvent> target = delegate;
+        if (target != null) target.stop();
+    }
+
+    /**
+     * @return O appender real, ou null se ainda não foi criado
+     */
+    public Appender<ILoggingEvent> getDelegate() {
+        return delegate;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param delay Espera, em milissegundos, antes de criar o appender real em segundo plano
+     */
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * @param metrics Métricas onde é registrado o tempo até o appender real ficar pronto, ou null
+     */
+    public void setMetrics(LogMetrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.encoder.DirectEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.status.ErrorStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appender de console que escreve com {@link DirectEncoder#encodeTo}, sem o array por evento
+ * que o {@link ConsoleAppender} recebe de {@link Encoder#encode}. Outros encoders seguem o caminho padrão.
+ */
+public class DirectConsoleAppender extends ConsoleAppender<ILoggingEvent> {
+
+    @Override
+    protected void subAppend(ILoggingEvent event) {
+        Encoder<ILoggingEvent> encoder = getEncoder();
+        if (!(encoder instanceof DirectEncoder)) {
+            super.subAppend(event);
+            return;
+        }
+
+        if (!isStarted()) return;
+        try {
+            event.prepareForDeferredProcessing();
+            lock.lock();
+            try {
+                OutputStream out = getOutputStream();
+                ((DirectEncoder<ILoggingEvent>) encoder).encodeTo(event, out);
+                if (isImmediateFlush()) out.flush();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException ioe) {
+            this.started = false;
+            addStatus(new ErrorStatus("Falha de E/S no appender", this, ioe));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import org.slf4j.Marker;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appender de alertas por email que não bloqueia as threads de log.
+ * <p>
+ * Os eventos que disparam alerta (nível mínimo ou marcador) são apenas agrupados em memória pelo
+ * modelo da mensagem e pelo tipo da exceção. Uma thread própria envia, a cada janela, um único
+ * email com o resumo do período: a primeira ocorrência de cada grupo, a quantidade de repetições
+ * e o intervalo em que ocorreram. Se o limite de emails por hora for atingido, os grupos continuam
+ * acumulando até a próxima janela em que o envio for permitido.
+ * <p>
+ * O envio é feito por um {@link MailTransport}, o que permite substituir o SMTP nos testes.
+ */
+public class EmailDigestAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    public static final String NAME = "EMAIL";
+
+    public static final long DEFAULT_WINDOW = 60000;
+    public static final int DEFAULT_MAX_PER_HOUR = 10;
+    public static final int DEFAULT_MAX_GROUPS = 100;
+
+    /**
+     * Meio de envio dos resumos.
+     */
+    public interface MailTransport {
+        void send(String subject, String body) throws IOException;
+    }
+
+    private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+    private final LongAdder overflowCount = new LongAdder();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    // Horários dos últimos envios, acessados apenas pela thread de envio
+    private final Deque<Long> sendTimes = new ArrayDeque<>();
+
+    private MailTransport transport;
+    private Layout<ILoggingEvent> layout;
+    private String subject = "Log Alert";
+    private Level minLevel = Level.ERROR;
+    private String markerName;
+    private long window = DEFAULT_WINDOW;
+    private int maxPerHour = DEFAULT_MAX_PER_HOUR;
+    private int maxGroups = DEFAULT_MAX_GROUPS;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (transport == null) {
+            addError("Nenhum meio de envio definido para o appender de email [" + name + "]");
+            return;
+        }
+        if (layout == null) {
+            addError("Nenhum layout definido para o appender de email [" + name + "]");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vrlog-email-" + getName());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+
+        // Envia o que ficou pendente antes de encerrar a thread
+        scheduler.shutdown();
+        try {
+            if (scheduler.awaitTermination(window, TimeUnit.MILLISECONDS)) {
+                flush();
+            } else {
+                addWarn("Tempo esgotado ao aguardar o envio do resumo de alertas.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!triggers(event)) return;
+
+        String key = key(event);
+        if (!groups.containsKey(key) && groups.size() >= maxGroups) {
+            // Muitas mensagens distintas na janela: apenas contabiliza
+            overflowCount.increment();
+            return;
+        }
+
+        groups.compute(key, (k, group) -> {
+            if (group == null) {
+                event.prepareForDeferredProcessing();
+                return new Group(event);
+            }
+            group.count++;
+            group.lastTimestamp = Math.max(group.lastTimestamp, event.getTimeStamp());
+            return group;
+        });
+    }
+
+    /**
+     * @return true se o evento atinge o nível mínimo ou tem o marcador de email
+     */
+    private boolean triggers(ILoggingEvent event) {
+        if (minLevel != null && event.getLevel().isGreaterOrEqual(minLevel)) return true;
+        Marker marker = event.getMarker();
+        return markerName != null && marker != null && marker.contains(markerName);
+    }
+
+    /**
+     * Chave de agrupamento: modelo da mensagem (antes da substituição dos argumentos) e tipo da exceção.
+     */
+    private static String key(ILoggingEvent event) {
+        IThrowableProxy throwable = event.getThrowableProxy();
+        String message = event.getMessage();
+        return event.getLoggerName() + '|' + message + '|' + (throwable != null ? throwable.getClassName() : "");
+    }
+
+    /**
+     * Envia o resumo dos grupos acumulados, se houver e se o limite de envios permitir.
+     */
+    void flush() {
+        if (groups.isEmpty() && overflowCount.sum() == 0) return;
+
+        long now = System.currentTimeMillis();
+        while (!sendTimes.isEmpty() && now - sendTimes.peekFirst() >= TimeUnit.HOURS.toMillis(1)) sendTimes.pollFirst();
+        if (maxPerHour > 0 && sendTimes.size() >= maxPerHour) return;
+
+        List<Group> digest = new ArrayList<>();
+        for (String key : groups.keySet()) {
+            Group group = groups.remove(key);
+            if (group != null) digest.add(group);
+        }
+        long overflow = overflowCount.sumThenReset();
+        digest.sort((a, b) -> Long.compare(b.count, a.count));
+
+        long total = overflow;
+        for (Group group : digest) total += group.count;
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        StringBuilder body = new StringBuilder();
+        body.append(total).append(" eventos em ").append(digest.size()).append(" grupos").append(System.lineSeparator());
+        for (Group group : digest) {
+            body.append(System.lineSeparator())
+                    .append("[").append(group.count).append("x] ")
+                    .append(dateFormat.format(new Date(group.firstTimestamp)));
+            if (group.count > 1) body.append(" até ").append(dateFormat.format(new Date(group.lastTimestamp)));
+            body.append(System.lineSeparator()).append(layout.doLayout(group.first));
+        }
+        if (overflow > 0) {
+            body.append(System.lineSeparator()).append(overflow)
+                    .append(" eventos não agrupados (limite de ").append(maxGroups).append(" grupos por resumo)")
+                    .append(System.lineSeparator());
+        }
+
+        sendTimes.addLast(now);
+        try {
+            transport.send(subject + " (" + total + " eventos)", body.toString());
+            sentCount.increment();
+        } catch (Exception e) {
+            // Não reenvia, para não repetir o resumo a cada janela enquanto o servidor estiver fora
+            failedCount.increment();
+            addError("Falha ao enviar o resumo de alertas por email", e);
+        }
+    }
+
+    public void setTransport(MailTransport transport) {
+        this.transport = transport;
+    }
+
+    public void setLayout(Layout<ILoggingEvent> layout) {
+        this.layout = layout;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * @param minLevel Nível mínimo que dispara alerta, ou null para alertar apenas pelo marcador
+     */
+    public void setMinLevel(Level minLevel) {
+        this.minLevel = minLevel;
+    }
+
+    public void setMarkerName(String markerName) {
+        this.markerName = markerName;
+    }
+
+    public void setWindow(long window) {
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * @param maxPerHour Máximo de emails por hora, ou 0 para não limitar
+     */
+    public void setMaxPerHour(int maxPerHour) {
+        this.maxPerHour = maxPerHour;
+    }
+
+    public void setMaxGroups(int maxGroups) {
+        this.maxGroups = Math.max(1, maxGroups);
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Eventos repetidos de uma mesma mensagem e exceção. Alterado apenas dentro de
+     * {@link ConcurrentHashMap#compute}, que serializa o acesso por chave.
+     */
+    private static final class Group {
+        final ILoggingEvent first;
+        final long firstTimestamp;
+        long lastTimestamp;
+        long count = 1;
+
+        Group(ILoggingEvent first) {
+            this.first = first;
+            this.firstTimestamp = first.getTimeStamp();
+            this.lastTimestamp = firstTimestamp;
+        }
+    }
+}
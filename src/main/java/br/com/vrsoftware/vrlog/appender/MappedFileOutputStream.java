@@ -0,0 +1,176 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link OutputStream} que escreve em um arquivo através de uma janela mapeada em memória.
+ * <p>
+ * A janela é remapeada à frente sempre que se esgota. Como o mapeamento estende o arquivo
+ * até o fim da janela, o tamanho lógico (bytes realmente escritos) é mantido à parte e
+ * a sobra é truncada no {@link #close()}. Se o processo termina sem o fechamento, a sobra
+ * (bytes zero) fica no arquivo; ela é removida na próxima abertura, que continua a escrita a
+ * partir do último byte diferente de zero. Por isso o conteúdo gravado não pode terminar com
+ * bytes zero legítimos (o formato binário não é suportado).
+ * <p>
+ * Os dados escritos ficam no cache de páginas do sistema operacional, preservados se o processo
+ * terminar, mas só são forçados ao disco na rolagem, no encerramento ou em {@link #force()}.
+ * <p>
+ * Não é thread-safe: o appender deve serializar o acesso.
+ */
+public final class MappedFileOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final int windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Abre o arquivo para escrita, continuando a partir do seu tamanho lógico atual.
+     *
+     * @param file       Arquivo de destino
+     * @param windowSize Tamanho da janela mapeada em bytes
+     * @throws IOException Em caso de erro ao abrir ou mapear o arquivo
+     */
+    public MappedFileOutputStream(File file, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.windowSize = windowSize;
+        try {
+            // Remove a sobra de uma janela não truncada (processo encerrado sem fechar o arquivo)
+            this.windowStart = logicalEnd(channel);
+            if (windowStart < channel.size()) channel.truncate(windowStart);
+            this.window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!window.hasRemaining()) remap();
+        window.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!window.hasRemaining()) remap();
+            int n = Math.min(len, window.remaining());
+            window.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Os dados já estão no cache de páginas do sistema operacional e visíveis a outros leitores;
+     * não há nada a descarregar. Não força a gravação no disco, mesmo com {@code immediateFlush}
+     * (ver {@link #force()}).
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Força a gravação da janela atual no disco.
+     */
+    public void force() {
+        if (window != null) window.force();
+    }
+
+    /**
+     * @return Quantidade de bytes efetivamente escritos no arquivo
+     */
+    public long size() {
+        MappedByteBuffer w = window;
+        return w != null ? windowStart + w.position() : windowStart;
+    }
+
+    /**
+     * Força a gravação no disco, libera o mapeamento, trunca a sobra da janela e fecha o arquivo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (window == null) return;
+
+        long size = size();
+        MappedByteBuffer w = window;
+        window = null;
+        windowStart = size;
+        w.force();
+        unmap(w);
+        try {
+            channel.truncate(size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void remap() throws IOException {
+        windowStart += window.position();
+        MappedByteBuffer old = window;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        unmap(old);
+    }
+
+    /**
+     * @return Posição seguinte ao último byte diferente de zero do arquivo
+     */
+    private static long logicalEnd(FileChannel channel) throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        long end = channel.size();
+        while (end > 0) {
+            int length = (int) Math.min(chunk.length, end);
+            long start = end - length;
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) break;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk[i] != 0) return start + i + 1;
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (window == null) throw new IOException("Arquivo mapeado já foi fechado");
+    }
+
+    /**
+     * Libera o mapeamento imediatamente, sem esperar pelo GC. Necessário no Windows para que
+     * o arquivo possa ser renomeado na rolagem. Em caso de falha o mapeamento é liberado pelo GC.
+     */
+    private static void unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (Exception ignored) {
+            }
+        } catch (Exception ignored) {
+        }
+    }
+}
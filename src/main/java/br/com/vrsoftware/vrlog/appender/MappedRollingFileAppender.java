@@ -0,0 +1,136 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.encoder.DirectEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.TriggeringPolicy;
+import ch.qos.logback.core.status.ErrorStatus;
+import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Appender de arquivo com rolagem que escreve através de uma janela mapeada em memória
+ * ({@link MappedFileOutputStream}), evitando uma chamada de sistema por evento.
+ * <p>
+ * Usa as mesmas políticas de rolagem do {@link RollingFileAppender}. Como o arquivo ativo
+ * é estendido até o fim da janela mapeada, a verificação de tamanho da rolagem usa o
+ * tamanho lógico escrito e não o tamanho do arquivo em disco. A sobra da janela é
+ * truncada na rolagem e no encerramento.
+ * <p>
+ * O modo prudente não é suportado.
+ */
+public class MappedRollingFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+    public static final FileSize DEFAULT_WINDOW_SIZE = FileSize.valueOf("8MB");
+
+    private FileSize windowSize = DEFAULT_WINDOW_SIZE;
+    private volatile MappedFileOutputStream mappedStream;
+    private File activeFileView;
+
+    @Override
+    public void start() {
+        if (isPrudent()) {
+            addError("O modo prudente não é suportado pelo appender mapeado em memória [" + name + "]");
+            return;
+        }
+        if (windowSize.getSize() <= 0 || windowSize.getSize() > Integer.MAX_VALUE) {
+            addError("Tamanho de janela inválido para o appender [" + name + "]: " + windowSize);
+            return;
+        }
+        super.start();
+        if (isStarted()) activeFileView = new LogicalSizeFile(getFile(), this);
+    }
+
+    @Override
+    public void openFile(String fileName) throws IOException {
+        lock.lock();
+        try {
+            File file = new File(fileName);
+            if (!FileUtil.createMissingParentDirectories(file)) {
+                addError("Falha ao criar diretórios para [" + file.getAbsolutePath() + "]");
+            }
+
+            MappedFileOutputStream stream = new MappedFileOutputStream(file, (int) windowSize.getSize());
+            mappedStream = stream;
+            setOutputStream(stream);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void subAppend(ILoggingEvent event) {
+        // Mesma ordem do RollingFileAppender, mas avaliando o gatilho com o tamanho lógico do arquivo
+        TriggeringPolicy<ILoggingEvent> triggeringPolicy = getTriggeringPolicy();
+        synchronized (triggeringPolicy) {
+            if (triggeringPolicy.isTriggeringEvent(activeFileView, event)) {
+                rollover();
+            }
+        }
+
+        if (!isStarted()) return;
+        try {
+            event.prepareForDeferredProcessing();
+            writeOut(event);
+        } catch (IOException ioe) {
+            this.started = false;
+            addStatus(new ErrorStatus("Falha de E/S no appender", this, ioe));
+        }
+    }
+
+    @Override
+    protected void writeOut(ILoggingEvent event) throws IOException {
+        Encoder<ILoggingEvent> encoder = getEncoder();
+        if (!(encoder instanceof DirectEncoder)) {
+            super.writeOut(event);
+            return;
+        }
+
+        // Encoders diretos escrevem na janela mapeada sem o byte[] intermediário
+        lock.lock();
+        try {
+            ((DirectEncoder<ILoggingEvent>) encoder).encodeTo(event, getOutputStream());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Bytes escritos no arquivo ativo
+     */
+    public long getActiveFileSize() {
+        MappedFileOutputStream stream = mappedStream;
+        return stream != null ? stream.size() : 0;
+    }
+
+    public FileSize getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(FileSize windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Visão do arquivo ativo cujo tamanho é o tamanho lógico escrito,
+     * usada pelas políticas de rolagem por tamanho.
+     */
+    private static final class LogicalSizeFile extends File {
+        private static final long serialVersionUID = 1L;
+        private final transient MappedRollingFileAppender appender;
+
+        LogicalSizeFile(String path, MappedRollingFileAppender appender) {
+            super(path);
+            this.appender = appender;
+        }
+
+        @Override
+        public long length() {
+            return appender.getActiveFileSize();
+        }
+    }
+}
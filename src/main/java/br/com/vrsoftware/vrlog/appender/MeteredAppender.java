@@ -0,0 +1,65 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.metrics.LatencyHistogram;
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Appender que mede a latência de escrita do appender que envolve.
+ * <p>
+ * Mantém o nome do appender envolvido, de modo que as métricas ficam identificadas por ele
+ * (CONSOLE, FILE, ASYNC). Quem precisar do appender real deve usar {@link #unwrap(Appender)}.
+ */
+public class MeteredAppender<E> extends UnsynchronizedAppenderBase<E> {
+
+    private final Appender<E> delegate;
+    private final LatencyHistogram latency;
+
+    public MeteredAppender(Appender<E> delegate, LogMetrics metrics) {
+        this.delegate = delegate;
+        this.latency = metrics.appendLatency(delegate.getName());
+        setContext(delegate.getContext());
+        setName(delegate.getName());
+    }
+
+    @Override
+    protected void append(E event) {
+        long start = System.nanoTime();
+        delegate.doAppend(event);
+        latency.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void start() {
+        if (!delegate.isStarted()) delegate.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        delegate.stop();
+    }
+
+    public Appender<E> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return O appender real, se o informado for um {@link MeteredAppender} ou um {@link DeferredAppender}
+     * já pronto, ou o próprio appender
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> Appender<E> unwrap(Appender<E> appender) {
+        while (true) {
+            if (appender instanceof MeteredAppender) {
+                appender = ((MeteredAppender<E>) appender).getDelegate();
+            } else if (appender instanceof DeferredAppender && ((DeferredAppender) appender).getDelegate() != null) {
+                appender = (Appender<E>) ((DeferredAppender) appender).getDelegate();
+            } else {
+                return appender;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Appender que apenas conta os eventos por nível em {@link LogMetrics}. Anexado ao logger raiz
+ * antes dos demais, conta os eventos registrados mesmo que sejam descartados adiante.
+ */
+public class MetricsAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    public static final String NAME = "METRICS";
+
+    private final LogMetrics metrics;
+
+    public MetricsAppender(LogMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        metrics.recordEvent(event.getLevel());
+    }
+}
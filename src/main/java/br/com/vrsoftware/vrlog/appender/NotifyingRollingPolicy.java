@@ -0,0 +1,103 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import ch.qos.logback.core.rolling.RolloverFailure;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.rolling.helper.CompressionMode;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link SizeAndTimeBasedRollingPolicy} que avisa ouvintes a cada rolagem concluída,
+ * informando o nome do segmento que acabou de ser fechado.
+ * <p>
+ * Sem compressão pelo Logback (os segmentos são comprimidos depois pelo VRLog), o contador
+ * {@code %i} só enxerga os segmentos ainda não comprimidos e recomeça em 0 após um reinício no mesmo
+ * dia. Por isso o segmento rolado cujo número já tem uma versão comprimida é renomeado para o
+ * primeiro número livre, antes de os ouvintes serem avisados.
+ */
+public class NotifyingRollingPolicy<E> extends SizeAndTimeBasedRollingPolicy<E> {
+
+    /**
+     * Ouvinte de rolagens de arquivo.
+     */
+    public interface RolloverListener {
+        /**
+         * @param rolledFileName Caminho do segmento fechado (sem o sufixo de compressão do Logback)
+         */
+        void onRollover(String rolledFileName);
+    }
+
+    // Número do segmento no fim do nome (padrão ...%d.%i)
+    private static final Pattern COUNTER_PATTERN = Pattern.compile("^(.*\\.)(\\d+)$");
+
+    private final List<RolloverListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addRolloverListener(RolloverListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeRolloverListener(RolloverListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void rollover() throws RolloverFailure {
+        // O nome do período encerrado precisa ser lido antes da rolagem
+        String rolledFileName = getTimeBasedFileNamingAndTriggeringPolicy().getElapsedPeriodsFileName();
+        super.rollover();
+        if (getCompressionMode() == CompressionMode.NONE) rolledFileName = skipCompressedSiblings(rolledFileName);
+
+        for (RolloverListener listener : listeners) {
+            try {
+                listener.onRollover(rolledFileName);
+            } catch (RuntimeException e) {
+                addError("Falha ao notificar rolagem de [" + rolledFileName + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Renomeia o segmento rolado para o primeiro número livre, sem arquivo com o mesmo número,
+     * comprimido ou não.
+     *
+     * @return O nome final do segmento
+     */
+    private String skipCompressedSiblings(String rolledFileName) {
+        File rolled = new File(rolledFileName);
+        Matcher matcher = COUNTER_PATTERN.matcher(rolled.getName());
+        if (!matcher.matches() || !hasCompressedVersion(rolled)) return rolledFileName;
+
+        long counter = Long.parseLong(matcher.group(2));
+        File target;
+        do {
+            target = new File(rolled.getParentFile(), matcher.group(1) + (++counter));
+        } while (target.exists() || hasCompressedVersion(target));
+        if (!rolled.renameTo(target)) {
+            addError("Não foi possível renomear o segmento [" + rolledFileName + "] para [" + target + "]");
+            return rolledFileName;
+        }
+        return target.getPath();
+    }
+
+    /**
+     * @return true se o segmento já tem uma versão comprimida, inclusive com sufixo de desambiguação
+     * ({@code <segmento>-N.<extensão>})
+     */
+    private static boolean hasCompressedVersion(File segment) {
+        File[] siblings = segment.getParentFile() != null ? segment.getParentFile().listFiles() : null;
+        if (siblings == null) return false;
+        String name = segment.getName();
+        for (File sibling : siblings) {
+            String siblingName = sibling.getName();
+            if (!siblingName.startsWith(name) || TipoCompressao.fromArquivo(siblingName) == null) continue;
+            String rest = siblingName.substring(name.length());
+            if (rest.startsWith(".") || rest.matches("-\\d+\\..*")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.encoder.DirectEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.TriggeringPolicy;
+import ch.qos.logback.core.status.ErrorStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appender de arquivo com rolagem que codifica cada evento sob o lock de escrita.
+ * <p>
+ * O {@link RollingFileAppender} codifica fora do lock, então os bytes de eventos concorrentes podem
+ * chegar ao arquivo em ordem diferente da codificação. Encoders com estado, como o do formato
+ * binário (dicionário e tempo relativo ao evento anterior), precisam que as duas ordens coincidam.
+ * Com um {@link DirectEncoder} o evento é escrito direto no arquivo, sem passar por um array por evento.
+ */
+public class OrderedRollingFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+    private File activeFile;
+
+    @Override
+    public void start() {
+        super.start();
+        if (isStarted()) activeFile = new File(getFile());
+    }
+
+    @Override
+    protected void subAppend(ILoggingEvent event) {
+        // Mesma ordem do RollingFileAppender, mas escrevendo por writeOut
+        TriggeringPolicy<ILoggingEvent> triggeringPolicy = getTriggeringPolicy();
+        synchronized (triggeringPolicy) {
+            if (triggeringPolicy.isTriggeringEvent(activeFile, event)) {
+                rollover();
+            }
+        }
+
+        if (!isStarted()) return;
+        try {
+            event.prepareForDeferredProcessing();
+            writeOut(event);
+        } catch (IOException ioe) {
+            this.started = false;
+            addStatus(new ErrorStatus("Falha de E/S no appender", this, ioe));
+        }
+    }
+
+    @Override
+    protected void writeOut(ILoggingEvent event) throws IOException {
+        Encoder<ILoggingEvent> encoder = getEncoder();
+        lock.lock();
+        try {
+            if (encoder instanceof DirectEncoder) {
+                OutputStream out = getOutputStream();
+                ((DirectEncoder<ILoggingEvent>) encoder).encodeTo(event, out);
+                if (isImmediateFlush()) out.flush();
+            } else {
+                super.writeOut(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
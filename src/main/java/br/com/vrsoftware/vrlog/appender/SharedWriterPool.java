@@ -0,0 +1,100 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread escritora compartilhada pelos appenders assíncronos de vários contextos
+ * ({@code log.async.writer=shared}).
+ * <p>
+ * Em vez de uma thread por appender, uma única thread drena os buffers registrados em rodízio,
+ * um lote de cada vez, de modo que um módulo com muito volume não impede a escrita dos demais.
+ * Sem eventos pendentes, a thread dorme por curtos intervalos até ser acordada por um produtor.
+ */
+public final class SharedWriterPool {
+
+    private static SharedWriterPool shared;
+
+    private final CopyOnWriteArrayList<AsyncRingBufferAppender> appenders = new CopyOnWriteArrayList<>();
+    // Mantido durante cada rodada, para que um appender removido não seja mais drenado depois
+    private final Object roundLock = new Object();
+    private final String threadName;
+    private volatile boolean sleeping;
+    private Thread worker;
+
+    SharedWriterPool(String threadName) {
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return A thread escritora compartilhada da JVM
+     */
+    public static synchronized SharedWriterPool shared() {
+        if (shared == null) shared = new SharedWriterPool("vrlog-shared-writer");
+        return shared;
+    }
+
+    /**
+     * Passa a drenar o buffer do appender, iniciando a thread escritora se necessário.
+     */
+    synchronized void register(AsyncRingBufferAppender appender) {
+        appenders.addIfAbsent(appender);
+        if (worker == null) {
+            worker = new Thread(this::drainLoop, threadName);
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Deixa de drenar o buffer do appender. Ao retornar, a thread escritora não está mais
+     * repassando eventos dele.
+     */
+    void unregister(AsyncRingBufferAppender appender) {
+        synchronized (roundLock) {
+            appenders.remove(appender);
+        }
+    }
+
+    /**
+     * Acorda a thread escritora, se estiver dormindo.
+     */
+    void wake() {
+        if (sleeping) {
+            Thread t = worker;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * @return Quantidade de appenders atendidos pela thread escritora
+     */
+    public int getAppenderCount() {
+        return appenders.size();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int drained = 0;
+            synchronized (roundLock) {
+                for (AsyncRingBufferAppender appender : appenders) drained += appender.drainBatch();
+            }
+            if (drained > 0) continue;
+
+            sleeping = true;
+            if (appenders.isEmpty()) LockSupport.park(this);
+            else if (!hasPending()) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+            sleeping = false;
+        }
+    }
+
+    private boolean hasPending() {
+        for (AsyncRingBufferAppender appender : appenders) {
+            if (appender.size() > 0) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,490 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.util.ShippingSpool;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appender que envia os logs a um servidor remoto sem bloquear nem perder eventos quando a
+ * conexão cai ({@code log.ship.*}).
+ * <p>
+ * Os eventos entram em uma fila limitada em memória. Uma thread agrupa os eventos em lotes,
+ * codifica cada lote com o encoder configurado (JSON, um objeto por linha), comprime com GZIP e o
+ * acrescenta a uma fila em disco dividida em segmentos ({@link ShippingSpool}). Outra thread envia
+ * os lotes em ordem pelo {@link Transport}; cada lote só sai da fila em disco depois de confirmado.
+ * Falhas de envio são repetidas com espera exponencial, enquanto os novos eventos seguem sendo
+ * gravados na fila em disco, cujo tamanho é limitado e cuja idade máxima segue a retenção dos logs.
+ * <p>
+ * Cada instância tem a sua fila em disco ({@code <diretório>/<pid>-<contexto>}), travada enquanto o
+ * appender está ativo, para que processos e contextos com o mesmo diretório de logs não disputem os
+ * mesmos segmentos. As filas deixadas por instâncias encerradas (reinício do processo, com outro
+ * pid) são enviadas pela thread de envio quando a fila própria está vazia e removidas em seguida;
+ * os lotes delas chegam depois dos lotes já enviados pela instância atual.
+ * <p>
+ * O envio é feito por um {@link Transport}, o que permite substituir o HTTP nos testes.
+ */
+public class ShippingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    public static final String NAME = "SHIP";
+
+    public static final int DEFAULT_QUEUE_SIZE = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_LINGER = 1000;
+    public static final long DEFAULT_RETRY_INITIAL = 1000;
+    public static final long DEFAULT_RETRY_MAX = 60000;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 5000;
+    public static final long DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final long DEFAULT_MAX_SPOOL_SIZE = 256 * 1024 * 1024;
+
+    // Intervalo entre as aplicações da retenção na fila em disco
+    private static final long RETENTION_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    // Espera máxima da thread de envio sem lotes pendentes
+    private static final long IDLE_WAIT_MS = 1000;
+    // Intervalo entre as buscas por filas deixadas por instâncias encerradas
+    private static final long ORPHAN_SCAN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    // Acorda a thread de gravação no stop(); a interrupção fecharia o canal da fila em disco
+    private static final ILoggingEvent WAKE_UP = new LoggingEvent();
+
+    /**
+     * Meio de envio dos lotes.
+     */
+    public interface Transport {
+        /**
+         * Envia um lote comprimido com GZIP.
+         *
+         * @return true se o destino confirmou o recebimento, ou false se rejeitou o lote em definitivo
+         * (ele é descartado, sem nova tentativa)
+         * @throws IOException Em falhas que devem ser repetidas (conexão, tempo esgotado, destino indisponível)
+         */
+        boolean send(byte[] batch) throws IOException;
+    }
+
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder shippedBatches = new LongAdder();
+    private final LongAdder rejectedBatches = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    // Sinaliza novos lotes e o encerramento à thread de envio
+    private final Object signal = new Object();
+
+    private Transport transport;
+    private Encoder<ILoggingEvent> encoder;
+    private Path directory;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long maxSpoolSize = DEFAULT_MAX_SPOOL_SIZE;
+    private ShippingSpool spool;
+    private Level minLevel = Level.INFO;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long linger = DEFAULT_LINGER;
+    private long retryInitial = DEFAULT_RETRY_INITIAL;
+    private long retryMax = DEFAULT_RETRY_MAX;
+    private long maxAge;
+    private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
+    // Espera atual entre as repetições, usada só pela thread de envio
+    private long backoff;
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread writer;
+    private Thread sender;
+    private volatile boolean writing;
+    private volatile boolean sending;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (transport == null) {
+            addError("Nenhum meio de envio definido para o appender de envio [" + name + "]");
+            return;
+        }
+        if (encoder == null || directory == null) {
+            addError("Encoder ou diretório da fila em disco não definidos para o appender de envio [" + name + "]");
+            return;
+        }
+        spool = new ShippingSpool(directory.toAbsolutePath().resolve(processId() + "-"
+                + (context != null ? context.getName() : "default")), segmentSize, maxSpoolSize);
+        try {
+            spool.open();
+        } catch (IOException e) {
+            addError("Não foi possível abrir a fila de envio do appender [" + name + "]", e);
+            spool = null;
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        writing = true;
+        sending = true;
+        writer = new Thread(this::writeLoop, "vrlog-ship-writer-" + getName());
+        writer.setDaemon(true);
+        writer.start();
+        sender = new Thread(this::sendLoop, "vrlog-ship-sender-" + getName());
+        sender.setDaemon(true);
+        sender.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+
+        // Grava na fila em disco o que restou em memória e tenta enviar o pendente dentro do prazo;
+        // o que não for enviado fica em disco para a próxima execução
+        long deadline = System.currentTimeMillis() + shutdownTimeout;
+        writing = false;
+        queue.offer(WAKE_UP);
+        join(writer, deadline);
+        if (writer.isAlive()) addWarn("Tempo esgotado ao gravar a fila de envio. " + queue.size() + " eventos podem ter sido perdidos.");
+
+        while (spool.getPendingBytes() > 0 && System.currentTimeMillis() < deadline && sender.isAlive()) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        sending = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        join(sender, deadline + 1000);
+        try {
+            spool.close();
+        } catch (IOException e) {
+            addError("Falha ao fechar a fila de envio do appender [" + name + "]", e);
+        }
+    }
+
+    private static String processId() {
+        // Formato "pid@host" no Java 8
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        return at > 0 ? name.substring(0, at) : name;
+    }
+
+    private static void join(Thread thread, long deadline) {
+        try {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!event.getLevel().isGreaterOrEqual(minLevel)) return;
+        event.prepareForDeferredProcessing();
+        // Fila cheia: a gravação em disco não está acompanhando; o evento é descartado, sem bloquear
+        if (!queue.offer(event)) discardedCount.increment();
+    }
+
+    /**
+     * Loop da thread de gravação: agrupa os eventos em lotes, por quantidade ou tempo, e os grava
+     * comprimidos na fila em disco.
+     */
+    private void writeLoop() {
+        List<ILoggingEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (writing || !queue.isEmpty()) {
+                ILoggingEvent first = writing ? queue.poll(IDLE_WAIT_MS, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null || first == WAKE_UP) continue;
+                batch.add(first);
+
+                // Aguarda o lote encher por até linger ms, para não enviar lotes de poucos eventos
+                long deadline = System.currentTimeMillis() + linger;
+                while (batch.size() < batchSize && writing) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) break;
+                    ILoggingEvent next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    if (next != WAKE_UP) batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                batch.removeIf(event -> event == WAKE_UP);
+
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            addWarn("Thread de gravação da fila de envio interrompida. " + queue.size() + " eventos podem ter sido perdidos.");
+        }
+    }
+
+    private void write(List<ILoggingEvent> batch) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 256);
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes, 8192)) {
+                byte[] header = encoder.headerBytes();
+                if (header != null) out.write(header);
+                for (ILoggingEvent event : batch) out.write(encoder.encode(event));
+            }
+            spool.append(bytes.toByteArray());
+        } catch (IOException e) {
+            addError("Falha ao gravar a fila de envio do appender [" + name + "]", e);
+            discardedCount.add(batch.size());
+            return;
+        }
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Loop da thread de envio: envia os lotes da fila em disco em ordem, repetindo as falhas com
+     * espera exponencial, e aplica a retenção periodicamente. Com a fila própria vazia, envia as
+     * filas deixadas por instâncias encerradas.
+     */
+    private void sendLoop() {
+        long nextRetention = 0;
+        long nextOrphanScan = 0;
+        while (sending) {
+            long now = System.currentTimeMillis();
+            if (maxAge > 0 && now >= nextRetention) {
+                nextRetention = now + RETENTION_INTERVAL;
+                applyRetention(spool);
+            }
+
+            ShippingSpool.Batch batch;
+            try {
+                batch = spool.peek();
+            } catch (IOException e) {
+                addError("Falha ao ler a fila de envio do appender [" + name + "]", e);
+                batch = null;
+            }
+            if (batch != null) {
+                ship(spool, batch);
+                continue;
+            }
+
+            if (now >= nextOrphanScan) {
+                nextOrphanScan = now + ORPHAN_SCAN_INTERVAL;
+                drainOrphans();
+            } else {
+                await(IDLE_WAIT_MS);
+            }
+        }
+    }
+
+    /**
+     * Envia um lote e o confirma na fila. Em falha temporária, aguarda a espera exponencial.
+     *
+     * @return true se o lote saiu da fila (enviado ou rejeitado em definitivo)
+     */
+    private boolean ship(ShippingSpool from, ShippingSpool.Batch batch) {
+        try {
+            if (transport.send(batch.getData())) {
+                shippedBatches.increment();
+            } else {
+                rejectedBatches.increment();
+                addWarn("Lote de logs rejeitado pelo destino e descartado");
+            }
+            from.ack(batch);
+            if (backoff > 0) addInfo("Envio de logs restabelecido");
+            backoff = 0;
+            return true;
+        } catch (IOException e) {
+            failedAttempts.increment();
+            if (backoff == 0) addWarn("Falha no envio de logs; os lotes ficam na fila em disco até o destino responder", e);
+            backoff = backoff == 0 ? retryInitial : Math.min(retryMax, backoff * 2);
+            // Variação aleatória para que vários processos não repitam ao mesmo tempo
+            await(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+            return false;
+        }
+    }
+
+    private void applyRetention(ShippingSpool target) {
+        try {
+            target.applyRetention(maxAge);
+        } catch (IOException e) {
+            addWarn("Falha ao aplicar a retenção na fila de envio [" + target.getDirectory() + "]", e);
+        }
+    }
+
+    /**
+     * Envia e remove as filas de outras instâncias do mesmo diretório cuja trava está livre (a
+     * instância foi encerrada). As filas de instâncias ativas falham ao abrir e são ignoradas. Para
+     * ao chegar um lote na fila própria, que tem prioridade, ou na primeira falha de envio.
+     */
+    private void drainOrphans() {
+        Path own = spool.getDirectory();
+        List<Path> candidates = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(own.getParent(), Files::isDirectory)) {
+            for (Path dir : stream) {
+                if (!dir.equals(own)) candidates.add(dir);
+            }
+        } catch (IOException e) {
+            addWarn("Falha ao procurar filas de envio abandonadas em [" + own.getParent() + "]", e);
+            return;
+        }
+
+        for (Path dir : candidates) {
+            if (!sending) return;
+            ShippingSpool orphan = new ShippingSpool(dir, segmentSize, maxSpoolSize);
+            try {
+                orphan.open();
+            } catch (IOException e) {
+                continue; // Em uso por outra instância
+            }
+            try {
+                if (maxAge > 0) applyRetention(orphan);
+                ShippingSpool.Batch batch;
+                while (sending && spool.getPendingBytes() == 0 && (batch = orphan.peek()) != null) {
+                    if (!ship(orphan, batch)) return;
+                }
+                if (orphan.delete()) addInfo("Fila de envio abandonada [" + dir + "] enviada e removida");
+            } catch (IOException e) {
+                addWarn("Falha ao enviar a fila de envio abandonada [" + dir + "]", e);
+            } finally {
+                try {
+                    orphan.close();
+                } catch (IOException e) {
+                    // Trava já liberada
+                }
+            }
+            if (spool.getPendingBytes() > 0) return;
+        }
+    }
+
+    private void await(long millis) {
+        synchronized (signal) {
+            if (!sending) return;
+            try {
+                signal.wait(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sending = false;
+            }
+        }
+    }
+
+    // Métricas
+
+    /**
+     * @return Total de eventos descartados (fila em memória cheia ou falha de gravação)
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    public long getShippedBatches() {
+        return shippedBatches.sum();
+    }
+
+    public long getRejectedBatches() {
+        return rejectedBatches.sum();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.sum();
+    }
+
+    /**
+     * @return Bytes comprimidos aguardando envio na fila em disco
+     */
+    public long getPendingBytes() {
+        return spool != null ? spool.getPendingBytes() : 0;
+    }
+
+    // Configuração
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * @param encoder Encoder de cada evento do lote (JSON, por exemplo)
+     */
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * @param directory Diretório das filas em disco, uma por processo e contexto
+     */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param segmentSize Tamanho, em bytes, a partir do qual a fila em disco inicia um novo segmento
+     */
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @param maxSpoolSize Tamanho máximo, em bytes, da fila em disco; acima dele os segmentos mais
+     *                     antigos são descartados
+     */
+    public void setMaxSpoolSize(long maxSpoolSize) {
+        this.maxSpoolSize = maxSpoolSize;
+    }
+
+    /**
+     * @param minLevel Nível mínimo enviado
+     */
+    public void setMinLevel(Level minLevel) {
+        this.minLevel = minLevel;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param linger Tempo máximo, em ms, aguardando o lote encher antes de gravá-lo
+     */
+    public void setLinger(long linger) {
+        this.linger = Math.max(0, linger);
+    }
+
+    /**
+     * @param retryInitial Espera, em ms, antes da primeira repetição de um envio com falha
+     */
+    public void setRetryInitial(long retryInitial) {
+        this.retryInitial = Math.max(1, retryInitial);
+    }
+
+    /**
+     * @param retryMax Espera máxima, em ms, entre as repetições
+     */
+    public void setRetryMax(long retryMax) {
+        this.retryMax = Math.max(1, retryMax);
+    }
+
+    /**
+     * @param maxAge Idade máxima, em ms, dos segmentos da fila em disco (0 para não limitar)
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+}
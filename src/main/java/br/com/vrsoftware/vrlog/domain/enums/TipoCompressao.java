@@ -0,0 +1,37 @@
+package br.com.vrsoftware.vrlog.domain.enums;
+
+public enum TipoCompressao {
+    ZIP("zip"), GZIP("gz"), BZIP2("bz2"), XZ("xz"),
+    // Arquivo em blocos independentes com índice de tempo (BlockArchiveWriter)
+    BLOCOS("vrlb");
+
+    private final String extensao;
+
+    TipoCompressao(String extensao) {
+        this.extensao = extensao;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+
+    /**
+     * Obtém o tipo de compressão pelo nome configurado (zip, gzip, bzip2, xz, blocos).
+     */
+    public static TipoCompressao fromNome(String nome) {
+        for (TipoCompressao tipo : values()) {
+            if (tipo.name().equalsIgnoreCase(nome) || tipo.extensao.equalsIgnoreCase(nome)) return tipo;
+        }
+        throw new IllegalArgumentException("Tipo de compressão desconhecido: " + nome);
+    }
+
+    /**
+     * Obtém o tipo de compressão pela extensão do arquivo, ou null se não for um arquivo comprimido.
+     */
+    public static TipoCompressao fromArquivo(String nomeArquivo) {
+        for (TipoCompressao tipo : values()) {
+            if (nomeArquivo.endsWith("." + tipo.extensao)) return tipo;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encoder do formato binário compacto ({@code log.format=binary}).
+ * <p>
+ * Em vez da linha de texto, cada evento grava a diferença de tempo para o evento anterior, o nível,
+ * referências a um dicionário de nomes de thread, nomes de logger e modelos de mensagem, e apenas
+ * os argumentos da mensagem. Cada entrada do dicionário é gravada uma única vez por arquivo, no
+ * primeiro uso. O texto é reconstruído com o padrão do log por
+ * {@link br.com.vrsoftware.vrlog.util.BinaryLogReader}.
+ * <p>
+ * Estrutura: o cabeçalho ({@link #headerBytes()}) é gravado a cada abertura de arquivo e reinicia
+ * o dicionário e o tempo de referência; depois vêm registros de dicionário ({@link #RECORD_STRING})
+ * e de evento ({@link #RECORD_EVENT}). Números usam varint (com zigzag quando podem ser negativos)
+ * e textos são UTF-8 precedidos do tamanho.
+ * <p>
+ * O encoder tem estado e depende da ordem de escrita: deve ser usado com um appender que codifica
+ * o evento sob o lock de escrita ({@link br.com.vrsoftware.vrlog.appender.OrderedRollingFileAppender}
+ * ou {@link br.com.vrsoftware.vrlog.appender.MappedRollingFileAppender}).
+ */
+public class BinaryLogEncoder extends EncoderBase<ILoggingEvent> implements DirectEncoder<ILoggingEvent> {
+
+    public static final byte[] MAGIC = {'V', 'R', 'L', 'O', 'G', 'B', 'I', 'N'};
+    public static final int VERSION = 1;
+
+    public static final int RECORD_HEADER = 0;
+    public static final int RECORD_STRING = 1;
+    public static final int RECORD_EVENT = 2;
+
+    public static final int ARG_NULL = 0;
+    public static final int ARG_STRING = 1;
+    public static final int ARG_LONG = 2;
+    public static final int ARG_DOUBLE = 3;
+    public static final int ARG_FLOAT = 4;
+    public static final int ARG_TRUE = 5;
+    public static final int ARG_FALSE = 6;
+
+    /** Referência ao dicionário que indica texto gravado no próprio evento. */
+    public static final int INLINE = 0;
+
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 65536;
+    // Modelos maiores que isso são gravados no próprio evento, pois raramente se repetem
+    private static final int MAX_INTERNED_LENGTH = 1024;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private ByteBuilder out = new ByteBuilder(512);
+    private ByteBuilder scratch = new ByteBuilder(256);
+    private long lastTimestamp;
+    private int maxDictionarySize = DEFAULT_MAX_DICTIONARY_SIZE;
+    private String pattern;
+
+    /**
+     * Reinicia o dicionário e grava o cabeçalho. Chamado pelo appender a cada arquivo aberto.
+     */
+    @Override
+    public synchronized byte[] headerBytes() {
+        dictionary.clear();
+        lastTimestamp = 0;
+
+        ByteBuilder header = out.reset();
+        writeVarint(header, RECORD_HEADER);
+        header.append(MAGIC);
+        writeVarint(header, VERSION);
+        // Padrão usado por padrão na reconstrução do texto
+        writeString(header, pattern != null ? pattern : "");
+        return header.toByteArray();
+    }
+
+    @Override
+    public synchronized byte[] encode(ILoggingEvent event) {
+        return render(event).toByteArray();
+    }
+
+    @Override
+    public synchronized void encodeTo(ILoggingEvent event, OutputStream stream) throws IOException {
+        render(event).writeTo(stream);
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    private ByteBuilder render(ILoggingEvent event) {
+        if (out.array().length > MAX_RETAINED_BUFFER) out = new ByteBuilder(512);
+        if (scratch.array().length > MAX_RETAINED_BUFFER) scratch = new ByteBuilder(256);
+        ByteBuilder buffer = out.reset();
+
+        // Entradas novas do dicionário vão antes do evento que as usa
+        int thread = intern(buffer, event.getThreadName());
+        int logger = intern(buffer, event.getLoggerName());
+        String message = event.getMessage();
+        int template = message != null && message.length() <= MAX_INTERNED_LENGTH ? intern(buffer, message) : INLINE;
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        int[] mdcKeys = null;
+        if (mdc != null && !mdc.isEmpty()) {
+            mdcKeys = new int[mdc.size()];
+            int i = 0;
+            for (String key : mdc.keySet()) mdcKeys[i++] = intern(buffer, key);
+        }
+
+        writeVarint(buffer, RECORD_EVENT);
+        long timestamp = event.getTimeStamp();
+        writeZigzag(buffer, timestamp - lastTimestamp);
+        lastTimestamp = timestamp;
+        // Nível como índice: TRACE=0, DEBUG=1, INFO=2, WARN=3, ERROR=4
+        buffer.append((byte) (event.getLevel().levelInt / Level.DEBUG_INT));
+        writeReference(buffer, thread, event.getThreadName());
+        writeReference(buffer, logger, event.getLoggerName());
+        writeReference(buffer, template, message);
+
+        Object[] args = event.getArgumentArray();
+        int argCount = args != null ? args.length : 0;
+        writeVarint(buffer, argCount);
+        for (int i = 0; i < argCount; i++) writeArgument(buffer, args[i]);
+
+        if (mdcKeys == null) {
+            writeVarint(buffer, 0);
+        } else {
+            writeVarint(buffer, mdcKeys.length);
+            int i = 0;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                writeReference(buffer, mdcKeys[i++], entry.getKey());
+                writeString(buffer, entry.getValue() != null ? entry.getValue() : "");
+            }
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable == null) {
+            buffer.append((byte) 0);
+        } else {
+            buffer.append((byte) 1);
+            writeString(buffer, ThrowableProxyUtil.asString(throwable));
+        }
+        return buffer;
+    }
+
+    /**
+     * @return O código do texto no dicionário, gravando a entrada se for nova, ou {@link #INLINE}
+     * se o dicionário estiver cheio
+     */
+    private int intern(ByteBuilder buffer, String value) {
+        if (value == null) value = "";
+        Integer id = dictionary.get(value);
+        if (id != null) return id;
+        if (dictionary.size() >= maxDictionarySize) return INLINE;
+
+        id = dictionary.size() + 1;
+        dictionary.put(value, id);
+        writeVarint(buffer, RECORD_STRING);
+        writeVarint(buffer, id);
+        writeString(buffer, value);
+        return id;
+    }
+
+    /**
+     * Grava o código do texto no dicionário, seguido do próprio texto se ele não foi internado.
+     */
+    private void writeReference(ByteBuilder buffer, int id, String value) {
+        writeVarint(buffer, id);
+        if (id == INLINE) writeString(buffer, value != null ? value : "");
+    }
+
+    private void writeArgument(ByteBuilder buffer, Object arg) {
+        if (arg == null) {
+            buffer.append((byte) ARG_NULL);
+        } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            buffer.append((byte) ARG_LONG);
+            writeZigzag(buffer, ((Number) arg).longValue());
+        } else if (arg instanceof Double) {
+            buffer.append((byte) ARG_DOUBLE);
+            writeFixed(buffer, Double.doubleToRawLongBits((Double) arg), 8);
+        } else if (arg instanceof Float) {
+            buffer.append((byte) ARG_FLOAT);
+            writeFixed(buffer, Float.floatToRawIntBits((Float) arg), 4);
+        } else if (arg instanceof Boolean) {
+            buffer.append((byte) ((Boolean) arg ? ARG_TRUE : ARG_FALSE));
+        } else {
+            buffer.append((byte) ARG_STRING);
+            // Mesma conversão que o SLF4J aplica ao formatar (inclusive arrays)
+            writeString(buffer, arg instanceof String ? (String) arg
+                    : MessageFormatter.arrayFormat("{}", new Object[]{arg}).getMessage());
+        }
+    }
+
+    private void writeString(ByteBuilder buffer, String value) {
+        ByteBuilder bytes = scratch.reset().append(value);
+        writeVarint(buffer, bytes.length());
+        buffer.append(bytes.array(), 0, bytes.length());
+    }
+
+    private static void writeVarint(ByteBuilder buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.append((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.append((byte) value);
+    }
+
+    private static void writeZigzag(ByteBuilder buffer, long value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeFixed(ByteBuilder buffer, long value, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) buffer.append((byte) (value >>> (i * 8)));
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param pattern Padrão gravado no cabeçalho, usado por padrão na reconstrução do texto
+     */
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public void setMaxDictionarySize(int maxDictionarySize) {
+        this.maxDictionarySize = maxDictionarySize;
+    }
+}
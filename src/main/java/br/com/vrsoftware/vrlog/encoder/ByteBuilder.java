@@ -0,0 +1,163 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Buffer de bytes reutilizável que codifica texto diretamente em UTF-8.
+ * <p>
+ * Não é thread-safe: cada thread deve usar sua própria instância e chamar
+ * {@link #reset()} antes de montar um novo evento.
+ */
+public final class ByteBuilder {
+
+    private static final String NULL = "null";
+    private static final byte[] DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+
+    private byte[] buf;
+    private int count;
+
+    public ByteBuilder(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public ByteBuilder reset() {
+        count = 0;
+        return this;
+    }
+
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Descarta o conteúdo a partir da posição informada.
+     */
+    public void setLength(int length) {
+        this.count = length;
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    public ByteBuilder append(byte b) {
+        ensureCapacity(count + 1);
+        buf[count++] = b;
+        return this;
+    }
+
+    public ByteBuilder append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public ByteBuilder append(byte[] bytes, int offset, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(bytes, offset, buf, count, len);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Acrescenta o texto codificado em UTF-8, sem criar objetos intermediários.
+     */
+    public ByteBuilder append(CharSequence s) {
+        if (s == null) return append(NULL);
+        return append(s, 0, s.length());
+    }
+
+    public ByteBuilder append(CharSequence s, int start, int end) {
+        ensureCapacity(count + (end - start));
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (count == buf.length) ensureCapacity(count + 1 + (end - i));
+                buf[count++] = (byte) c;
+            } else {
+                i = appendNonAscii(s, i, end);
+            }
+        }
+        return this;
+    }
+
+    private int appendNonAscii(CharSequence s, int i, int end) {
+        char c = s.charAt(i);
+        ensureCapacity(count + 4 + (end - i));
+        if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            buf[count++] = (byte) (0xF0 | (cp >> 18));
+            buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    /**
+     * Acrescenta um número decimal sem converter para String.
+     */
+    public ByteBuilder append(long value) {
+        if (value == Long.MIN_VALUE) return append("-9223372036854775808");
+        if (value < 0) {
+            append((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        ensureCapacity(count + digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    /**
+     * Acrescenta um número com largura fixa, completando com zeros à esquerda.
+     */
+    public ByteBuilder appendPadded(int value, int width) {
+        ensureCapacity(count + width);
+        for (int i = count + width - 1; i >= count; i--) {
+            buf[i] = DIGITS[value % 10];
+            value /= 10;
+        }
+        count += width;
+        return this;
+    }
+
+    public ByteBuilder appendSpaces(int n) {
+        ensureCapacity(count + n);
+        for (int i = 0; i < n; i++) buf[count++] = ' ';
+        return this;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    public void writeTo(ByteBuffer out) {
+        out.put(buf, 0, count);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, minCapacity));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Formatador de datas que mantém em cache os bytes do último segundo formatado.
+ * <p>
+ * Para padrões com um único campo de milissegundos ({@code SSS}) o padrão é dividido
+ * em prefixo e sufixo, formatados apenas quando o segundo muda; os milissegundos
+ * são escritos diretamente. Padrões sem milissegundos são formatados uma vez por segundo
+ * e os demais uma vez por milissegundo.
+ * <p>
+ * Não é thread-safe: deve ser usado por uma única thread.
+ */
+public final class CachedDateFormatter {
+
+    private final SimpleDateFormat prefixFormat;
+    private final SimpleDateFormat suffixFormat;
+    private final boolean splitMillis;
+    private final long resolution;
+
+    private long cachedPeriod = Long.MIN_VALUE;
+    private byte[] cachedPrefix;
+    private byte[] cachedSuffix;
+
+    public CachedDateFormatter(String pattern, TimeZone timeZone) {
+        int millis = pattern.indexOf("SSS");
+        boolean simpleMillis = millis >= 0
+                && pattern.indexOf('\'') < 0
+                && pattern.indexOf('S', millis + 3) < 0
+                && pattern.lastIndexOf('S', millis - 1) < 0
+                && (millis + 3 >= pattern.length() || pattern.charAt(millis + 3) != 'S');
+
+        if (simpleMillis) {
+            this.prefixFormat = new SimpleDateFormat(pattern.substring(0, millis));
+            this.suffixFormat = new SimpleDateFormat(pattern.substring(millis + 3));
+            this.splitMillis = true;
+            this.resolution = 1000;
+        } else {
+            this.prefixFormat = new SimpleDateFormat(pattern);
+            this.suffixFormat = null;
+            this.splitMillis = false;
+            this.resolution = pattern.indexOf('S') >= 0 ? 1 : 1000;
+        }
+
+        prefixFormat.setTimeZone(timeZone);
+        if (suffixFormat != null) suffixFormat.setTimeZone(timeZone);
+    }
+
+    /**
+     * Escreve a data formatada no buffer.
+     */
+    public void format(long timestamp, ByteBuilder out) {
+        long period = Math.floorDiv(timestamp, resolution);
+        if (period != cachedPeriod) {
+            Date date = new Date(period * resolution);
+            cachedPrefix = prefixFormat.format(date).getBytes(StandardCharsets.UTF_8);
+            cachedSuffix = splitMillis ? suffixFormat.format(date).getBytes(StandardCharsets.UTF_8) : null;
+            cachedPeriod = period;
+        }
+
+        out.append(cachedPrefix);
+        if (splitMillis) {
+            out.appendPadded((int) Math.floorMod(timestamp, 1000L), 3);
+            out.append(cachedSuffix);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoder capaz de escrever o evento diretamente em um {@link OutputStream},
+ * sem alocar o {@code byte[]} exigido por {@link Encoder#encode(Object)}.
+ * <p>
+ * Appenders que conhecem esta interface (ex.: o appender de arquivo mapeado em memória)
+ * usam este caminho; os demais continuam usando {@link Encoder#encode(Object)}.
+ */
+public interface DirectEncoder<E> extends Encoder<E> {
+
+    /**
+     * Codifica o evento e escreve os bytes no destino.
+     *
+     * @param event Evento a ser codificado
+     * @param out   Destino dos bytes
+     * @throws IOException Em caso de erro na escrita
+     */
+    void encodeTo(E event, OutputStream out) throws IOException;
+}
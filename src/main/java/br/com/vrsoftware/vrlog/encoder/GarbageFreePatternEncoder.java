@@ -0,0 +1,492 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.pattern.Abbreviator;
+import ch.qos.logback.classic.pattern.ClassNameOnlyAbbreviator;
+import ch.qos.logback.classic.pattern.TargetLengthBasedClassNameAbbreviator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Encoder de padrão que não gera lixo por evento nos conversores mais comuns.
+ * <p>
+ * O {@code log.pattern} é compilado uma única vez em uma lista de segmentos. Cada evento
+ * é montado diretamente em um {@link ByteBuilder} reutilizado por thread, com as datas
+ * formatadas por um {@link CachedDateFormatter} e os nomes de logger abreviados mantidos em cache.
+ * <p>
+ * Conversores suportados: {@code %d/%date}, {@code %thread/%t}, {@code %level/%le/%p},
+ * {@code %logger/%lo/%c}, {@code %msg/%m/%message}, {@code %X/%mdc}, {@code %ex/%throwable} e
+ * {@code %n}, com alinhamento e truncamento ({@code %-5level}, {@code %.30thread}, {@code %-40logger{36}})
+ * e valor padrão no MDC ({@code %X{chave:-padrão}}). Se o padrão usar qualquer outro conversor, ou
+ * alinhamento em {@code %d}, {@code %ex} ou {@code %n}, o encoder recorre ao {@link PatternLayout} do Logback.
+ */
+public class GarbageFreePatternEncoder extends EncoderBase<ILoggingEvent> implements DirectEncoder<ILoggingEvent> {
+
+    public static final String ISO8601_PATTERN = "yyyy-MM-dd HH:mm:ss,SSS";
+
+    // Buffers maiores que isso não são mantidos entre eventos, para não reter memória após mensagens enormes
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private String pattern;
+    private Segment[] segments;
+    private List<String> datePatterns;
+    private PatternLayout fallbackLayout;
+    private ThreadLocal<RenderState> renderState;
+
+    @Override
+    public void start() {
+        if (pattern == null || pattern.isEmpty()) {
+            addError("Padrão não definido para o encoder");
+            return;
+        }
+
+        try {
+            datePatterns = new ArrayList<>();
+            segments = compile(pattern);
+            renderState = ThreadLocal.withInitial(() -> new RenderState(datePatterns));
+        } catch (IllegalArgumentException e) {
+            addWarn("Padrão [" + pattern + "] não suportado pelo encoder sem alocação (" + e.getMessage()
+                    + "). Usando PatternLayout.");
+            segments = null;
+            fallbackLayout = new PatternLayout();
+            fallbackLayout.setContext(getContext());
+            fallbackLayout.setPattern(pattern);
+            fallbackLayout.start();
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (fallbackLayout != null) fallbackLayout.stop();
+        super.stop();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        if (fallbackLayout != null) return fallbackLayout.doLayout(event).getBytes(StandardCharsets.UTF_8);
+
+        RenderState state = renderState.get();
+        byte[] bytes = render(event, state).toByteArray();
+        state.release();
+        return bytes;
+    }
+
+    @Override
+    public void encodeTo(ILoggingEvent event, OutputStream out) throws IOException {
+        if (fallbackLayout != null) {
+            out.write(fallbackLayout.doLayout(event).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        RenderState state = renderState.get();
+        render(event, state).writeTo(out);
+        state.release();
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    /**
+     * @return true se o padrão foi compilado e o encoder está usando o caminho sem alocação
+     */
+    public boolean isGarbageFree() {
+        return segments != null;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    private ByteBuilder render(ILoggingEvent event, RenderState state) {
+        ByteBuilder out = state.builder.reset();
+        for (Segment segment : segments) {
+            segment.render(event, state, out);
+        }
+        return out;
+    }
+
+    // ------------------------------------------------------------------
+    // Compilação do padrão
+    // ------------------------------------------------------------------
+
+    private Segment[] compile(String pattern) {
+        List<Segment> result = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean hasThrowable = false;
+
+        int i = 0;
+        int len = pattern.length();
+        while (i < len) {
+            char c = pattern.charAt(i);
+
+            if (c == '\\' && i + 1 < len) {
+                literal.append(pattern.charAt(i + 1));
+                i += 2;
+                continue;
+            }
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            // Formato: %[-][min][.[-]max]palavra[{opções}]
+            i++;
+            boolean leftAlign = false;
+            int min = 0;
+            int max = Integer.MAX_VALUE;
+            boolean truncateRight = false;
+
+            if (i < len && pattern.charAt(i) == '-') {
+                leftAlign = true;
+                i++;
+            }
+            int start = i;
+            while (i < len && Character.isDigit(pattern.charAt(i))) i++;
+            if (i > start) min = Integer.parseInt(pattern.substring(start, i));
+            if (i < len && pattern.charAt(i) == '.') {
+                i++;
+                if (i < len && pattern.charAt(i) == '-') {
+                    truncateRight = true;
+                    i++;
+                }
+                start = i;
+                while (i < len && Character.isDigit(pattern.charAt(i))) i++;
+                if (i == start) throw new IllegalArgumentException("truncamento inválido");
+                max = Integer.parseInt(pattern.substring(start, i));
+            }
+
+            start = i;
+            while (i < len && Character.isLetter(pattern.charAt(i))) i++;
+            String keyword = pattern.substring(start, i);
+            if (keyword.isEmpty()) throw new IllegalArgumentException("conversor composto");
+            if (i < len && pattern.charAt(i) == '(') throw new IllegalArgumentException("conversor composto %" + keyword);
+
+            String option = null;
+            if (i < len && pattern.charAt(i) == '{') {
+                int end = pattern.indexOf('}', i);
+                if (end < 0) throw new IllegalArgumentException("opção sem fechamento");
+                option = pattern.substring(i + 1, end);
+                i = end + 1;
+            }
+
+            if (literal.length() > 0) {
+                result.add(new LiteralSegment(literal.toString()));
+                literal.setLength(0);
+            }
+
+            Segment segment;
+            switch (keyword) {
+                case "d":
+                case "date":
+                    segment = new DateSegment(datePatterns.size());
+                    datePatterns.add(option == null ? ISO8601_PATTERN : option);
+                    break;
+                case "t":
+                case "thread":
+                    segment = new ThreadSegment();
+                    break;
+                case "p":
+                case "le":
+                case "level":
+                    segment = new LevelSegment(leftAlign, min, max, truncateRight);
+                    break;
+                case "c":
+                case "lo":
+                case "logger":
+                    segment = new LoggerSegment(option == null ? -1 : Integer.parseInt(option.trim()), leftAlign, min, max, truncateRight);
+                    break;
+                case "m":
+                case "msg":
+                case "message":
+                    segment = new MessageSegment();
+                    break;
+                case "X":
+                case "mdc":
+                    segment = new MdcSegment(option);
+                    break;
+                case "ex":
+                case "exception":
+                case "throwable":
+                    segment = new ThrowableSegment();
+                    hasThrowable = true;
+                    break;
+                case "n":
+                    segment = new LiteralSegment(CoreConstants.LINE_SEPARATOR);
+                    break;
+                default:
+                    throw new IllegalArgumentException("conversor %" + keyword);
+            }
+
+            if (min > 0 || max != Integer.MAX_VALUE) {
+                if (segment instanceof TextSegment) {
+                    segment = new PaddedSegment((TextSegment) segment, leftAlign, min, max, truncateRight);
+                } else if (!(segment instanceof LevelSegment) && !(segment instanceof LoggerSegment)) {
+                    // Nível e logger já aplicam o alinhamento; nos demais ele seria ignorado
+                    throw new IllegalArgumentException("alinhamento em %" + keyword);
+                }
+            }
+            result.add(segment);
+        }
+
+        if (literal.length() > 0) result.add(new LiteralSegment(literal.toString()));
+
+        // Assim como o PatternLayout, garante que exceções sejam impressas mesmo sem %ex no padrão
+        if (!hasThrowable) result.add(new ThrowableSegment());
+
+        return result.toArray(new Segment[0]);
+    }
+
+    // ------------------------------------------------------------------
+    // Estado por thread
+    // ------------------------------------------------------------------
+
+    private static final class RenderState {
+        private ByteBuilder builder = new ByteBuilder(512);
+        private final CachedDateFormatter[] dateFormatters;
+
+        RenderState(List<String> datePatterns) {
+            dateFormatters = new CachedDateFormatter[datePatterns.size()];
+            for (int i = 0; i < dateFormatters.length; i++) {
+                dateFormatters[i] = createDateFormatter(datePatterns.get(i));
+            }
+        }
+
+        void release() {
+            if (builder.array().length > MAX_RETAINED_BUFFER) builder = new ByteBuilder(512);
+        }
+    }
+
+    /**
+     * Cria o formatador a partir da opção do conversor de data: {@code padrão[, fuso horário]}.
+     */
+    static CachedDateFormatter createDateFormatter(String option) {
+        String datePattern = option.trim();
+        TimeZone timeZone = TimeZone.getDefault();
+
+        if (datePattern.startsWith("\"")) {
+            int end = datePattern.indexOf('"', 1);
+            String rest = end > 0 ? datePattern.substring(end + 1).trim() : "";
+            datePattern = end > 0 ? datePattern.substring(1, end) : datePattern.substring(1);
+            if (rest.startsWith(",")) timeZone = TimeZone.getTimeZone(rest.substring(1).trim());
+        } else {
+            int comma = datePattern.indexOf(',');
+            if (comma >= 0) {
+                timeZone = TimeZone.getTimeZone(datePattern.substring(comma + 1).trim());
+                datePattern = datePattern.substring(0, comma).trim();
+            }
+        }
+
+        if (datePattern.isEmpty() || "ISO8601".equals(datePattern)) datePattern = ISO8601_PATTERN;
+        return new CachedDateFormatter(datePattern, timeZone);
+    }
+
+    // ------------------------------------------------------------------
+    // Segmentos
+    // ------------------------------------------------------------------
+
+    private interface Segment {
+        void render(ILoggingEvent event, RenderState state, ByteBuilder out);
+    }
+
+    /**
+     * Segmento cujo valor é um texto, permitindo alinhamento e truncamento genéricos.
+     */
+    private interface TextSegment extends Segment {
+        String text(ILoggingEvent event);
+
+        @Override
+        default void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            out.append(text(event));
+        }
+    }
+
+    private static final class LiteralSegment implements Segment {
+        private final byte[] bytes;
+
+        LiteralSegment(String text) {
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            out.append(bytes);
+        }
+    }
+
+    private static final class DateSegment implements Segment {
+        private final int index;
+
+        DateSegment(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            state.dateFormatters[index].format(event.getTimeStamp(), out);
+        }
+    }
+
+    private static final class ThreadSegment implements TextSegment {
+        @Override
+        public String text(ILoggingEvent event) {
+            return event.getThreadName();
+        }
+    }
+
+    private static final class MessageSegment implements TextSegment {
+        @Override
+        public String text(ILoggingEvent event) {
+            return event.getFormattedMessage();
+        }
+    }
+
+    private static final class MdcSegment implements TextSegment {
+        private final String key;
+        private final String defaultValue;
+
+        /**
+         * @param option Chave, opcionalmente com valor padrão ({@code chave:-padrão}), ou null para todo o MDC
+         */
+        MdcSegment(String option) {
+            int separator = option != null ? option.indexOf(":-") : -1;
+            this.key = separator >= 0 ? option.substring(0, separator) : option;
+            this.defaultValue = separator >= 0 ? option.substring(separator + 2) : "";
+        }
+
+        @Override
+        public String text(ILoggingEvent event) {
+            Map<String, String> mdc = event.getMDCPropertyMap();
+            if (key == null) return mdc.isEmpty() ? "" : mdc.toString();
+            String value = mdc.get(key);
+            return value != null ? value : defaultValue;
+        }
+    }
+
+    /**
+     * Níveis são pré-renderizados já com o alinhamento definido no padrão.
+     */
+    private static final class LevelSegment implements Segment {
+        private final byte[][] rendered = new byte[5][];
+
+        LevelSegment(boolean leftAlign, int min, int max, boolean truncateRight) {
+            Level[] levels = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+            for (Level level : levels) {
+                String text = pad(level.toString(), leftAlign, min, max, truncateRight);
+                rendered[index(level)] = text.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        private static int index(Level level) {
+            return Math.min(level.levelInt / Level.DEBUG_INT, 4);
+        }
+
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            out.append(rendered[index(event.getLevel())]);
+        }
+    }
+
+    /**
+     * Nomes de logger abreviados ficam em cache, já alinhados e codificados em UTF-8.
+     */
+    private static final class LoggerSegment implements Segment {
+        private final Map<String, byte[]> cache = new ConcurrentHashMap<>();
+        private final Function<String, byte[]> abbreviate;
+
+        LoggerSegment(int length, boolean leftAlign, int min, int max, boolean truncateRight) {
+            Abbreviator abbreviator = length < 0 ? null
+                    : length == 0 ? new ClassNameOnlyAbbreviator()
+                    : new TargetLengthBasedClassNameAbbreviator(length);
+            this.abbreviate = name -> pad(abbreviator == null ? name : abbreviator.abbreviate(name), leftAlign, min, max, truncateRight)
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            String name = event.getLoggerName();
+            byte[] bytes = cache.get(name);
+            if (bytes == null) bytes = cache.computeIfAbsent(name, abbreviate);
+            out.append(bytes);
+        }
+    }
+
+    private static final class ThrowableSegment implements Segment {
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            IThrowableProxy proxy = event.getThrowableProxy();
+            if (proxy == null) return;
+            out.append(ThrowableProxyUtil.asString(proxy));
+        }
+    }
+
+    private static final class PaddedSegment implements Segment {
+        private final TextSegment delegate;
+        private final boolean leftAlign;
+        private final int min;
+        private final int max;
+        private final boolean truncateRight;
+
+        PaddedSegment(TextSegment delegate, boolean leftAlign, int min, int max, boolean truncateRight) {
+            this.delegate = delegate;
+            this.leftAlign = leftAlign;
+            this.min = min;
+            this.max = max;
+            this.truncateRight = truncateRight;
+        }
+
+        @Override
+        public void render(ILoggingEvent event, RenderState state, ByteBuilder out) {
+            String text = delegate.text(event);
+            if (text == null) text = "";
+            int length = text.length();
+
+            if (length > max) {
+                if (truncateRight) out.append(text, 0, max);
+                else out.append(text, length - max, length);
+                return;
+            }
+            if (length < min && !leftAlign) out.appendSpaces(min - length);
+            out.append(text);
+            if (length < min && leftAlign) out.appendSpaces(min - length);
+        }
+    }
+
+    private static String pad(String text, boolean leftAlign, int min, int max, boolean truncateRight) {
+        if (text.length() > max) {
+            return truncateRight ? text.substring(0, max) : text.substring(text.length() - max);
+        }
+        StringBuilder sb = new StringBuilder(text);
+        while (sb.length() < min) {
+            if (leftAlign) sb.append(' ');
+            else sb.insert(0, ' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,300 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.encoder.EncoderBase;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encoder JSON ({@code log.format=json}) que grava um objeto por linha:
+ * {@code timestamp} (ISO-8601), {@code level}, {@code logger}, {@code thread}, {@code message},
+ * {@code arguments}, {@code mdc} e {@code exception}, os três últimos apenas quando presentes.
+ * <p>
+ * O evento é escrito diretamente em um {@link ByteBuilder} reutilizado por thread: os nomes dos
+ * campos e os níveis são pré-codificados, os nomes de logger ficam em cache já escapados e a
+ * mensagem é montada a partir do modelo e dos argumentos, com escape, sem criar a mensagem
+ * formatada. Argumentos numéricos e booleanos são gravados com o próprio tipo em {@code arguments}.
+ */
+public class JsonEncoder extends EncoderBase<ILoggingEvent> implements DirectEncoder<ILoggingEvent> {
+
+    // Buffers maiores que isso não são mantidos entre eventos, para não reter memória após mensagens enormes
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final byte[] TIMESTAMP = bytes("{\"timestamp\":\"");
+    private static final byte[] LEVEL = bytes("\",\"level\":\"");
+    private static final byte[] LOGGER = bytes("\",\"logger\":\"");
+    private static final byte[] THREAD = bytes("\",\"thread\":\"");
+    private static final byte[] MESSAGE = bytes("\",\"message\":\"");
+    private static final byte[] ARGUMENTS = bytes("\",\"arguments\":[");
+    private static final byte[] MDC = bytes(",\"mdc\":{");
+    private static final byte[] EXCEPTION = bytes(",\"exception\":\"");
+    private static final byte[] END = bytes("}" + CoreConstants.LINE_SEPARATOR);
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+    private static final byte[][] LEVELS = {bytes("TRACE"), bytes("DEBUG"), bytes("INFO"), bytes("WARN"), bytes("ERROR")};
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    private final Map<String, byte[]> loggerNames = new ConcurrentHashMap<>();
+    private ThreadLocal<RenderState> renderState;
+    private TimeZone timeZone = TimeZone.getDefault();
+
+    @Override
+    public void start() {
+        TimeZone zone = timeZone;
+        renderState = ThreadLocal.withInitial(() -> new RenderState(zone));
+        super.start();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        RenderState state = renderState.get();
+        byte[] bytes = render(event, state).toByteArray();
+        state.release();
+        return bytes;
+    }
+
+    @Override
+    public void encodeTo(ILoggingEvent event, OutputStream out) throws IOException {
+        RenderState state = renderState.get();
+        render(event, state).writeTo(out);
+        state.release();
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    private ByteBuilder render(ILoggingEvent event, RenderState state) {
+        ByteBuilder out = state.builder.reset();
+
+        out.append(TIMESTAMP);
+        state.date.format(event.getTimeStamp(), out);
+        out.append((byte) 'T');
+        state.time.format(event.getTimeStamp(), out);
+
+        out.append(LEVEL).append(LEVELS[Math.min(event.getLevel().levelInt / Level.DEBUG_INT, LEVELS.length - 1)]);
+
+        String loggerName = event.getLoggerName();
+        byte[] logger = loggerNames.get(loggerName);
+        if (logger == null) logger = loggerNames.computeIfAbsent(loggerName, JsonEncoder::escapedBytes);
+        out.append(LOGGER).append(logger);
+
+        out.append(THREAD);
+        appendEscaped(out, event.getThreadName(), 0, length(event.getThreadName()));
+
+        Object[] args = event.getArgumentArray();
+        out.append(MESSAGE);
+        appendMessage(out, event.getMessage(), args);
+
+        if (args != null && args.length > 0) {
+            out.append(ARGUMENTS);
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) out.append((byte) ',');
+                appendValue(out, args[i]);
+            }
+            out.append((byte) ']');
+        } else {
+            out.append((byte) '"');
+        }
+
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null && !mdc.isEmpty()) {
+            out.append(MDC);
+            boolean first = true;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                if (!first) out.append((byte) ',');
+                first = false;
+                out.append((byte) '"');
+                appendEscaped(out, entry.getKey(), 0, length(entry.getKey()));
+                out.append((byte) '"').append((byte) ':');
+                appendString(out, entry.getValue());
+            }
+            out.append((byte) '}');
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            String text = ThrowableProxyUtil.asString(throwable);
+            out.append(EXCEPTION);
+            appendEscaped(out, text, 0, text.length());
+            out.append((byte) '"');
+        }
+
+        return out.append(END);
+    }
+
+    /**
+     * Monta a mensagem com as mesmas regras do SLF4J para {@code {}} e {@code \{}}, escrevendo
+     * o modelo e os argumentos já escapados.
+     */
+    private static void appendMessage(ByteBuilder out, String template, Object[] args) {
+        if (template == null) {
+            out.append(NULL);
+            return;
+        }
+        int length = template.length();
+        if (args == null || args.length == 0) {
+            appendEscaped(out, template, 0, length);
+            return;
+        }
+
+        int i = 0;
+        for (int arg = 0; arg < args.length; arg++) {
+            int j = template.indexOf("{}", i);
+            if (j < 0) break;
+
+            if (j > 0 && template.charAt(j - 1) == '\\') {
+                if (j > 1 && template.charAt(j - 2) == '\\') {
+                    // "\\{}": barra literal seguida do argumento
+                    appendEscaped(out, template, i, j - 1);
+                    appendMessageArgument(out, args[arg]);
+                    i = j + 2;
+                } else {
+                    // "\{}": chaves literais, o argumento continua pendente
+                    appendEscaped(out, template, i, j - 1);
+                    out.append((byte) '{');
+                    i = j + 1;
+                    arg--;
+                }
+            } else {
+                appendEscaped(out, template, i, j);
+                appendMessageArgument(out, args[arg]);
+                i = j + 2;
+            }
+        }
+        appendEscaped(out, template, i, length);
+    }
+
+    private static void appendMessageArgument(ByteBuilder out, Object arg) {
+        if (arg == null) {
+            out.append(NULL);
+        } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            out.append(((Number) arg).longValue());
+        } else if (arg instanceof Boolean) {
+            out.append((Boolean) arg ? TRUE : FALSE);
+        } else {
+            String text = toText(arg);
+            appendEscaped(out, text, 0, text.length());
+        }
+    }
+
+    private static void appendValue(ByteBuilder out, Object arg) {
+        if (arg == null) {
+            out.append(NULL);
+        } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            out.append(((Number) arg).longValue());
+        } else if (arg instanceof Boolean) {
+            out.append((Boolean) arg ? TRUE : FALSE);
+        } else if ((arg instanceof Double || arg instanceof Float) && !Double.isNaN(((Number) arg).doubleValue())
+                && !Double.isInfinite(((Number) arg).doubleValue())) {
+            out.append(arg.toString());
+        } else {
+            appendString(out, toText(arg));
+        }
+    }
+
+    private static String toText(Object arg) {
+        if (arg instanceof String) return (String) arg;
+        // Mesma conversão que o SLF4J aplica ao formatar (inclusive arrays e toString() com falha)
+        return MessageFormatter.arrayFormat("{}", new Object[]{arg}).getMessage();
+    }
+
+    private static void appendString(ByteBuilder out, String value) {
+        if (value == null) {
+            out.append(NULL);
+            return;
+        }
+        out.append((byte) '"');
+        appendEscaped(out, value, 0, value.length());
+        out.append((byte) '"');
+    }
+
+    /**
+     * Escreve o trecho do texto escapando aspas, barras e caracteres de controle.
+     */
+    private static void appendEscaped(ByteBuilder out, String s, int start, int end) {
+        int run = start;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            out.append(s, run, i);
+            out.append((byte) '\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append((byte) c);
+                    break;
+                case '\n':
+                    out.append((byte) 'n');
+                    break;
+                case '\r':
+                    out.append((byte) 'r');
+                    break;
+                case '\t':
+                    out.append((byte) 't');
+                    break;
+                default:
+                    out.append((byte) 'u').append((byte) '0').append((byte) '0')
+                            .append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+            run = i + 1;
+        }
+        out.append(s, run, end);
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    private static byte[] escapedBytes(String value) {
+        ByteBuilder out = new ByteBuilder(value.length() + 8);
+        appendEscaped(out, value, 0, value.length());
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------------
+    // Estado por thread
+    // ------------------------------------------------------------------
+
+    private static final class RenderState {
+        private ByteBuilder builder = new ByteBuilder(512);
+        // Data e hora em formatadores separados, para que o 'T' literal não impeça o cache por segundo
+        private final CachedDateFormatter date;
+        private final CachedDateFormatter time;
+
+        RenderState(TimeZone timeZone) {
+            date = new CachedDateFormatter("yyyy-MM-dd", timeZone);
+            time = new CachedDateFormatter("HH:mm:ss.SSSXXX", timeZone);
+        }
+
+        void release() {
+            if (builder.array().length > MAX_RETAINED_BUFFER) builder = new ByteBuilder(512);
+        }
+    }
+}
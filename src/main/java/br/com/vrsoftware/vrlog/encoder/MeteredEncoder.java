@@ -0,0 +1,106 @@
+package br.com.vrsoftware.vrlog.encoder;
+
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoder que mede o tempo de codificação e os bytes produzidos pelo encoder que envolve.
+ * <p>
+ * Se o encoder envolvido for um {@link DirectEncoder}, a escrita direta é preservada e os bytes
+ * são contados no próprio fluxo; caso contrário, {@link #encodeTo} escreve o resultado de {@link #encode}.
+ */
+public class MeteredEncoder<E> extends EncoderBase<E> implements DirectEncoder<E> {
+
+    private final Encoder<E> delegate;
+    private final LogMetrics metrics;
+    private final ThreadLocal<CountingOutputStream> countingStream = ThreadLocal.withInitial(CountingOutputStream::new);
+
+    public MeteredEncoder(Encoder<E> delegate, LogMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return delegate.headerBytes();
+    }
+
+    @Override
+    public byte[] encode(E event) {
+        long start = System.nanoTime();
+        byte[] bytes = delegate.encode(event);
+        metrics.recordEncode(System.nanoTime() - start, bytes != null ? bytes.length : 0);
+        return bytes;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void encodeTo(E event, OutputStream out) throws IOException {
+        if (!(delegate instanceof DirectEncoder)) {
+            byte[] bytes = encode(event);
+            if (bytes != null) out.write(bytes);
+            return;
+        }
+
+        CountingOutputStream counter = countingStream.get();
+        counter.target = out;
+        counter.count = 0;
+        long start = System.nanoTime();
+        try {
+            ((DirectEncoder<E>) delegate).encodeTo(event, counter);
+        } finally {
+            metrics.recordEncode(System.nanoTime() - start, counter.count);
+            counter.target = null;
+        }
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return delegate.footerBytes();
+    }
+
+    @Override
+    public void start() {
+        if (!delegate.isStarted()) delegate.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        delegate.stop();
+    }
+
+    public Encoder<E> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Fluxo reutilizável que conta os bytes repassados ao destino.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private OutputStream target;
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+    }
+}
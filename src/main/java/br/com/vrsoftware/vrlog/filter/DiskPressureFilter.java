@@ -0,0 +1,426 @@
+package br.com.vrsoftware.vrlog.filter;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import br.com.vrsoftware.vrlog.util.ArchiveManifest;
+import br.com.vrsoftware.vrlog.util.BlockArchiveWriter;
+import br.com.vrsoftware.vrlog.util.LogCompressor;
+import br.com.vrsoftware.vrlog.util.LogLineParser;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro que acompanha o espaço livre no volume dos logs e reage em estágios quando ele acaba
+ * ({@code log.disk.enabled=true}):
+ * <ol>
+ * <li>abaixo de {@code compressBelow}, comprime os segmentos pendentes e aplica a retenção, removendo
+ * os arquivos compactados mais antigos se ainda faltar espaço;</li>
+ * <li>abaixo de {@code raiseLevelBelow}, descarta os eventos abaixo do nível elevado (WARN por padrão),
+ * exceto nos loggers críticos;</li>
+ * <li>abaixo de {@code memoryOnlyBelow}, apenas ERROR chega aos appenders; os demais eventos ficam em
+ * um buffer em memória e são gravados quando o espaço volta.</li>
+ * </ol>
+ * Cada mudança de estágio é registrada nas métricas e em um evento de log. Um estágio só é deixado
+ * quando o espaço livre supera o limite dele em {@value #RECOVERY_MARGIN_PERCENT}%, evitando
+ * alternâncias; ao voltar ao normal, os níveis configurados valem de novo sem intervenção.
+ */
+public class DiskPressureFilter extends TurboFilter {
+
+    public static final String NAME = "DISK";
+
+    public static final long DEFAULT_INTERVAL = 5000;
+    public static final int DEFAULT_MEMORY_EVENTS = 10000;
+
+    public static final int STAGE_NORMAL = 0;
+    public static final int STAGE_RELIEF = 1;
+    public static final int STAGE_RAISED_LEVEL = 2;
+    public static final int STAGE_MEMORY_ONLY = 3;
+
+    // Margem acima do limite para deixar um estágio
+    private static final int RECOVERY_MARGIN_PERCENT = 10;
+    // Intervalo mínimo entre duas rodadas de compressão e retenção antecipadas
+    private static final long RELIEF_INTERVAL = 60000;
+
+    private static final String[] STAGE_DESCRIPTIONS = {
+            "normal",
+            "compressão e retenção antecipadas",
+            "nível mínimo elevado nos loggers não críticos",
+            "eventos abaixo de ERROR mantidos apenas em memória"
+    };
+
+    private final List<String> criticalLoggers = new ArrayList<>();
+    private final ConcurrentHashMap<String, Boolean> criticalByLogger = new ConcurrentHashMap<>();
+    private final ArrayDeque<LoggingEvent> memory = new ArrayDeque<>();
+    private final LongAdder discardedCount = new LongAdder();
+    private final AtomicBoolean relieving = new AtomicBoolean();
+
+    private String directory = "./logs";
+    private long interval = DEFAULT_INTERVAL;
+    private long compressBelow;
+    private long raiseLevelBelow;
+    private long memoryOnlyBelow;
+    private Level raisedLevel = Level.WARN;
+    private int memoryEvents = DEFAULT_MEMORY_EVENTS;
+    private boolean compress = true;
+    private TipoCompressao codec = TipoCompressao.ZIP;
+    private int compressionLevel = 6;
+    private int blockSize = BlockArchiveWriter.DEFAULT_BLOCK_SIZE;
+    private String logPattern = LogLineParser.DEFAULT_PATTERN;
+    private int maxHistory = 15;
+    private long totalSizeCap;
+    private LogMetrics metrics;
+    private Executor executor;
+
+    private volatile int stage = STAGE_NORMAL;
+    private volatile long usableSpace = -1;
+    private long lastRelief;
+    private ScheduledFuture<?> sampler;
+
+    /**
+     * Obtém o filtro registrado no contexto.
+     *
+     * @return O filtro ou null se log.disk.enabled=false
+     */
+    public static DiskPressureFilter get(LoggerContext context) {
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof DiskPressureFilter) return (DiskPressureFilter) filter;
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        if (compressBelow <= 0 && raiseLevelBelow <= 0 && memoryOnlyBelow <= 0) {
+            addError("Nenhum limite de espaço em disco definido para o filtro [" + getName() + "]");
+            return;
+        }
+        super.start();
+        sample();
+        sampler = getContext().getScheduledExecutorService()
+                .scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (sampler != null) sampler.cancel(false);
+        super.stop();
+        // Na substituição do filtro pela recarga, os eventos retidos seguem para os appenders
+        replay();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        int current = stage;
+        if (current < STAGE_RAISED_LEVEL || !isStarted()) return FilterReply.NEUTRAL;
+        // Eventos que serão descartados pelo nível não são afetados
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) return FilterReply.NEUTRAL;
+
+        if (level.levelInt < raisedLevel.levelInt && !isCritical(logger.getName())) {
+            discardedCount.increment();
+            return FilterReply.DENY;
+        }
+        if (current == STAGE_MEMORY_ONLY && level.levelInt < Level.ERROR_INT) {
+            // Consulta isXxxEnabled(), sem mensagem: o evento só é retido na chamada de log em si
+            if (format == null) return FilterReply.NEUTRAL;
+            LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, level, format, t, params);
+            event.setMarker(marker);
+            event.prepareForDeferredProcessing();
+            synchronized (memory) {
+                if (memory.size() >= memoryEvents) {
+                    memory.poll();
+                    discardedCount.increment();
+                }
+                memory.add(event);
+            }
+            return FilterReply.DENY;
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * Mede o espaço livre e, se necessário, muda de estágio.
+     */
+    private void sample() {
+        File dir = new File(directory);
+        if (!dir.isDirectory()) return;
+        long usable = dir.getUsableSpace();
+        usableSpace = usable;
+
+        int previous = stage;
+        int next = stageFor(usable, previous);
+        if (next != previous) {
+            stage = next;
+            // Ao sair do modo somente memória os eventos retidos são gravados, antes do aviso de recuperação
+            if (previous == STAGE_MEMORY_ONLY) replay();
+            report(previous, next, usable);
+        }
+        if (metrics != null) metrics.recordDiskPressure(next, usable);
+
+        if (next >= STAGE_RELIEF && System.currentTimeMillis() - lastRelief >= RELIEF_INTERVAL) {
+            lastRelief = System.currentTimeMillis();
+            relieve();
+        }
+    }
+
+    /**
+     * @return O estágio para o espaço livre informado. Para deixar um estágio o espaço precisa
+     * superar o limite dele com a margem de recuperação.
+     */
+    private int stageFor(long usable, int current) {
+        long[] thresholds = {compressBelow, raiseLevelBelow, memoryOnlyBelow};
+        int next = STAGE_NORMAL;
+        for (int i = 0; i < thresholds.length; i++) {
+            long threshold = thresholds[i];
+            if (threshold <= 0) continue;
+            int candidate = i + 1;
+            long limit = candidate <= current ? threshold + threshold * RECOVERY_MARGIN_PERCENT / 100 : threshold;
+            if (usable < limit) next = candidate;
+        }
+        return next;
+    }
+
+    private void report(int previous, int next, long usable) {
+        Logger logger = ((LoggerContext) getContext()).getLogger(DiskPressureFilter.class);
+        long usableMb = usable / (1024 * 1024);
+        if (next > previous) {
+            String message = "Pouco espaço livre em " + directory + " (" + usableMb + " MB): estágio " + next
+                    + ", " + STAGE_DESCRIPTIONS[next];
+            addWarn(message);
+            // No modo somente memória apenas ERROR chega aos arquivos
+            if (next == STAGE_MEMORY_ONLY) logger.error(message);
+            else logger.warn(message);
+        } else {
+            String message = "Espaço livre em " + directory + " recuperado (" + usableMb + " MB): estágio " + next
+                    + ", " + STAGE_DESCRIPTIONS[next];
+            addInfo(message);
+            logger.info(message);
+        }
+    }
+
+    /**
+     * Comprime os segmentos pendentes e aplica a retenção em segundo plano, na thread de manutenção
+     * ({@link #setExecutor}). Se o espaço continuar abaixo do primeiro limite, remove os arquivos
+     * compactados mais antigos.
+     */
+    private void relieve() {
+        if (!relieving.compareAndSet(false, true)) return;
+        // Sem a thread de manutenção (filtro configurado fora do LogManager), usa as threads do contexto
+        Executor reliefExecutor = executor != null ? executor : getContext().getScheduledExecutorService();
+        try {
+            reliefExecutor.execute(() -> {
+                try {
+                    Path path = new File(directory).toPath();
+                    if (compress) {
+                        for (Path segment : LogCompressor.findPendingSegments(path, System.currentTimeMillis() - interval)) {
+                            LogCompressor.compressSegment(segment, null, codec, compressionLevel, blockSize, logPattern);
+                        }
+                    }
+                    LogCompressor.cleanupOldLogs(path, maxHistory, totalSizeCap);
+
+                    long target = firstThreshold();
+                    long free = new File(directory).getUsableSpace();
+                    if (target > 0 && free < target + target * RECOVERY_MARGIN_PERCENT / 100) {
+                        int removed = ArchiveManifest.forDirectory(path)
+                                .freeSpace(target + target * RECOVERY_MARGIN_PERCENT / 100 - free);
+                        if (removed > 0) addWarn("Retenção de emergência: " + removed + " arquivos de log antigos removidos");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    addError("Falha ao liberar espaço em [" + directory + "]", e);
+                } finally {
+                    relieving.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            relieving.set(false);
+        }
+    }
+
+    private long firstThreshold() {
+        if (compressBelow > 0) return compressBelow;
+        return raiseLevelBelow > 0 ? raiseLevelBelow : memoryOnlyBelow;
+    }
+
+    /**
+     * Grava os eventos retidos em memória, na ordem em que ocorreram.
+     */
+    private void replay() {
+        LoggerContext loggerContext = (LoggerContext) getContext();
+        while (true) {
+            LoggingEvent event;
+            synchronized (memory) {
+                event = memory.poll();
+            }
+            if (event == null) return;
+            loggerContext.getLogger(event.getLoggerName()).callAppenders(event);
+        }
+    }
+
+    private boolean isCritical(String loggerName) {
+        Boolean critical = criticalByLogger.get(loggerName);
+        if (critical == null) {
+            boolean matches = loggerName.equals(DiskPressureFilter.class.getName());
+            for (String name : criticalLoggers) {
+                if (loggerName.equals(name) || loggerName.startsWith(name + ".")) matches = true;
+            }
+            critical = matches;
+            criticalByLogger.put(loggerName, critical);
+        }
+        return critical;
+    }
+
+    // Métricas
+
+    /**
+     * @return O estágio atual ({@link #STAGE_NORMAL} a {@link #STAGE_MEMORY_ONLY})
+     */
+    public int getStage() {
+        return stage;
+    }
+
+    /**
+     * @return Espaço livre na última medição, em bytes, ou -1 se ainda não medido
+     */
+    public long getUsableSpace() {
+        return usableSpace;
+    }
+
+    /**
+     * @return Eventos descartados pelo nível elevado ou por falta de espaço no buffer em memória
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * @return Eventos aguardando em memória a recuperação do espaço
+     */
+    public int getRetainedCount() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    // Configuração
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param interval Intervalo entre as medições do espaço livre, em milissegundos
+     */
+    public void setInterval(long interval) {
+        this.interval = Math.max(100, interval);
+    }
+
+    /**
+     * @param compressBelow Espaço livre, em bytes, abaixo do qual a compressão e a retenção são antecipadas (0 desativa)
+     */
+    public void setCompressBelow(long compressBelow) {
+        this.compressBelow = compressBelow;
+    }
+
+    /**
+     * @param raiseLevelBelow Espaço livre, em bytes, abaixo do qual o nível mínimo é elevado (0 desativa)
+     */
+    public void setRaiseLevelBelow(long raiseLevelBelow) {
+        this.raiseLevelBelow = raiseLevelBelow;
+    }
+
+    /**
+     * @param memoryOnlyBelow Espaço livre, em bytes, abaixo do qual apenas ERROR é gravado (0 desativa)
+     */
+    public void setMemoryOnlyBelow(long memoryOnlyBelow) {
+        this.memoryOnlyBelow = memoryOnlyBelow;
+    }
+
+    /**
+     * @param raisedLevel Nível mínimo dos loggers não críticos a partir do segundo estágio
+     */
+    public void setRaisedLevel(Level raisedLevel) {
+        this.raisedLevel = raisedLevel;
+    }
+
+    /**
+     * Define um pacote (e seus subpacotes) cujo nível não é elevado no segundo estágio.
+     */
+    public void addCriticalLogger(String loggerName) {
+        criticalLoggers.add(loggerName);
+        criticalByLogger.clear();
+    }
+
+    /**
+     * @param memoryEvents Máximo de eventos retidos em memória no terceiro estágio; acima disso os mais antigos são descartados
+     */
+    public void setMemoryEvents(int memoryEvents) {
+        this.memoryEvents = Math.max(1, memoryEvents);
+    }
+
+    /**
+     * @param compress false para não comprimir os segmentos pendentes no primeiro estágio
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setCodec(TipoCompressao codec) {
+        this.codec = codec;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public void setLogPattern(String logPattern) {
+        this.logPattern = logPattern;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * @param totalSizeCap Tamanho total máximo dos arquivos compactados em bytes (0 para não limitar)
+     */
+    public void setTotalSizeCap(long totalSizeCap) {
+        this.totalSizeCap = totalSizeCap;
+    }
+
+    /**
+     * @param metrics Métricas onde as mudanças de estágio são registradas, ou null
+     */
+    public void setMetrics(LogMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param executor Thread onde a compressão e a retenção antecipadas rodam, a mesma da manutenção
+     *                 dos arquivos, ou null para usar as threads agendadas do contexto
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+}
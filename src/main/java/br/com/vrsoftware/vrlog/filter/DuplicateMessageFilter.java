@@ -0,0 +1,171 @@
+package br.com.vrsoftware.vrlog.filter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro que suprime mensagens repetidas antes de o evento ser criado.
+ * <p>
+ * As repetições são contadas por (logger, modelo da mensagem, nível) em uma tabela de tamanho
+ * fixo, sem locks: cada chave ocupa uma posição escolhida pelo hash e uma chave nova substitui a
+ * anterior na mesma posição. Em cada janela as primeiras {@code allowedRepetitions} ocorrências
+ * passam; as demais são descartadas e, ao fim da janela, um único evento de resumo informa quantas
+ * foram suprimidas.
+ * <p>
+ * Como o modelo é comparado antes da substituição dos argumentos, mensagens com o mesmo texto e
+ * valores diferentes são tratadas como repetições.
+ */
+public class DuplicateMessageFilter extends TurboFilter {
+
+    public static final String NAME = "DEDUP";
+
+    public static final int DEFAULT_ALLOWED_REPETITIONS = 5;
+    public static final long DEFAULT_WINDOW = 10000;
+    public static final int DEFAULT_TABLE_SIZE = 1024;
+
+    /** Marcador dos eventos de resumo, que não passam pelo filtro. */
+    public static final Marker SUMMARY_MARKER = MarkerFactory.getMarker("DEDUP_SUMMARY");
+
+    private static final String FQCN = DuplicateMessageFilter.class.getName();
+
+    private final LongAdder suppressedCount = new LongAdder();
+
+    private int allowedRepetitions = DEFAULT_ALLOWED_REPETITIONS;
+    private long window = DEFAULT_WINDOW;
+    private int tableSize = DEFAULT_TABLE_SIZE;
+
+    private AtomicReferenceArray<Slot> slots;
+    private int mask;
+    private ScheduledFuture<?> sweeper;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        int size = Integer.highestOneBit(Math.max(2, tableSize - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+
+        // Emite os resumos das janelas encerradas mesmo que a mensagem não se repita mais
+        if (getContext() != null) {
+            sweeper = getContext().getScheduledExecutorService()
+                    .scheduleWithFixedDelay(this::sweep, window, window, TimeUnit.MILLISECONDS);
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        if (sweeper != null) sweeper.cancel(false);
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null) summarize(slot);
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Chamadas de isXxxEnabled() não têm mensagem
+        if (format == null || !isStarted() || marker == SUMMARY_MARKER) return FilterReply.NEUTRAL;
+        // Eventos que serão descartados pelo nível não contam como repetição
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) return FilterReply.NEUTRAL;
+
+        int hash = System.identityHashCode(logger) * 31 + format.hashCode() * 7 + level.levelInt;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        long now = System.currentTimeMillis();
+
+        Slot slot = slots.get(index);
+        if (slot == null || !slot.matches(logger, format, level)) {
+            Slot fresh = new Slot(logger, format, level, now);
+            if (slots.compareAndSet(index, slot, fresh) && slot != null) summarize(slot);
+            return FilterReply.NEUTRAL;
+        }
+
+        // Janela encerrada: quem vencer a disputa reinicia a contagem
+        long start = slot.windowStart.get();
+        if (now - start >= window && slot.windowStart.compareAndSet(start, now)) {
+            slot.count.set(0);
+            summarize(slot);
+        }
+
+        if (slot.count.incrementAndGet() <= allowedRepetitions) return FilterReply.NEUTRAL;
+        slot.suppressed.incrementAndGet();
+        suppressedCount.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Emite o resumo das janelas encerradas.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && now - slot.windowStart.get() >= window) summarize(slot);
+        }
+    }
+
+    /**
+     * Registra, no logger e no nível originais, quantas ocorrências da mensagem foram suprimidas.
+     */
+    private void summarize(Slot slot) {
+        long suppressed = slot.suppressed.getAndSet(0);
+        if (suppressed == 0) return;
+        slot.logger.log(SUMMARY_MARKER, FQCN, Level.toLocationAwareLoggerInteger(slot.level),
+                "Mensagem repetida suprimida {} vezes: {}", new Object[]{suppressed, slot.format}, null);
+    }
+
+    /**
+     * @return Total de eventos suprimidos desde o início
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    public void setAllowedRepetitions(int allowedRepetitions) {
+        this.allowedRepetitions = Math.max(0, allowedRepetitions);
+    }
+
+    public void setWindow(long window) {
+        this.window = Math.max(1, window);
+    }
+
+    public void setTableSize(int tableSize) {
+        this.tableSize = tableSize;
+    }
+
+    /**
+     * Contagem de uma mensagem na janela atual.
+     */
+    private static final class Slot {
+        final Logger logger;
+        final String format;
+        final Level level;
+        final AtomicInteger count = new AtomicInteger(1);
+        final AtomicLong suppressed = new AtomicLong();
+        final AtomicLong windowStart;
+
+        Slot(Logger logger, String format, Level level, long now) {
+            this.logger = logger;
+            this.format = format;
+            this.level = level;
+            this.windowStart = new AtomicLong(now);
+        }
+
+        boolean matches(Logger logger, String format, Level level) {
+            return this.logger == logger && this.level == level && this.format.equals(format);
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package br.com.vrsoftware.vrlog.filter;
+
+import br.com.vrsoftware.vrlog.encoder.ByteBuilder;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gravador contínuo dos eventos recentes em todos os níveis, inclusive os que o nível do logger
+ * descarta, para registrar o contexto de DEBUG/TRACE que antecede uma falha.
+ * <p>
+ * Os eventos são gravados em forma compacta em um buffer circular fora do heap
+ * ({@link ByteBuffer#allocateDirect(int)}); os mais antigos são sobrescritos. O registro não aloca
+ * memória nem formata nada: o modelo da mensagem, os textos e os argumentos numéricos, booleanos e
+ * caracteres são copiados para o buffer, e os demais argumentos e a exceção são guardados por
+ * referência em um anel de objetos de cada faixa, convertidos em texto só na gravação do arquivo.
+ * Por isso um argumento mutável aparece com o estado do momento da gravação, e até
+ * {@code capacidade / 64} objetos por faixa ficam retidos; uma referência já sobrescrita no anel
+ * aparece como {@value #UNAVAILABLE}.
+ * O buffer é dividido em faixas independentes, e cada thread grava sempre na mesma faixa, escolhida
+ * pelo id, de modo que threads diferentes raramente disputam o mesmo lock. Na gravação do arquivo
+ * os eventos das faixas são intercalados pelo horário.
+ * <p>
+ * Um evento ERROR, ou com o marcador configurado, grava em segundo plano a janela recente em um
+ * arquivo {@code flight-<aaaaMMdd>-<HHmmss>-<SSS>.log} no subdiretório {@value #DIRECTORY_NAME} do
+ * diretório informado, assim como {@link #dump(String)} no encerramento; sem diretório informado
+ * os eventos não são gravados em arquivo. O nome não segue o padrão
+ * de data dos arquivos de log, para que a manutenção não os compacte junto com os logs do dia; o
+ * próprio gravador mantém somente os {@code maxFiles} arquivos mais recentes.
+ * <p>
+ * É um {@link TurboFilter} e não um appender porque os appenders só recebem os eventos já
+ * aprovados pelo nível do logger. Deve ser o primeiro filtro, para ver também os eventos que outros
+ * filtros descartam, e sempre responde {@link FilterReply#NEUTRAL}. Chamadas protegidas por
+ * {@code isDebugEnabled()} com o nível desabilitado não chegam a ser registradas.
+ */
+public class FlightRecorder extends TurboFilter {
+
+    public static final String NAME = "RECORDER";
+
+    public static final int DEFAULT_CAPACITY = 8 * 1024 * 1024;
+    public static final long DEFAULT_WINDOW = 30000;
+    public static final long DEFAULT_MIN_INTERVAL = 60000;
+    public static final int DEFAULT_MAX_FILES = 20;
+    public static final String DIRECTORY_NAME = "flight";
+
+    // Cabeçalho do registro: tamanho total (int), timestamp (long), nível (byte) e a sequência, no
+    // anel de objetos da faixa, da primeira referência do evento (long)
+    private static final int RECORD_HEADER = 4 + 8 + 1 + 8;
+    private static final int REF_BASE_OFFSET = 4 + 8 + 1;
+    // Tipos dos argumentos no registro
+    private static final byte ARG_NULL = 0;
+    private static final byte ARG_STRING = 1;
+    private static final byte ARG_LONG = 2;
+    private static final byte ARG_DOUBLE = 3;
+    private static final byte ARG_FLOAT = 4;
+    private static final byte ARG_BOOLEAN = 5;
+    private static final byte ARG_CHAR = 6;
+    private static final byte ARG_REFERENCE = 7;
+    static final String UNAVAILABLE = "[indisponível]";
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+    private static final int MAX_STRIPES = 16;
+    // Faixas menores limitariam demais o tamanho de cada evento (um quarto da faixa)
+    private static final int MIN_STRIPE_CAPACITY = 256 * 1024;
+    private static final String FILE_PREFIX = "flight-";
+    private static final String FILE_SUFFIX = ".log";
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final AtomicBoolean dumping = new AtomicBoolean();
+
+    private int capacity = DEFAULT_CAPACITY;
+    private Level level = Level.DEBUG;
+    private long window = DEFAULT_WINDOW;
+    private long minInterval = DEFAULT_MIN_INTERVAL;
+    private String triggerMarker;
+    private int maxFiles = DEFAULT_MAX_FILES;
+    private boolean recordVRLogger;
+    private String directory;
+    private String pattern;
+
+    private volatile Stripe[] stripes;
+    private ByteBuffer snapshot;
+    private volatile long lastDump;
+
+    /**
+     * Faixa do buffer circular, com as posições absolutas (crescentes) do registro mais antigo e do
+     * próximo byte, e o anel dos objetos guardados por referência. Acessada sob o lock da própria faixa.
+     */
+    private static final class Stripe {
+        final ByteBuffer ring;
+        final int capacity;
+        final Object[] refs;
+        long tail;
+        long head;
+        long refHead;
+
+        Stripe(ByteBuffer ring) {
+            this.ring = ring;
+            this.capacity = ring.capacity();
+            this.refs = new Object[Math.max(16, capacity / 64)];
+        }
+    }
+
+    /**
+     * Cópia de uma faixa para a gravação: o trecho no buffer de cópia e os objetos referenciados.
+     */
+    private static final class StripeCopy {
+        final int start;
+        final int end;
+        final Object[] refs;
+        final long refHead;
+
+        StripeCopy(int start, int end, Object[] refs, long refHead) {
+            this.start = start;
+            this.end = end;
+            this.refs = refs;
+            this.refHead = refHead;
+        }
+
+        /**
+         * @return O objeto, ou {@link #UNAVAILABLE} se ele já foi sobrescrito no anel
+         */
+        Object resolve(long sequence) {
+            if (sequence < refHead - refs.length || sequence >= refHead) return UNAVAILABLE;
+            return refs[(int) (sequence % refs.length)];
+        }
+    }
+
+    /**
+     * Área de montagem do registro de cada thread: os bytes e os objetos guardados por referência.
+     */
+    private static final class Scratch {
+        ByteBuilder bytes = new ByteBuilder(512);
+        Object[] refs = new Object[8];
+        int refCount;
+
+        int addRef(Object value) {
+            if (refCount == refs.length) refs = Arrays.copyOf(refs, refCount * 2);
+            refs[refCount] = value;
+            return refCount++;
+        }
+
+        void clearRefs() {
+            Arrays.fill(refs, 0, refCount, null);
+            refCount = 0;
+        }
+    }
+
+    /**
+     * @return O gravador registrado no contexto, ou null
+     */
+    public static FlightRecorder get(LoggerContext context) {
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof FlightRecorder) return (FlightRecorder) filter;
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors())));
+        while (count > 1 && capacity / count < MIN_STRIPE_CAPACITY) count >>= 1;
+        int stripeCapacity = capacity / count;
+
+        // O espaço para a cópia é reservado junto, para que a gravação não aloque memória
+        ByteBuffer ring = ByteBuffer.allocateDirect(stripeCapacity * count);
+        Stripe[] created = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            ((Buffer) ring).limit((i + 1) * stripeCapacity).position(i * stripeCapacity);
+            created[i] = new Stripe(ring.slice());
+        }
+        snapshot = ByteBuffer.allocateDirect(stripeCapacity * count);
+        stripes = created;
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        stripes = null;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Chamadas de isXxxEnabled() não têm mensagem
+        if (format == null || !isStarted()) return FilterReply.NEUTRAL;
+
+        if (level.isGreaterOrEqual(this.level)) record(logger.getName(), level, format, params, t);
+
+        if (level.levelInt >= Level.ERROR_INT || (triggerMarker != null && marker != null && marker.contains(triggerMarker))) {
+            long now = System.currentTimeMillis();
+            if (now - lastDump >= minInterval && !dumping.get()) {
+                lastDump = now;
+                try {
+                    getContext().getScheduledExecutorService().execute(() -> dump(level.levelStr));
+                } catch (RejectedExecutionException e) {
+                    // Contexto em encerramento: a gravação fica para o shutdown
+                }
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    private void record(String loggerName, Level level, String format, Object[] params, Throwable t) {
+        Scratch local = scratch.get();
+        if (local.bytes.array().length > MAX_RETAINED_BUFFER) local.bytes = new ByteBuilder(512);
+        ByteBuilder out = local.bytes;
+        out.reset();
+
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) out.append((byte) 0);
+        writeLong(out, timestamp);
+        out.append((byte) (level.levelInt / Level.DEBUG_INT));
+        // Sequência da primeira referência, preenchida sob o lock da faixa
+        writeLong(out, 0);
+        writeString(out, Thread.currentThread().getName());
+        writeString(out, loggerName);
+        writeString(out, format);
+
+        // Como no SLF4J, um Throwable no último argumento é a exceção do evento
+        int argCount = params != null ? params.length : 0;
+        if (t == null && argCount > 0 && params[argCount - 1] instanceof Throwable) {
+            t = (Throwable) params[argCount - 1];
+            argCount--;
+        }
+        writeVarint(out, argCount);
+        for (int i = 0; i < argCount; i++) writeArgument(out, local, params[i]);
+        // 0 sem exceção, ou o índice da referência mais um
+        writeVarint(out, t != null ? local.addRef(t) + 1 : 0);
+
+        try {
+            Stripe[] current = stripes;
+            if (current == null) return;
+            Stripe stripe = current[(int) Thread.currentThread().getId() & (current.length - 1)];
+
+            int length = out.length();
+            // Eventos maiores que um quarto da faixa expulsariam boa parte da janela
+            if (length > stripe.capacity / 4 || local.refCount > stripe.refs.length / 4) return;
+            byte[] bytes = out.array();
+            bytes[0] = (byte) (length >>> 24);
+            bytes[1] = (byte) (length >>> 16);
+            bytes[2] = (byte) (length >>> 8);
+            bytes[3] = (byte) length;
+
+            synchronized (stripe) {
+                long refBase = stripe.refHead;
+                for (int i = 0; i < local.refCount; i++) {
+                    stripe.refs[(int) ((refBase + i) % stripe.refs.length)] = local.refs[i];
+                }
+                stripe.refHead += local.refCount;
+                for (int i = 0; i < 8; i++) bytes[REF_BASE_OFFSET + i] = (byte) (refBase >>> ((7 - i) * 8));
+
+                ByteBuffer ring = stripe.ring;
+                int size = stripe.capacity;
+                while (size - (stripe.head - stripe.tail) < length) stripe.tail += readInt(ring, (int) (stripe.tail % size), size);
+                int position = (int) (stripe.head % size);
+                int first = Math.min(length, size - position);
+                ((Buffer) ring).position(position);
+                ring.put(bytes, 0, first);
+                if (first < length) {
+                    ((Buffer) ring).position(0);
+                    ring.put(bytes, first, length - first);
+                }
+                stripe.head += length;
+            }
+        } finally {
+            // A área da thread não deve reter os objetos do evento
+            local.clearRefs();
+        }
+    }
+
+    private static void writeArgument(ByteBuilder out, Scratch local, Object arg) {
+        if (arg == null) {
+            out.append(ARG_NULL);
+        } else if (arg instanceof String) {
+            out.append(ARG_STRING);
+            writeString(out, (String) arg);
+        } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            out.append(ARG_LONG);
+            writeLong(out, ((Number) arg).longValue());
+        } else if (arg instanceof Double) {
+            out.append(ARG_DOUBLE);
+            writeLong(out, Double.doubleToRawLongBits((Double) arg));
+        } else if (arg instanceof Float) {
+            out.append(ARG_FLOAT);
+            writeLong(out, Float.floatToRawIntBits((Float) arg));
+        } else if (arg instanceof Boolean) {
+            out.append(ARG_BOOLEAN).append((byte) ((Boolean) arg ? 1 : 0));
+        } else if (arg instanceof Character) {
+            char c = (Character) arg;
+            out.append(ARG_CHAR).append((byte) (c >>> 8)).append((byte) c);
+        } else {
+            // Convertido em texto só na gravação do arquivo, como o SLF4J faria (inclusive arrays)
+            out.append(ARG_REFERENCE);
+            writeVarint(out, local.addRef(arg));
+        }
+    }
+
+    private static void writeLong(ByteBuilder out, long value) {
+        for (int i = 7; i >= 0; i--) out.append((byte) (value >>> (i * 8)));
+    }
+
+    private static void writeString(ByteBuilder out, String value) {
+        // Reserva o maior tamanho possível do varint e ajusta depois de escrever o texto
+        int start = out.length();
+        for (int i = 0; i < 5; i++) out.append((byte) 0);
+        out.append(value);
+        int length = out.length() - start - 5;
+
+        byte[] bytes = out.array();
+        int prefix = varintLength(length);
+        System.arraycopy(bytes, start + 5, bytes, start + prefix, length);
+        out.setLength(start);
+        writeVarint(out, length);
+        out.setLength(start + prefix + length);
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeVarint(ByteBuilder out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.append((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.append((byte) value);
+    }
+
+    private static int readInt(ByteBuffer buffer, int position, int size) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) value = (value << 8) | (buffer.get((position + i) % size) & 0xFF);
+        return value;
+    }
+
+    /**
+     * Grava os eventos da janela recente em um novo arquivo no diretório configurado.
+     *
+     * @param reason Motivo registrado no cabeçalho do arquivo (por exemplo, ERROR ou shutdown)
+     * @return O arquivo gravado, ou null se não havia eventos, não há diretório configurado ou outra
+     * gravação estava em andamento
+     */
+    public File dump(String reason) {
+        if (!dumping.compareAndSet(false, true)) return null;
+        try {
+            Stripe[] current = stripes;
+            if (current == null) return null;
+            // Sem diretório de logs configurado não há onde gravar
+            if (directory == null) return null;
+            // Copia cada faixa sob o seu lock e decodifica a cópia sem bloquear o registro de eventos
+            ByteBuffer copy = snapshot;
+            ((Buffer) copy).clear();
+            List<StripeCopy> copies = new ArrayList<>();
+            for (Stripe stripe : current) {
+                synchronized (stripe) {
+                    if (stripe.head == stripe.tail) continue;
+                    int copyStart = copy.position();
+                    int start = (int) (stripe.tail % stripe.capacity);
+                    int end = (int) (stripe.head % stripe.capacity);
+                    ByteBuffer source = stripe.ring.duplicate();
+                    if (start < end) {
+                        ((Buffer) source).limit(end).position(start);
+                        copy.put(source);
+                    } else {
+                        ((Buffer) source).limit(stripe.capacity).position(start);
+                        copy.put(source);
+                        ((Buffer) source).limit(end).position(0);
+                        copy.put(source);
+                    }
+                    copies.add(new StripeCopy(copyStart, copy.position(), stripe.refs.clone(), stripe.refHead));
+                }
+            }
+            ((Buffer) copy).flip();
+            if (!copy.hasRemaining()) return null;
+            return write(copy, copies, reason);
+        } catch (IOException e) {
+            addError("Falha ao gravar o registro de eventos recentes", e);
+            return null;
+        } finally {
+            dumping.set(false);
+        }
+    }
+
+    private File write(ByteBuffer copy, List<StripeCopy> copies, String reason) throws IOException {
+        // Registros da janela (horário, posição e faixa), intercalados pelo horário; cada faixa já está em ordem
+        long since = System.currentTimeMillis() - window;
+        List<long[]> records = new ArrayList<>();
+        for (int stripeIndex = 0; stripeIndex < copies.size(); stripeIndex++) {
+            StripeCopy stripe = copies.get(stripeIndex);
+            ((Buffer) copy).position(stripe.start);
+            while (stripe.end - copy.position() >= RECORD_HEADER) {
+                int start = copy.position();
+                int length = copy.getInt();
+                long timestamp = copy.getLong();
+                if (timestamp >= since) records.add(new long[]{timestamp, start, stripeIndex});
+                ((Buffer) copy).position(start + length);
+            }
+        }
+        if (records.isEmpty()) return null;
+        records.sort(Comparator.comparingLong(record -> record[0]));
+
+        File dir = new File(directory, DIRECTORY_NAME);
+        if (!dir.exists()) dir.mkdirs();
+        File file = new File(dir, FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + FILE_SUFFIX);
+
+        LoggerContext loggerContext = (LoggerContext) getContext();
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(loggerContext);
+        layout.setPattern(pattern != null ? pattern : "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        layout.start();
+
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8), 64 * 1024)) {
+            out.write("# Eventos recentes (" + reason + "), últimos " + window + " ms\n");
+            for (long[] record : records) {
+                StripeCopy stripe = copies.get((int) record[2]);
+                ((Buffer) copy).position((int) record[1] + 4 + 8);
+                int levelIndex = copy.get();
+                long refBase = copy.getLong();
+
+                LoggingEvent event = new LoggingEvent();
+                event.setLoggerContextRemoteView(loggerContext.getLoggerContextRemoteView());
+                event.setTimeStamp(record[0]);
+                event.setLevel(LEVELS[Math.min(levelIndex, LEVELS.length - 1)]);
+                event.setThreadName(readString(copy));
+                event.setLoggerName(readString(copy));
+                event.setMessage(readString(copy));
+                // Sem isso o evento usaria o MDC da thread que grava o arquivo
+                event.setMDCPropertyMap(Collections.emptyMap());
+                int argCount = readVarint(copy);
+                if (argCount > 0) {
+                    Object[] args = new Object[argCount];
+                    for (int i = 0; i < argCount; i++) args[i] = readArgument(copy, stripe, refBase);
+                    event.setArgumentArray(args);
+                }
+                int throwableRef = readVarint(copy);
+                Object throwable = throwableRef > 0 ? stripe.resolve(refBase + throwableRef - 1) : null;
+                if (throwable instanceof Throwable) event.setThrowableProxy(new ThrowableProxy((Throwable) throwable));
+
+                out.write(layout.doLayout(event));
+                if (throwable != null && !(throwable instanceof Throwable)) out.write(throwable + CoreConstants.LINE_SEPARATOR);
+            }
+        } finally {
+            layout.stop();
+        }
+        addInfo("Eventos recentes gravados em " + file.getAbsolutePath());
+        removeOldFiles(dir);
+        return file;
+    }
+
+    /**
+     * Mantém somente os {@code maxFiles} arquivos mais recentes. O nome tem data e hora com largura
+     * fixa, então a ordem alfabética é a cronológica.
+     */
+    private void removeOldFiles(File dir) {
+        String[] names = dir.list((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (names == null || maxFiles <= 0 || names.length <= maxFiles) return;
+        Arrays.sort(names);
+        for (int i = 0; i < names.length - maxFiles; i++) {
+            File old = new File(dir, names[i]);
+            if (!old.delete()) addWarn("Não foi possível remover o registro de eventos antigo " + old.getAbsolutePath());
+        }
+    }
+
+    private static Object readArgument(ByteBuffer buffer, StripeCopy stripe, long refBase) {
+        byte type = buffer.get();
+        switch (type) {
+            case ARG_STRING:
+                return readString(buffer);
+            case ARG_LONG:
+                return buffer.getLong();
+            case ARG_DOUBLE:
+                return Double.longBitsToDouble(buffer.getLong());
+            case ARG_FLOAT:
+                return Float.intBitsToFloat((int) buffer.getLong());
+            case ARG_BOOLEAN:
+                return buffer.get() != 0;
+            case ARG_CHAR:
+                return buffer.getChar();
+            case ARG_REFERENCE:
+                return stripe.resolve(refBase + readVarint(buffer));
+            default:
+                return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    // Configuração
+
+    /**
+     * @param capacity Tamanho do buffer circular em bytes (outro tanto é reservado para a cópia na gravação)
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @param level Nível mínimo registrado, independente do nível dos loggers
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * @param window Idade máxima, em ms, dos eventos gravados no arquivo
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * @param minInterval Intervalo mínimo, em ms, entre gravações disparadas por eventos
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * @param triggerMarker Nome do marcador que também dispara a gravação, além de ERROR
+     */
+    public void setTriggerMarker(String triggerMarker) {
+        this.triggerMarker = triggerMarker;
+    }
+
+    /**
+     * @param maxFiles Quantidade de arquivos gravados mantidos (0 para não limitar)
+     */
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    public boolean isRecordVRLogger() {
+        return recordVRLogger;
+    }
+
+    /**
+     * @param recordVRLogger Se os {@link br.com.vrsoftware.vrlog.VRLogger} devem repassar ao gravador as
+     *                       chamadas abaixo do nível do logger (por padrão elas retornam sem custo)
+     */
+    public void setRecordVRLogger(boolean recordVRLogger) {
+        this.recordVRLogger = recordVRLogger;
+    }
+
+    /**
+     * @param directory Diretório de logs; os arquivos ficam no subdiretório {@value #DIRECTORY_NAME}.
+     *                  Sem diretório, os eventos são registrados mas não gravados em arquivo
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param pattern Padrão usado para escrever os eventos no arquivo
+     */
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+}
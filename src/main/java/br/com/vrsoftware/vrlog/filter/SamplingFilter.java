@@ -0,0 +1,173 @@
+package br.com.vrsoftware.vrlog.filter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.TurboFilterList;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro que amostra os eventos DEBUG e TRACE de um pacote para mantê-los dentro de uma cota de
+ * eventos por segundo.
+ * <p>
+ * A decisão é tomada antes da criação e da formatação do evento. A cada segundo a taxa observada
+ * no segundo anterior define o fator de amostragem (1 a cada N eventos é mantido); dentro do
+ * segundo a cota também é um limite rígido, para absorver picos antes do próximo ajuste. Eventos
+ * INFO ou mais graves nunca são amostrados.
+ * <p>
+ * Os eventos mantidos com fator maior que 1 levam o fator no MDC, na chave {@link #MDC_KEY}
+ * (por exemplo {@code 1/8}), visível com {@code %X{sample}} no padrão. Para que a chave exista
+ * apenas durante o evento, o próprio filtro cria o evento e o entrega aos appenders com a chave no
+ * MDC, removendo-a em seguida, e responde DENY para que o Logger não o registre de novo. Por isso
+ * os filtros adicionados depois deste não veem os eventos anotados, e ele deve ser o último da
+ * lista. O custo fica restrito aos eventos anotados, limitados pela cota.
+ */
+public class SamplingFilter extends TurboFilter {
+
+    public static final String NAME = "SAMPLE";
+    public static final String MDC_KEY = "sample";
+
+    private static final long PERIOD = 1000;
+    private static final Rule NO_RULE = new Rule("", Integer.MAX_VALUE);
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final ConcurrentHashMap<String, Rule> rulesByLogger = new ConcurrentHashMap<>();
+    private final LongAdder discardedCount = new LongAdder();
+
+    /**
+     * Define a cota de um pacote (e de seus subpacotes). Vale a regra do pacote mais específico.
+     *
+     * @param loggerName      Nome do pacote ou logger
+     * @param eventsPerSecond Eventos DEBUG/TRACE mantidos por segundo
+     */
+    public void addRule(String loggerName, int eventsPerSecond) {
+        rules.add(new Rule(loggerName, Math.max(1, eventsPerSecond)));
+        rulesByLogger.clear();
+    }
+
+    @Override
+    public void start() {
+        if (rules.isEmpty()) {
+            addError("Nenhuma regra de amostragem definida para o filtro [" + getName() + "]");
+            return;
+        }
+        // Nos eventos anotados o filtro fica entre o Logger e os appenders; sem isso os dados do
+        // chamador (%caller, %line) apontariam para o filtro em vez do código que registrou o evento
+        if (getContext() instanceof LoggerContext) {
+            List<String> frameworkPackages = ((LoggerContext) getContext()).getFrameworkPackages();
+            for (String name : new String[]{SamplingFilter.class.getName(), TurboFilterList.class.getName(), LoggerContext.class.getName()}) {
+                if (!frameworkPackages.contains(name)) frameworkPackages.add(name);
+            }
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || !isStarted() || level.levelInt > Level.DEBUG_INT) return FilterReply.NEUTRAL;
+        // Eventos que serão descartados pelo nível não contam para a taxa
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) return FilterReply.NEUTRAL;
+
+        Rule rule = rulesByLogger.computeIfAbsent(logger.getName(), this::findRule);
+        if (rule == NO_RULE) return FilterReply.NEUTRAL;
+
+        String annotation = rule.admit(System.currentTimeMillis());
+        if (annotation == null) {
+            discardedCount.increment();
+            return FilterReply.DENY;
+        }
+        if (annotation.isEmpty()) return FilterReply.NEUTRAL;
+
+        appendAnnotated(marker, logger, level, format, params, t, annotation);
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Cria o evento como o Logger faria e o entrega aos appenders com a anotação no MDC, restaurando
+     * o MDC da thread logo depois.
+     */
+    private static void appendAnnotated(Marker marker, Logger logger, Level level, String format,
+                                        Object[] params, Throwable t, String annotation) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, level, format, t, params);
+        event.setMarker(marker);
+        String previous = MDC.get(MDC_KEY);
+        MDC.put(MDC_KEY, annotation);
+        try {
+            // Os appenders assíncronos copiam o MDC do evento ainda nesta chamada
+            logger.callAppenders(event);
+        } finally {
+            if (previous != null) MDC.put(MDC_KEY, previous);
+            else MDC.remove(MDC_KEY);
+        }
+    }
+
+    /**
+     * @return A regra do pacote mais específico que contém o logger
+     */
+    private Rule findRule(String loggerName) {
+        Rule found = NO_RULE;
+        for (Rule rule : rules) {
+            boolean matches = loggerName.equals(rule.name) || loggerName.startsWith(rule.name + ".");
+            if (matches && (found == NO_RULE || rule.name.length() > found.name.length())) found = rule;
+        }
+        return found;
+    }
+
+    /**
+     * @return Total de eventos descartados pela amostragem desde o início
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * Cota e contadores de um pacote.
+     */
+    private static final class Rule {
+        final String name;
+        final int budget;
+        final AtomicLong windowStart = new AtomicLong();
+        final AtomicLong seen = new AtomicLong();
+        final AtomicLong accepted = new AtomicLong();
+        volatile int factor = 1;
+        volatile String annotation = "";
+
+        Rule(String name, int budget) {
+            this.name = name;
+            this.budget = budget;
+        }
+
+        /**
+         * @return null se o evento deve ser descartado, "" se for mantido sem amostragem,
+         * ou a anotação com o fator de amostragem
+         */
+        String admit(long now) {
+            long start = windowStart.get();
+            if (now - start >= PERIOD && windowStart.compareAndSet(start, now)) {
+                // Taxa do segundo anterior; após um intervalo sem eventos recomeça sem amostragem
+                long rate = now - start < 2 * PERIOD ? seen.get() : 0;
+                seen.set(0);
+                accepted.set(0);
+                int newFactor = rate <= budget ? 1 : (int) Math.min(Integer.MAX_VALUE, (rate + budget - 1) / budget);
+                annotation = newFactor > 1 ? "1/" + newFactor : "";
+                factor = newFactor;
+            }
+
+            long count = seen.incrementAndGet();
+            int current = factor;
+            if (current > 1 && (count - 1) % current != 0) return null;
+            if (accepted.incrementAndGet() > budget) return null;
+            return annotation;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.vrsoftware.vrlog.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em nanossegundos com faixas em potências de 2.
+ * <p>
+ * Cada faixa é um {@link LongAdder}, de modo que várias threads registram sem disputar a mesma
+ * variável. Os percentis são estimados pelo limite superior da faixa, com erro de até 2x,
+ * o suficiente para acompanhar tendências e regressões.
+ */
+public class LatencyHistogram {
+
+    // Faixa i contém valores em [2^(i-1), 2^i); a última acumula tudo acima de ~9 segundos
+    private static final int BUCKETS = 34;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Registra uma latência.
+     *
+     * @param nanos Duração em nanossegundos
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Latência média em nanossegundos
+     */
+    public long getMean() {
+        long n = count.sum();
+        return n > 0 ? sum.sum() / n : 0;
+    }
+
+    /**
+     * @return Maior latência registrada em nanossegundos
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estima o percentil informado.
+     *
+     * @param percentile Percentil entre 0 e 100
+     * @return Limite superior, em nanossegundos, da faixa que contém o percentil
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long target = (long) Math.ceil(total * Math.max(0, Math.min(100, percentile)) / 100.0);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += counts[i];
+            if (accumulated >= target && counts[i] > 0) return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+        }
+        return getMax();
+    }
+}
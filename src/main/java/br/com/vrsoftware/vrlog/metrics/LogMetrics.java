@@ -0,0 +1,352 @@
+package br.com.vrsoftware.vrlog.metrics;
+
+import br.com.vrsoftware.vrlog.util.ArchivePipeline;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.Context;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.spi.LifeCycle;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas do pipeline de log: eventos por nível, bytes escritos, latência de codificação e de
+ * cada appender, rolagens, descartes, duração da manutenção e tempo de inicialização.
+ * <p>
+ * Os contadores usam {@link LongAdder} e os histogramas {@link LatencyHistogram}, mantendo o
+ * custo no caminho de log baixo mesmo com muitas threads. Há uma instância por contexto do
+ * Logback, registrada em {@link #CONTEXT_KEY}; ao iniciar, é publicada no JMX em
+ * {@code br.com.vrsoftware.vrlog:type=LogMetrics,name=<contexto>}.
+ */
+public class LogMetrics extends ContextAwareBase implements LifeCycle, LogMetricsMXBean {
+
+    public static final String CONTEXT_KEY = "VRLOG_METRICS";
+    public static final String JMX_DOMAIN = "br.com.vrsoftware.vrlog";
+
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    // Contadores indexados por levelInt / 10000 (TRACE=0 ... ERROR=4)
+    private final LongAdder[] levelCounts = new LongAdder[LEVELS.length];
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder rolloverCount = new LongAdder();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> appendLatency = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> dropCounters = new ConcurrentHashMap<>();
+
+    private final LongAdder compressionRuns = new LongAdder();
+    private final LongAdder compressionMillis = new LongAdder();
+    private volatile long lastCompressionMillis;
+    private final LongAdder retentionRuns = new LongAdder();
+    private final LongAdder retentionMillis = new LongAdder();
+    private volatile long lastRetentionMillis;
+    private volatile long startupMillis;
+    private final AtomicLong warmUpMillis = new AtomicLong();
+    private volatile int diskPressureStage;
+    private volatile long diskUsableBytes = -1;
+    private final LongAdder diskPressureTransitions = new LongAdder();
+
+    private boolean jmxEnabled = true;
+    private ObjectName objectName;
+    private volatile boolean started;
+
+    public LogMetrics() {
+        for (int i = 0; i < levelCounts.length; i++) levelCounts[i] = new LongAdder();
+    }
+
+    /**
+     * Obtém as métricas registradas no contexto.
+     *
+     * @return As métricas ou null se estiverem desabilitadas (log.metrics.enabled=false)
+     */
+    public static LogMetrics get(Context context) {
+        return (LogMetrics) context.getObject(CONTEXT_KEY);
+    }
+
+    @Override
+    public void start() {
+        if (started) return;
+        if (jmxEnabled) registerMBean();
+        started = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!started) return;
+        started = false;
+        unregisterMBean();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=LogMetrics,name=" + ObjectName.quote(getContext().getName()));
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                // Reconfiguração do mesmo contexto: a instância nova substitui a anterior
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            objectName = name;
+        } catch (Exception e) {
+            addWarn("Não foi possível registrar as métricas de log no JMX", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (objectName == null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+        } catch (Exception e) {
+            addWarn("Não foi possível remover as métricas de log do JMX", e);
+        }
+        objectName = null;
+    }
+
+    // Registro
+
+    public void recordEvent(Level level) {
+        int index = level.levelInt / 10000;
+        if (index >= 0 && index < levelCounts.length) levelCounts[index].increment();
+    }
+
+    public void recordEncode(long nanos, int bytes) {
+        encodeLatency.record(nanos);
+        bytesWritten.add(bytes);
+    }
+
+    public void recordAppend(String appenderName, long nanos) {
+        appendLatency(appenderName).record(nanos);
+    }
+
+    /**
+     * @return Histograma de latência do appender, criado na primeira chamada
+     */
+    public LatencyHistogram appendLatency(String appenderName) {
+        return appendLatency.computeIfAbsent(appenderName, name -> new LatencyHistogram());
+    }
+
+    public void recordRollover() {
+        rolloverCount.increment();
+    }
+
+    public void recordCompression(long millis) {
+        compressionRuns.increment();
+        compressionMillis.add(millis);
+        lastCompressionMillis = millis;
+    }
+
+    public void recordRetention(long millis) {
+        retentionRuns.increment();
+        retentionMillis.add(millis);
+        lastRetentionMillis = millis;
+    }
+
+    /**
+     * @param millis Duração da inicialização do log, até a aplicação poder registrar eventos
+     */
+    public void recordStartup(long millis) {
+        startupMillis = millis;
+    }
+
+    /**
+     * Registra o tempo até um appender adiado (log.startup=lazy) ficar pronto. Mantém o maior valor.
+     */
+    public void recordWarmUp(long millis) {
+        warmUpMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * Registra a medição de espaço livre do volume dos logs (log.disk.enabled=true).
+     *
+     * @param stage       Estágio de pressão de disco (0 = normal)
+     * @param usableBytes Espaço livre, em bytes
+     */
+    public void recordDiskPressure(int stage, long usableBytes) {
+        if (stage != diskPressureStage) {
+            diskPressureTransitions.increment();
+            diskPressureStage = stage;
+        }
+        diskUsableBytes = usableBytes;
+    }
+
+    /**
+     * Registra um estágio que pode descartar eventos (por exemplo, o buffer assíncrono).
+     *
+     * @param stage   Nome do estágio
+     * @param counter Fonte do total de eventos descartados
+     */
+    public void registerDropCounter(String stage, LongSupplier counter) {
+        dropCounters.put(stage, counter);
+    }
+
+    /**
+     * @return Cópia imutável das métricas atuais
+     */
+    public LogMetricsSnapshot snapshot() {
+        return new LogMetricsSnapshot(this);
+    }
+
+    // Consulta (JMX)
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < LEVELS.length; i++) counts.put(LEVELS[i].levelStr, levelCounts[i].sum());
+        return counts;
+    }
+
+    @Override
+    public long getTotalEvents() {
+        long total = 0;
+        for (LongAdder count : levelCounts) total += count.sum();
+        return total;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getRolloverCount() {
+        return rolloverCount.sum();
+    }
+
+    @Override
+    public long getEncodeMeanNanos() {
+        return encodeLatency.getMean();
+    }
+
+    @Override
+    public long getEncodeP99Nanos() {
+        return encodeLatency.getPercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getAppendMeanNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        appendLatency.forEach((name, histogram) -> result.put(name, histogram.getMean()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getAppendP50Nanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        appendLatency.forEach((name, histogram) -> result.put(name, histogram.getPercentile(50)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getAppendP99Nanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        appendLatency.forEach((name, histogram) -> result.put(name, histogram.getPercentile(99)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getAppendMaxNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        appendLatency.forEach((name, histogram) -> result.put(name, histogram.getMax()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDroppedEvents() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        dropCounters.forEach((stage, counter) -> result.put(stage, counter.getAsLong()));
+        return result;
+    }
+
+    @Override
+    public long getCompressionRuns() {
+        return compressionRuns.sum();
+    }
+
+    @Override
+    public long getLastCompressionMillis() {
+        return lastCompressionMillis;
+    }
+
+    @Override
+    public long getTotalCompressionMillis() {
+        ArchivePipeline pipeline = getContext() != null ? ArchivePipeline.get(getContext()) : null;
+        return compressionMillis.sum() + (pipeline != null ? pipeline.getCompressionMillis() : 0);
+    }
+
+    @Override
+    public long getRetentionRuns() {
+        return retentionRuns.sum();
+    }
+
+    @Override
+    public long getLastRetentionMillis() {
+        return lastRetentionMillis;
+    }
+
+    @Override
+    public long getTotalRetentionMillis() {
+        return retentionMillis.sum();
+    }
+
+    @Override
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    @Override
+    public long getWarmUpMillis() {
+        return warmUpMillis.get();
+    }
+
+    @Override
+    public int getDiskPressureStage() {
+        return diskPressureStage;
+    }
+
+    @Override
+    public long getDiskUsableBytes() {
+        return diskUsableBytes;
+    }
+
+    @Override
+    public long getDiskPressureTransitions() {
+        return diskPressureTransitions.sum();
+    }
+
+    @Override
+    public int getArchiveBacklog() {
+        ArchivePipeline pipeline = getContext() != null ? ArchivePipeline.get(getContext()) : null;
+        return pipeline != null ? pipeline.getBacklog() : 0;
+    }
+
+    @Override
+    public long getArchiveMaxLagMillis() {
+        ArchivePipeline pipeline = getContext() != null ? ArchivePipeline.get(getContext()) : null;
+        return pipeline != null ? pipeline.getMaxLagMillis() : 0;
+    }
+
+    // Configuração
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.vrsoftware.vrlog.metrics;
+
+import java.util.Map;
+
+/**
+ * Interface JMX das métricas de log, registrada como
+ * {@code br.com.vrsoftware.vrlog:type=LogMetrics,name=<contexto>}.
+ * <p>
+ * Latências em nanossegundos e durações em milissegundos.
+ */
+public interface LogMetricsMXBean {
+
+    /**
+     * @return Eventos registrados por nível (TRACE, DEBUG, INFO, WARN, ERROR)
+     */
+    Map<String, Long> getEventCounts();
+
+    long getTotalEvents();
+
+    long getBytesWritten();
+
+    long getRolloverCount();
+
+    long getEncodeMeanNanos();
+
+    long getEncodeP99Nanos();
+
+    Map<String, Long> getAppendMeanNanos();
+
+    Map<String, Long> getAppendP50Nanos();
+
+    Map<String, Long> getAppendP99Nanos();
+
+    Map<String, Long> getAppendMaxNanos();
+
+    /**
+     * @return Eventos descartados por estágio de bufferização
+     */
+    Map<String, Long> getDroppedEvents();
+
+    long getCompressionRuns();
+
+    long getLastCompressionMillis();
+
+    long getTotalCompressionMillis();
+
+    long getRetentionRuns();
+
+    long getLastRetentionMillis();
+
+    long getTotalRetentionMillis();
+
+    /**
+     * @return Duração da inicialização do log
+     */
+    long getStartupMillis();
+
+    /**
+     * @return Tempo até os appenders adiados (log.startup=lazy) ficarem prontos, ou 0
+     */
+    long getWarmUpMillis();
+
+    /**
+     * @return Estágio de pressão de disco: 0 normal, 1 compressão antecipada, 2 nível elevado, 3 somente memória
+     */
+    int getDiskPressureStage();
+
+    /**
+     * @return Espaço livre no volume dos logs na última medição, ou -1 se não monitorado
+     */
+    long getDiskUsableBytes();
+
+    long getDiskPressureTransitions();
+
+    /**
+     * @return Segmentos aguardando compressão no modo eager
+     */
+    int getArchiveBacklog();
+
+    long getArchiveMaxLagMillis();
+}
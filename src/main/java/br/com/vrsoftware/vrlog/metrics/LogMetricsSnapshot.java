@@ -0,0 +1,148 @@
+package br.com.vrsoftware.vrlog.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cópia imutável das métricas de log em um instante, obtida por {@link LogMetrics#snapshot()}.
+ * Latências em nanossegundos e durações em milissegundos.
+ */
+public class LogMetricsSnapshot {
+
+    private final long timestamp;
+    private final Map<String, Long> eventCounts;
+    private final long bytesWritten;
+    private final long rolloverCount;
+    private final long encodeMeanNanos;
+    private final long encodeP99Nanos;
+    private final Map<String, Long> appendMeanNanos;
+    private final Map<String, Long> appendP99Nanos;
+    private final Map<String, Long> appendMaxNanos;
+    private final Map<String, Long> droppedEvents;
+    private final long compressionRuns;
+    private final long lastCompressionMillis;
+    private final long retentionRuns;
+    private final long lastRetentionMillis;
+    private final long startupMillis;
+    private final long warmUpMillis;
+    private final int diskPressureStage;
+    private final long diskUsableBytes;
+
+    LogMetricsSnapshot(LogMetrics metrics) {
+        this.timestamp = System.currentTimeMillis();
+        this.eventCounts = copy(metrics.getEventCounts());
+        this.bytesWritten = metrics.getBytesWritten();
+        this.rolloverCount = metrics.getRolloverCount();
+        this.encodeMeanNanos = metrics.getEncodeMeanNanos();
+        this.encodeP99Nanos = metrics.getEncodeP99Nanos();
+        this.appendMeanNanos = copy(metrics.getAppendMeanNanos());
+        this.appendP99Nanos = copy(metrics.getAppendP99Nanos());
+        this.appendMaxNanos = copy(metrics.getAppendMaxNanos());
+        this.droppedEvents = copy(metrics.getDroppedEvents());
+        this.compressionRuns = metrics.getCompressionRuns();
+        this.lastCompressionMillis = metrics.getLastCompressionMillis();
+        this.retentionRuns = metrics.getRetentionRuns();
+        this.lastRetentionMillis = metrics.getLastRetentionMillis();
+        this.startupMillis = metrics.getStartupMillis();
+        this.warmUpMillis = metrics.getWarmUpMillis();
+        this.diskPressureStage = metrics.getDiskPressureStage();
+        this.diskUsableBytes = metrics.getDiskUsableBytes();
+    }
+
+    private static Map<String, Long> copy(Map<String, Long> map) {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+    }
+
+    /**
+     * @return Momento em que a cópia foi feita, em milissegundos
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, Long> getEventCounts() {
+        return eventCounts;
+    }
+
+    public long getEventCount(String level) {
+        Long count = eventCounts.get(level.toUpperCase());
+        return count != null ? count : 0;
+    }
+
+    public long getTotalEvents() {
+        long total = 0;
+        for (Long count : eventCounts.values()) total += count;
+        return total;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getRolloverCount() {
+        return rolloverCount;
+    }
+
+    public long getEncodeMeanNanos() {
+        return encodeMeanNanos;
+    }
+
+    public long getEncodeP99Nanos() {
+        return encodeP99Nanos;
+    }
+
+    public Map<String, Long> getAppendMeanNanos() {
+        return appendMeanNanos;
+    }
+
+    public Map<String, Long> getAppendP99Nanos() {
+        return appendP99Nanos;
+    }
+
+    public Map<String, Long> getAppendMaxNanos() {
+        return appendMaxNanos;
+    }
+
+    public Map<String, Long> getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public long getCompressionRuns() {
+        return compressionRuns;
+    }
+
+    public long getLastCompressionMillis() {
+        return lastCompressionMillis;
+    }
+
+    public long getRetentionRuns() {
+        return retentionRuns;
+    }
+
+    public long getLastRetentionMillis() {
+        return lastRetentionMillis;
+    }
+
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public int getDiskPressureStage() {
+        return diskPressureStage;
+    }
+
+    public long getDiskUsableBytes() {
+        return diskUsableBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "LogMetricsSnapshot{eventos=" + eventCounts + ", bytes=" + bytesWritten + ", rolagens=" + rolloverCount
+                + ", encodeP99=" + encodeP99Nanos + "ns, appendP99=" + appendP99Nanos + ", descartes=" + droppedEvents + "}";
+    }
+}
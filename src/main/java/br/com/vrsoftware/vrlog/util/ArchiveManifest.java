@@ -0,0 +1,422 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Índice persistido dos arquivos de log compactados de um diretório.
+ * <p>
+ * Cada arquivo gerado pela compressão é registrado no manifesto ({@value #MANIFEST_FILE_NAME})
+ * com sua data, tamanho e codec, de forma que a retenção decide o que remover sem percorrer o
+ * diretório. O diretório só é varrido uma vez, quando o manifesto ainda não existe.
+ * <p>
+ * Vários processos podem compartilhar o diretório: cada operação trava {@value #LOCK_FILE_NAME} e
+ * relê o manifesto do disco antes de alterá-lo, de modo que o registro de um processo não se perde
+ * na reescrita feita pela retenção de outro.
+ * <p>
+ * Reconhece tanto os arquivos {@code logs-YYYY-MM-DD.zip} da manutenção diária quanto os
+ * segmentos comprimidos na rolagem ({@code application.log.YYYY-MM-DD.i.zip/.gz/...}).
+ */
+public class ArchiveManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveManifest.class);
+
+    public static final String MANIFEST_FILE_NAME = ".vrlog-archives";
+    public static final String LOCK_FILE_NAME = MANIFEST_FILE_NAME + ".lock";
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final String SEPARATOR = ";";
+    // Resultados de delete(Entry)
+    private static final int DELETED = 1;
+    private static final int DELETE_MISSING = 0;
+    private static final int DELETE_FAILED = -1;
+    private static final Map<Path, ArchiveManifest> MANIFESTS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final Path manifestFile;
+    private final Path lockFile;
+    // Entradas ordenadas da mais antiga para a mais recente, relidas a cada operação
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * Operação executada com o manifesto travado e atualizado.
+     */
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Arquivo registrado no manifesto.
+     */
+    public static final class Entry {
+        private final String fileName;
+        private final LocalDate date;
+        private long size;
+        private final String codec;
+
+        Entry(String fileName, LocalDate date, long size, String codec) {
+            this.fileName = fileName;
+            this.date = date;
+            this.size = size;
+            this.codec = codec;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        /**
+         * @return Tamanho em bytes, ou -1 se o arquivo ainda não existia quando foi registrado
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public String getCodec() {
+            return codec;
+        }
+
+        private String key() {
+            return key(date, fileName);
+        }
+
+        private static String key(LocalDate date, String fileName) {
+            return date + "/" + fileName;
+        }
+    }
+
+    private ArchiveManifest(Path directory) {
+        this.directory = directory;
+        this.manifestFile = directory.resolve(MANIFEST_FILE_NAME);
+        this.lockFile = directory.resolve(LOCK_FILE_NAME);
+    }
+
+    /**
+     * Obtém o manifesto do diretório informado. A instância é compartilhada por todo o processo.
+     */
+    public static ArchiveManifest forDirectory(Path directory) {
+        return MANIFESTS.computeIfAbsent(directory.toAbsolutePath().normalize(), ArchiveManifest::new);
+    }
+
+    /**
+     * Registra um arquivo compactado. O arquivo pode ainda não existir (compressão assíncrona do Logback);
+     * nesse caso o tamanho é obtido na próxima retenção.
+     *
+     * @param archive Caminho do arquivo compactado
+     */
+    public synchronized void register(Path archive) {
+        try {
+            locked(() -> {
+                Entry entry = toEntry(archive.getFileName().toString(), archive);
+                Entry previous = entries.put(entry.key(), entry);
+                if (previous == null) append(entry);
+                else rewrite();
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Não foi possível registrar o arquivo no manifesto: {}", archive, e);
+        }
+    }
+
+    /**
+     * Remove do manifesto um arquivo que deixou de existir (por exemplo, após uma conversão).
+     *
+     * @param archive Caminho do arquivo compactado
+     */
+    public synchronized void unregister(Path archive) {
+        try {
+            locked(() -> {
+                String name = archive.getFileName().toString();
+                if (entries.values().removeIf(entry -> entry.fileName.equals(name))) rewrite();
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Não foi possível atualizar o manifesto: {}", archive, e);
+        }
+    }
+
+    /**
+     * Aplica as regras de retenção: remove os arquivos mais antigos que {@code maxHistoryDays} e,
+     * em seguida, os mais antigos até que o total fique abaixo de {@code totalSizeCap}.
+     *
+     * @param maxHistoryDays Número de dias para manter os arquivos (0 ou negativo para não limitar)
+     * @param totalSizeCap   Tamanho total máximo em bytes (0 ou negativo para não limitar)
+     * @return Quantidade de arquivos removidos
+     * @throws IOException Em caso de erro no acesso ao manifesto
+     */
+    public synchronized int applyRetention(int maxHistoryDays, long totalSizeCap) throws IOException {
+        return locked(() -> retain(maxHistoryDays, totalSizeCap));
+    }
+
+    private int retain(int maxHistoryDays, long totalSizeCap) throws IOException {
+        int removed = 0;
+        boolean changed = false;
+        LocalDate cutoffDate = LocalDate.now().minusDays(maxHistoryDays);
+
+        // Atualiza tamanhos desconhecidos e descarta entradas de arquivos que não existem mais
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.size >= 0) continue;
+            Path file = directory.resolve(entry.fileName);
+            if (Files.exists(file)) {
+                entry.size = Files.size(file);
+            } else if (entry.date.isBefore(LocalDate.now().minusDays(1))) {
+                it.remove();
+            }
+            changed = true;
+        }
+
+        // Retenção por idade
+        if (maxHistoryDays > 0) {
+            it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (!entry.date.isBefore(cutoffDate)) break;
+                int result = delete(entry);
+                // Arquivo que não pôde ser removido continua registrado e é tentado de novo
+                if (result == DELETE_FAILED) continue;
+                if (result == DELETED) removed++;
+                it.remove();
+                changed = true;
+            }
+        }
+
+        // Retenção por tamanho total, removendo os mais antigos primeiro
+        if (totalSizeCap > 0) {
+            long total = totalSize();
+            it = entries.values().iterator();
+            while (total > totalSizeCap && it.hasNext()) {
+                Entry entry = it.next();
+                int result = delete(entry);
+                if (result == DELETE_FAILED) continue;
+                if (result == DELETED) removed++;
+                total -= Math.max(0, entry.size);
+                it.remove();
+                changed = true;
+            }
+        }
+
+        if (changed) rewrite();
+        return removed;
+    }
+
+    /**
+     * Retenção de emergência, usada quando falta espaço em disco: remove os arquivos mais antigos,
+     * ignorando {@code maxHistory}, até liberar a quantidade informada. Os arquivos do dia atual
+     * são mantidos.
+     *
+     * @param bytesToFree Quantidade de bytes a liberar
+     * @return Quantidade de arquivos removidos
+     * @throws IOException Em caso de erro no acesso ao manifesto
+     */
+    public synchronized int freeSpace(long bytesToFree) throws IOException {
+        return locked(() -> free(bytesToFree));
+    }
+
+    private int free(long bytesToFree) throws IOException {
+        int removed = 0;
+        long freed = 0;
+        boolean changed = false;
+        LocalDate today = LocalDate.now();
+        Iterator<Entry> it = entries.values().iterator();
+        while (freed < bytesToFree && it.hasNext()) {
+            Entry entry = it.next();
+            if (!entry.date.isBefore(today)) break;
+            long size = entry.size >= 0 ? entry.size : sizeOf(directory.resolve(entry.fileName));
+            int result = delete(entry);
+            if (result == DELETE_FAILED) continue;
+            if (result == DELETED) {
+                removed++;
+                freed += size;
+            }
+            it.remove();
+            changed = true;
+        }
+
+        if (changed) rewrite();
+        return removed;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return Cópia das entradas, da mais antiga para a mais recente
+     */
+    public synchronized List<Entry> getEntries() throws IOException {
+        return locked(() -> new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * @return Soma dos tamanhos conhecidos dos arquivos registrados
+     */
+    public synchronized long getTotalSize() throws IOException {
+        return locked(this::totalSize);
+    }
+
+    private long totalSize() {
+        long total = 0;
+        for (Entry entry : entries.values()) total += Math.max(0, entry.size);
+        return total;
+    }
+
+    /**
+     * @return {@link #DELETED}, {@link #DELETE_MISSING} se o arquivo já não existia ou
+     * {@link #DELETE_FAILED} se ele continua no disco (em uso, sem permissão)
+     */
+    private int delete(Entry entry) {
+        try {
+            Path file = directory.resolve(entry.fileName);
+            if (TipoCompressao.BLOCOS.name().equals(entry.codec)) Files.deleteIfExists(BlockArchiveWriter.indexOf(file));
+            if (Files.deleteIfExists(file)) {
+                logger.info("Arquivo de log antigo removido: {}", entry.fileName);
+                return DELETED;
+            }
+            return DELETE_MISSING;
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover o arquivo de log: {}", entry.fileName, e);
+            return DELETE_FAILED;
+        }
+    }
+
+    // Persistência
+
+    /**
+     * Executa a operação com o arquivo {@value #LOCK_FILE_NAME} travado, após reler o manifesto, já
+     * que outro processo pode tê-lo alterado desde a última operação. Dentro do processo as
+     * operações já são serializadas pelo {@code synchronized}, então a trava não se sobrepõe.
+     */
+    private <T> T locked(LockedAction<T> action) throws IOException {
+        // Sem o diretório não há o que travar nem o que ler
+        if (!Files.isDirectory(directory)) {
+            entries.clear();
+            return action.run();
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            entries.clear();
+            if (Files.exists(manifestFile)) load();
+            else bootstrap();
+            return action.run();
+        }
+    }
+
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+            String[] parts = line.split(SEPARATOR, -1);
+            if (parts.length < 4) continue;
+            try {
+                Entry entry = new Entry(parts[0], LocalDate.parse(parts[1]), Long.parseLong(parts[2]), parts[3]);
+                entries.put(entry.key(), entry);
+            } catch (RuntimeException e) {
+                logger.warn("Linha inválida no manifesto de logs: {}", line);
+            }
+        }
+    }
+
+    /**
+     * Monta o manifesto a partir dos arquivos existentes no diretório, quando ele ainda não existe.
+     */
+    private void bootstrap() throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (isArchive(name) && Files.isRegularFile(file)) {
+                    Entry entry = toEntry(name, file);
+                    entries.put(entry.key(), entry);
+                }
+            }
+        }
+        rewrite();
+        logger.info("Manifesto de logs criado com {} arquivos em {}", entries.size(), directory);
+    }
+
+    private void append(Entry entry) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(format(entry));
+            writer.newLine();
+        }
+    }
+
+    private void rewrite() throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        Path temp = directory.resolve(MANIFEST_FILE_NAME + LogCompressor.TEMP_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries.values()) {
+                writer.write(format(entry));
+                writer.newLine();
+            }
+        }
+        LogCompressor.moveAtomically(temp, manifestFile);
+    }
+
+    private static String format(Entry entry) {
+        return entry.fileName + SEPARATOR + entry.date + SEPARATOR + entry.size + SEPARATOR + entry.codec;
+    }
+
+    private static Entry toEntry(String name, Path file) throws IOException {
+        boolean exists = Files.exists(file);
+        return new Entry(name, dateOf(name, file, exists), exists ? Files.size(file) : -1, codecOf(name));
+    }
+
+    /**
+     * @return true se o nome corresponde a um arquivo de log compactado reconhecido
+     */
+    static boolean isArchive(String fileName) {
+        return !fileName.endsWith(LogCompressor.TEMP_SUFFIX)
+                && TipoCompressao.fromArquivo(fileName) != null
+                && DATE_PATTERN.matcher(fileName).find();
+    }
+
+    private static String codecOf(String fileName) {
+        TipoCompressao tipo = TipoCompressao.fromArquivo(fileName);
+        return tipo != null ? tipo.name() : "-";
+    }
+
+    private static LocalDate dateOf(String fileName, Path file, boolean exists) throws IOException {
+        Matcher matcher = DATE_PATTERN.matcher(fileName);
+        if (matcher.find()) {
+            try {
+                return LocalDate.parse(matcher.group(1));
+            } catch (RuntimeException ignored) {
+            }
+        }
+        Instant modified = exists ? Files.getLastModifiedTime(file).toInstant() : Instant.now();
+        return modified.atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,272 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.appender.NotifyingRollingPolicy;
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import ch.qos.logback.core.Context;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.spi.LifeCycle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline de compressão acionado na rolagem dos arquivos de log.
+ * <p>
+ * Cada segmento é enviado para compressão em segundo plano assim que é fechado, em vez de
+ * esperar pela manutenção diária. O codec, o nível e a concorrência são configuráveis, e o
+ * pipeline expõe métricas de fila para acompanhar se a compressão acompanha a taxa de escrita.
+ * <p>
+ * Há uma instância por contexto do Logback, registrada em {@link #CONTEXT_KEY} e encerrada
+ * junto com o contexto.
+ */
+public class ArchivePipeline extends ContextAwareBase implements LifeCycle, NotifyingRollingPolicy.RolloverListener {
+
+    public static final String CONTEXT_KEY = "VRLOG_ARCHIVE_PIPELINE";
+
+    private TipoCompressao codec = TipoCompressao.GZIP;
+    private int level = 6;
+    private int threads = 1;
+    private int blockSize = BlockArchiveWriter.DEFAULT_BLOCK_SIZE;
+    private String logPattern = LogLineParser.DEFAULT_PATTERN;
+
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicLong backlogBytes = new AtomicLong();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+
+    private ThreadPoolExecutor executor;
+    private volatile boolean started;
+
+    /**
+     * Obtém o pipeline registrado no contexto.
+     *
+     * @return O pipeline ou null se a compressão na rolagem não estiver habilitada
+     */
+    public static ArchivePipeline get(Context context) {
+        return (ArchivePipeline) context.getObject(CONTEXT_KEY);
+    }
+
+    @Override
+    public void start() {
+        if (started) return;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "log-archive-thread-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        started = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!started) return;
+        started = false;
+        executor.shutdown();
+        try {
+            // Segmentos não comprimidos são retomados por scanPending() na próxima inicialização
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public void onRollover(String rolledFileName) {
+        submit(Paths.get(rolledFileName));
+    }
+
+    /**
+     * Enfileira segmentos já rolados que ficaram sem compressão, por exemplo após uma parada abrupta.
+     *
+     * @param activeFile Arquivo de log ativo cujos segmentos devem ser verificados
+     */
+    public void scanPending(File activeFile) {
+        Path directory = activeFile.getAbsoluteFile().toPath().getParent();
+        String prefix = activeFile.getName() + ".";
+        if (directory == null || !Files.isDirectory(directory)) return;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (TipoCompressao.fromArquivo(name) == null && !name.endsWith(LogCompressor.TEMP_SUFFIX)
+                        && !name.endsWith(BlockArchiveWriter.INDEX_SUFFIX)) {
+                    submit(file);
+                }
+            }
+        } catch (IOException e) {
+            addError("Falha ao procurar segmentos pendentes em [" + directory + "]", e);
+        }
+    }
+
+    /**
+     * Enfileira um segmento para compressão.
+     */
+    public void submit(Path segment) {
+        if (!started || !queued.add(segment)) return;
+
+        long size = sizeOf(segment);
+        backlogBytes.addAndGet(size);
+        long enqueuedAt = System.currentTimeMillis();
+        try {
+            executor.execute(() -> compress(segment, size, enqueuedAt));
+        } catch (RuntimeException e) {
+            queued.remove(segment);
+            backlogBytes.addAndGet(-size);
+        }
+    }
+
+    private void compress(Path segment, long size, long enqueuedAt) {
+        try {
+            long start = System.nanoTime();
+            Path target = LogCompressor.compressSegment(segment, null, codec, level, blockSize, logPattern);
+            if (target == null) return;
+            compressionNanos.add(System.nanoTime() - start);
+
+            bytesIn.add(size);
+            bytesOut.add(sizeOf(target));
+            completedCount.increment();
+
+            long lag = System.currentTimeMillis() - enqueuedAt;
+            lastLagMillis = lag;
+            if (lag > maxLagMillis) maxLagMillis = lag;
+        } catch (Exception e) {
+            failedCount.increment();
+            addError("Falha ao comprimir o segmento [" + segment + "]", e);
+        } finally {
+            queued.remove(segment);
+            backlogBytes.addAndGet(-size);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Métricas
+
+    /**
+     * @return Segmentos aguardando ou em compressão
+     */
+    public int getBacklog() {
+        return queued.size();
+    }
+
+    /**
+     * @return Bytes aguardando ou em compressão
+     */
+    public long getBacklogBytes() {
+        return backlogBytes.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return Tempo total gasto comprimindo, em milissegundos
+     */
+    public long getCompressionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compressionNanos.sum());
+    }
+
+    /**
+     * @return Tempo entre a rolagem e o fim da compressão do último segmento, em milissegundos
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    // Configuração
+
+    public TipoCompressao getCodec() {
+        return codec;
+    }
+
+    public void setCodec(TipoCompressao codec) {
+        this.codec = codec;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @param blockSize Tamanho dos blocos quando o codec é {@link TipoCompressao#BLOCOS}
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public String getLogPattern() {
+        return logPattern;
+    }
+
+    /**
+     * @param logPattern Padrão do log, usado para indexar as datas quando o codec é {@link TipoCompressao#BLOCOS}
+     */
+    public void setLogPattern(String logPattern) {
+        this.logPattern = logPattern;
+    }
+}
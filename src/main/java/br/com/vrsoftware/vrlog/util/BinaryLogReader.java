@@ -0,0 +1,369 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.encoder.BinaryLogEncoder;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Leitor do formato binário gravado por {@link BinaryLogEncoder} ({@code log.format=binary}).
+ * <p>
+ * Percorre os eventos com {@link #next()} e os reconstrói em texto com o padrão do log
+ * ({@link #render(PatternLayout)}). O padrão gravado no cabeçalho do arquivo é usado quando
+ * nenhum outro é informado. A exceção é escrita ao final do evento, como faz o padrão sem {@code %ex}.
+ * <p>
+ * Uso pela linha de comando:
+ * <pre>
+ * java -cp VRLog.jar br.com.vrsoftware.vrlog.util.BinaryLogReader [--config logging.properties]
+ *      [--pattern "%d %level %msg%n"] logs/application.log
+ * </pre>
+ */
+public class BinaryLogReader implements Closeable {
+
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    private final InputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private final LoggerContext layoutContext = new LoggerContext();
+    private long lastTimestamp;
+    private String pattern;
+
+    private long timestamp;
+    private Level level;
+    private String threadName;
+    private String loggerName;
+    private String template;
+    private Object[] arguments;
+    private Map<String, String> mdc;
+    private String throwable;
+
+    public BinaryLogReader(InputStream in) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * Verifica, sem consumir, se o fluxo começa com o cabeçalho do formato binário.
+     *
+     * @param in Fluxo com suporte a {@link InputStream#mark(int)}
+     */
+    public static boolean isBinary(InputStream in) throws IOException {
+        byte[] magic = BinaryLogEncoder.MAGIC;
+        in.mark(magic.length + 1);
+        try {
+            if (in.read() != BinaryLogEncoder.RECORD_HEADER) return false;
+            for (byte b : magic) {
+                if (in.read() != b) return false;
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Avança para o próximo evento.
+     *
+     * @return false ao fim do fluxo
+     * @throws IOException Se o fluxo estiver corrompido ou truncado no meio de um evento
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int record = in.read();
+            if (record < 0) return false;
+
+            switch (record) {
+                case BinaryLogEncoder.RECORD_HEADER:
+                    if (!readHeader()) return false;
+                    break;
+                case BinaryLogEncoder.RECORD_STRING:
+                    int id = (int) readVarint();
+                    String value = readString();
+                    while (dictionary.size() < id) dictionary.add(null);
+                    dictionary.set(id - 1, value);
+                    break;
+                case BinaryLogEncoder.RECORD_EVENT:
+                    readEvent();
+                    return true;
+                default:
+                    throw new IOException("Registro inválido no log binário: " + record);
+            }
+        }
+    }
+
+    /**
+     * @return false se o que segue são zeros do fim da janela mapeada (log.file.mode=mmap), e não um cabeçalho
+     */
+    private boolean readHeader() throws IOException {
+        byte[] magic = new byte[BinaryLogEncoder.MAGIC.length];
+        int first = in.read();
+        if (first <= 0) return false;
+        magic[0] = (byte) first;
+        readFully(magic, 1);
+        if (!Arrays.equals(magic, BinaryLogEncoder.MAGIC)) throw new IOException("Cabeçalho de log binário inválido");
+        int version = (int) readVarint();
+        if (version > BinaryLogEncoder.VERSION) throw new IOException("Versão de log binário não suportada: " + version);
+
+        String headerPattern = readString();
+        if (!headerPattern.isEmpty()) pattern = headerPattern;
+        // Cada cabeçalho inicia um novo dicionário (novo arquivo ou reabertura)
+        dictionary.clear();
+        lastTimestamp = 0;
+        return true;
+    }
+
+    private void readEvent() throws IOException {
+        timestamp = lastTimestamp + readZigzag();
+        lastTimestamp = timestamp;
+        int levelIndex = in.read();
+        if (levelIndex < 0) throw new EOFException();
+        level = LEVELS[Math.min(levelIndex, LEVELS.length - 1)];
+        threadName = readReference();
+        loggerName = readReference();
+        template = readReference();
+
+        int argCount = (int) readVarint();
+        arguments = argCount == 0 ? null : new Object[argCount];
+        for (int i = 0; i < argCount; i++) arguments[i] = readArgument();
+
+        int mdcCount = (int) readVarint();
+        if (mdcCount == 0) {
+            mdc = Collections.emptyMap();
+        } else {
+            mdc = new LinkedHashMap<>();
+            for (int i = 0; i < mdcCount; i++) mdc.put(readReference(), readString());
+        }
+
+        int hasThrowable = in.read();
+        if (hasThrowable < 0) throw new EOFException();
+        throwable = hasThrowable == 1 ? readString() : null;
+    }
+
+    private String readReference() throws IOException {
+        int id = (int) readVarint();
+        if (id == BinaryLogEncoder.INLINE) return readString();
+        if (id > dictionary.size() || dictionary.get(id - 1) == null) {
+            throw new IOException("Referência ao dicionário não definida: " + id);
+        }
+        return dictionary.get(id - 1);
+    }
+
+    private Object readArgument() throws IOException {
+        int type = in.read();
+        switch (type) {
+            case BinaryLogEncoder.ARG_NULL:
+                return null;
+            case BinaryLogEncoder.ARG_STRING:
+                return readString();
+            case BinaryLogEncoder.ARG_LONG:
+                return readZigzag();
+            case BinaryLogEncoder.ARG_DOUBLE:
+                return Double.longBitsToDouble(readFixed(8));
+            case BinaryLogEncoder.ARG_FLOAT:
+                return Float.intBitsToFloat((int) readFixed(4));
+            case BinaryLogEncoder.ARG_TRUE:
+                return Boolean.TRUE;
+            case BinaryLogEncoder.ARG_FALSE:
+                return Boolean.FALSE;
+            case -1:
+                throw new EOFException();
+            default:
+                throw new IOException("Tipo de argumento inválido no log binário: " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarint();
+        byte[] bytes = new byte[length];
+        readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        readFully(bytes, 0);
+    }
+
+    private void readFully(byte[] bytes, int offset) throws IOException {
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) throw new EOFException();
+            offset += read;
+        }
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Número inválido no log binário");
+    }
+
+    private long readZigzag() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readFixed(int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Cria um layout para {@link #render(PatternLayout)}.
+     *
+     * @param pattern Padrão de texto, ou null para usar o padrão gravado no arquivo
+     */
+    public PatternLayout createLayout(String pattern) {
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(layoutContext);
+        layout.setPattern(pattern != null ? pattern : this.pattern != null ? this.pattern : LogLineParser.DEFAULT_PATTERN);
+        layout.start();
+        return layout;
+    }
+
+    /**
+     * Reconstrói o texto do evento atual, seguido da exceção, se houver.
+     */
+    public String render(PatternLayout layout) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerContextRemoteView(layoutContext.getLoggerContextRemoteView());
+        event.setTimeStamp(timestamp);
+        event.setLevel(level);
+        event.setThreadName(threadName);
+        event.setLoggerName(loggerName);
+        event.setMessage(template);
+        event.setArgumentArray(arguments);
+        event.setMDCPropertyMap(mdc);
+
+        String text = layout.doLayout(event);
+        return throwable != null ? text + throwable : text;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    /**
+     * @return A mensagem com os argumentos aplicados ao modelo
+     */
+    public String getMessage() {
+        return arguments == null ? template : MessageFormatter.arrayFormat(template, arguments).getMessage();
+    }
+
+    public Map<String, String> getMdc() {
+        return mdc;
+    }
+
+    /**
+     * @return A exceção do evento em texto, ou null
+     */
+    public String getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * @return O padrão gravado no cabeçalho, ou null se o arquivo não informar
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Ponto de entrada da linha de comando: converte um ou mais arquivos binários (ou .gz) para texto.
+     * Opções: --config (usa o log.pattern das propriedades) e --pattern.
+     */
+    public static void main(String[] args) throws Exception {
+        String pattern = null;
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--pattern".equals(args[i]) && i + 1 < args.length) {
+                pattern = args[++i];
+            } else if ("--config".equals(args[i]) && i + 1 < args.length) {
+                Properties properties = new Properties();
+                try (InputStream in = Files.newInputStream(new File(args[++i]).toPath())) {
+                    properties.load(in);
+                }
+                pattern = properties.getProperty("log.pattern", LogLineParser.DEFAULT_PATTERN);
+            } else if (args[i].startsWith("--")) {
+                printUsage();
+                return;
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            printUsage();
+            return;
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        for (String file : files) {
+            InputStream in = Files.newInputStream(new File(file).toPath());
+            if (file.endsWith(".gz")) in = new GZIPInputStream(in, 64 * 1024);
+            try (BinaryLogReader reader = new BinaryLogReader(in)) {
+                PatternLayout layout = null;
+                while (reader.next()) {
+                    // O layout é criado no primeiro evento, depois de lido o padrão do cabeçalho
+                    if (layout == null) layout = reader.createLayout(pattern);
+                    out.write(reader.render(layout));
+                }
+            } catch (EOFException e) {
+                // Arquivo ativo com o último evento ainda sendo gravado
+                System.err.println("Fim inesperado de " + file);
+            }
+        }
+        out.flush();
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: BinaryLogReader [--config <arquivo>] [--pattern <padrão>] <arquivo> [<arquivo>...]");
+    }
+}
@@ -0,0 +1,252 @@
+package br.com.vrsoftware.vrlog.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lê arquivos de log no formato em blocos gravados por {@link BlockArchiveWriter}.
+ * <p>
+ * O índice é carregado na abertura e cada leitura descomprime somente os blocos cujo intervalo
+ * de tempo cruza o período pedido. Os fluxos retornados contêm eventos completos, mas podem
+ * incluir eventos um pouco fora do período: o filtro exato fica a cargo de quem lê.
+ * <p>
+ * Pode ser usado por várias threads; cada fluxo retornado deve ser usado por uma thread só.
+ */
+public class BlockArchiveReader implements Closeable {
+
+    private final Path archive;
+    private final FileChannel channel;
+    private final List<Block> blocks;
+
+    /**
+     * Bloco registrado no índice.
+     */
+    public static final class Block {
+        private final String entry;
+        private final long offset;
+        private final int compressedLength;
+        private final int length;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+
+        Block(String entry, long offset, int compressedLength, int length, long firstTimestamp, long lastTimestamp) {
+            this.entry = entry;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public String getEntry() {
+            return entry;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getCompressedLength() {
+            return compressedLength;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return Data do primeiro evento do bloco, ou -1 se desconhecida
+         */
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        /**
+         * @return Data do último evento do bloco, ou -1 se desconhecida
+         */
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        /**
+         * @return true se o bloco pode conter eventos do período (blocos sem data sempre são incluídos)
+         */
+        public boolean overlaps(long from, long to) {
+            if (firstTimestamp < 0 || lastTimestamp < 0) return true;
+            return firstTimestamp <= to && lastTimestamp >= from;
+        }
+    }
+
+    /**
+     * Abre o arquivo e carrega seu índice.
+     *
+     * @param archive Arquivo {@code .vrlb}
+     * @throws IOException Se o arquivo ou o índice não puderem ser lidos
+     */
+    public BlockArchiveReader(Path archive) throws IOException {
+        this.archive = archive;
+        this.blocks = Collections.unmodifiableList(loadIndex(BlockArchiveWriter.indexOf(archive)));
+        this.channel = FileChannel.open(archive, StandardOpenOption.READ);
+    }
+
+    private static List<Block> loadIndex(Path indexFile) throws IOException {
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !BlockArchiveWriter.INDEX_HEADER.equals(lines.get(0))) {
+            throw new IOException("Índice de blocos inválido: " + indexFile);
+        }
+
+        List<Block> result = new ArrayList<>(lines.size() - 1);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] parts = lines.get(i).split(BlockArchiveWriter.SEPARATOR, -1);
+            if (parts.length < 6) throw new IOException("Linha inválida no índice " + indexFile + ": " + lines.get(i));
+            result.add(new Block(parts[0], Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5])));
+        }
+        return result;
+    }
+
+    /**
+     * @return Blocos do arquivo, na ordem em que foram gravados
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return Nomes das entradas (segmentos de origem), na ordem em que foram gravadas
+     */
+    public List<String> getEntryNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (Block block : blocks) names.add(block.entry);
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Abre os blocos que podem conter eventos do período.
+     *
+     * @param entry Nome da entrada, ou null para todas
+     * @param from  Início do período em milissegundos
+     * @param to    Fim do período em milissegundos
+     * @return Conteúdo descomprimido dos blocos selecionados
+     */
+    public InputStream open(String entry, long from, long to) {
+        List<Block> selected = new ArrayList<>();
+        for (Block block : blocks) {
+            if ((entry == null || entry.equals(block.entry)) && block.overlaps(from, to)) selected.add(block);
+        }
+        return new BlocksInputStream(selected.iterator());
+    }
+
+    /**
+     * Abre o arquivo a partir do primeiro bloco que pode conter eventos a partir do horário informado.
+     *
+     * @param timestamp Horário em milissegundos
+     * @return Conteúdo descomprimido a partir do bloco encontrado
+     */
+    public InputStream openFrom(long timestamp) {
+        return open(null, timestamp, Long.MAX_VALUE);
+    }
+
+    /**
+     * Retorna as últimas linhas do arquivo, descomprimindo os blocos do final para o início
+     * somente até reunir a quantidade pedida.
+     *
+     * @param lines Quantidade de linhas
+     * @return Linhas, da mais antiga para a mais recente
+     * @throws IOException Se um bloco não puder ser lido
+     */
+    public List<String> tail(int lines) throws IOException {
+        LinkedList<String> result = new LinkedList<>();
+        for (int i = blocks.size() - 1; i >= 0 && result.size() < lines; i--) {
+            String[] blockLines = new String(readBlock(blocks.get(i)), StandardCharsets.UTF_8).split("\r?\n");
+            for (int j = blockLines.length - 1; j >= 0 && result.size() < lines; j--) {
+                result.addFirst(blockLines[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lê e descomprime um bloco.
+     */
+    public byte[] readBlock(Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        long position = block.offset;
+        while (compressed.hasRemaining()) {
+            int n = channel.read(compressed, position);
+            if (n < 0) throw new IOException("Fim inesperado do arquivo " + archive + " no bloco " + block.offset);
+            position += n;
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            byte[] data = new byte[block.length];
+            int total = 0;
+            while (total < data.length && !inflater.finished()) {
+                int n = inflater.inflate(data, total, data.length - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                total += n;
+            }
+            if (total != data.length) throw new IOException("Bloco corrompido em " + archive + " na posição " + block.offset);
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco corrompido em " + archive + " na posição " + block.offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Fluxo que descomprime os blocos sob demanda, um de cada vez.
+     */
+    private final class BlocksInputStream extends InputStream {
+        private final Iterator<Block> iterator;
+        private ByteArrayInputStream current;
+
+        BlocksInputStream(Iterator<Block> iterator) {
+            this.iterator = iterator;
+        }
+
+        private boolean advance() throws IOException {
+            while (current == null || current.available() == 0) {
+                if (!iterator.hasNext()) return false;
+                current = new ByteArrayInputStream(readBlock(iterator.next()));
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return advance() ? current.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            return advance() ? current.read(b, off, len) : -1;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Grava arquivos de log no formato em blocos ({@code .vrlb}).
+ * <p>
+ * O conteúdo é dividido em blocos comprimidos de forma independente (zlib), sempre cortados no
+ * início de um evento, de modo que um evento nunca fica dividido entre dois blocos. Para cada
+ * bloco é gravada uma linha no índice ({@code .vrlb.idx}) com a entrada de origem, a posição no
+ * arquivo, os tamanhos e o intervalo de tempo dos eventos. Assim, leituras por período, a partir
+ * de um horário ou do final do arquivo descomprimem apenas os blocos envolvidos
+ * (ver {@link BlockArchiveReader}).
+ * <p>
+ * O arquivo e o índice são montados em arquivos temporários e publicados em {@link #close()}:
+ * primeiro o índice, depois o arquivo, de modo que um {@code .vrlb} visível sempre tem índice completo.
+ */
+public class BlockArchiveWriter implements Closeable {
+
+    public static final String INDEX_SUFFIX = ".idx";
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    static final String INDEX_HEADER = "#VRLB 1";
+    static final String SEPARATOR = ";";
+
+    private final Path target;
+    private final Path tempFile;
+    private final Path tempIndex;
+    private final OutputStream out;
+    private final BufferedWriter index;
+    private final Deflater deflater;
+    private final LogLineParser parser;
+    private final int blockSize;
+
+    private final byte[] compressBuffer = new byte[64 * 1024];
+    private byte[] block;
+    private int blockLength;
+    private long offset;
+    private String entryName = "";
+    private long firstTimestamp = -1;
+    private long lastTimestamp = -1;
+    private boolean closed;
+
+    /**
+     * @param target     Arquivo de destino ({@code .vrlb})
+     * @param blockSize  Tamanho aproximado, antes da compressão, de cada bloco
+     * @param level      Nível de compressão (0-9)
+     * @param logPattern Padrão do log (log.pattern), usado para identificar o início e a data dos eventos
+     * @throws IOException Se os arquivos temporários não puderem ser criados
+     */
+    public BlockArchiveWriter(Path target, int blockSize, int level, String logPattern) throws IOException {
+        this.target = target;
+        this.tempFile = target.resolveSibling(target.getFileName() + LogCompressor.TEMP_SUFFIX);
+        this.tempIndex = target.resolveSibling(target.getFileName() + INDEX_SUFFIX + LogCompressor.TEMP_SUFFIX);
+        this.blockSize = Math.max(4 * 1024, blockSize);
+        this.block = new byte[this.blockSize + 8 * 1024];
+        this.parser = new LogLineParser(logPattern != null ? logPattern : LogLineParser.DEFAULT_PATTERN);
+        this.deflater = new Deflater(Math.max(0, Math.min(9, level)));
+
+        this.out = Files.newOutputStream(tempFile);
+        this.index = Files.newBufferedWriter(tempIndex, StandardCharsets.UTF_8);
+        index.write(INDEX_HEADER);
+        index.newLine();
+    }
+
+    /**
+     * Inicia uma nova entrada (por exemplo, um segmento de log). Blocos nunca misturam entradas.
+     */
+    public void putEntry(String name) throws IOException {
+        flushBlock();
+        this.entryName = name.replace(SEPARATOR, "_");
+        this.lastTimestamp = -1;
+    }
+
+    /**
+     * Grava todo o conteúdo do fluxo na entrada atual.
+     */
+    public void write(InputStream in) throws IOException {
+        InputStream input = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024);
+        byte[] line = new byte[1024];
+        int length = 0;
+        int b;
+        while ((b = input.read()) >= 0) {
+            if (length == line.length) line = Arrays.copyOf(line, length * 2);
+            line[length++] = (byte) b;
+            if (b == '\n') {
+                writeLine(line, length);
+                length = 0;
+            }
+        }
+        if (length > 0) writeLine(line, length);
+    }
+
+    /**
+     * Grava uma linha, incluindo o terminador, na entrada atual.
+     */
+    public void writeLine(byte[] line, int length) throws IOException {
+        int textLength = length;
+        while (textLength > 0 && (line[textLength - 1] == '\n' || line[textLength - 1] == '\r')) textLength--;
+
+        long timestamp = -1;
+        boolean eventStart = parser.parse(new String(line, 0, textLength, StandardCharsets.UTF_8));
+        if (eventStart) timestamp = parser.getTimestamp();
+
+        // Corta o bloco no início de um evento; eventos muito grandes são cortados em qualquer linha
+        if ((eventStart && blockLength >= blockSize) || blockLength >= 4 * blockSize) flushBlock();
+
+        if (blockLength + length > block.length) block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + length));
+        System.arraycopy(line, 0, block, blockLength, length);
+        blockLength += length;
+
+        if (timestamp >= 0) {
+            if (firstTimestamp < 0) firstTimestamp = timestamp;
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+        } else if (firstTimestamp < 0 && lastTimestamp >= 0) {
+            // Bloco iniciado por continuação do evento do bloco anterior
+            firstTimestamp = lastTimestamp;
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockLength == 0) return;
+
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        long compressedLength = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(compressBuffer);
+            out.write(compressBuffer, 0, n);
+            compressedLength += n;
+        }
+
+        index.write(entryName + SEPARATOR + offset + SEPARATOR + compressedLength + SEPARATOR + blockLength
+                + SEPARATOR + firstTimestamp + SEPARATOR + lastTimestamp);
+        index.newLine();
+
+        offset += compressedLength;
+        blockLength = 0;
+        firstTimestamp = -1;
+        if (block.length > 2 * (blockSize + 8 * 1024)) block = new byte[blockSize + 8 * 1024];
+    }
+
+    /**
+     * Grava o último bloco e publica o arquivo e o índice.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBlock();
+            index.close();
+            out.close();
+            LogCompressor.moveAtomically(tempIndex, indexOf(target));
+            LogCompressor.moveAtomically(tempFile, target);
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Descarta o arquivo em construção.
+     */
+    public void abort() {
+        closed = true;
+        try {
+            index.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        deflater.end();
+        try {
+            Files.deleteIfExists(tempIndex);
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return Caminho do índice correspondente ao arquivo em blocos
+     */
+    public static Path indexOf(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * @return Caminho do arquivo em blocos correspondente a um arquivo de origem
+     */
+    public static Path targetOf(Path source) {
+        return source.resolveSibling(source.getFileName() + "." + TipoCompressao.BLOCOS.getExtensao());
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.appender.ShippingAppender;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Envio dos lotes de log por HTTP POST ({@code log.ship.url}).
+ * <p>
+ * O corpo é o lote em JSON, um objeto por linha, comprimido com GZIP. Respostas 2xx confirmam o
+ * lote; 408, 429 e 5xx são falhas temporárias, repetidas pelo {@link ShippingAppender}; as demais
+ * indicam que o destino não aceitará o lote, que é descartado.
+ */
+public class HttpLogTransport implements ShippingAppender.Transport {
+
+    public static final int DEFAULT_TIMEOUT = 10000;
+
+    private final URL url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @param url Endereço que recebe os lotes
+     */
+    public HttpLogTransport(URL url) {
+        this.url = url;
+    }
+
+    @Override
+    public boolean send(byte[] batch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(batch.length);
+        connection.setRequestProperty("Content-Type", "application/x-ndjson");
+        connection.setRequestProperty("Content-Encoding", "gzip");
+        headers.forEach(connection::setRequestProperty);
+
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(batch);
+        }
+
+        int status = connection.getResponseCode();
+        discardBody(connection, status);
+        if (status >= 200 && status < 300) return true;
+        if (status == 408 || status == 429 || status >= 500) {
+            throw new IOException("Destino dos logs respondeu " + status + " " + connection.getResponseMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Lê o corpo da resposta até o fim, permitindo reaproveitar a conexão no próximo envio.
+     */
+    private static void discardBody(HttpURLConnection connection, int status) {
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in == null) return;
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) >= 0) {
+                // Descarta
+            }
+        } catch (IOException e) {
+            // Resposta sem corpo
+        }
+    }
+
+    /**
+     * Acrescenta um cabeçalho a todas as requisições (autenticação, por exemplo).
+     */
+    public void addHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    /**
+     * @param timeout Tempo máximo, em ms, para conectar e para aguardar a resposta
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,363 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import br.com.vrsoftware.vrlog.metrics.LogMetrics;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.spi.LifeCycle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manutenção incremental dos logs ({@code log.maintenance.mode=incremental}).
+ * <p>
+ * Em vez de comprimir e remover tudo de uma vez à meia-noite, comprime um arquivo por vez, ao longo
+ * do dia, assim que ele fica sem alterações pelo período de espera. A leitura passa por um
+ * {@link IoRateLimiter} e é suspensa enquanto a aplicação escreve log acima do limite configurado,
+ * mantendo a E/S da manutenção baixa e constante. A retenção é aplicada uma vez por dia.
+ * <p>
+ * O andamento fica em {@link #CHECKPOINT_FILE_NAME} no diretório de logs: após um reinício, o
+ * arquivo que estava sendo comprimido é retomado primeiro (descartando a saída parcial) e a
+ * retenção não é repetida no mesmo dia.
+ */
+public class IncrementalMaintenance extends ContextAwareBase implements LifeCycle {
+
+    public static final String CHECKPOINT_FILE_NAME = ".vrlog-maintenance";
+
+    public static final long DEFAULT_RATE = 2 * 1024 * 1024;
+    public static final long DEFAULT_YIELD_ABOVE = 1024 * 1024;
+    public static final long DEFAULT_INTERVAL = 60000;
+    public static final long DEFAULT_QUIET_PERIOD = 60000;
+
+    private static final String KEY_CURRENT = "current";
+    private static final String KEY_RETENTION = "retention";
+
+    private final Path directory;
+    private final ScheduledExecutorService scheduler;
+    private final Properties checkpoint = new Properties();
+    // Arquivos que falharam nesta execução, para não serem tentados em sequência
+    private final Set<Path> failed = new HashSet<>();
+
+    private long rate = DEFAULT_RATE;
+    private long yieldAbove = DEFAULT_YIELD_ABOVE;
+    private long maxPause = IoRateLimiter.DEFAULT_MAX_PAUSE;
+    private long interval = DEFAULT_INTERVAL;
+    private long quietPeriod = DEFAULT_QUIET_PERIOD;
+    private boolean compress = true;
+    private TipoCompressao codec = TipoCompressao.ZIP;
+    private int level = 6;
+    private int blockSize = BlockArchiveWriter.DEFAULT_BLOCK_SIZE;
+    private String logPattern = LogLineParser.DEFAULT_PATTERN;
+    private int maxHistory = 15;
+    private long totalSizeCap;
+    private LogMetrics metrics;
+    private Path activeFile;
+
+    private IoRateLimiter limiter;
+    private volatile ScheduledFuture<?> nextStep;
+    private volatile boolean started;
+
+    // Amostragem da taxa de escrita do log, feita apenas pela thread da manutenção
+    private long lastBytesWritten;
+    private long lastSampleNanos;
+    private boolean busy;
+    // Tamanho do arquivo ativo na última amostra e bytes dos arquivos já rolados desde o início
+    private long lastFileSize;
+    private long rolledBytes;
+
+    /**
+     * @param directory Diretório de logs
+     * @param scheduler Thread onde os passos da manutenção são executados; como um passo pode levar
+     *                  muito tempo, deve ser dedicada à manutenção e não às tarefas agendadas comuns
+     */
+    public IncrementalMaintenance(Path directory, ScheduledExecutorService scheduler) {
+        this.directory = directory;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void start() {
+        if (started) return;
+        boolean measured = metrics != null || activeFile != null;
+        limiter = new IoRateLimiter(rate, yieldAbove > 0 && measured ? this::isLoggingBusy : null, maxPause);
+        loadCheckpoint();
+        started = true;
+        schedule(0);
+    }
+
+    @Override
+    public void stop() {
+        if (!started) return;
+        started = false;
+        ScheduledFuture<?> step = nextStep;
+        // Interrompe a leitura em andamento; o arquivo é retomado na próxima inicialização
+        if (step != null) step.cancel(true);
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    private void schedule(long delay) {
+        if (!started) return;
+        try {
+            nextStep = scheduler.schedule(this::step, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            started = false;
+        }
+    }
+
+    /**
+     * Executa um passo: a retenção, se ainda não foi aplicada hoje, e a compressão de um arquivo.
+     */
+    private void step() {
+        boolean pending = false;
+        try {
+            String today = LocalDate.now().toString();
+            if (!today.equals(checkpoint.getProperty(KEY_RETENTION))) {
+                applyRetention();
+                checkpoint.setProperty(KEY_RETENTION, today);
+                saveCheckpoint();
+            }
+
+            if (compress) {
+                Path file = nextPending();
+                if (file != null) {
+                    compress(file);
+                    pending = true;
+                }
+            }
+        } catch (InterruptedIOException e) {
+            return;
+        } catch (Exception e) {
+            addError("Falha na manutenção incremental dos logs em [" + directory + "]", e);
+        }
+        // Com arquivos pendentes o próximo passo começa em seguida; a taxa é controlada pelo limitador
+        schedule(pending ? 0 : interval);
+    }
+
+    private void applyRetention() throws IOException {
+        long start = System.currentTimeMillis();
+        LogCompressor.cleanupOldLogs(directory, maxHistory, totalSizeCap);
+        if (metrics != null) metrics.recordRetention(System.currentTimeMillis() - start);
+    }
+
+    private void compress(Path file) throws IOException {
+        checkpoint.setProperty(KEY_CURRENT, file.getFileName().toString());
+        saveCheckpoint();
+
+        long start = System.currentTimeMillis();
+        Path target;
+        try {
+            target = LogCompressor.compressSegment(file, limiter, codec, level, blockSize, logPattern);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            failed.add(file);
+            throw e;
+        }
+        if (target == null) {
+            // Já está sendo comprimido por outra rotina (pipeline da rolagem, alívio de espaço), que o conclui
+            failed.add(file);
+        } else if (metrics != null) {
+            metrics.recordCompression(System.currentTimeMillis() - start);
+        }
+
+        checkpoint.remove(KEY_CURRENT);
+        saveCheckpoint();
+    }
+
+    /**
+     * Escolhe o próximo arquivo a comprimir: o interrompido na execução anterior ou o mais antigo
+     * dos arquivos rolados (com data no nome) sem alterações há pelo menos o período de espera.
+     *
+     * @return O arquivo ou null se não há nada pendente
+     */
+    private Path nextPending() throws IOException {
+        if (!Files.isDirectory(directory)) return null;
+
+        String current = checkpoint.getProperty(KEY_CURRENT);
+        if (current != null) {
+            Path file = directory.resolve(current);
+            if (Files.isRegularFile(file) && !failed.contains(file)) return file;
+            checkpoint.remove(KEY_CURRENT);
+        }
+
+        for (Path file : LogCompressor.findPendingSegments(directory, System.currentTimeMillis() - quietPeriod)) {
+            if (!failed.contains(file)) return file;
+        }
+        return null;
+    }
+
+    /**
+     * Indica se a aplicação está escrevendo log acima de {@code yieldAbove} bytes por segundo,
+     * medido a cada segundo (ver {@link #bytesWritten()}).
+     */
+    private boolean isLoggingBusy() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed < TimeUnit.SECONDS.toNanos(1)) return busy;
+
+        long written = bytesWritten();
+        if (lastSampleNanos != 0) {
+            busy = (written - lastBytesWritten) * TimeUnit.SECONDS.toNanos(1) / elapsed > yieldAbove;
+        }
+        lastBytesWritten = written;
+        lastSampleNanos = now;
+        return busy;
+    }
+
+    /**
+     * @return Bytes de log escritos até agora, pelas métricas do contexto ou, sem elas, pelo
+     * crescimento do arquivo ativo. Na rolagem o arquivo recomeça, e o tamanho anterior é acumulado.
+     */
+    private long bytesWritten() {
+        if (metrics != null) return metrics.getBytesWritten();
+
+        long size = activeFile.toFile().length();
+        if (size < lastFileSize) rolledBytes += lastFileSize;
+        lastFileSize = size;
+        return rolledBytes + size;
+    }
+
+    private void loadCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE_NAME);
+        if (!Files.exists(file)) return;
+        try (InputStream in = Files.newInputStream(file)) {
+            checkpoint.load(in);
+        } catch (IOException e) {
+            addWarn("Não foi possível ler o andamento da manutenção em [" + file + "]", e);
+        }
+
+        // Descarta a saída parcial do arquivo interrompido, que é comprimido novamente
+        String current = checkpoint.getProperty(KEY_CURRENT);
+        if (current == null) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, current + ".*" + LogCompressor.TEMP_SUFFIX)) {
+            for (Path temp : stream) Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            addWarn("Não foi possível remover os temporários de [" + current + "]", e);
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        Path file = directory.resolve(CHECKPOINT_FILE_NAME);
+        Path temp = directory.resolve(CHECKPOINT_FILE_NAME + LogCompressor.TEMP_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            checkpoint.store(out, null);
+        }
+        LogCompressor.moveAtomically(temp, file);
+    }
+
+    // Métricas
+
+    /**
+     * @return Tempo total em que a manutenção ficou suspensa pelo volume de escrita do log, em milissegundos
+     */
+    public long getPausedMillis() {
+        IoRateLimiter current = limiter;
+        return current != null ? current.getPausedMillis() : 0;
+    }
+
+    // Configuração
+
+    /**
+     * @param rate Taxa máxima de leitura dos arquivos comprimidos, em bytes por segundo (0 para não limitar)
+     */
+    public void setRate(long rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @param yieldAbove Taxa de escrita do log, em bytes por segundo, acima da qual a compressão é
+     *                   suspensa (0 para nunca suspender). Medida pelas métricas do contexto ou pelo
+     *                   arquivo ativo ({@link #setActiveFile}).
+     */
+    public void setYieldAbove(long yieldAbove) {
+        this.yieldAbove = yieldAbove;
+    }
+
+    /**
+     * @param maxPause Tempo máximo, em milissegundos, de uma suspensão por {@code yieldAbove}; depois
+     *                 dele a compressão continua pelo mesmo período antes de poder ser suspensa de novo
+     */
+    public void setMaxPause(long maxPause) {
+        this.maxPause = maxPause;
+    }
+
+    /**
+     * @param interval Intervalo entre as verificações quando não há arquivos pendentes, em milissegundos
+     */
+    public void setInterval(long interval) {
+        this.interval = Math.max(1000, interval);
+    }
+
+    /**
+     * @param quietPeriod Tempo sem alterações antes de um arquivo ser comprimido, em milissegundos
+     */
+    public void setQuietPeriod(long quietPeriod) {
+        this.quietPeriod = Math.max(0, quietPeriod);
+    }
+
+    /**
+     * @param compress false para aplicar apenas a retenção (compressão feita na rolagem, por exemplo)
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setCodec(TipoCompressao codec) {
+        this.codec = codec;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public void setLogPattern(String logPattern) {
+        this.logPattern = logPattern;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * @param totalSizeCap Tamanho total máximo dos arquivos compactados em bytes (0 para não limitar)
+     */
+    public void setTotalSizeCap(long totalSizeCap) {
+        this.totalSizeCap = totalSizeCap;
+    }
+
+    /**
+     * @param metrics Métricas do contexto, usadas para medir a taxa de escrita e registrar os tempos, ou null
+     */
+    public void setMetrics(LogMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param activeFile Arquivo de log ativo, cujo crescimento mede a taxa de escrita quando não há métricas
+     */
+    public void setActiveFile(Path activeFile) {
+        this.activeFile = activeFile;
+    }
+}
@@ -0,0 +1,143 @@
+package br.com.vrsoftware.vrlog.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limita a taxa de E/S da manutenção dos logs, em bytes por segundo.
+ * <p>
+ * Cada leitura reserva o tempo correspondente aos bytes lidos e aguarda até que ele tenha passado,
+ * de modo que a leitura fica distribuída de forma uniforme em vez de em rajadas. Enquanto a condição
+ * de ocupação informada for verdadeira (por exemplo, a aplicação escrevendo muito log), as leituras
+ * ficam suspensas, por no máximo {@code maxPause} seguidos: depois disso a leitura continua, na
+ * taxa limitada, pelo mesmo período antes de poder ser suspensa de novo, de modo que a manutenção
+ * avança mesmo sob carga constante.
+ * <p>
+ * As esperas acontecem fora de qualquer trava. A condição de ocupação é consultada apenas pela
+ * thread que lê.
+ */
+public class IoRateLimiter {
+
+    public static final long DEFAULT_MAX_PAUSE = 300000;
+
+    // Intervalo entre as verificações da condição de ocupação enquanto suspenso
+    private static final long BUSY_PAUSE_MS = 500;
+
+    private final long bytesPerSecond;
+    private final BooleanSupplier busy;
+    private final long maxPauseNanos;
+    private final LongAdder pausedNanos = new LongAdder();
+    private long nextFreeNanos;
+    // Fim do período em que a condição de ocupação é ignorada, após uma suspensão que atingiu o máximo
+    private long ignoreBusyUntil = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond Taxa máxima, ou 0 para não limitar
+     * @param busy           Condição que suspende as leituras enquanto verdadeira, ou null
+     */
+    public IoRateLimiter(long bytesPerSecond, BooleanSupplier busy) {
+        this(bytesPerSecond, busy, DEFAULT_MAX_PAUSE);
+    }
+
+    /**
+     * @param bytesPerSecond Taxa máxima, ou 0 para não limitar
+     * @param busy           Condição que suspende as leituras enquanto verdadeira, ou null
+     * @param maxPause       Tempo máximo de uma suspensão, em milissegundos
+     */
+    public IoRateLimiter(long bytesPerSecond, BooleanSupplier busy, long maxPause) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.busy = busy;
+        this.maxPauseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(BUSY_PAUSE_MS, maxPause));
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Aguarda até que os bytes informados possam ser processados sem exceder a taxa.
+     *
+     * @param bytes Quantidade de bytes
+     * @throws InterruptedIOException Se a thread for interrompida durante a espera
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        if (busy != null && System.nanoTime() - ignoreBusyUntil >= 0) yieldWhileBusy();
+        if (bytesPerSecond == 0 || bytes <= 0) return;
+
+        long wait = reserve(bytes);
+        if (wait > 0) sleep(wait);
+    }
+
+    /**
+     * Aguarda enquanto a condição de ocupação for verdadeira, por no máximo {@code maxPause}.
+     */
+    private void yieldWhileBusy() throws InterruptedIOException {
+        long start = System.nanoTime();
+        long now = start;
+        while (busy.getAsBoolean()) {
+            if (now - start >= maxPauseNanos) {
+                ignoreBusyUntil = now + maxPauseNanos;
+                break;
+            }
+            sleep(TimeUnit.MILLISECONDS.toNanos(BUSY_PAUSE_MS));
+            now = System.nanoTime();
+        }
+        pausedNanos.add(now - start);
+    }
+
+    /**
+     * Reserva o tempo dos bytes informados.
+     *
+     * @return Tempo a aguardar, em nanossegundos
+     */
+    private synchronized long reserve(long bytes) {
+        long now = System.nanoTime();
+        // Tempo ocioso não vira crédito para uma rajada posterior
+        if (nextFreeNanos < now) nextFreeNanos = now;
+        nextFreeNanos += bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        return nextFreeNanos - now;
+    }
+
+    /**
+     * @return Fluxo que lê de {@code in} respeitando a taxa
+     */
+    public InputStream throttle(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) acquire(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) acquire(n);
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return Tempo total suspenso pela condição de ocupação, em milissegundos
+     */
+    public long getPausedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedNanos.sum());
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Manutenção interrompida");
+        }
+    }
+}
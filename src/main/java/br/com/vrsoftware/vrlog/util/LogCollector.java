@@ -0,0 +1,225 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.LogManager;
+import br.com.vrsoftware.vrlog.appender.CollectorAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.ContextAwareBase;
+import ch.qos.logback.core.spi.LifeCycle;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coletor local de logs ({@code log.collector.mode=server}).
+ * <p>
+ * Recebe, pela interface de loopback, os eventos enviados por processos no modo cliente
+ * ({@link CollectorAppender}) e os repassa aos appenders do próprio contexto, de modo que um único
+ * processo grava, rola, comprime e aplica a retenção dos arquivos de log. Cada conexão é lida por
+ * uma thread própria com o {@link BinaryLogReader}; o nível configurado no coletor é aplicado de novo
+ * a cada evento recebido.
+ * <p>
+ * A exceção de um evento chega em texto e é anexada à mensagem. Dados do chamador e marcadores não
+ * são transmitidos.
+ * <p>
+ * O coletor pode rodar dentro de uma das aplicações ou sozinho, pela linha de comando:
+ * <pre>
+ * java -cp VRLog.jar br.com.vrsoftware.vrlog.util.LogCollector --config logging.properties
+ * </pre>
+ */
+public class LogCollector extends ContextAwareBase implements LifeCycle {
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionNumber = new AtomicInteger();
+    private final LongAdder receivedCount = new LongAdder();
+
+    private int port = CollectorAppender.DEFAULT_PORT;
+    private ServerSocket serverSocket;
+    private volatile boolean started;
+
+    @Override
+    public void start() {
+        if (started) return;
+        try {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            addError("Não foi possível abrir a porta " + port + " do coletor de logs", e);
+            return;
+        }
+        started = true;
+
+        Thread acceptor = new Thread(this::acceptLoop, "vrlog-collector");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        addInfo("Coletor de logs aguardando conexões na porta " + port);
+    }
+
+    @Override
+    public void stop() {
+        if (!started) return;
+        started = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Porta já fechada
+        }
+        // Os clientes passam a gravar no arquivo de espera e reenviam ao reconectar
+        for (Socket socket : connections) closeQuietly(socket);
+        connections.clear();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    private void acceptLoop() {
+        while (started) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (started) addError("Falha ao aceitar conexão no coletor de logs", e);
+                continue;
+            }
+            connections.add(socket);
+            Thread reader = new Thread(() -> serve(socket), "vrlog-collector-" + connectionNumber.incrementAndGet());
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Lê os eventos de uma conexão até o cliente encerrá-la. Ao fim do fluxo, confirma o
+     * processamento ao cliente (usado no reenvio dos arquivos de espera).
+     */
+    private void serve(Socket socket) {
+        try (BinaryLogReader reader = new BinaryLogReader(socket.getInputStream())) {
+            boolean complete = true;
+            try {
+                while (reader.next()) dispatch(reader);
+            } catch (EOFException e) {
+                // Registro incompleto no fim do fluxo (arquivo de espera de um processo interrompido)
+                complete = false;
+            }
+            if (!started) return;
+            if (!complete) addWarn("Último evento recebido pelo coletor estava incompleto e foi descartado");
+            acknowledge(socket);
+        } catch (IOException e) {
+            if (started) addWarn("Conexão com o coletor de logs encerrada com erro", e);
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void acknowledge(Socket socket) {
+        try {
+            socket.getOutputStream().write(CollectorAppender.REPLAY_ACK);
+            socket.getOutputStream().flush();
+        } catch (IOException e) {
+            // Cliente já encerrou a conexão principal, que não aguarda confirmação
+        }
+    }
+
+    /**
+     * Repassa o evento atual do leitor aos appenders do logger de mesmo nome no contexto do coletor.
+     */
+    private void dispatch(BinaryLogReader reader) {
+        LoggerContext loggerContext = (LoggerContext) context;
+        Logger logger = loggerContext.getLogger(reader.getLoggerName());
+        if (!logger.isEnabledFor(reader.getLevel())) return;
+
+        String message = reader.getMessage();
+        String throwable = reader.getThrowable();
+        if (throwable != null) {
+            // O padrão termina a linha da mensagem; a quebra final da exceção é a do padrão
+            int end = throwable.endsWith("\n") ? throwable.length() - 1 : throwable.length();
+            message = message + System.lineSeparator() + throwable.substring(0, end);
+        }
+
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerContextRemoteView(loggerContext.getLoggerContextRemoteView());
+        event.setLoggerName(reader.getLoggerName());
+        event.setLevel(reader.getLevel());
+        event.setThreadName(reader.getThreadName());
+        event.setTimeStamp(reader.getTimestamp());
+        event.setMessage(message);
+        event.setMDCPropertyMap(reader.getMdc());
+        // Evita que %caller ou %line apontem para o próprio coletor
+        event.setCallerData(CallerData.EMPTY_CALLER_DATA_ARRAY);
+
+        logger.callAppenders(event);
+        receivedCount.increment();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Conexão já encerrada
+        }
+    }
+
+    /**
+     * @return Total de eventos recebidos e repassados aos appenders
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * @return Quantidade de clientes conectados
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Ponto de entrada da linha de comando: inicia o coletor com as propriedades informadas em
+     * --config (log.file.*, log.archive.*, log.collector.port...) e aguarda até a JVM ser encerrada.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !"--config".equals(args[0])) {
+            System.err.println("Uso: LogCollector --config <arquivo>");
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(new File(args[1]).toPath())) {
+            properties.load(in);
+        }
+        properties.setProperty("log.collector.mode", "server");
+
+        LogManager manager = LogManager.initialize(properties);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            manager.shutdown();
+            manager.getLoggerContext().stop();
+            stopped.countDown();
+        }, "vrlog-collector-shutdown"));
+        stopped.await();
+    }
+}
@@ -1,14 +1,38 @@
 package br.com.vrsoftware.vrlog.util;
 
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -19,6 +43,18 @@ public class LogCompressor {
 
     private static final Logger logger = LoggerFactory.getLogger(LogCompressor.class);
 
+    // Sufixo dos arquivos em construção, ignorados pela compressão
+    static final String TEMP_SUFFIX = ".tmp";
+    // Subdiretório dos arquivos auxiliares da compressão diária (ZIP em construção, arquivos da
+    // compressão paralela e marcadores de publicação), fora dos arquivos de log
+    static final String SCRATCH_DIR_NAME = ".vrlog-tmp";
+    // Marcador gravado antes da publicação com os originais a excluir depois dela
+    private static final String DELETING_SUFFIX = ".deleting";
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    // Segmentos sendo comprimidos por compressSegment()
+    private static final Set<Path> IN_PROGRESS = ConcurrentHashMap.newKeySet();
+
     /**
      * Comprime todos os arquivos de log de uma data específica.
      * @param logDirectory Diretório onde estão os logs
@@ -26,8 +62,19 @@ public class LogCompressor {
      * @throws IOException Em caso de erro no acesso aos arquivos
      */
     public static void compressLogsByDate(Path logDirectory, LocalDate date) throws IOException {
+        compressLogsByDate(logDirectory, date, 1);
+    }
+
+    /**
+     * Comprime todos os arquivos de log de uma data específica, usando várias threads.
+     * @param logDirectory Diretório onde estão os logs
+     * @param date Data no formato LocalDate
+     * @param threads Número de threads de compressão (1 para compressão serial)
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void compressLogsByDate(Path logDirectory, LocalDate date, int threads) throws IOException {
         String datePattern = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        compressLogsByPattern(logDirectory, datePattern);
+        compressLogsByPattern(logDirectory, datePattern, threads);
     }
 
     /**
@@ -37,86 +84,498 @@ public class LogCompressor {
      * @throws IOException Em caso de erro no acesso aos arquivos
      */
     public static void compressLogsByPattern(Path logDirectory, String pattern) throws IOException {
+        compressLogsByPattern(logDirectory, pattern, 1);
+    }
+
+    /**
+     * Comprime todos os arquivos de log que correspondem a um padrão.
+     * <p>
+     * O arquivo ZIP é montado em um arquivo temporário, em {@value #SCRATCH_DIR_NAME}, e renomeado
+     * atomicamente ao final; os originais só são removidos depois disso, de modo que uma interrupção
+     * no meio do processo nunca deixa um ZIP incompleto no lugar dos logs. Antes da publicação é
+     * gravado um marcador com os originais a excluir: se o processo parar durante as exclusões, a
+     * próxima execução as conclui antes de comprimir de novo. Se o ZIP já existe, as entradas dele
+     * são mantidas e as novas acrescentadas; um original com o nome de uma entrada existente
+     * interrompe a compressão, sem alterar nada.
+     * @param logDirectory Diretório onde estão os logs
+     * @param pattern Padrão para corresponder nos nomes de arquivo
+     * @param threads Número de threads de compressão (1 para compressão serial)
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void compressLogsByPattern(Path logDirectory, String pattern, int threads) throws IOException {
         if (!Files.exists(logDirectory)) throw new IOException("Diretório de logs não existe: " + logDirectory);
 
         // Nome do arquivo ZIP
         String zipFileName = "logs-" + pattern + ".zip";
         Path zipFilePath = logDirectory.resolve(zipFileName);
+        Path scratch = Files.createDirectories(logDirectory.resolve(SCRATCH_DIR_NAME));
+        Path tempFilePath = scratch.resolve(zipFileName + TEMP_SUFFIX);
+        Path addedFilePath = scratch.resolve(zipFileName + ".new" + TEMP_SUFFIX);
 
-        // Criar arquivo ZIP
-        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFilePath))) {
-            // Contador de arquivos comprimidos
-            final int[] compressedFiles = {0};
-
-            // Percorrer todos os arquivos de log com o padrão especificado
-            Files.walkFileTree(logDirectory, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    String fileName = file.getFileName().toString();
-
-                    // Verificar se o arquivo corresponde ao padrão e não é um arquivo ZIP
-                    if (fileName.contains(pattern) && !fileName.endsWith(".zip")) {
-                        // Adicionar ao ZIP
-                        ZipEntry zipEntry = new ZipEntry(fileName);
-                        zipOut.putNextEntry(zipEntry);
-                        Files.copy(file, zipOut);
-                        zipOut.closeEntry();
-
-                        // Incrementar contador
-                        compressedFiles[0]++;
-
-                        // Excluir o arquivo original
-                        Files.delete(file);
-                        logger.debug("Arquivo comprimido e removido: {}", fileName);
-                    }
-                    return FileVisitResult.CONTINUE;
+        // Conclui as exclusões de uma execução interrompida antes de procurar os originais
+        finishPublication(logDirectory, zipFilePath, zipEntries(zipFilePath));
+
+        List<Path> files = findFiles(logDirectory, pattern);
+        if (files.isEmpty()) {
+            logger.info("Nenhum arquivo encontrado para compressão com o padrão {}", pattern);
+            return;
+        }
+
+        boolean merge = Files.exists(zipFilePath);
+        if (merge) checkCollisions(zipFilePath, zipEntries(zipFilePath), files);
+
+        try {
+            Path output = merge ? addedFilePath : tempFilePath;
+            if (threads > 1 && files.size() > 1) writeZipParallel(scratch, output, files, threads);
+            else writeZip(output, files);
+            if (merge) mergeZip(zipFilePath, addedFilePath, tempFilePath);
+            publish(logDirectory, tempFilePath, zipFilePath, files);
+            ArchiveManifest.forDirectory(logDirectory).register(zipFilePath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFilePath);
+            throw e;
+        } finally {
+            Files.deleteIfExists(addedFilePath);
+        }
+
+        // Excluir os originais somente após o ZIP estar completo no destino
+        finishPublication(logDirectory, zipFilePath, zipEntries(zipFilePath));
+
+        logger.info("Compressão concluída. {} arquivos foram comprimidos para {}", files.size(), zipFileName);
+    }
+
+    /**
+     * Comprime todos os arquivos de log de uma data no formato em blocos ({@code logs-<data>.vrlb}).
+     * @param logDirectory Diretório onde estão os logs
+     * @param date Data no formato LocalDate
+     * @param blockSize Tamanho aproximado de cada bloco antes da compressão
+     * @param level Nível de compressão (0-9)
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void compressLogsToBlocks(Path logDirectory, LocalDate date, int blockSize, int level, String logPattern) throws IOException {
+        String datePattern = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        compressLogsToBlocks(logDirectory, datePattern, blockSize, level, logPattern);
+    }
+
+    /**
+     * Comprime todos os arquivos de log que correspondem a um padrão no formato em blocos
+     * ({@code logs-<padrão>.vrlb} e seu índice). Cada arquivo vira uma entrada do arquivo em blocos.
+     * @param logDirectory Diretório onde estão os logs
+     * @param pattern Padrão para corresponder nos nomes de arquivo
+     * @param blockSize Tamanho aproximado de cada bloco antes da compressão
+     * @param level Nível de compressão (0-9)
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void compressLogsToBlocks(Path logDirectory, String pattern, int blockSize, int level, String logPattern) throws IOException {
+        if (!Files.exists(logDirectory)) throw new IOException("Diretório de logs não existe: " + logDirectory);
+
+        Path target = logDirectory.resolve("logs-" + pattern + "." + TipoCompressao.BLOCOS.getExtensao());
+        finishPublication(logDirectory, target, blockEntries(target));
+
+        List<Path> files = findFiles(logDirectory, pattern);
+        if (files.isEmpty()) {
+            logger.info("Nenhum arquivo encontrado para compressão com o padrão {}", pattern);
+            return;
+        }
+        // O formato em blocos não permite acrescentar entradas: um arquivo existente nunca é substituído
+        if (Files.exists(target)) {
+            throw new IOException("O arquivo " + target.getFileName() + " já existe e não contém " + files.get(0).getFileName());
+        }
+
+        BlockArchiveWriter writer = new BlockArchiveWriter(target, blockSize, level, logPattern);
+        try {
+            for (Path file : files) {
+                writer.putEntry(file.getFileName().toString());
+                try (InputStream in = Files.newInputStream(file)) {
+                    writer.write(in);
                 }
-            });
+            }
+            writeMarker(logDirectory, target, files);
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        ArchiveManifest.forDirectory(logDirectory).register(target);
+
+        finishPublication(logDirectory, target, blockEntries(target));
+
+        logger.info("Compressão concluída. {} arquivos foram comprimidos para {}", files.size(), target.getFileName());
+    }
 
-            logger.info("Compressão concluída. {} arquivos foram comprimidos para {}",
-                    compressedFiles[0], zipFileName);
+    /**
+     * Converte um arquivo ZIP existente para o formato em blocos, preservando as entradas.
+     * O ZIP só é removido depois que o arquivo em blocos está completo no destino.
+     * @param zipFile Arquivo ZIP
+     * @param blockSize Tamanho aproximado de cada bloco antes da compressão
+     * @param level Nível de compressão (0-9)
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @return Caminho do arquivo em blocos
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path convertToBlocks(Path zipFile, int blockSize, int level, String logPattern) throws IOException {
+        String zipName = zipFile.getFileName().toString();
+        String baseName = zipName.endsWith(".zip") ? zipName.substring(0, zipName.length() - 4) : zipName;
+        Path target = zipFile.resolveSibling(baseName + "." + TipoCompressao.BLOCOS.getExtensao());
 
-            // Se nenhum arquivo foi comprimido, remover o ZIP vazio
-            if (compressedFiles[0] == 0) {
-                Files.deleteIfExists(zipFilePath);
-                logger.info("Nenhum arquivo encontrado para compressão. Arquivo ZIP removido.");
+        BlockArchiveWriter writer = new BlockArchiveWriter(target, blockSize, level, logPattern);
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            List<ZipEntry> entries = new ArrayList<>(Collections.list(zip.entries()));
+            entries.sort(Comparator.comparing(ZipEntry::getName));
+            for (ZipEntry entry : entries) {
+                if (entry.isDirectory()) continue;
+                writer.putEntry(entry.getName());
+                try (InputStream in = zip.getInputStream(entry)) {
+                    writer.write(in);
+                }
             }
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
         }
+
+        ArchiveManifest manifest = ArchiveManifest.forDirectory(zipFile.toAbsolutePath().getParent());
+        manifest.register(target);
+        Files.delete(zipFile);
+        manifest.unregister(zipFile);
+
+        logger.info("Arquivo {} convertido para {}", zipName, target.getFileName());
+        return target;
     }
 
     /**
-     * Limpa arquivos de log mais antigos que o número especificado de dias.
+     * Converte todos os arquivos ZIP do diretório para o formato em blocos.
      * @param logDirectory Diretório onde estão os logs
-     * @param daysToKeep Número de dias para manter os logs
+     * @param blockSize Tamanho aproximado de cada bloco antes da compressão
+     * @param level Nível de compressão (0-9)
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @return Quantidade de arquivos convertidos
      * @throws IOException Em caso de erro no acesso aos arquivos
      */
-    public static void cleanupOldLogs(Path logDirectory, int daysToKeep) throws IOException {
-        if (!Files.exists(logDirectory)) return;
+    public static int convertAllToBlocks(Path logDirectory, int blockSize, int level, String logPattern) throws IOException {
+        List<Path> zips = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory, "*.zip")) {
+            for (Path file : stream) zips.add(file);
+        }
+        Collections.sort(zips);
 
-        final LocalDate cutoffDate = LocalDate.now().minusDays(daysToKeep);
+        int converted = 0;
+        for (Path zip : zips) {
+            try {
+                convertToBlocks(zip, blockSize, level, logPattern);
+                converted++;
+            } catch (IOException e) {
+                logger.warn("Não foi possível converter o arquivo {}", zip.getFileName(), e);
+            }
+        }
+        return converted;
+    }
 
+    /**
+     * Lista, em ordem, os arquivos do diretório cujo nome contém o padrão e que ainda não estão comprimidos.
+     */
+    private static List<Path> findFiles(Path logDirectory, String pattern) throws IOException {
+        List<Path> files = new ArrayList<>();
         Files.walkFileTree(logDirectory, new SimpleFileVisitor<Path>() {
             @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                // Verificar se o arquivo é um arquivo ZIP de log
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.getFileName().toString().equals(SCRATCH_DIR_NAME) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
                 String fileName = file.getFileName().toString();
-                if (fileName.startsWith("logs-") && fileName.endsWith(".zip")) {
-                    // Extrair a data do nome do arquivo (formato: logs-YYYY-MM-DD.zip)
-                    try {
-                        String dateStr = fileName.substring(5, 15); // Extrai YYYY-MM-DD
-                        LocalDate fileDate = LocalDate.parse(dateStr);
-
-                        // Remover se for mais antigo que a data de corte
-                        if (fileDate.isBefore(cutoffDate)) {
-                            Files.delete(file);
-                            logger.info("Arquivo de log antigo removido: {}", fileName);
-                        }
-                    } catch (Exception e) {
-                        logger.warn("Não foi possível processar o arquivo de log: {}", fileName, e);
-                    }
+
+                // Verificar se o arquivo corresponde ao padrão e não é um arquivo comprimido, índice ou temporário
+                if (fileName.contains(pattern) && TipoCompressao.fromArquivo(fileName) == null
+                        && !fileName.endsWith(BlockArchiveWriter.INDEX_SUFFIX) && !fileName.endsWith(TEMP_SUFFIX)) {
+                    files.add(file);
                 }
                 return FileVisitResult.CONTINUE;
             }
         });
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Grava os arquivos em um ZIP, sequencialmente.
+     */
+    private static void writeZip(Path target, List<Path> files) throws IOException {
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(target))) {
+            for (Path file : files) {
+                ZipEntry zipEntry = new ZipEntry(file.getFileName().toString());
+                zipEntry.setTime(Files.getLastModifiedTime(file).toMillis());
+                zipOut.putNextEntry(zipEntry);
+                Files.copy(file, zipOut);
+                zipOut.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Grava os arquivos em um ZIP comprimindo as entradas em paralelo. Cada thread comprime
+     * suas entradas em arquivos auxiliares no diretório informado, que são concatenados no ZIP final.
+     */
+    private static void writeZipParallel(Path scratch, Path target, List<Path> files, int threads) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), r -> {
+            Thread t = new Thread(r, "log-compressor-thread-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor,
+                    new DefaultBackingStoreSupplier(scratch), Deflater.DEFAULT_COMPRESSION);
+
+            for (Path file : files) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(file.getFileName().toString());
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setTime(Files.getLastModifiedTime(file).toMillis());
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return Files.newInputStream(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(target.toFile())) {
+                creator.writeTo(zipOut);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compressão interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Falha na compressão paralela: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Monta em {@code target} um ZIP com as entradas do existente seguidas das novas, copiadas sem
+     * descomprimir.
+     */
+    private static void mergeZip(Path existing, Path added, Path target) throws IOException {
+        try (org.apache.commons.compress.archivers.zip.ZipFile first = openZip(existing);
+             org.apache.commons.compress.archivers.zip.ZipFile second = openZip(added);
+             ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(target.toFile())) {
+            for (org.apache.commons.compress.archivers.zip.ZipFile zip : Arrays.asList(first, second)) {
+                for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                    try (InputStream in = zip.getRawInputStream(entry)) {
+                        zipOut.addRawArchiveEntry(entry, in);
+                    }
+                }
+            }
+        }
+    }
+
+    private static org.apache.commons.compress.archivers.zip.ZipFile openZip(Path file) throws IOException {
+        return org.apache.commons.compress.archivers.zip.ZipFile.builder().setPath(file).get();
+    }
+
+    /**
+     * Interrompe a compressão se algum original tem o nome de uma entrada do arquivo existente.
+     */
+    private static void checkCollisions(Path archive, Map<String, Long> entries, List<Path> files) throws IOException {
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (entries.containsKey(name)) {
+                throw new IOException("O arquivo " + archive.getFileName() + " já contém a entrada " + name + "; nada foi alterado");
+            }
+        }
+    }
+
+    /**
+     * Grava o marcador com os originais e publica o arquivo temporário no destino.
+     */
+    private static void publish(Path logDirectory, Path temp, Path target, List<Path> files) throws IOException {
+        writeMarker(logDirectory, target, files);
+        moveAtomically(temp, target);
+    }
+
+    /**
+     * Grava, antes da publicação, a lista dos originais a excluir depois dela.
+     */
+    private static void writeMarker(Path logDirectory, Path target, List<Path> files) throws IOException {
+        Path marker = markerOf(logDirectory, target);
+        Files.createDirectories(marker.getParent());
+        Path temp = marker.resolveSibling(marker.getFileName() + TEMP_SUFFIX);
+        List<String> lines = new ArrayList<>();
+        for (Path file : files) lines.add(logDirectory.relativize(file).toString());
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        moveAtomically(temp, marker);
+    }
+
+    /**
+     * Exclui os originais listados no marcador do arquivo publicado e remove o marcador. Só são
+     * excluídos os originais que estão no arquivo publicado com o mesmo tamanho; se a publicação
+     * não chegou a acontecer, os originais são mantidos e comprimidos na próxima execução.
+     *
+     * @param entries Nome e tamanho (ou -1 se desconhecido) das entradas do arquivo publicado
+     */
+    private static void finishPublication(Path logDirectory, Path target, Map<String, Long> entries) throws IOException {
+        Path marker = markerOf(logDirectory, target);
+        if (!Files.exists(marker)) return;
+
+        for (String line : Files.readAllLines(marker, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) continue;
+            Path file = logDirectory.resolve(line);
+            Long size = entries.get(file.getFileName().toString());
+            if (size == null || !Files.exists(file) || size >= 0 && size != Files.size(file)) continue;
+            Files.delete(file);
+            logger.debug("Arquivo comprimido e removido: {}", file.getFileName());
+        }
+        Files.delete(marker);
+    }
+
+    private static Path markerOf(Path logDirectory, Path target) {
+        return logDirectory.resolve(SCRATCH_DIR_NAME).resolve(target.getFileName() + DELETING_SUFFIX);
+    }
+
+    /**
+     * @return Nome e tamanho descomprimido das entradas do ZIP, ou vazio se ele não existe
+     */
+    private static Map<String, Long> zipEntries(Path zipFile) throws IOException {
+        Map<String, Long> names = new HashMap<>();
+        if (!Files.exists(zipFile)) return names;
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) names.put(entry.getName(), entry.getSize());
+        }
+        return names;
+    }
+
+    /**
+     * @return Nome das entradas do arquivo em blocos (tamanho desconhecido), ou vazio se ele não existe
+     */
+    private static Map<String, Long> blockEntries(Path archive) throws IOException {
+        Map<String, Long> names = new HashMap<>();
+        if (!Files.exists(archive)) return names;
+        try (BlockArchiveReader reader = new BlockArchiveReader(archive)) {
+            for (String name : reader.getEntryNames()) names.put(name, -1L);
+        }
+        return names;
+    }
+
+    /**
+     * Lista os arquivos rolados que ainda não foram comprimidos: arquivos com data no nome, sem
+     * compressão, que não são índices, temporários ou arquivos de controle (iniciados por ponto).
+     * @param logDirectory Diretório onde estão os logs
+     * @param modifiedBefore Apenas arquivos sem alterações desde este momento, em milissegundos
+     * @return Os arquivos, do alterado há mais tempo para o mais recente
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static List<Path> findPendingSegments(Path logDirectory, long modifiedBefore) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> modified = new HashMap<>();
+        if (!Files.isDirectory(logDirectory)) return files;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || TipoCompressao.fromArquivo(name) != null
+                        || name.endsWith(BlockArchiveWriter.INDEX_SUFFIX) || name.endsWith(TEMP_SUFFIX)
+                        || !DATE_PATTERN.matcher(name).find() || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                if (lastModified > modifiedBefore) continue;
+                files.add(file);
+                modified.put(file, lastModified);
+            }
+        }
+        files.sort(Comparator.comparing(modified::get));
+        return files;
+    }
+
+    /**
+     * Comprime um único segmento rolado, remove o original e registra o resultado no manifesto.
+     * <p>
+     * Um mesmo arquivo nunca é comprimido por duas rotinas ao mesmo tempo (manutenção, pipeline
+     * da rolagem, alívio de espaço em disco): a segunda apenas o ignora.
+     * @param segment Arquivo a ser comprimido
+     * @param limiter Limitador da leitura, ou null para ler sem limite
+     * @param codec Tipo de compressão
+     * @param level Nível de compressão (0-9)
+     * @param blockSize Tamanho dos blocos quando o codec é {@link TipoCompressao#BLOCOS}
+     * @param logPattern Padrão do log, usado para indexar as datas quando o codec é {@link TipoCompressao#BLOCOS}
+     * @return O arquivo comprimido, ou null se o segmento não existe mais ou já está sendo comprimido
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path compressSegment(Path segment, IoRateLimiter limiter, TipoCompressao codec, int level,
+                                       int blockSize, String logPattern) throws IOException {
+        Path key = segment.toAbsolutePath().normalize();
+        if (!IN_PROGRESS.add(key)) return null;
+        try {
+            if (!Files.exists(segment)) return null;
+
+            Path target;
+            try (InputStream in = limiter != null ? limiter.throttle(Files.newInputStream(segment)) : Files.newInputStream(segment)) {
+                target = codec == TipoCompressao.BLOCOS
+                        ? SegmentCompressor.compressBlocks(in, segment, level, blockSize, logPattern)
+                        : SegmentCompressor.compress(in, segment, codec, level);
+            }
+            Files.delete(segment);
+            ArchiveManifest.forDirectory(target.toAbsolutePath().getParent()).register(target);
+            logger.debug("Arquivo comprimido e removido: {}", segment.getFileName());
+            return target;
+        } finally {
+            IN_PROGRESS.remove(key);
+        }
+    }
+
+    /**
+     * Move o arquivo para o destino atomicamente, quando o sistema de arquivos suporta.
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Move o arquivo para o destino sem substituir um arquivo existente. Não usa ATOMIC_MOVE, que
+     * substitui o destino em sistemas POSIX; no mesmo sistema de arquivos a operação continua sendo
+     * uma renomeação.
+     * @throws java.nio.file.FileAlreadyExistsException Se o destino já existe
+     */
+    static void moveWithoutReplacing(Path source, Path target) throws IOException {
+        Files.move(source, target);
+    }
+
+    /**
+     * Limpa arquivos de log mais antigos que o número especificado de dias.
+     * @param logDirectory Diretório onde estão os logs
+     * @param daysToKeep Número de dias para manter os logs
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void cleanupOldLogs(Path logDirectory, int daysToKeep) throws IOException {
+        cleanupOldLogs(logDirectory, daysToKeep, 0);
+    }
+
+    /**
+     * Limpa arquivos de log mais antigos que o número especificado de dias e, se necessário,
+     * os mais antigos até que o total fique abaixo do limite de tamanho.
+     * <p>
+     * As decisões são tomadas a partir do {@link ArchiveManifest} do diretório, sem percorrê-lo.
+     * @param logDirectory Diretório onde estão os logs
+     * @param daysToKeep Número de dias para manter os logs
+     * @param totalSizeCap Tamanho total máximo dos arquivos compactados em bytes (0 para não limitar)
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static void cleanupOldLogs(Path logDirectory, int daysToKeep, long totalSizeCap) throws IOException {
+        if (!Files.exists(logDirectory)) return;
+
+        int removed = ArchiveManifest.forDirectory(logDirectory).applyRetention(daysToKeep, totalSizeCap);
+        if (removed > 0) logger.info("Retenção concluída. {} arquivos de log removidos", removed);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package br.com.vrsoftware.vrlog.util;
 
+import br.com.vrsoftware.vrlog.LogManager;
 import br.com.vrsoftware.vrlog.LogbackConfigurator;
+import ch.qos.logback.classic.LoggerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,18 +20,28 @@ import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Componente que monitora e recarrega o arquivo de configuração do log quando ele muda.
+ * <p>
+ * Uma sequência de alterações no arquivo (editores costumam gravar em várias etapas) gera uma
+ * única recarga, feita quando o arquivo fica sem alterações pelo intervalo de debounce. A recarga
+ * aplica somente as diferenças em relação à configuração anterior
+ * (ver {@link LogbackConfigurator#reconfigure(Properties)}).
  */
 public class LogConfigReloader {
-    private static final Logger logger = LoggerFactory.getLogger(LogConfigReloader.class);
+    public static final long DEFAULT_DEBOUNCE_MS = 500;
 
+    private final Logger logger;
+    private final LoggerContext context;
     private final Path configFile;
     private final WatchService watchService;
     private final ExecutorService executor;
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private final long debounceMillis;
+    private Properties currentProperties;
     private Future<?> watchTask;
 
     /**
@@ -38,12 +50,38 @@ public class LogConfigReloader {
      * @throws IOException Se ocorrer um erro ao acessar o arquivo
      */
     public LogConfigReloader(String configFilePath) throws IOException {
+        this(configFilePath, DEFAULT_DEBOUNCE_MS);
+    }
+
+    /**
+     * Cria um monitor de configuração de log.
+     * @param configFilePath Caminho para o arquivo de configuração
+     * @param debounceMillis Tempo sem alterações no arquivo antes de recarregar, em milissegundos
+     * @throws IOException Se ocorrer um erro ao acessar o arquivo
+     */
+    public LogConfigReloader(String configFilePath, long debounceMillis) throws IOException {
+        this(configFilePath, debounceMillis, (LoggerContext) LoggerFactory.getILoggerFactory());
+    }
+
+    /**
+     * Cria um monitor de configuração de log para o contexto de um módulo
+     * (ver {@link br.com.vrsoftware.vrlog.LogManager#getLoggerContext()}).
+     * @param configFilePath Caminho para o arquivo de configuração
+     * @param debounceMillis Tempo sem alterações no arquivo antes de recarregar, em milissegundos
+     * @param context        Contexto do Logback reconfigurado a cada recarga
+     * @throws IOException Se ocorrer um erro ao acessar o arquivo
+     */
+    public LogConfigReloader(String configFilePath, long debounceMillis, LoggerContext context) throws IOException {
         File file = new File(configFilePath);
         if (!file.exists()) {
             throw new IOException("Arquivo de configuração não encontrado: " + configFilePath);
         }
 
+        this.context = context;
+        this.logger = context.getLogger(LogConfigReloader.class);
         this.configFile = file.toPath();
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.currentProperties = loadProperties();
         this.watchService = FileSystems.getDefault().newWatchService();
         this.executor = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "log-config-reload-thread");
@@ -91,27 +129,23 @@ public class LogConfigReloader {
         try {
             while (running.get()) {
                 WatchKey key = watchService.take();
+                boolean changed = false;
 
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
-                        continue;
-                    }
+                // Agrupa as alterações até o arquivo ficar sem mudanças pelo intervalo de debounce
+                while (key != null) {
+                    changed |= isConfigFileEvent(key);
 
-                    @SuppressWarnings("unchecked")
-                    Path fileName = ((WatchEvent<Path>) event).context();
-                    Path fullPath = configFile.getParent().resolve(fileName);
-
-                    // Verificar se é o arquivo que estamos monitorando
-                    if (fullPath.equals(configFile)) {
-                        logger.info("Detectada alteração no arquivo de configuração: {}", configFile);
-                        reloadConfiguration();
+                    // Resetar a chave para continuar recebendo eventos
+                    if (!key.reset()) {
+                        running.set(false);
+                        break;
                     }
+                    key = changed ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS) : null;
                 }
 
-                // Resetar a chave para continuar recebendo eventos
-                boolean valid = key.reset();
-                if (!valid) {
-                    break;
+                if (changed) {
+                    logger.info("Detectada alteração no arquivo de configuração: {}", configFile);
+                    reloadConfiguration();
                 }
             }
         } catch (InterruptedException e) {
@@ -123,20 +157,50 @@ public class LogConfigReloader {
     }
 
     /**
-     * Recarrega a configuração do log.
+     * @return true se a chave contém eventos do arquivo monitorado
      */
-    private void reloadConfiguration() {
-        try {
-            // Aguardar um pouco para garantir que o arquivo foi completamente escrito
-            Thread.sleep(500);
+    private boolean isConfigFileEvent(WatchKey key) {
+        boolean found = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Eventos perdidos: recarrega por segurança
+                found = true;
+                continue;
+            }
+
+            @SuppressWarnings("unchecked")
+            Path fileName = ((WatchEvent<Path>) event).context();
+            Path fullPath = configFile.getParent().resolve(fileName);
 
-            Properties properties = new Properties();
-            try (InputStream inputStream = Files.newInputStream(configFile.toFile().toPath())) {
-                properties.load(inputStream);
+            // Verificar se é o arquivo que estamos monitorando
+            if (fullPath.equals(configFile)) found = true;
+        }
+        return found;
+    }
+
+    private Properties loadProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(configFile)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    /**
+     * Recarrega a configuração do log, aplicando somente o que mudou.
+     */
+    private synchronized void reloadConfiguration() {
+        try {
+            Properties properties = loadProperties();
+            if (properties.equals(currentProperties)) {
+                logger.debug("Arquivo de configuração alterado sem mudanças nas propriedades");
+                return;
             }
 
             // Reconfigurar o Logback
-            new LogbackConfigurator(properties).configure();
+            new LogbackConfigurator(properties, context).reconfigure(currentProperties);
+            currentProperties = properties;
+            updateManager(properties);
 
             logger.info("Configuração de log recarregada com sucesso");
         } catch (Exception e) {
@@ -145,10 +209,27 @@ public class LogConfigReloader {
     }
 
     /**
-     * Força uma recarga da configuração.
+     * Repassa as propriedades aplicadas ao gerenciador do contexto, se houver, para que a manutenção
+     * dos arquivos também use os valores recarregados.
      */
-    public void forceReload() {
+    private void updateManager(Properties properties) {
+        LogManager manager = LogManager.getInstance(context);
+        if (manager != null) manager.reloaded(properties);
+    }
+
+    /**
+     * Força uma recarga completa da configuração, reiniciando todos os appenders.
+     */
+    public synchronized void forceReload() {
         logger.info("Recarga de configuração forçada");
-        reloadConfiguration();
+        try {
+            Properties properties = loadProperties();
+            new LogbackConfigurator(properties, context).configure();
+            currentProperties = properties;
+            updateManager(properties);
+            logger.info("Configuração de log recarregada com sucesso");
+        } catch (Exception e) {
+            logger.error("Erro ao recarregar configuração", e);
+        }
     }
 }
\ No newline at end of file
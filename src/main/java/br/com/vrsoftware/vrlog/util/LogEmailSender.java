@@ -1,14 +1,10 @@
 package br.com.vrsoftware.vrlog.util;
 
+import br.com.vrsoftware.vrlog.appender.EmailDigestAppender;
 import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.PatternLayout;
-import ch.qos.logback.classic.boolex.OnMarkerEvaluator;
-import ch.qos.logback.classic.net.SMTPAppender;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.boolex.EventEvaluator;
-import ch.qos.logback.core.spi.CyclicBufferTracker;
-import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
@@ -18,6 +14,7 @@ import java.util.Properties;
 /**
  * Utilitário para envio de logs por email.
  * Permite configurar Logback para enviar logs por email quando ocorrem erros críticos.
+ * Os alertas são agrupados e enviados em segundo plano (ver {@link EmailDigestAppender}).
  */
 public class LogEmailSender {
 
@@ -31,7 +28,7 @@ public class LogEmailSender {
      * @param smtpPort     Porta do servidor SMTP
      * @param smtpUsername Usuário SMTP
      * @param smtpPassword Senha SMTP
-     * @param useSSL       Usar SSL para conexão
+     * @param useSSL       Usar TLS na conexão: implícito na porta 465, STARTTLS nas demais
      * @param from         Endereço de email remetente
      * @param to           Lista de emails destinatários (separados por vírgula)
      * @param subject      Assunto do email
@@ -41,61 +38,79 @@ public class LogEmailSender {
             String smtpHost, int smtpPort, String smtpUsername, String smtpPassword,
             boolean useSSL, String from, String to, String subject, Level minLevel) {
 
-        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
-        SMTPAppender appender = new SMTPAppender();
+        SmtpMailTransport transport = new SmtpMailTransport(smtpHost, smtpPort, from, to);
+        transport.setUsername(smtpUsername);
+        transport.setPassword(smtpPassword);
+        transport.setStartTls(useSSL);
+        transport.setImplicitTls(useSSL && smtpPort == SmtpMailTransport.SMTPS_PORT);
+
+        configureEmailAppender(transport, subject, minLevel, EmailDigestAppender.DEFAULT_WINDOW,
+                EmailDigestAppender.DEFAULT_MAX_PER_HOUR, EmailDigestAppender.DEFAULT_MAX_GROUPS);
+    }
+
+    /**
+     * Configura um appender que envia, em segundo plano, um resumo dos eventos de alerta a cada janela.
+     * Eventos com o marcador {@link #EMAIL_MARKER} sempre disparam alerta, independente do nível.
+     *
+     * @param transport  Meio de envio dos emails
+     * @param subject    Assunto do email
+     * @param minLevel   Nível mínimo de log para enviar email, ou null para enviar apenas os marcados
+     * @param window     Intervalo de agrupamento dos eventos, em milissegundos
+     * @param maxPerHour Máximo de emails por hora (0 para não limitar)
+     * @param maxGroups  Máximo de mensagens distintas por resumo
+     */
+    public static void configureEmailAppender(EmailDigestAppender.MailTransport transport, String subject,
+                                              Level minLevel, long window, int maxPerHour, int maxGroups) {
+        configureEmailAppender(transport, subject, minLevel, window, maxPerHour, maxGroups,
+                (LoggerContext) LoggerFactory.getILoggerFactory());
+    }
+
+    /**
+     * Configura o resumo de alertas por email no contexto informado.
+     *
+     * @param transport  Meio de envio dos emails
+     * @param subject    Assunto do email
+     * @param minLevel   Nível mínimo de log para enviar email, ou null para enviar apenas os marcados
+     * @param window     Intervalo de agrupamento dos eventos, em milissegundos
+     * @param maxPerHour Máximo de emails por hora (0 para não limitar)
+     * @param maxGroups  Máximo de mensagens distintas por resumo
+     * @param context    Contexto do Logback onde o appender é adicionado
+     */
+    public static void configureEmailAppender(EmailDigestAppender.MailTransport transport, String subject,
+                                              Level minLevel, long window, int maxPerHour, int maxGroups,
+                                              LoggerContext context) {
+
+        EmailDigestAppender appender = new EmailDigestAppender();
 
         // Configuração básica
         appender.setContext(context);
-        appender.setName("EMAIL");
-        appender.setFrom(from);
-        appender.addTo(to);
+        appender.setName(EmailDigestAppender.NAME);
+        appender.setTransport(transport);
         appender.setSubject(subject);
-        appender.setSMTPHost(smtpHost);
-        appender.setSMTPPort(smtpPort);
-
-        // Autenticação SMTP se necessário
-        if (smtpUsername != null && !smtpUsername.isEmpty()) {
-            appender.setUsername(smtpUsername);
-            appender.setPassword(smtpPassword);
-        }
+        appender.setMinLevel(minLevel);
+        appender.setMarkerName(EMAIL_MARKER.getName());
 
-        // SSL se necessário
-        appender.setSTARTTLS(useSSL);
+        // Agrupamento e limite de envio
+        appender.setWindow(window);
+        appender.setMaxPerHour(maxPerHour);
+        appender.setMaxGroups(maxGroups);
 
-        // Layout do email
+        // Layout de cada evento no resumo
         PatternLayout layout = new PatternLayout();
         layout.setContext(context);
         layout.setPattern("%date %-5level [%thread] %logger{36} - %msg%n");
         layout.start();
         appender.setLayout(layout);
 
-        // Configurar buffer cíclico (armazena logs até que seja disparado um evento)
-        appender.setCyclicBufferTracker(new CyclicBufferTracker<>());
-//        appender.setCyclic(true);
-
-        // Configurar avaliador de eventos - quando enviar emails
-        EventEvaluator<ILoggingEvent> evaluator = null;
-
-        // Opção 1: Enviar com base no nível de log
-        if (minLevel != null) {
-            //evaluator = event -> event.getLevel().isGreaterOrEqual(minLevel);}
-        }
-        // Opção 2: Enviar com base no marcador
-        else {
-            OnMarkerEvaluator markerEvaluator = new OnMarkerEvaluator();
-            markerEvaluator.setContext(context);
-            markerEvaluator.addMarker(EMAIL_MARKER.getName());
-            markerEvaluator.start();
-            evaluator = markerEvaluator;
-        }
-
-        if (evaluator != null) appender.setEvaluator(evaluator);
-
         // Iniciar o appender
         appender.start();
 
-        // Adicionar ao logger raiz
-        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+        // Adicionar ao logger raiz e aos loggers de pacote, que não propagam para o raiz
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.addAppender(appender);
+        for (Logger logger : context.getLoggerList()) {
+            if (logger != rootLogger && !logger.isAdditive()) logger.addAppender(appender);
+        }
     }
 
     /**
@@ -104,6 +119,16 @@ public class LogEmailSender {
      * @param properties Propriedades de configuração
      */
     public static void configureFromProperties(Properties properties) {
+        configureFromProperties(properties, (LoggerContext) LoggerFactory.getILoggerFactory());
+    }
+
+    /**
+     * Configura envio de email com base em propriedades, no contexto informado.
+     *
+     * @param properties Propriedades de configuração
+     * @param context    Contexto do Logback onde o appender é adicionado
+     */
+    public static void configureFromProperties(Properties properties, LoggerContext context) {
         if (Boolean.parseBoolean(properties.getProperty("log.email.enabled", "false"))) {
             String host = properties.getProperty("log.email.smtp.host", "localhost");
             int port = Integer.parseInt(properties.getProperty("log.email.smtp.port", "25"));
@@ -139,7 +164,17 @@ public class LogEmailSender {
                     minLevel = Level.ERROR;
             }
 
-            configureEmailAppender(host, port, username, password, useSSL, from, to, subject, minLevel);
+            SmtpMailTransport transport = new SmtpMailTransport(host, port, from, to);
+            transport.setUsername(username);
+            transport.setPassword(password);
+            transport.setStartTls(useSSL);
+            transport.setImplicitTls(useSSL && port == SmtpMailTransport.SMTPS_PORT);
+
+            configureEmailAppender(transport, subject, minLevel,
+                    Long.parseLong(properties.getProperty("log.email.window", String.valueOf(EmailDigestAppender.DEFAULT_WINDOW))),
+                    Integer.parseInt(properties.getProperty("log.email.maxPerHour", String.valueOf(EmailDigestAppender.DEFAULT_MAX_PER_HOUR))),
+                    Integer.parseInt(properties.getProperty("log.email.maxGroups", String.valueOf(EmailDigestAppender.DEFAULT_MAX_GROUPS))),
+                    context);
         }
     }
 }
\ No newline at end of file
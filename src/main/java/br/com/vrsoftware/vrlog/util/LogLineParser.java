@@ -0,0 +1,166 @@
+package br.com.vrsoftware.vrlog.util;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Interpreta linhas de log geradas a partir de um {@code log.pattern}.
+ * <p>
+ * O padrão é convertido em uma expressão regular com grupos para data, thread, nível,
+ * logger e mensagem. Linhas que não correspondem ao padrão (pilhas de exceção, mensagens
+ * com várias linhas) são tratadas como continuação do evento anterior.
+ * <p>
+ * Não é thread-safe: use uma instância por thread.
+ */
+public class LogLineParser {
+
+    public static final String DEFAULT_PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    private static final String ISO8601_PATTERN = "yyyy-MM-dd HH:mm:ss,SSS";
+
+    private final Pattern regex;
+    private final SimpleDateFormat dateFormat;
+    private int dateGroup = -1;
+    private int threadGroup = -1;
+    private int levelGroup = -1;
+    private int loggerGroup = -1;
+    private int messageGroup = -1;
+
+    private Matcher matcher;
+
+    public LogLineParser(String logPattern) {
+        String datePattern = null;
+        StringBuilder sb = new StringBuilder("^");
+        int group = 0;
+
+        int i = 0;
+        int len = logPattern.length();
+        while (i < len) {
+            char c = logPattern.charAt(i);
+            if (c == '\\' && i + 1 < len) {
+                sb.append(Pattern.quote(String.valueOf(logPattern.charAt(i + 1))));
+                i += 2;
+                continue;
+            }
+            if (c != '%') {
+                if (Character.isWhitespace(c)) sb.append("\\s*");
+                else sb.append(Pattern.quote(String.valueOf(c)));
+                i++;
+                continue;
+            }
+
+            // %[-][min][.max]palavra[{opção}]
+            i++;
+            while (i < len && "-.0123456789".indexOf(logPattern.charAt(i)) >= 0) i++;
+            int start = i;
+            while (i < len && Character.isLetter(logPattern.charAt(i))) i++;
+            String keyword = logPattern.substring(start, i);
+            String option = null;
+            if (i < len && logPattern.charAt(i) == '{') {
+                int end = logPattern.indexOf('}', i);
+                if (end > 0) {
+                    option = logPattern.substring(i + 1, end);
+                    i = end + 1;
+                }
+            }
+
+            switch (keyword) {
+                case "d":
+                case "date":
+                    if (dateGroup < 0) {
+                        datePattern = option == null || option.trim().isEmpty() || "ISO8601".equals(option.trim())
+                                ? ISO8601_PATTERN : stripTimeZone(option);
+                        dateGroup = ++group;
+                        sb.append("(.{").append(datePattern.replace("'", "").length()).append("})");
+                    } else {
+                        sb.append(".*?");
+                    }
+                    break;
+                case "t":
+                case "thread":
+                    threadGroup = ++group;
+                    sb.append("(.*?)");
+                    break;
+                case "p":
+                case "le":
+                case "level":
+                    levelGroup = ++group;
+                    sb.append("(TRACE|DEBUG|INFO|WARN|ERROR)\\s*");
+                    break;
+                case "c":
+                case "lo":
+                case "logger":
+                    loggerGroup = ++group;
+                    sb.append("(\\S+)");
+                    break;
+                case "m":
+                case "msg":
+                case "message":
+                    messageGroup = ++group;
+                    sb.append("(.*)");
+                    break;
+                case "n":
+                    break;
+                default:
+                    sb.append(".*?");
+            }
+        }
+
+        this.regex = Pattern.compile(sb.toString());
+        this.dateFormat = datePattern != null ? new SimpleDateFormat(datePattern) : null;
+        if (dateFormat != null) dateFormat.setLenient(false);
+    }
+
+    /**
+     * Tenta interpretar a linha como início de um evento.
+     *
+     * @return true se a linha inicia um novo evento
+     */
+    public boolean parse(String line) {
+        if (matcher == null) matcher = regex.matcher(line);
+        else matcher.reset(line);
+        return matcher.find() && (dateGroup < 0 || getTimestamp() >= 0);
+    }
+
+    /**
+     * @return Data do evento em milissegundos, ou -1 se não for possível interpretá-la
+     */
+    public long getTimestamp() {
+        if (dateGroup < 0) return -1;
+        Date date = dateFormat.parse(matcher.group(dateGroup), new ParsePosition(0));
+        return date != null ? date.getTime() : -1;
+    }
+
+    public String getThread() {
+        return group(threadGroup);
+    }
+
+    public String getLevel() {
+        return group(levelGroup);
+    }
+
+    public String getLogger() {
+        return group(loggerGroup);
+    }
+
+    public String getMessage() {
+        return group(messageGroup);
+    }
+
+    private String group(int group) {
+        return group > 0 ? matcher.group(group) : null;
+    }
+
+    private static String stripTimeZone(String option) {
+        String datePattern = option.trim();
+        if (datePattern.startsWith("\"")) {
+            int end = datePattern.indexOf('"', 1);
+            return end > 0 ? datePattern.substring(1, end) : datePattern.substring(1);
+        }
+        int comma = datePattern.indexOf(',');
+        return comma >= 0 ? datePattern.substring(0, comma).trim() : datePattern;
+    }
+}
@@ -0,0 +1,187 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Utilitário para compressão de um único segmento de log com o codec escolhido.
+ */
+public class SegmentCompressor {
+
+    /**
+     * Comprime o arquivo para {@code <arquivo>.<extensão do codec>}. O destino é montado em um
+     * arquivo temporário e renomeado; o arquivo original não é removido. Um arquivo comprimido
+     * existente com o mesmo nome nunca é substituído: o destino passa a ser {@code <arquivo>-N.<extensão>}.
+     *
+     * @param source Arquivo a ser comprimido
+     * @param codec  Tipo de compressão
+     * @param level  Nível de compressão (0-9)
+     * @return Caminho do arquivo comprimido
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path compress(Path source, TipoCompressao codec, int level) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return compress(in, source, codec, level);
+        }
+    }
+
+    /**
+     * Comprime o conteúdo lido de {@code in}, gravando em {@code <arquivo>.<extensão do codec>} ou,
+     * se ele já existir, em {@code <arquivo>-N.<extensão do codec>}. Permite que o chamador controle a leitura (por exemplo, limitando a taxa de E/S).
+     *
+     * @param in     Conteúdo do arquivo
+     * @param source Arquivo de origem, usado para nome e data do destino
+     * @param codec  Tipo de compressão
+     * @param level  Nível de compressão (0-9)
+     * @return Caminho do arquivo comprimido
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path compress(InputStream in, Path source, TipoCompressao codec, int level) throws IOException {
+        if (codec == TipoCompressao.BLOCOS) {
+            return compressBlocks(in, source, level, BlockArchiveWriter.DEFAULT_BLOCK_SIZE, LogLineParser.DEFAULT_PATTERN);
+        }
+        Path target = uniqueTarget(targetOf(source, codec));
+        Path temp = target.resolveSibling(target.getFileName() + LogCompressor.TEMP_SUFFIX);
+        level = Math.max(0, Math.min(9, level));
+
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(temp)) {
+                switch (codec) {
+                    case ZIP:
+                        try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(fileOut)) {
+                            zipOut.setLevel(level);
+                            ZipArchiveEntry entry = new ZipArchiveEntry(source.getFileName().toString());
+                            entry.setTime(Files.getLastModifiedTime(source).toMillis());
+                            zipOut.putArchiveEntry(entry);
+                            copy(in, zipOut);
+                            zipOut.closeArchiveEntry();
+                        }
+                        break;
+                    case GZIP:
+                        GzipParameters parameters = new GzipParameters();
+                        parameters.setCompressionLevel(level);
+                        parameters.setFileName(source.getFileName().toString());
+                        parameters.setModificationTime(Files.getLastModifiedTime(source).toMillis());
+                        try (OutputStream out = new GzipCompressorOutputStream(fileOut, parameters)) {
+                            copy(in, out);
+                        }
+                        break;
+                    case BZIP2:
+                        try (OutputStream out = new BZip2CompressorOutputStream(fileOut, Math.max(1, level))) {
+                            copy(in, out);
+                        }
+                        break;
+                    case XZ:
+                        try (OutputStream out = new XZCompressorOutputStream(fileOut, level)) {
+                            copy(in, out);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Tipo de compressão não suportado: " + codec);
+                }
+            }
+            // Sem substituir: após um reinício no mesmo dia o Logback pode repetir o nome de um segmento
+            // já comprimido, e o arquivo anterior seria perdido
+            while (true) {
+                try {
+                    LogCompressor.moveWithoutReplacing(temp, target);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    target = uniqueTarget(target);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return target;
+    }
+
+    /**
+     * Comprime o arquivo no formato em blocos ({@code <arquivo>.vrlb} e seu índice).
+     * O arquivo original não é removido.
+     *
+     * @param source     Arquivo a ser comprimido
+     * @param level      Nível de compressão (0-9)
+     * @param blockSize  Tamanho aproximado de cada bloco antes da compressão
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @return Caminho do arquivo comprimido
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path compressBlocks(Path source, int level, int blockSize, String logPattern) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return compressBlocks(in, source, level, blockSize, logPattern);
+        }
+    }
+
+    /**
+     * Comprime o conteúdo lido de {@code in} no formato em blocos, sem substituir um arquivo em
+     * blocos existente com o mesmo nome.
+     *
+     * @param in         Conteúdo do arquivo
+     * @param source     Arquivo de origem, usado para nome do destino e da entrada
+     * @param level      Nível de compressão (0-9)
+     * @param blockSize  Tamanho aproximado de cada bloco antes da compressão
+     * @param logPattern Padrão do log (log.pattern), usado para indexar as datas dos eventos
+     * @return Caminho do arquivo comprimido
+     * @throws IOException Em caso de erro no acesso aos arquivos
+     */
+    public static Path compressBlocks(InputStream in, Path source, int level, int blockSize, String logPattern) throws IOException {
+        Path target = uniqueTarget(BlockArchiveWriter.targetOf(source));
+        BlockArchiveWriter writer = new BlockArchiveWriter(target, blockSize, level, logPattern);
+        try {
+            writer.putEntry(source.getFileName().toString());
+            writer.write(in);
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        return target;
+    }
+
+    /**
+     * @return Caminho do arquivo comprimido correspondente ao segmento
+     */
+    public static Path targetOf(Path source, TipoCompressao codec) {
+        return source.resolveSibling(source.getFileName() + "." + codec.getExtensao());
+    }
+
+    /**
+     * @return O próprio destino, se nem ele nem seu índice existem, ou o primeiro
+     * {@code <nome>-N.<extensão>} livre
+     */
+    static Path uniqueTarget(Path target) {
+        if (isFree(target)) return target;
+        String name = target.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        for (int n = 1; ; n++) {
+            Path candidate = target.resolveSibling(name.substring(0, dot) + "-" + n + name.substring(dot));
+            if (isFree(candidate)) return candidate;
+        }
+    }
+
+    private static boolean isFree(Path target) {
+        return !Files.exists(target) && !Files.exists(BlockArchiveWriter.indexOf(target));
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package br.com.vrsoftware.vrlog.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Fila em disco dos lotes a enviar ({@code log.ship.*}), dividida em segmentos.
+ * <p>
+ * Cada lote é acrescentado ao segmento ativo como um registro com tamanho, CRC32 e o conteúdo
+ * (já comprimido). O envio lê os registros em ordem, a partir da posição confirmada, e cada
+ * confirmação avança essa posição, gravada em {@link #CHECKPOINT_FILE_NAME}; um segmento
+ * inteiramente confirmado é removido. Após um reinício, o envio é retomado da última confirmação,
+ * de modo que um lote pode ser reenviado, mas não perdido.
+ * <p>
+ * O tamanho total é limitado: ao ultrapassar o limite, ou ao passar da idade máxima, os segmentos
+ * mais antigos são descartados. Um registro incompleto ou corrompido no fim de um segmento fechado
+ * (processo interrompido durante a escrita) é descartado junto com o resto do segmento.
+ * <p>
+ * O diretório pertence a uma única instância: {@link #open()} trava o arquivo {@value #LOCK_FILE_NAME}
+ * até o {@link #close()} e falha se outro processo, ou outro contexto da mesma JVM, já o travou.
+ */
+public class ShippingSpool {
+
+    public static final String SEGMENT_SUFFIX = ".seg";
+    public static final String CHECKPOINT_FILE_NAME = ".vrlog-ship";
+    public static final String LOCK_FILE_NAME = ".lock";
+
+    // Tamanho e CRC32 de cada registro
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String KEY_SEGMENT = "segment";
+    private static final String KEY_POSITION = "position";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long maxSize;
+    // Segmentos do mais antigo para o mais recente; o último é o ativo
+    private final List<Path> segments = new ArrayList<>();
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel active;
+    private long nextSequence;
+    private long readPosition;
+    private long totalSize;
+    private long discardedBytes;
+
+    /**
+     * Lote lido da fila, a confirmar com {@link #ack(Batch)}.
+     */
+    public static final class Batch {
+        private final Path segment;
+        private final long nextPosition;
+        private final byte[] data;
+
+        private Batch(Path segment, long nextPosition, byte[] data) {
+            this.segment = segment;
+            this.nextPosition = nextPosition;
+            this.data = data;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * @param directory   Diretório da fila
+     * @param segmentSize Tamanho a partir do qual um novo segmento é iniciado
+     * @param maxSize     Tamanho total máximo dos segmentos (0 para não limitar)
+     */
+    public ShippingSpool(Path directory, long segmentSize, long maxSize) {
+        this.directory = directory;
+        this.segmentSize = Math.max(1024, segmentSize);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Abre a fila, retomando os segmentos e a posição confirmada da execução anterior, e inicia
+     * um novo segmento ativo.
+     *
+     * @throws IOException Se a fila já está aberta por outra instância ou não pode ser lida
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            lockChannel = null;
+            throw new IOException("Fila de envio [" + directory + "] em uso por outra instância");
+        }
+
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        segments.clear();
+        totalSize = 0;
+        readPosition = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) segments.add(file);
+        }
+        // O nome do segmento é a sequência com zeros à esquerda: a ordem alfabética é a de criação
+        Collections.sort(segments);
+        for (Path file : segments) {
+            totalSize += Files.size(file);
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+        }
+
+        Properties checkpoint = new Properties();
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE_NAME);
+        if (Files.exists(checkpointFile)) {
+            try (InputStream in = Files.newInputStream(checkpointFile)) {
+                checkpoint.load(in);
+            }
+        }
+        String segment = checkpoint.getProperty(KEY_SEGMENT);
+        if (segment != null && !segments.isEmpty() && segments.get(0).getFileName().toString().equals(segment)) {
+            readPosition = Long.parseLong(checkpoint.getProperty(KEY_POSITION, "0"));
+        }
+
+        startSegment();
+    }
+
+    /**
+     * Fecha o segmento ativo. Os lotes não confirmados são retomados na próxima abertura.
+     */
+    public synchronized void close() throws IOException {
+        try {
+            if (active != null) active.close();
+        } finally {
+            active = null;
+            if (lockChannel != null) lockChannel.close();
+            lockChannel = null;
+            lock = null;
+        }
+    }
+
+    /**
+     * Fecha a fila e remove o diretório, se não há lotes pendentes (fila de uma instância encerrada
+     * já enviada por completo).
+     *
+     * @return true se o diretório foi removido
+     */
+    public synchronized boolean delete() throws IOException {
+        if (lock == null || getPendingBytes() > 0) return false;
+        // Remove os segmentos ainda com a trava, para que outra instância não abra a fila pela metade
+        if (active != null) active.close();
+        active = null;
+        for (Path segment : segments) Files.deleteIfExists(segment);
+        segments.clear();
+        totalSize = 0;
+        readPosition = 0;
+        Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE_NAME));
+        close();
+        Files.deleteIfExists(directory.resolve(LOCK_FILE_NAME));
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            return false;
+        }
+        return true;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Acrescenta um lote ao segmento ativo, descartando os segmentos mais antigos se o limite de
+     * tamanho for ultrapassado.
+     */
+    public synchronized void append(byte[] data) throws IOException {
+        if (active == null) throw new IOException("Fila de envio fechada");
+        if (active.size() >= segmentSize) startSegment();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + data.length);
+        record.putInt(data.length).putInt((int) crc.getValue()).put(data);
+        ((Buffer) record).flip();
+        while (record.hasRemaining()) active.write(record);
+        totalSize += RECORD_HEADER_SIZE + data.length;
+
+        while (maxSize > 0 && totalSize > maxSize && segments.size() > 1) dropOldest();
+    }
+
+    /**
+     * Lê o próximo lote não confirmado, sem removê-lo.
+     *
+     * @return O lote ou null se não há lotes completos pendentes
+     */
+    public synchronized Batch peek() throws IOException {
+        while (!segments.isEmpty()) {
+            Path segment = segments.get(0);
+            boolean isActive = segments.size() == 1;
+            long size;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                size = channel.size();
+                if (readPosition + RECORD_HEADER_SIZE <= size) {
+                    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                    readFully(channel, header, readPosition);
+                    ((Buffer) header).flip();
+                    int length = header.getInt();
+                    int expectedCrc = header.getInt();
+                    long next = readPosition + RECORD_HEADER_SIZE + length;
+                    if (length >= 0 && next <= size) {
+                        ByteBuffer data = ByteBuffer.allocate(length);
+                        readFully(channel, data, readPosition + RECORD_HEADER_SIZE);
+                        CRC32 crc = new CRC32();
+                        crc.update(data.array(), 0, length);
+                        if ((int) crc.getValue() == expectedCrc) return new Batch(segment, next, data.array());
+                    }
+                }
+            }
+            // No segmento ativo aguarda novos lotes
+            if (isActive) return null;
+            // Em um segmento fechado, passa ao próximo; um registro incompleto ou corrompido
+            // descarta o resto do segmento
+            if (readPosition == size) removeFirst();
+            else dropOldest();
+        }
+        return null;
+    }
+
+    /**
+     * Confirma o envio do lote, avançando a posição de leitura. Um segmento fechado inteiramente
+     * confirmado é removido.
+     */
+    public synchronized void ack(Batch batch) throws IOException {
+        // O segmento pode ter sido descartado pelo limite de tamanho durante o envio
+        if (segments.isEmpty() || !segments.get(0).equals(batch.segment)) return;
+        readPosition = batch.nextPosition;
+        if (segments.size() > 1 && readPosition >= Files.size(batch.segment)) removeFirst();
+        else saveCheckpoint();
+    }
+
+    /**
+     * Descarta os segmentos fechados sem alterações há mais que a idade informada.
+     *
+     * @param maxAge Idade máxima, em milissegundos
+     */
+    public synchronized void applyRetention(long maxAge) throws IOException {
+        long limit = System.currentTimeMillis() - maxAge;
+        while (segments.size() > 1 && Files.getLastModifiedTime(segments.get(0)).toMillis() < limit) dropOldest();
+    }
+
+    /**
+     * @return Bytes ainda não confirmados
+     */
+    public synchronized long getPendingBytes() {
+        return Math.max(0, totalSize - readPosition);
+    }
+
+    /**
+     * @return Bytes descartados pelo limite de tamanho, pela idade ou por corrupção
+     */
+    public synchronized long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    private void startSegment() throws IOException {
+        if (active != null) active.close();
+        Path segment = directory.resolve(String.format("%012d", nextSequence++) + SEGMENT_SUFFIX);
+        active = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.add(segment);
+    }
+
+    private void dropOldest() throws IOException {
+        discardedBytes += Math.max(0, Files.size(segments.get(0)) - readPosition);
+        removeFirst();
+    }
+
+    private void removeFirst() throws IOException {
+        Path segment = segments.remove(0);
+        totalSize -= Files.size(segment);
+        Files.deleteIfExists(segment);
+        readPosition = 0;
+        saveCheckpoint();
+    }
+
+    private void saveCheckpoint() throws IOException {
+        Properties checkpoint = new Properties();
+        if (!segments.isEmpty()) checkpoint.setProperty(KEY_SEGMENT, segments.get(0).getFileName().toString());
+        checkpoint.setProperty(KEY_POSITION, String.valueOf(readPosition));
+        Path file = directory.resolve(CHECKPOINT_FILE_NAME);
+        Path temp = directory.resolve(CHECKPOINT_FILE_NAME + LogCompressor.TEMP_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            checkpoint.store(out, null);
+        }
+        LogCompressor.moveAtomically(temp, file);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Fim inesperado do segmento");
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.appender.EmailDigestAppender;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Envio de emails em texto por SMTP, com TLS (STARTTLS ou implícito, como na porta 465) e
+ * autenticação opcionais. A autenticação usa AUTH PLAIN quando o servidor o anuncia e AUTH LOGIN
+ * nos demais casos; outros mecanismos (CRAM-MD5, XOAUTH2) não são suportados.
+ * <p>
+ * Implementa apenas o necessário para os alertas de log, sem depender do JavaMail. Cada envio
+ * abre uma conexão própria. Remetente, destinatários e assunto com quebra de linha são rejeitados,
+ * para que não injetem cabeçalhos ou comandos SMTP.
+ */
+public class SmtpMailTransport implements EmailDigestAppender.MailTransport {
+
+    public static final int DEFAULT_TIMEOUT = 10000;
+    // Porta do SMTP com TLS implícito (SMTPS)
+    public static final int SMTPS_PORT = 465;
+
+    private final String host;
+    private final int port;
+    private final String from;
+    private final List<String> to = new ArrayList<>();
+    private String username;
+    private String password;
+    private boolean startTls;
+    private boolean implicitTls;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @param host Servidor SMTP
+     * @param port Porta do servidor SMTP
+     * @param from Endereço remetente
+     * @param to   Endereços destinatários (separados por vírgula)
+     * @throws IllegalArgumentException Se algum endereço contém quebra de linha ou {@code <>}
+     */
+    public SmtpMailTransport(String host, int port, String from, String to) {
+        this.host = host;
+        this.port = port;
+        this.from = checkAddress(from);
+        for (String address : to.split(",")) {
+            if (!address.trim().isEmpty()) this.to.add(checkAddress(address.trim()));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException Se o assunto contém quebra de linha
+     */
+    @Override
+    public void send(String subject, String body) throws IOException {
+        checkSingleLine(subject, "Assunto");
+        try (Socket plain = new Socket()) {
+            plain.connect(new InetSocketAddress(host, port), timeout);
+            plain.setSoTimeout(timeout);
+
+            Socket socket = implicitTls ? secure(plain) : plain;
+            try {
+                Connection connection = new Connection(socket);
+                connection.expect(220);
+                List<String> capabilities = connection.command("EHLO " + localHostName(), 250);
+
+                if (startTls && !implicitTls) {
+                    connection.command("STARTTLS", 220);
+                    socket = secure(plain);
+                    connection = new Connection(socket);
+                    capabilities = connection.command("EHLO " + localHostName(), 250);
+                }
+
+                if (username != null && !username.isEmpty()) authenticate(connection, capabilities);
+
+                connection.command("MAIL FROM:<" + from + ">", 250);
+                for (String address : to) connection.command("RCPT TO:<" + address + ">", 250, 251);
+                connection.command("DATA", 354);
+                connection.write(message(subject, body));
+                connection.command(".", 250);
+                connection.command("QUIT", 221);
+            } finally {
+                if (socket != plain) socket.close();
+            }
+        }
+    }
+
+    /**
+     * Inicia o TLS sobre a conexão, verificando se o certificado corresponde ao servidor.
+     */
+    private Socket secure(Socket plain) throws IOException {
+        SSLSocket secure = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                .createSocket(plain, host, port, true);
+        SSLParameters parameters = secure.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        secure.setSSLParameters(parameters);
+        secure.startHandshake();
+        return secure;
+    }
+
+    /**
+     * Autentica com AUTH PLAIN, se anunciado na resposta ao EHLO, ou com AUTH LOGIN.
+     */
+    private void authenticate(Connection connection, List<String> capabilities) throws IOException {
+        String secret = password != null ? password : "";
+        if (supportsAuth(capabilities, "PLAIN")) {
+            connection.command("AUTH PLAIN " + base64("\0" + username + "\0" + secret), 235);
+        } else {
+            connection.command("AUTH LOGIN", 334);
+            connection.command(base64(username), 334);
+            connection.command(base64(secret), 235);
+        }
+    }
+
+    private static boolean supportsAuth(List<String> capabilities, String mechanism) {
+        for (String line : capabilities) {
+            // Linhas "250-AUTH PLAIN LOGIN" ou "250 AUTH=PLAIN"
+            String capability = line.length() > 4 ? line.substring(4).toUpperCase(Locale.ROOT) : "";
+            if (!capability.startsWith("AUTH")) continue;
+            for (String value : capability.substring(4).split("[ =]")) {
+                if (value.equals(mechanism)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static String checkAddress(String address) {
+        checkSingleLine(address, "Endereço");
+        if (address.indexOf('<') >= 0 || address.indexOf('>') >= 0) {
+            throw new IllegalArgumentException("Endereço de email inválido: " + address);
+        }
+        return address;
+    }
+
+    private static void checkSingleLine(String value, String field) {
+        if (value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException(field + " do email não pode conter quebra de linha");
+        }
+    }
+
+    /**
+     * Monta cabeçalhos e corpo, com quebras CRLF e linhas iniciadas por ponto duplicadas.
+     */
+    private String message(String subject, String body) {
+        StringBuilder message = new StringBuilder();
+        message.append("From: ").append(from).append("\r\n");
+        message.append("To: ").append(String.join(", ", to)).append("\r\n");
+        message.append("Subject: =?UTF-8?B?").append(base64(subject)).append("?=\r\n");
+        message.append("Date: ").append(new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z", Locale.US).format(new Date())).append("\r\n");
+        message.append("MIME-Version: 1.0\r\n");
+        message.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        message.append("Content-Transfer-Encoding: 8bit\r\n");
+        message.append("\r\n");
+        for (String line : body.split("\r?\n", -1)) {
+            if (line.startsWith(".")) message.append('.');
+            message.append(line).append("\r\n");
+        }
+        return message.toString();
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setStartTls(boolean startTls) {
+        this.startTls = startTls;
+    }
+
+    /**
+     * Inicia o TLS logo ao conectar, antes do diálogo SMTP (SMTPS, porta 465), em vez do STARTTLS.
+     */
+    public void setImplicitTls(boolean implicitTls) {
+        this.implicitTls = implicitTls;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Troca de comandos e respostas em uma conexão SMTP.
+     */
+    private static final class Connection {
+        private final BufferedReader reader;
+        private final OutputStream output;
+
+        Connection(Socket socket) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.output = socket.getOutputStream();
+        }
+
+        void write(String text) throws IOException {
+            output.write(text.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        }
+
+        List<String> command(String command, int... expected) throws IOException {
+            write(command + "\r\n");
+            return expect(expected);
+        }
+
+        /**
+         * Lê a resposta (inclusive as de várias linhas) e verifica o código.
+         *
+         * @return Linhas da resposta
+         */
+        List<String> expect(int... expected) throws IOException {
+            List<String> lines = new ArrayList<>();
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) throw new IOException("Conexão SMTP encerrada pelo servidor");
+                lines.add(line);
+            } while (line.length() > 3 && line.charAt(3) == '-');
+
+            int code;
+            try {
+                code = Integer.parseInt(line.substring(0, Math.min(3, line.length())));
+            } catch (NumberFormatException e) {
+                throw new IOException("Resposta inválida do servidor SMTP: " + line);
+            }
+            for (int value : expected) if (code == value) return lines;
+            throw new IOException("Resposta inesperada do servidor SMTP: " + line);
+        }
+    }
+}
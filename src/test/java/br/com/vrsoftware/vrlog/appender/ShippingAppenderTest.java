@@ -0,0 +1,155 @@
+package br.com.vrsoftware.vrlog.appender;
+
+import br.com.vrsoftware.vrlog.util.HttpLogTransport;
+import br.com.vrsoftware.vrlog.util.ShippingSpool;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShippingAppenderTest {
+
+    @TempDir
+    Path dir;
+
+    private final Queue<String> received = new ConcurrentLinkedQueue<>();
+    // Respostas 503 antes de aceitar os lotes
+    private final AtomicInteger failures = new AtomicInteger();
+    private LoggerContext context;
+    private HttpServer server;
+    private ShippingAppender appender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ingest", exchange -> {
+            byte[] body = readAll(new GZIPInputStream(exchange.getRequestBody()));
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                received.add(new String(body, StandardCharsets.UTF_8));
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        context = new LoggerContext();
+        context.setName("teste");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (appender != null) appender.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void repeteOEnvioAteODestinoAceitar() throws Exception {
+        failures.set(2);
+        appender = createAppender();
+
+        for (int i = 0; i < 10; i++) appender.doAppend(event("mensagem " + i));
+
+        await(() -> String.join("", received).contains("mensagem 9"));
+        String shipped = String.join("", received);
+        for (int i = 0; i < 10; i++) assertTrue(shipped.contains("mensagem " + i + "\n"));
+        assertEquals(2, appender.getFailedAttempts());
+        assertEquals(0, appender.getDiscardedCount());
+        await(() -> appender.getPendingBytes() == 0);
+    }
+
+    @Test
+    void enviaERemoveAFilaDeUmaInstanciaEncerrada() throws Exception {
+        Path orphanDir = dir.resolve("ship").resolve("99999-teste");
+        ShippingSpool orphan = new ShippingSpool(orphanDir, 1024 * 1024, 0);
+        orphan.open();
+        orphan.append(gzip("pendente de outra execução\n"));
+        orphan.close();
+
+        appender = createAppender();
+
+        await(() -> received.contains("pendente de outra execução\n"));
+        await(() -> !Files.exists(orphanDir));
+    }
+
+    @Test
+    void naoAbreAFilaEmUsoPorOutroAppenderDoMesmoContexto() throws Exception {
+        appender = createAppender();
+        ShippingAppender other = createAppender();
+        try {
+            assertFalse(other.isStarted());
+        } finally {
+            other.stop();
+        }
+    }
+
+    private ShippingAppender createAppender() throws IOException {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        ShippingAppender shipping = new ShippingAppender();
+        shipping.setContext(context);
+        shipping.setName(ShippingAppender.NAME);
+        shipping.setTransport(new HttpLogTransport(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/ingest")));
+        shipping.setEncoder(encoder);
+        shipping.setDirectory(dir.resolve("ship"));
+        shipping.setLinger(10);
+        shipping.setRetryInitial(10);
+        shipping.setRetryMax(50);
+        shipping.start();
+        return shipping;
+    }
+
+    private LoggingEvent event(String message) {
+        return new LoggingEvent(getClass().getName(), context.getLogger("teste"), Level.INFO, message, null, null);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Condição não atingida em 10 s");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.vrsoftware.vrlog.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpLogTransportTest {
+
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<byte[]> body = new AtomicReference<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private HttpServer server;
+    private HttpLogTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ingest", exchange -> {
+            body.set(readAll(exchange.getRequestBody()));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        transport = new HttpLogTransport(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/ingest"));
+        transport.setTimeout(5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void confirmaOLoteEmRespostas2xx() throws IOException {
+        transport.addHeader("Authorization", "Bearer abc");
+
+        assertTrue(transport.send("lote".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("lote", new String(body.get(), StandardCharsets.UTF_8));
+        assertEquals("Bearer abc", authorization.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {408, 429, 500, 503})
+    void repeteAsFalhasTemporarias(int code) {
+        status.set(code);
+        assertThrows(IOException.class, () -> transport.send(new byte[]{1}));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {400, 401, 404, 413})
+    void descartaOLoteNasDemaisRespostas(int code) throws IOException {
+        status.set(code);
+        assertFalse(transport.send(new byte[]{1}));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.vrsoftware.vrlog.util;
+
+import br.com.vrsoftware.vrlog.domain.enums.TipoCompressao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentCompressorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void naoSubstituiUmArquivoComprimidoExistente() throws IOException {
+        // Segmento de uma execução anterior no mesmo dia, já comprimido
+        Path segment = dir.resolve("application.log.2026-10-16.0");
+        Files.write(segment, bytes("execução anterior\n"));
+        Path first = SegmentCompressor.compress(segment, TipoCompressao.GZIP, 6);
+        Files.delete(segment);
+
+        // Após o reinício o Logback repete o número do segmento
+        Files.write(segment, bytes("execução atual\n"));
+        Path second = SegmentCompressor.compress(segment, TipoCompressao.GZIP, 6);
+
+        assertEquals(dir.resolve("application.log.2026-10-16.0.gz"), first);
+        assertEquals(dir.resolve("application.log.2026-10-16.0-1.gz"), second);
+        assertEquals("execução anterior\n", gunzip(first));
+        assertEquals("execução atual\n", gunzip(second));
+        assertTrue(ArchiveManifest.isArchive(second.getFileName().toString()));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.vrsoftware.vrlog.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShippingSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void retomaDaPosicaoConfirmadaAposReinicio() throws IOException {
+        ShippingSpool spool = new ShippingSpool(dir, 1024, 0);
+        spool.open();
+        spool.append(bytes("a"));
+        spool.append(bytes("b"));
+        spool.append(bytes("c"));
+        spool.ack(spool.peek());
+        spool.close();
+
+        ShippingSpool reopened = new ShippingSpool(dir, 1024, 0);
+        reopened.open();
+        ShippingSpool.Batch batch = reopened.peek();
+        assertEquals("b", text(batch));
+        // Sem confirmação, o mesmo lote é lido de novo
+        assertEquals("b", text(reopened.peek()));
+        reopened.ack(batch);
+        assertEquals("c", text(reopened.peek()));
+        reopened.close();
+    }
+
+    @Test
+    void registroIncompletoNoFimDoSegmentoEhDescartado() throws IOException {
+        ShippingSpool spool = new ShippingSpool(dir, 1024, 0);
+        spool.open();
+        spool.append(bytes("primeiro"));
+        spool.append(bytes("segundo"));
+        spool.close();
+
+        // Simula a queda do processo no meio da gravação do segundo lote
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        ShippingSpool reopened = new ShippingSpool(dir, 1024, 0);
+        reopened.open();
+        ShippingSpool.Batch batch = reopened.peek();
+        assertEquals("primeiro", text(batch));
+        reopened.ack(batch);
+        assertNull(reopened.peek());
+        assertTrue(reopened.getDiscardedBytes() > 0);
+        assertEquals(0, reopened.getPendingBytes());
+        reopened.close();
+    }
+
+    @Test
+    void registroCorrompidoDescartaORestoDoSegmento() throws IOException {
+        ShippingSpool spool = new ShippingSpool(dir, 1024, 0);
+        spool.open();
+        spool.append(bytes("primeiro"));
+        spool.append(bytes("segundo"));
+        spool.close();
+
+        // Altera um byte dos dados do primeiro lote, após o cabeçalho (tamanho e CRC)
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 8);
+        }
+
+        ShippingSpool reopened = new ShippingSpool(dir, 1024, 0);
+        reopened.open();
+        assertNull(reopened.peek());
+        assertEquals(0, reopened.getPendingBytes());
+        assertFalse(Files.exists(segment));
+        reopened.append(bytes("terceiro"));
+        assertEquals("terceiro", text(reopened.peek()));
+        reopened.close();
+    }
+
+    @Test
+    void descartaOsSegmentosMaisAntigosAoPassarDoLimite() throws IOException {
+        // Cada lote (8 bytes de cabeçalho + 1016 de dados) preenche um segmento de 1 KB
+        ShippingSpool spool = new ShippingSpool(dir, 1024, 3 * 1024);
+        spool.open();
+        for (int i = 0; i < 10; i++) {
+            byte[] data = new byte[1016];
+            Arrays.fill(data, (byte) i);
+            spool.append(data);
+        }
+
+        assertEquals(3 * 1024, spool.getPendingBytes());
+        assertEquals(7 * 1024, spool.getDiscardedBytes());
+        assertEquals(7, spool.peek().getData()[0]);
+        spool.close();
+    }
+
+    @Test
+    void naoAbreAFilaTravadaPorOutraInstancia() throws IOException {
+        ShippingSpool owner = new ShippingSpool(dir, 1024, 0);
+        owner.open();
+        try {
+            assertThrows(IOException.class, () -> new ShippingSpool(dir, 1024, 0).open());
+        } finally {
+            owner.close();
+        }
+
+        ShippingSpool next = new ShippingSpool(dir, 1024, 0);
+        next.open();
+        next.close();
+    }
+
+    @Test
+    void removeODiretorioSoSemLotesPendentes() throws IOException {
+        Path owner = dir.resolve("123-default");
+        ShippingSpool spool = new ShippingSpool(owner, 1024, 0);
+        spool.open();
+        spool.append(bytes("a"));
+        assertFalse(spool.delete());
+
+        spool.ack(spool.peek());
+        assertTrue(spool.delete());
+        assertFalse(Files.exists(owner));
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + ShippingSpool.SEGMENT_SUFFIX)) {
+            for (Path file : stream) segments.add(file);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ShippingSpool.Batch batch) {
+        assertNotNull(batch);
+        return new String(batch.getData(), StandardCharsets.UTF_8);
+    }
+}
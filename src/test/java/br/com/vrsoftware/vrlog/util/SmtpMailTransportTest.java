@@ -0,0 +1,142 @@
+package br.com.vrsoftware.vrlog.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpMailTransportTest {
+
+    // Comandos e linhas de dados recebidos pelo servidor
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private volatile String authMechanisms = "PLAIN LOGIN";
+    private ServerSocket server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        serverThread = new Thread(this::serve, "smtp-teste");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        serverThread.join(5000);
+    }
+
+    @Test
+    void enviaAMensagemComAuthPlainQuandoAnunciado() throws IOException {
+        SmtpMailTransport transport = createTransport();
+        transport.setUsername("usuario");
+        transport.setPassword("senha");
+
+        transport.send("Alerta", "linha 1\n.linha com ponto");
+
+        String plain = Base64.getEncoder().encodeToString("\0usuario\0senha".getBytes(StandardCharsets.UTF_8));
+        assertTrue(received.contains("AUTH PLAIN " + plain));
+        assertTrue(received.contains("MAIL FROM:<app@example.com>"));
+        assertTrue(received.contains("RCPT TO:<admin@example.com>"));
+        assertTrue(received.contains("RCPT TO:<suporte@example.com>"));
+        assertTrue(received.contains("Subject: =?UTF-8?B?" + Base64.getEncoder().encodeToString("Alerta".getBytes(StandardCharsets.UTF_8)) + "?="));
+        assertTrue(received.contains("linha 1"));
+        assertTrue(received.contains("..linha com ponto"));
+        assertEquals("QUIT", received.get(received.size() - 1));
+    }
+
+    @Test
+    void usaAuthLoginQuandoPlainNaoEhAnunciado() throws IOException {
+        authMechanisms = "LOGIN";
+        SmtpMailTransport transport = createTransport();
+        transport.setUsername("usuario");
+        transport.setPassword("senha");
+
+        transport.send("Alerta", "corpo");
+
+        int auth = received.indexOf("AUTH LOGIN");
+        assertTrue(auth >= 0);
+        assertEquals(Base64.getEncoder().encodeToString("usuario".getBytes(StandardCharsets.UTF_8)), received.get(auth + 1));
+        assertEquals(Base64.getEncoder().encodeToString("senha".getBytes(StandardCharsets.UTF_8)), received.get(auth + 2));
+    }
+
+    @Test
+    void rejeitaQuebrasDeLinhaNosCabecalhos() {
+        int port = server.getLocalPort();
+        assertThrows(IllegalArgumentException.class,
+                () -> new SmtpMailTransport("127.0.0.1", port, "app@example.com\r\nBcc: outro@example.com", "admin@example.com"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SmtpMailTransport("127.0.0.1", port, "app@example.com", "admin@example.com>\r\nRCPT TO:<outro@example.com"));
+        assertThrows(IllegalArgumentException.class,
+                () -> createTransport().send("Alerta\r\nBcc: outro@example.com", "corpo"));
+        assertTrue(received.isEmpty());
+    }
+
+    private SmtpMailTransport createTransport() {
+        SmtpMailTransport transport = new SmtpMailTransport("127.0.0.1", server.getLocalPort(),
+                "app@example.com", "admin@example.com, suporte@example.com");
+        transport.setTimeout(5000);
+        return transport;
+    }
+
+    /**
+     * Servidor SMTP mínimo: aceita uma conexão e responde a cada comando com sucesso.
+     */
+    private void serve() {
+        try (Socket socket = server.accept()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 teste");
+            boolean data = false;
+            int loginSteps = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                received.add(line);
+                if (data) {
+                    if (line.equals(".")) {
+                        data = false;
+                        reply(out, "250 OK");
+                    }
+                } else if (loginSteps > 0) {
+                    reply(out, --loginSteps > 0 ? "334 UGFzc3dvcmQ6" : "235 OK");
+                } else if (line.startsWith("EHLO")) {
+                    reply(out, "250-teste\r\n250-AUTH " + authMechanisms + "\r\n250 OK");
+                } else if (line.equals("AUTH LOGIN")) {
+                    loginSteps = 2;
+                    reply(out, "334 VXNlcm5hbWU6");
+                } else if (line.startsWith("AUTH PLAIN")) {
+                    reply(out, "235 OK");
+                } else if (line.equals("DATA")) {
+                    data = true;
+                    reply(out, "354 OK");
+                } else if (line.equals("QUIT")) {
+                    reply(out, "221 OK");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException ignored) {
+            // Servidor encerrado no fim do teste
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}